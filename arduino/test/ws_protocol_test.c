@@ -0,0 +1,107 @@
+/**
+ * Host test for the binary frame encoder in ../ws_protocol.h.
+ *
+ * Encodes a fixed set of readings and compares the bytes with golden_frames.hex,
+ * which the app's unit tests decode as well. Run with `make test`; after an
+ * intentional format change, regenerate the golden file with `make golden` and
+ * bump WS_PROTOCOL_BINARY.
+ */
+
+#include <stdio.h>
+#include <string.h>
+
+#include "../ws_protocol.h"
+
+#define GOLDEN_FILE "golden_frames.hex"
+#define MAX_LINE 512
+
+typedef struct {
+  uint8_t sequence;
+  uint8_t count;
+  ws_node_t nodes[3];
+} test_case_t;
+
+static const test_case_t CASES[] = {
+    {0, 1, {{0, 3.21, 21.50, 0}}},
+    {7, 2, {{0, 2.87, -4.25, -64}, {1, 12.5, 35.06, -71}}},
+    {255, 3, {{0, 0.0, -0.01, -128}, {2, 49.99, 64.99, -1}, {5, 0.05, -34.5, -90}}},
+};
+#define CASE_COUNT (sizeof(CASES) / sizeof(CASES[0]))
+
+static void to_hex(const uint8_t *bytes, uint16_t length, char *out) {
+  for (uint16_t i = 0; i < length; i++) sprintf(out + 2 * i, "%02x", bytes[i]);
+  out[2 * length] = '\0';
+}
+
+static int update_golden(void) {
+  FILE *file = fopen(GOLDEN_FILE, "w");
+  if (!file) {
+    perror(GOLDEN_FILE);
+    return 1;
+  }
+  fprintf(file, "# Binary frames (protocol version 3) produced by ws_protocol_test.c\n");
+  for (unsigned c = 0; c < CASE_COUNT; c++) {
+    uint8_t frame[WS_FRAME_LENGTH(WS_MAX_NODES)];
+    char hex[MAX_LINE];
+    uint16_t length = ws_encode_frame(frame, CASES[c].sequence, CASES[c].nodes, CASES[c].count);
+    to_hex(frame, length, hex);
+    fprintf(file, "%s\n", hex);
+  }
+  fclose(file);
+  return 0;
+}
+
+int main(int argc, char **argv) {
+  if (argc > 1 && strcmp(argv[1], "--update") == 0) return update_golden();
+
+  int failures = 0;
+
+  // Standard check value of CRC-16/CCITT-FALSE
+  const uint8_t check[] = "123456789";
+  if (ws_crc16(check, 9) != 0x29B1) {
+    printf("FAIL crc16 check value: %04x\n", ws_crc16(check, 9));
+    failures++;
+  }
+
+  uint8_t frame[WS_FRAME_LENGTH(WS_MAX_NODES)];
+  if (ws_encode_frame(frame, 0, CASES[0].nodes, 0) != 0) {
+    printf("FAIL empty frame was encoded\n");
+    failures++;
+  }
+
+  FILE *file = fopen(GOLDEN_FILE, "r");
+  if (!file) {
+    perror(GOLDEN_FILE);
+    return 1;
+  }
+
+  char line[MAX_LINE];
+  unsigned c = 0;
+  while (fgets(line, sizeof(line), file)) {
+    if (line[0] == '#' || line[0] == '\n') continue;
+    line[strcspn(line, "\r\n")] = '\0';
+    if (c >= CASE_COUNT) {
+      printf("FAIL golden file has more frames than test cases\n");
+      failures++;
+      break;
+    }
+
+    char hex[MAX_LINE];
+    uint16_t length = ws_encode_frame(frame, CASES[c].sequence, CASES[c].nodes, CASES[c].count);
+    to_hex(frame, length, hex);
+    if (length != WS_FRAME_LENGTH(CASES[c].count) || strcmp(hex, line) != 0) {
+      printf("FAIL case %u\n  expected %s\n  actual   %s\n", c, line, hex);
+      failures++;
+    }
+    c++;
+  }
+  fclose(file);
+
+  if (c != CASE_COUNT) {
+    printf("FAIL golden file has %u frames, expected %u\n", c, (unsigned)CASE_COUNT);
+    failures++;
+  }
+
+  printf("%s: %u frames checked\n", failures ? "FAILED" : "OK", c);
+  return failures ? 1 : 0;
+}
@@ -1,5 +1,6 @@
 #include <OneWire.h>
 #include <ArduinoJson.h>
+#include "ws_protocol.h"
 
 /**
  * Weather Station Firmware v2.1
@@ -29,6 +30,13 @@ byte sensorAddr[8];
 bool isSensorFound = false;
 bool isFamilyS20 = false;     // True for DS18S20, False for DS18B20
 
+// --- Protocol State ---
+// JSON by default; the app requests binary frames with "PROTO 3" and JSON with "PROTO 2"
+bool useBinaryProtocol = false;
+uint8_t frameSequence = 0;
+char commandBuffer[16];
+uint8_t commandLength = 0;
+
 // --- Calibration Constants (Custom 4-Cup 5-Window Carbon Anemometer) ---
 // R = 28.5mm, 4 cups, 5 pulses/rev, K = 2.7
 // Formula: v = (Hz * WIND_SCALE) + WIND_OFFSET
@@ -62,6 +70,8 @@ void setup() {
  * Calculates averages and transmits a framed JSON packet.
  */
 void loop() {
+  readCommands();
+
   unsigned long currentMillis = millis();
   
   // Check if it's time for the next sample
@@ -110,6 +120,34 @@ void loop() {
   }
 }
 
+/**
+ * Collects newline-terminated commands from the app without blocking the sampling loop.
+ */
+void readCommands() {
+  while (Serial.available() > 0) {
+    char c = Serial.read();
+    if (c == '\n' || c == '\r') {
+      commandBuffer[commandLength] = '\0';
+      if (commandLength > 0) handleCommand(commandBuffer);
+      commandLength = 0;
+    } else if (commandLength < sizeof(commandBuffer) - 1) {
+      commandBuffer[commandLength++] = c;
+    }
+  }
+}
+
+/**
+ * Switches the telemetry format. Unknown commands are ignored, which is also how
+ * older firmware reacts, so the app falls back to JSON on its own.
+ */
+void handleCommand(const char *command) {
+  if (strcmp(command, "PROTO 3") == 0) {
+    useBinaryProtocol = true;
+  } else if (strcmp(command, "PROTO 2") == 0) {
+    useBinaryProtocol = false;
+  }
+}
+
 /**
  * Interrupt Service Routine (ISR) triggered by the anemometer.
  */
@@ -169,10 +207,18 @@ double readTemperatureFromSensor() {
 }
 
 void sendTelemetryPacket(double wind, double temp) {
+  if (useBinaryProtocol) {
+    ws_node_t node = {0, wind, temp, 0};
+    uint8_t frame[WS_FRAME_LENGTH(1)];
+    uint16_t length = ws_encode_frame(frame, frameSequence++, &node, 1);
+    Serial.write(frame, length);
+    return;
+  }
+
   StaticJsonBuffer<200> jsonBuffer;
   JsonObject& root = jsonBuffer.createObject();
   
-  root["version"] = 2;
+  root["version"] = WS_PROTOCOL_JSON;
   root["numberOfNodes"] = 1;
   
   JsonArray& measurements = root.createNestedArray("measurements");
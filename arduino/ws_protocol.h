@@ -0,0 +1,96 @@
+#ifndef WS_PROTOCOL_H
+#define WS_PROTOCOL_H
+
+/**
+ * Compact binary telemetry frame (protocol version 3).
+ *
+ * offset  size  field
+ * 0       2     sync word 0xA5 0x5A
+ * 2       1     protocol version (3)
+ * 3       1     sequence number, wraps at 255
+ * 4       1     node count n (1..WS_MAX_NODES)
+ * 5       6n    per node: id (u8), wind speed (u16, 0.01 m/s),
+ *               temperature (s16, 0.01 degC), rssi (s8, dBm)
+ * 5+6n    2     CRC-16/CCITT-FALSE over bytes 2 .. 5+6n-1
+ *
+ * Multi-byte fields are little-endian. A single-node frame is 13 bytes.
+ * The app decoder is connection/BinaryFrame.java; keep both in sync.
+ *
+ * Plain C without Arduino headers, so the encoder can be tested on the host
+ * (see test/ws_protocol_test.c).
+ */
+
+#include <stdint.h>
+
+#define WS_SYNC_0 0xA5
+#define WS_SYNC_1 0x5A
+#define WS_PROTOCOL_JSON 2
+#define WS_PROTOCOL_BINARY 3
+#define WS_HEADER_LENGTH 5
+#define WS_NODE_LENGTH 6
+#define WS_CRC_LENGTH 2
+#define WS_MAX_NODES 32
+#define WS_FRAME_LENGTH(n) (WS_HEADER_LENGTH + (n) * WS_NODE_LENGTH + WS_CRC_LENGTH)
+
+typedef struct {
+  uint8_t nodeId;
+  double windSpeed;    // m/s
+  double temperature;  // degC
+  int8_t rssi;         // dBm, 0 when unknown
+} ws_node_t;
+
+/** CRC-16/CCITT-FALSE: polynomial 0x1021, initial value 0xFFFF, no reflection. */
+static inline uint16_t ws_crc16(const uint8_t *data, uint16_t length) {
+  uint16_t crc = 0xFFFF;
+  for (uint16_t i = 0; i < length; i++) {
+    crc ^= (uint16_t)data[i] << 8;
+    for (uint8_t bit = 0; bit < 8; bit++) {
+      crc = (crc & 0x8000) ? (uint16_t)((crc << 1) ^ 0x1021) : (uint16_t)(crc << 1);
+    }
+  }
+  return crc;
+}
+
+/** Rounds to hundredths and clamps to the range of the field. */
+static inline int32_t ws_to_centi(double value, int32_t min, int32_t max) {
+  double scaled = value * 100.0;
+  int32_t centi = (int32_t)(scaled >= 0 ? scaled + 0.5 : scaled - 0.5);
+  if (centi < min) return min;
+  if (centi > max) return max;
+  return centi;
+}
+
+static inline void ws_put_u16(uint8_t *out, uint16_t value) {
+  out[0] = (uint8_t)(value & 0xFF);
+  out[1] = (uint8_t)(value >> 8);
+}
+
+/**
+ * Encodes one frame into out, which must hold WS_FRAME_LENGTH(count) bytes.
+ * Returns the frame length, or 0 if count is out of range.
+ */
+static inline uint16_t ws_encode_frame(uint8_t *out, uint8_t sequence,
+                                       const ws_node_t *nodes, uint8_t count) {
+  if (count == 0 || count > WS_MAX_NODES) return 0;
+
+  out[0] = WS_SYNC_0;
+  out[1] = WS_SYNC_1;
+  out[2] = WS_PROTOCOL_BINARY;
+  out[3] = sequence;
+  out[4] = count;
+
+  uint8_t *record = out + WS_HEADER_LENGTH;
+  for (uint8_t i = 0; i < count; i++) {
+    record[0] = nodes[i].nodeId;
+    ws_put_u16(record + 1, (uint16_t)ws_to_centi(nodes[i].windSpeed, 0, 65535));
+    ws_put_u16(record + 3, (uint16_t)(int16_t)ws_to_centi(nodes[i].temperature, -32768, 32767));
+    record[5] = (uint8_t)nodes[i].rssi;
+    record += WS_NODE_LENGTH;
+  }
+
+  uint16_t length = WS_FRAME_LENGTH(count);
+  ws_put_u16(out + length - WS_CRC_LENGTH, ws_crc16(out + 2, length - 2 - WS_CRC_LENGTH));
+  return length;
+}
+
+#endif  // WS_PROTOCOL_H
@@ -4,7 +4,9 @@ import android.app.Application;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
+import com.kresshy.weatherstation.fragment.SettingsFragment;
 import com.kresshy.weatherstation.logging.FileLoggingTree;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
 
 import dagger.hilt.android.HiltAndroidApp;
 
@@ -40,6 +42,10 @@ public class WSApplication extends Application {
             Timber.plant(fileLoggingTree);
         }
 
+        // Optionally time each stage of the data pipeline
+        PipelineMetrics.setEnabled(
+                sharedPreferences.getBoolean(SettingsFragment.KEY_PREF_PIPELINE_METRICS, false));
+
         Timber.d("ONCREATE");
     }
 }
@@ -0,0 +1,75 @@
+package com.kresshy.weatherstation.backtest;
+
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+
+/** The outcome of replaying every session of a backtest with one configuration. */
+public final class BacktestResult {
+
+    private final int index;
+    private final double sensitivity;
+    private final ThermalAnalyzer.Parameters parameters;
+    private final DetectionStats launch;
+    private final DetectionStats potential;
+
+    BacktestResult(
+            int index,
+            double sensitivity,
+            ThermalAnalyzer.Parameters parameters,
+            DetectionStats launch,
+            DetectionStats potential) {
+        this.index = index;
+        this.sensitivity = sensitivity;
+        this.parameters = parameters;
+        this.launch = launch;
+        this.potential = potential;
+    }
+
+    /**
+     * @return Number of the configuration in its {@link ParameterGrid}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The sensitivity the analyzers ran with.
+     */
+    public double getSensitivity() {
+        return sensitivity;
+    }
+
+    /**
+     * @return The half-lives and thresholds the analyzers ran with.
+     */
+    public ThermalAnalyzer.Parameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return How LAUNCH decisions matched the labelled thermals.
+     */
+    public DetectionStats getLaunch() {
+        return launch;
+    }
+
+    /**
+     * @return How POTENTIAL or better decisions matched the labelled thermals.
+     */
+    public DetectionStats getPotential() {
+        return potential;
+    }
+
+    @Override
+    public String toString() {
+        return "#"
+                + index
+                + " sensitivity="
+                + sensitivity
+                + " "
+                + parameters
+                + "\n  LAUNCH    "
+                + launch
+                + "\n  POTENTIAL "
+                + potential;
+    }
+}
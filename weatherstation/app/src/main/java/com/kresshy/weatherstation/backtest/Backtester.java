@@ -0,0 +1,182 @@
+package com.kresshy.weatherstation.backtest;
+
+import com.kresshy.weatherstation.repository.WeatherRepository;
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.WeatherData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Replays recorded sessions through a fresh {@link ThermalAnalyzer} for every configuration of a
+ * {@link ParameterGrid} and scores when LAUNCH and POTENTIAL fire against the labelled thermals.
+ * Configurations are independent, so the grid is split recursively across a fork/join pool and
+ * every core replays its own share; the sessions are shared read-only.
+ *
+ * <p>Each configuration replays with one reused {@link WeatherData}, so the only allocation per
+ * reading is the analyzer's own result.
+ */
+public final class Backtester {
+
+    private final Session[] sessions;
+    private final long earlyToleranceMillis;
+
+    /**
+     * @param sessions The recorded sessions to replay.
+     * @param earlyToleranceMillis How long before a thermal starts a fire still counts as a hit.
+     */
+    public Backtester(List<Session> sessions, long earlyToleranceMillis) {
+        if (earlyToleranceMillis < 0) {
+            throw new IllegalArgumentException("earlyToleranceMillis < 0: " + earlyToleranceMillis);
+        }
+        this.sessions = sessions.toArray(new Session[0]);
+        this.earlyToleranceMillis = earlyToleranceMillis;
+    }
+
+    /**
+     * Runs every configuration on the common fork/join pool, which has a worker per core.
+     *
+     * @param grid The configurations.
+     * @return One result per configuration, in grid order.
+     */
+    public BacktestResult[] run(ParameterGrid grid) {
+        return run(grid, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs every configuration on a given pool.
+     *
+     * @param grid The configurations.
+     * @param pool The pool to run on.
+     * @return One result per configuration, in grid order.
+     */
+    public BacktestResult[] run(ParameterGrid grid, ForkJoinPool pool) {
+        BacktestResult[] results = new BacktestResult[grid.size()];
+        pool.invoke(new Sweep(grid, results, 0, results.length));
+        return results;
+    }
+
+    /**
+     * Replays every session with one configuration on the calling thread.
+     *
+     * @param grid The configurations.
+     * @param index Number of the configuration.
+     * @return Its result.
+     */
+    public BacktestResult evaluate(ParameterGrid grid, int index) {
+        ThermalAnalyzer.Parameters parameters = grid.getParameters(index);
+        double sensitivity = grid.getSensitivity(index);
+        Tally launch = new Tally();
+        Tally potential = new Tally();
+        WeatherData reading = new WeatherData();
+
+        for (Session session : sessions) {
+            ThermalAnalyzer analyzer = new ThermalAnalyzer(parameters);
+            analyzer.setEnabled(true);
+            analyzer.setSensitivity(sensitivity);
+            launch.startSession(session);
+            potential.startSession(session);
+
+            boolean wasLaunch = false;
+            boolean wasPotential = false;
+            for (int i = 0; i < session.size(); i++) {
+                long timestamp = session.getTimestampMillis(i);
+                reading.getTimestamp().setTime(timestamp);
+                reading.setWindSpeed(session.getWindSpeed(i));
+                reading.setTemperature(session.getTemperature(i));
+
+                WeatherRepository.LaunchDecision decision = analyzer.analyze(reading).decision;
+                boolean isLaunch = decision == WeatherRepository.LaunchDecision.LAUNCH;
+                boolean isPotential =
+                        isLaunch || decision == WeatherRepository.LaunchDecision.POTENTIAL;
+                if (isLaunch && !wasLaunch) launch.fire(timestamp);
+                if (isPotential && !wasPotential) potential.fire(timestamp);
+                wasLaunch = isLaunch;
+                wasPotential = isPotential;
+            }
+            launch.endSession();
+            potential.endSession();
+        }
+        return new BacktestResult(
+                index, sensitivity, parameters, launch.toStats(), potential.toStats());
+    }
+
+    /** Splits a range of configurations in halves until each task runs one. */
+    private final class Sweep extends RecursiveAction {
+        private final ParameterGrid grid;
+        private final BacktestResult[] results;
+        private final int start;
+        private final int end;
+
+        Sweep(ParameterGrid grid, BacktestResult[] results, int start, int end) {
+            this.grid = grid;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (end > start) results[start] = evaluate(grid, start);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(
+                    new Sweep(grid, results, start, middle), new Sweep(grid, results, middle, end));
+        }
+    }
+
+    /** Matches the fires of one decision level with the labelled thermals, session by session. */
+    private final class Tally {
+        private int fires;
+        private int hits;
+        private int events;
+        private int detectedEvents;
+        private long totalLeadMillis;
+
+        private Session session;
+
+        /** First thermal of the session that has not ended before the latest fire. */
+        private int nextEvent;
+
+        /** Time of the first hit per thermal of the session, or {@link Long#MIN_VALUE}. */
+        private long[] firstHit = new long[0];
+
+        void startSession(Session session) {
+            this.session = session;
+            nextEvent = 0;
+            int count = session.getEventCount();
+            events += count;
+            if (firstHit.length < count) firstHit = new long[count];
+            Arrays.fill(firstHit, 0, count, Long.MIN_VALUE);
+        }
+
+        void fire(long timestamp) {
+            fires++;
+            int count = session.getEventCount();
+            while (nextEvent < count && session.getEventEndMillis(nextEvent) < timestamp) {
+                nextEvent++;
+            }
+            if (nextEvent < count
+                    && timestamp >= session.getEventStartMillis(nextEvent) - earlyToleranceMillis) {
+                hits++;
+                if (firstHit[nextEvent] == Long.MIN_VALUE) firstHit[nextEvent] = timestamp;
+            }
+        }
+
+        void endSession() {
+            for (int e = 0; e < session.getEventCount(); e++) {
+                if (firstHit[e] == Long.MIN_VALUE) continue;
+                detectedEvents++;
+                totalLeadMillis += session.getEventStartMillis(e) - firstHit[e];
+            }
+        }
+
+        DetectionStats toStats() {
+            return new DetectionStats(fires, hits, events, detectedEvents, totalLeadMillis);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kresshy.weatherstation.backtest;
+
+import java.util.Locale;
+
+/**
+ * How well one launch decision level fired against the labelled thermals of a backtest. A fire is
+ * the moment the decision reaches the level; it is a hit if a thermal starts within the early
+ * tolerance after it or is still going on, and a false alarm otherwise.
+ */
+public final class DetectionStats {
+
+    private final int fires;
+    private final int hits;
+    private final int events;
+    private final int detectedEvents;
+    private final long totalLeadMillis;
+
+    DetectionStats(int fires, int hits, int events, int detectedEvents, long totalLeadMillis) {
+        this.fires = fires;
+        this.hits = hits;
+        this.events = events;
+        this.detectedEvents = detectedEvents;
+        this.totalLeadMillis = totalLeadMillis;
+    }
+
+    /**
+     * @return How often the decision reached the level.
+     */
+    public int getFires() {
+        return fires;
+    }
+
+    /**
+     * @return How many fires were followed by or fell within a thermal.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return How many thermals were labelled.
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * @return How many thermals had at least one fire.
+     */
+    public int getDetectedEvents() {
+        return detectedEvents;
+    }
+
+    /**
+     * @return The share of fires that were hits, or NaN if the level never fired.
+     */
+    public double getPrecision() {
+        return fires == 0 ? Double.NaN : (double) hits / fires;
+    }
+
+    /**
+     * @return The share of thermals that were detected, or NaN if none was labelled.
+     */
+    public double getRecall() {
+        return events == 0 ? Double.NaN : (double) detectedEvents / events;
+    }
+
+    /**
+     * @return How long before a detected thermal started its first fire came on average, in
+     *     milliseconds; negative if the fires came after the start. NaN if none was detected.
+     */
+    public double getMeanLeadMillis() {
+        return detectedEvents == 0 ? Double.NaN : (double) totalLeadMillis / detectedEvents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.US,
+                "precision %.2f recall %.2f lead %.0f s (%d fires, %d/%d thermals)",
+                getPrecision(),
+                getRecall(),
+                getMeanLeadMillis() / 1000,
+                fires,
+                detectedEvents,
+                events);
+    }
+}
@@ -0,0 +1,100 @@
+package com.kresshy.weatherstation.backtest;
+
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+
+/**
+ * Every combination of candidate values for the tunable settings of the {@link ThermalAnalyzer}.
+ * Configurations are numbered and decoded on demand rather than stored, so large grids cost no
+ * memory. The last dimension varies fastest.
+ */
+public final class ParameterGrid {
+
+    private final double[] sensitivities;
+    private final double[] fastHalfLives;
+    private final double[] slowHalfLives;
+    private final int[] launchScores;
+    private final int[] potentialScores;
+    private final int poorScore;
+    private final double maxWindSpeed;
+
+    /**
+     * @param sensitivities Candidate score multipliers.
+     * @param fastHalfLives Candidate half-lives of the fast EMAs, in seconds.
+     * @param slowHalfLives Candidate half-lives of the slow EMAs, in seconds.
+     * @param launchScores Candidate lowest scores for LAUNCH.
+     * @param potentialScores Candidate lowest scores for POTENTIAL.
+     */
+    public ParameterGrid(
+            double[] sensitivities,
+            double[] fastHalfLives,
+            double[] slowHalfLives,
+            int[] launchScores,
+            int[] potentialScores) {
+        this.sensitivities = requireValues(sensitivities, "sensitivities");
+        this.fastHalfLives = requireValues(fastHalfLives, "fastHalfLives");
+        this.slowHalfLives = requireValues(slowHalfLives, "slowHalfLives");
+        this.launchScores = requireValues(launchScores, "launchScores");
+        this.potentialScores = requireValues(potentialScores, "potentialScores");
+        poorScore = ThermalAnalyzer.Parameters.DEFAULT.poorScore;
+        maxWindSpeed = ThermalAnalyzer.Parameters.DEFAULT.maxWindSpeed;
+    }
+
+    /**
+     * @return The number of configurations.
+     */
+    public int size() {
+        return sensitivities.length
+                * fastHalfLives.length
+                * slowHalfLives.length
+                * launchScores.length
+                * potentialScores.length;
+    }
+
+    /**
+     * @param index Number of the configuration, from 0 to {@link #size()} - 1.
+     * @return Its sensitivity.
+     */
+    public double getSensitivity(int index) {
+        checkIndex(index);
+        return sensitivities[index / (size() / sensitivities.length)];
+    }
+
+    /**
+     * @param index Number of the configuration, from 0 to {@link #size()} - 1.
+     * @return Its half-lives and thresholds.
+     */
+    public ThermalAnalyzer.Parameters getParameters(int index) {
+        checkIndex(index);
+        int rest = index;
+        int potential = rest % potentialScores.length;
+        rest /= potentialScores.length;
+        int launch = rest % launchScores.length;
+        rest /= launchScores.length;
+        int slow = rest % slowHalfLives.length;
+        rest /= slowHalfLives.length;
+        int fast = rest % fastHalfLives.length;
+        return new ThermalAnalyzer.Parameters(
+                fastHalfLives[fast],
+                slowHalfLives[slow],
+                launchScores[launch],
+                potentialScores[potential],
+                poorScore,
+                maxWindSpeed);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+    }
+
+    private static double[] requireValues(double[] values, String name) {
+        if (values.length == 0) throw new IllegalArgumentException("No " + name);
+        return values.clone();
+    }
+
+    private static int[] requireValues(int[] values, String name) {
+        if (values.length == 0) throw new IllegalArgumentException("No " + name);
+        return values.clone();
+    }
+}
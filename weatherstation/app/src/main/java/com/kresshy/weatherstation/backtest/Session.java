@@ -0,0 +1,86 @@
+package com.kresshy.weatherstation.backtest;
+
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+/**
+ * A recorded session to replay in a backtest: the readings of one sensor node and the thermal
+ * events that were observed during it, e.g. noted by a pilot on the field. The readings are copied
+ * into primitive columns once, so any number of backtests can read them concurrently.
+ */
+public final class Session {
+
+    private final long[] timestamps;
+    private final float[] windSpeeds;
+    private final float[] temperatures;
+    private final long[] eventStarts;
+    private final long[] eventEnds;
+
+    /**
+     * @param readings The readings, oldest first, e.g. a {@link
+     *     com.kresshy.weatherstation.weather.HistorySnapshot}.
+     * @param eventStartMillis Start of every labelled thermal, in ascending order.
+     * @param eventEndMillis End of every labelled thermal, at or after its start.
+     */
+    public Session(WeatherSeries readings, long[] eventStartMillis, long[] eventEndMillis) {
+        if (eventStartMillis.length != eventEndMillis.length) {
+            throw new IllegalArgumentException(
+                    eventStartMillis.length
+                            + " event starts but "
+                            + eventEndMillis.length
+                            + " ends");
+        }
+        for (int i = 0; i < eventStartMillis.length; i++) {
+            if (eventEndMillis[i] < eventStartMillis[i]) {
+                throw new IllegalArgumentException("Event " + i + " ends before it starts");
+            }
+            if (i > 0 && eventStartMillis[i] < eventStartMillis[i - 1]) {
+                throw new IllegalArgumentException("Events not in ascending order at " + i);
+            }
+        }
+        int size = readings.size();
+        timestamps = new long[size];
+        windSpeeds = new float[size];
+        temperatures = new float[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = readings.getTimestampMillis(i);
+            windSpeeds[i] = readings.getWindSpeed(i);
+            temperatures[i] = readings.getTemperature(i);
+        }
+        eventStarts = eventStartMillis.clone();
+        eventEnds = eventEndMillis.clone();
+    }
+
+    /**
+     * @return The number of readings.
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * @return The number of labelled thermals.
+     */
+    public int getEventCount() {
+        return eventStarts.length;
+    }
+
+    long getTimestampMillis(int index) {
+        return timestamps[index];
+    }
+
+    float getWindSpeed(int index) {
+        return windSpeeds[index];
+    }
+
+    float getTemperature(int index) {
+        return temperatures[index];
+    }
+
+    long getEventStartMillis(int event) {
+        return eventStarts[event];
+    }
+
+    long getEventEndMillis(int event) {
+        return eventEnds[event];
+    }
+}
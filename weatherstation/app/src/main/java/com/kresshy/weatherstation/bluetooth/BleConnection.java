@@ -7,20 +7,25 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothProfile;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Parcelable;
+import android.os.SystemClock;
 
+import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 
 import com.kresshy.weatherstation.connection.Connection;
 import com.kresshy.weatherstation.connection.ConnectionState;
+import com.kresshy.weatherstation.connection.FrameDecoder;
 import com.kresshy.weatherstation.connection.HardwareEventListener;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
 import com.kresshy.weatherstation.util.PermissionHelper;
 
 import timber.log.Timber;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -28,10 +33,27 @@ import javax.inject.Inject;
 /**
  * Manages Bluetooth Low Energy (BLE) connections to the Weather Station. Supports standard Nordic
  * UART service (NUS) and other common BLE-to-Serial modules via dynamic property-based discovery.
+ *
+ * <p>With the {@code pref_ble_throughput_mode} preference enabled, the connection asks for a high
+ * connection priority and the largest ATT MTU after service discovery and only enables
+ * notifications once the MTU exchange has finished. The station can then send several frames per
+ * notification at a short connection interval. Notification payloads are fed to the frame decoder
+ * in place, and the negotiated MTU, connection interval and payload throughput are reported to the
+ * log.
  */
 public class BleConnection implements Connection {
 
+    /** The ATT MTU every link starts with. */
+    public static final int DEFAULT_MTU = 23;
+
+    /** The largest ATT MTU, requested in throughput mode. */
+    public static final int THROUGHPUT_MTU = 517;
+
+    /** How often link statistics are reported while notifications arrive. */
+    static final long STATS_INTERVAL_MS = 10_000;
+
     private final Context context;
+    private final SharedPreferences sharedPreferences;
     private HardwareEventListener listener;
     private ConnectionState state = ConnectionState.stopped;
     private BluetoothGatt bluetoothGatt;
@@ -52,19 +74,30 @@ public class BleConnection implements Connection {
     private static final UUID CLIENT_CHARACTERISTIC_CONFIG_UUID =
             UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
 
-    private final StringBuilder messageBuffer = new StringBuilder();
-    private static final String END_MARKER = "_end";
+    private final FrameDecoder frameDecoder = new FrameDecoder(this::deliverFrame);
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Link statistics of the current connection, written on the GATT callback thread
+    private volatile int mtu = DEFAULT_MTU;
+    private volatile int connectionIntervalUnits = 0;
+    private volatile long bytesReceived = 0;
+    private volatile long notificationsReceived = 0;
+    private long firstNotificationTime = 0;
+    private long lastStatsTime = 0;
+
     /**
      * Constructs a new BleConnection.
      *
      * @param context The application context.
+     * @param sharedPreferences Access to persistent settings.
      */
     @Inject
-    public BleConnection(@dagger.hilt.android.qualifiers.ApplicationContext Context context) {
+    public BleConnection(
+            @dagger.hilt.android.qualifiers.ApplicationContext Context context,
+            SharedPreferences sharedPreferences) {
         this.context = context;
+        this.sharedPreferences = sharedPreferences;
     }
 
     @Override
@@ -91,6 +124,8 @@ public class BleConnection implements Connection {
 
         this.listener = listener;
         this.state = ConnectionState.connecting;
+        frameDecoder.reset();
+        resetLinkStats();
         listener.onConnectionStateChange(ConnectionState.connecting);
 
         if (PermissionHelper.hasConnectPermission(context)) {
@@ -145,6 +180,34 @@ public class BleConnection implements Connection {
         this.listener = listener;
     }
 
+    /**
+     * @return The negotiated ATT MTU of the current link.
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * @return The connection interval reported by the stack in milliseconds, or 0 if unknown.
+     */
+    public double getConnectionIntervalMillis() {
+        return connectionIntervalUnits * 1.25;
+    }
+
+    /**
+     * @return The notification payload bytes received on the current link.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return The notifications received on the current link.
+     */
+    public long getNotificationsReceived() {
+        return notificationsReceived;
+    }
+
     private final BluetoothGattCallback gattCallback =
             new BluetoothGattCallback() {
                 @Override
@@ -180,23 +243,46 @@ public class BleConnection implements Connection {
                 public void onServicesDiscovered(BluetoothGatt gatt, int status) {
                     if (status == BluetoothGatt.GATT_SUCCESS) {
                         Timber.d("BLE Services discovered for %s", gatt.getDevice().getAddress());
-                        boolean found = setupUartCharacteristic(gatt);
-                        if (!found) {
-                            Timber.e(
-                                    "No UART service found on BLE device: %s",
-                                    gatt.getDevice().getAddress());
-                            mainHandler.post(
-                                    () -> {
-                                        if (listener != null)
-                                            listener.onToastMessage("Incompatible BLE device");
-                                    });
-                            stop();
+                        if (sharedPreferences.getBoolean("pref_ble_throughput_mode", false)
+                                && requestThroughputLink(gatt)) {
+                            // Notifications are enabled once the MTU exchange completes
+                            return;
                         }
+                        setupUartOrStop(gatt);
                     } else {
                         Timber.e("BLE Service discovery failed with status: %d", status);
                     }
                 }
 
+                @Override
+                public void onMtuChanged(BluetoothGatt gatt, int newMtu, int status) {
+                    if (status == BluetoothGatt.GATT_SUCCESS) {
+                        mtu = newMtu;
+                        reportLinkChange("BLE MTU negotiated: " + newMtu);
+                    } else {
+                        Timber.w("BLE MTU request failed with status: %d", status);
+                    }
+                    setupUartOrStop(gatt);
+                }
+
+                /**
+                 * Reports connection parameter updates. Hidden in the SDK but invoked by the
+                 * framework on API 26 and newer, so it is declared without {@code @Override}.
+                 */
+                @Keep
+                public void onConnectionUpdated(
+                        BluetoothGatt gatt, int interval, int latency, int timeout, int status) {
+                    if (status == BluetoothGatt.GATT_SUCCESS) {
+                        connectionIntervalUnits = interval;
+                        reportLinkChange(
+                                String.format(
+                                        Locale.US,
+                                        "BLE connection interval: %.2f ms, latency %d",
+                                        interval * 1.25,
+                                        latency));
+                    }
+                }
+
                 @Override
                 public void onDescriptorWrite(
                         BluetoothGatt gatt,
@@ -237,6 +323,32 @@ public class BleConnection implements Connection {
                 }
             };
 
+    /**
+     * Asks for a high connection priority and the largest MTU. Must run after service discovery,
+     * since the GATT client handles one request at a time.
+     *
+     * @return true if the MTU request was sent and {@code onMtuChanged} will follow.
+     */
+    private boolean requestThroughputLink(BluetoothGatt gatt) {
+        if (!PermissionHelper.hasConnectPermission(context)) return false;
+        if (!gatt.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH)) {
+            Timber.w("BLE high connection priority request was rejected");
+        }
+        return gatt.requestMtu(THROUGHPUT_MTU);
+    }
+
+    private void setupUartOrStop(BluetoothGatt gatt) {
+        boolean found = setupUartCharacteristic(gatt);
+        if (!found) {
+            Timber.e("No UART service found on BLE device: %s", gatt.getDevice().getAddress());
+            mainHandler.post(
+                    () -> {
+                        if (listener != null) listener.onToastMessage("Incompatible BLE device");
+                    });
+            stop();
+        }
+    }
+
     // Well-known System Service UUIDs to ignore during dynamic discovery
     private static final UUID SERVICE_GENERIC_ACCESS =
             UUID.fromString("00001800-0000-1000-8000-00805f9b34fb");
@@ -348,34 +460,62 @@ public class BleConnection implements Connection {
         }
     }
 
+    /**
+     * Feeds a notification payload to the decoder. The array is read in place: on Android 12 and
+     * older it is the characteristic's own value buffer, so nothing is copied per notification.
+     */
     private void processRawData(byte[] data) {
         if (data == null || data.length == 0) return;
+        long start = PipelineMetrics.start();
+        countNotification(data.length);
+        frameDecoder.feed(data, 0, data.length);
+        PipelineMetrics.record(PipelineMetrics.Stage.READ, start);
+    }
 
-        String incoming = new String(data, StandardCharsets.UTF_8).trim();
-        if (incoming.isEmpty()) return;
-
-        Timber.v("BLE Data Received: %s", incoming);
-        messageBuffer.append(incoming);
-
-        int endIdx = messageBuffer.indexOf(END_MARKER);
-        while (endIdx != -1) {
-            int startWS = messageBuffer.lastIndexOf("WS_", endIdx);
-            int startLegacy = messageBuffer.lastIndexOf("start_", endIdx);
-            int startIdx = Math.max(startWS, startLegacy);
-
-            if (startIdx != -1) {
-                String fullMessage =
-                        messageBuffer.substring(startIdx, endIdx + END_MARKER.length());
-                Timber.d("Parsed BLE PDU: %s", fullMessage);
-                mainHandler.post(
-                        () -> {
-                            if (listener != null) listener.onRawDataReceived(fullMessage);
-                        });
-                messageBuffer.delete(0, endIdx + END_MARKER.length());
-            } else {
-                messageBuffer.delete(0, endIdx + END_MARKER.length());
-            }
-            endIdx = messageBuffer.indexOf(END_MARKER);
+    private void countNotification(int length) {
+        long now = SystemClock.elapsedRealtime();
+        if (notificationsReceived == 0) {
+            firstNotificationTime = now;
+            lastStatsTime = now;
         }
+        notificationsReceived++;
+        bytesReceived += length;
+
+        if (now - lastStatsTime >= STATS_INTERVAL_MS) {
+            lastStatsTime = now;
+            double seconds = (now - firstNotificationTime) / 1000.0;
+            reportLinkChange(
+                    String.format(
+                            Locale.US,
+                            "BLE link: MTU %d, interval %.2f ms, %.0f B/s, %.1f B/notification",
+                            mtu,
+                            getConnectionIntervalMillis(),
+                            bytesReceived / seconds,
+                            (double) bytesReceived / notificationsReceived));
+        }
+    }
+
+    private void resetLinkStats() {
+        mtu = DEFAULT_MTU;
+        connectionIntervalUnits = 0;
+        bytesReceived = 0;
+        notificationsReceived = 0;
+    }
+
+    private void reportLinkChange(String message) {
+        Timber.i(message);
+        mainHandler.post(
+                () -> {
+                    if (listener != null) listener.onLogMessage(message);
+                });
+    }
+
+    /**
+     * Hands a decoded frame to the listener directly on the GATT callback thread. The frame
+     * buffer is reused by the decoder, so it cannot be posted to another thread without a copy.
+     */
+    private void deliverFrame(byte[] frame, int offset, int length) {
+        HardwareEventListener l = listener;
+        if (l != null) l.onFrameReceived(frame, offset, length);
     }
 }
@@ -18,7 +18,6 @@ import timber.log.Timber;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,6 +47,7 @@ public class BluetoothConnection implements Connection {
     private ConnectedRunnable connectedRunnable;
 
     private final BluetoothAdapter bluetoothAdapter;
+    private volatile RfcommReader.Mode readMode = RfcommReader.Mode.BLOCKING;
 
     /**
      * Constructs a new BluetoothConnection.
@@ -178,6 +178,16 @@ public class BluetoothConnection implements Connection {
         }
     }
 
+    /**
+     * Selects how the connected thread waits for incoming bytes. Takes effect on the next
+     * connection.
+     *
+     * @param mode {@link RfcommReader.Mode#BLOCKING} (default) or the legacy polling loop.
+     */
+    public void setReadMode(RfcommReader.Mode mode) {
+        this.readMode = mode;
+    }
+
     /**
      * Provides the current state of the Bluetooth connection.
      *
@@ -265,6 +275,7 @@ public class BluetoothConnection implements Connection {
         private final InputStream inputStream;
         private final OutputStream outputStream;
         private volatile boolean isRunning = true;
+        private final RfcommReader reader;
 
         public ConnectedRunnable(BluetoothSocket socket) {
             this.socket = socket;
@@ -282,55 +293,28 @@ public class BluetoothConnection implements Connection {
 
             inputStream = tmpInputStream;
             outputStream = tmpOutputStream;
+            reader =
+                    inputStream != null
+                            ? new RfcommReader(inputStream, readMode, listener::onFrameReceived)
+                            : null;
         }
 
         @Override
         public void run() {
-            byte[] buffer = new byte[1024];
-            int bytes;
-            StringBuilder curMsg = new StringBuilder();
-            String endMarker = "_end";
+            if (reader == null || !socket.isConnected()) {
+                Timber.e("Connection lost: socket not connected");
+                return;
+            }
 
-            while (isRunning) {
-                try {
-                    if (!socket.isConnected()) throw new IOException();
-
-                    if (inputStream.available() > 0) {
-                        bytes = inputStream.read(buffer);
-                        curMsg.append(new String(buffer, 0, bytes, Charset.forName("UTF-8")));
-
-                        int endIdx = curMsg.indexOf(endMarker);
-                        while (endIdx != -1) {
-                            // Find the best start marker before this end marker
-                            int startWS = curMsg.lastIndexOf("WS_", endIdx);
-                            int startLegacy = curMsg.lastIndexOf("start_", endIdx);
-                            int startIdx = Math.max(startWS, startLegacy);
-
-                            if (startIdx != -1) {
-                                // Extract the full frame including start and end markers
-                                String fullMessage =
-                                        curMsg.substring(startIdx, endIdx + endMarker.length());
-                                Timber.d("New weather data available " + fullMessage);
-                                listener.onRawDataReceived(fullMessage);
-
-                                // Discard processed data including the junk before startIdx
-                                curMsg.delete(0, endIdx + endMarker.length());
-                            } else {
-                                // No start marker found, but we have an end marker.
-                                // Discard up to endIdx + length to stay clean.
-                                curMsg.delete(0, endIdx + endMarker.length());
-                            }
-
-                            endIdx = curMsg.indexOf(endMarker);
-                        }
-                    } else {
-                        Thread.sleep(100);
-                    }
-                } catch (Exception e) {
+            try {
+                reader.run();
+            } catch (Exception e) {
+                if (isRunning) {
                     Timber.e("Connection lost: " + e.getMessage());
-                    isRunning = false;
-                    break;
                 }
+            } finally {
+                isRunning = false;
+                Timber.d("Reader stopped after %d wakeups", reader.getWakeups());
             }
         }
 
@@ -347,6 +331,8 @@ public class BluetoothConnection implements Connection {
 
         public void cancel() {
             isRunning = false;
+            if (reader != null) reader.stop();
+            // Closing the socket releases a reader blocked in read()
             try {
                 if (socket != null) socket.close();
             } catch (IOException e) {
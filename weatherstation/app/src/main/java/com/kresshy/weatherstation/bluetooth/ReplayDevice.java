@@ -0,0 +1,86 @@
+package com.kresshy.weatherstation.bluetooth;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.kresshy.weatherstation.connection.ReplayConnection;
+
+/**
+ * A virtual device that plays a recording back through the live pipeline. Connecting to it routes
+ * to {@link ReplayConnection}.
+ */
+public class ReplayDevice implements Parcelable {
+
+    private final String name;
+    private final String path;
+    private final double speed;
+
+    /**
+     * @param name Display name of the replay.
+     * @param path Path of the session log or raw frame log to replay.
+     * @param speed Playback speed relative to real time; {@link
+     *     ReplayConnection#AS_FAST_AS_POSSIBLE} plays without pauses.
+     */
+    public ReplayDevice(String name, String path, double speed) {
+        this.name = name;
+        this.path = path;
+        this.speed = speed;
+    }
+
+    protected ReplayDevice(Parcel in) {
+        name = in.readString();
+        path = in.readString();
+        speed = in.readDouble();
+    }
+
+    public static final Creator<ReplayDevice> CREATOR =
+            new Creator<ReplayDevice>() {
+                @Override
+                public ReplayDevice createFromParcel(Parcel in) {
+                    return new ReplayDevice(in);
+                }
+
+                @Override
+                public ReplayDevice[] newArray(int size) {
+                    return new ReplayDevice[size];
+                }
+            };
+
+    /**
+     * @return The device name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Path of the recording.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return Playback speed relative to real time.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(name);
+        dest.writeString(path);
+        dest.writeDouble(speed);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayDevice{" + path + " x" + speed + "}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.kresshy.weatherstation.bluetooth;
+
+import com.kresshy.weatherstation.connection.FrameDecoder;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+
+import timber.log.Timber;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the RFCOMM input stream of an established connection and splits it into weather station
+ * frames ("WS_..._end" or "start_..._end") using a {@link FrameDecoder}.
+ *
+ * <p>In {@link Mode#BLOCKING} mode the reader parks in {@link InputStream#read(byte[])} until the
+ * station sends bytes, so a frame is decoded as soon as it arrives and a quiet link costs no CPU
+ * wakeups. {@link Mode#POLLING} keeps the original {@code available()}/sleep loop for stacks that
+ * do not unblock a pending read when the socket is closed.
+ */
+public class RfcommReader {
+
+    /** Strategy used to wait for incoming bytes. */
+    public enum Mode {
+        /** Blocks in {@code read()}; cancelled by closing the underlying socket. */
+        BLOCKING,
+        /** Polls {@code available()} and sleeps {@link #POLL_INTERVAL_MS} when idle. */
+        POLLING
+    }
+
+    /** Idle sleep used by {@link Mode#POLLING}. */
+    public static final long POLL_INTERVAL_MS = 100;
+
+    private final InputStream inputStream;
+    private final Mode mode;
+    private final FrameDecoder decoder;
+    private final byte[] buffer = new byte[1024];
+
+    private volatile boolean isRunning = true;
+    private volatile long wakeups = 0;
+
+    /**
+     * @param inputStream The socket input stream.
+     * @param mode The waiting strategy.
+     * @param listener The consumer of decoded frames, called on the reader thread.
+     */
+    public RfcommReader(
+            InputStream inputStream, Mode mode, FrameDecoder.FrameListener listener) {
+        this.inputStream = inputStream;
+        this.mode = mode;
+        this.decoder = new FrameDecoder(listener);
+    }
+
+    /**
+     * Reads until the stream ends, fails, or {@link #stop()} is called. In blocking mode the caller
+     * must also close the socket to release a pending {@code read()}.
+     *
+     * @throws IOException If the stream fails while the reader is still running.
+     * @throws InterruptedException If the polling sleep is interrupted.
+     */
+    public void run() throws IOException, InterruptedException {
+        while (isRunning) {
+            int bytes;
+            if (mode == Mode.BLOCKING) {
+                bytes = inputStream.read(buffer);
+                wakeups++;
+                if (bytes < 0) {
+                    Timber.d("RFCOMM stream closed by remote");
+                    return;
+                }
+            } else {
+                if (inputStream.available() <= 0) {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                    wakeups++;
+                    continue;
+                }
+                bytes = inputStream.read(buffer);
+                wakeups++;
+                if (bytes < 0) return;
+            }
+
+            if (bytes > 0) {
+                long start = PipelineMetrics.start();
+                decoder.feed(buffer, 0, bytes);
+                PipelineMetrics.record(PipelineMetrics.Stage.READ, start);
+            }
+        }
+    }
+
+    /** Requests the read loop to exit after the current iteration. */
+    public void stop() {
+        isRunning = false;
+    }
+
+    /**
+     * Counts how often the reader thread returned from a blocking call (read or sleep).
+     *
+     * @return The number of wakeups since construction.
+     */
+    public long getWakeups() {
+        return wakeups;
+    }
+}
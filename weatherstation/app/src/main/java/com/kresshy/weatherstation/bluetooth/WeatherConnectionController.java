@@ -129,6 +129,15 @@ public interface WeatherConnectionController {
      */
     void connectToDevice(Parcelable device);
 
+    /**
+     * Tells whether the data comes from a recording rather than a station, from the moment a
+     * {@link ReplayDevice} is connected until another device is connected or connection management
+     * is restarted.
+     *
+     * @return true while a replay is selected.
+     */
+    boolean isReplaying();
+
     /**
      * Sets up system-level receivers for Bluetooth events. This is required for the controller to
      * remain synchronized with hardware state changes.
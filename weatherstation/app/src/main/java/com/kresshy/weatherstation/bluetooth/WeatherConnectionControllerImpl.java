@@ -13,6 +13,7 @@ import androidx.lifecycle.MutableLiveData;
 import com.kresshy.weatherstation.connection.ConnectionManager;
 import com.kresshy.weatherstation.connection.ConnectionState;
 import com.kresshy.weatherstation.connection.HardwareEventListener;
+import com.kresshy.weatherstation.connection.ProtocolNegotiator;
 import com.kresshy.weatherstation.util.PermissionHelper;
 import com.kresshy.weatherstation.util.Resource;
 
@@ -41,6 +42,7 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
     private final BluetoothAdapter bluetoothAdapter;
     private final WeatherBluetoothManager bluetoothManager;
     private final SharedPreferences sharedPreferences;
+    private final ProtocolNegotiator protocolNegotiator;
 
     private final MutableLiveData<Resource<Void>> uiState = new MutableLiveData<>();
     private final MutableLiveData<ConnectionState> connectionState = new MutableLiveData<>();
@@ -51,6 +53,10 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
             new MutableLiveData<>(new ArrayList<>());
 
     private Parcelable lastConnectedDevice;
+    private volatile boolean replaying = false;
+
+    /** Listener of the data layer, told whether each new source can wait; null until set. */
+    private volatile HardwareEventListener dataListener;
     private boolean shouldReconnect = false;
     private final ScheduledExecutorService reconnectExecutor =
             Executors.newSingleThreadScheduledExecutor();
@@ -79,6 +85,7 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
         this.bluetoothAdapter = bluetoothAdapter;
         this.bluetoothManager = bluetoothManager;
         this.sharedPreferences = sharedPreferences;
+        this.protocolNegotiator = new ProtocolNegotiator(connectionManager);
 
         // Set initial states
         connectionState.postValue(ConnectionState.stopped);
@@ -98,6 +105,7 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
      * @param listener The listener instance.
      */
     public void setHardwareEventListener(HardwareEventListener listener) {
+        dataListener = listener;
         connectionManager.setListener(
                 new HardwareEventListener() {
                     @Override
@@ -105,6 +113,24 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
                         listener.onRawDataReceived(data);
                     }
 
+                    @Override
+                    public void onFrameReceived(byte[] frame, int offset, int length) {
+                        protocolNegotiator.onFrame(frame, offset, length);
+                        listener.onFrameReceived(frame, offset, length);
+                    }
+
+                    @Override
+                    public void onRawDataReceived(String data, long receivedAtMillis) {
+                        listener.onRawDataReceived(data, receivedAtMillis);
+                    }
+
+                    @Override
+                    public void onFrameReceived(
+                            byte[] frame, int offset, int length, long receivedAtMillis) {
+                        protocolNegotiator.onFrame(frame, offset, length);
+                        listener.onFrameReceived(frame, offset, length, receivedAtMillis);
+                    }
+
                     @Override
                     public void onConnectionStateChange(ConnectionState state) {
                         handleConnectionStateChange(state);
@@ -146,7 +172,8 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
             case stopped:
                 uiState.postValue(Resource.error("Disconnected", null));
                 connectedDeviceName.postValue(null);
-                if (shouldReconnect && lastConnectedDevice != null) {
+                // A replay that has played to the end is not started again
+                if (shouldReconnect && lastConnectedDevice != null && !replaying) {
                     scheduleReconnect();
                 }
                 break;
@@ -158,6 +185,8 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
         connectionState.postValue(ConnectionState.connected);
         uiState.postValue(Resource.success(null));
         reconnectDelayMs = INITIAL_RECONNECT_DELAY_MS;
+        protocolNegotiator.onConnected(
+                sharedPreferences.getBoolean("pref_binary_protocol", true));
 
         if (lastConnectedDevice != null) {
             if (lastConnectedDevice instanceof BluetoothDevice) {
@@ -169,6 +198,8 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
                 }
             } else if (lastConnectedDevice instanceof SimulatorDevice) {
                 connectedDeviceName.postValue(((SimulatorDevice) lastConnectedDevice).getName());
+            } else if (lastConnectedDevice instanceof ReplayDevice) {
+                connectedDeviceName.postValue(((ReplayDevice) lastConnectedDevice).getName());
             }
         }
     }
@@ -350,6 +381,7 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
             return;
         }
         shouldReconnect = true;
+        setReplaying(false);
         connectionManager.startConnection();
     }
 
@@ -368,11 +400,27 @@ public class WeatherConnectionControllerImpl implements WeatherConnectionControl
     @Override
     public void connectToDevice(Parcelable device) {
         lastConnectedDevice = device;
+        setReplaying(device instanceof ReplayDevice);
         shouldReconnect = true;
         reconnectDelayMs = INITIAL_RECONNECT_DELAY_MS;
         connectionManager.connectToDevice(device);
     }
 
+    /** Tells the data layer before the source changes, so a replay is slowed down, not dropped. */
+    private void setReplaying(boolean replay) {
+        replaying = replay;
+        HardwareEventListener listener = dataListener;
+        if (listener != null) listener.onSourceChanged(replay);
+    }
+
+    /**
+     * @return true from connecting a {@link ReplayDevice} until another device is connected.
+     */
+    @Override
+    public boolean isReplaying() {
+        return replaying;
+    }
+
     /**
      * Attempts to connect to a device identified by its MAC address.
      *
@@ -0,0 +1,195 @@
+package com.kresshy.weatherstation.connection;
+
+/**
+ * Layout of the compact binary station frame (protocol version 3). Firmware that supports it
+ * switches to this format after the app sends {@link ProtocolNegotiator#REQUEST_BINARY}; the
+ * reference encoder is {@code arduino/ws_protocol.h}.
+ *
+ * <pre>
+ * offset  size  field
+ * 0       2     sync word 0xA5 0x5A
+ * 2       1     protocol version (3)
+ * 3       1     sequence number, wraps at 255
+ * 4       1     node count n (1..{@value #MAX_NODES})
+ * 5       6n    per node: id (u8), wind speed (u16, 0.01 m/s),
+ *               temperature (s16, 0.01 degC), rssi (s8, dBm)
+ * 5+6n    2     CRC-16/CCITT-FALSE over bytes 2 .. 5+6n-1
+ * </pre>
+ *
+ * <p>Multi-byte fields are little-endian, the native order of the AVR firmware. A single-node
+ * frame is 13 bytes against roughly 100 for the JSON frame, so it fits one default 20-byte BLE
+ * notification.
+ */
+public final class BinaryFrame {
+
+    /** First byte of the sync word; never part of an ASCII text frame. */
+    public static final byte SYNC_0 = (byte) 0xA5;
+
+    /** Second byte of the sync word. */
+    public static final byte SYNC_1 = (byte) 0x5A;
+
+    /** Protocol version carried by binary frames. JSON frames report version 2. */
+    public static final int VERSION = 3;
+
+    /** Bytes before the first node record: sync word, version, sequence and node count. */
+    public static final int HEADER_LENGTH = 5;
+
+    /** Bytes per node record. */
+    public static final int NODE_LENGTH = 6;
+
+    /** Bytes of the trailing checksum. */
+    public static final int CRC_LENGTH = 2;
+
+    /** Largest node count a frame may announce. */
+    public static final int MAX_NODES = 32;
+
+    public static final int VERSION_OFFSET = 2;
+    public static final int SEQUENCE_OFFSET = 3;
+    public static final int NODE_COUNT_OFFSET = 4;
+
+    // Field offsets within a node record
+    public static final int NODE_ID_OFFSET = 0;
+    public static final int WIND_SPEED_OFFSET = 1;
+    public static final int TEMPERATURE_OFFSET = 3;
+    public static final int RSSI_OFFSET = 5;
+
+    private BinaryFrame() {}
+
+    /**
+     * @param nodeCount The number of node records.
+     * @return The total length of a frame carrying that many nodes.
+     */
+    public static int frameLength(int nodeCount) {
+        return HEADER_LENGTH + nodeCount * NODE_LENGTH + CRC_LENGTH;
+    }
+
+    /**
+     * Validates a frame header and computes the length of the whole frame.
+     *
+     * @param frame The buffer holding at least {@link #HEADER_LENGTH} bytes of the frame.
+     * @param offset Start of the frame within the buffer.
+     * @return The total frame length, or -1 if the header is not a supported binary header.
+     */
+    public static int expectedLength(byte[] frame, int offset) {
+        if (frame[offset] != SYNC_0 || frame[offset + 1] != SYNC_1) return -1;
+        if ((frame[offset + VERSION_OFFSET] & 0xFF) != VERSION) return -1;
+        int nodeCount = frame[offset + NODE_COUNT_OFFSET] & 0xFF;
+        if (nodeCount == 0 || nodeCount > MAX_NODES) return -1;
+        return frameLength(nodeCount);
+    }
+
+    /**
+     * @param frame The buffer holding the frame.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     * @return true if the bytes start with the binary sync word.
+     */
+    public static boolean hasSyncWord(byte[] frame, int offset, int length) {
+        return length >= 2 && frame[offset] == SYNC_0 && frame[offset + 1] == SYNC_1;
+    }
+
+    /**
+     * Checks that a complete frame carries a valid header, the announced length and a matching
+     * checksum.
+     *
+     * @param frame The buffer holding the frame.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     * @return true if the frame can be decoded.
+     */
+    public static boolean isValid(byte[] frame, int offset, int length) {
+        if (length < HEADER_LENGTH || expectedLength(frame, offset) != length) return false;
+        int crc = crc16(frame, offset + VERSION_OFFSET, length - VERSION_OFFSET - CRC_LENGTH);
+        return crc == readUint16(frame, offset + length - CRC_LENGTH);
+    }
+
+    /**
+     * Computes CRC-16/CCITT-FALSE (polynomial 0x1021, initial value 0xFFFF, no reflection), the
+     * variant implemented by the firmware.
+     *
+     * @param data The bytes to checksum.
+     * @param offset Start of the range.
+     * @param length Number of bytes in the range.
+     * @return The checksum in the low 16 bits.
+     */
+    public static int crc16(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * Encodes a frame the way the firmware does, for replaying recorded readings through the
+     * transport path.
+     *
+     * @param frame The buffer to fill; it must hold {@link #frameLength(int)} bytes.
+     * @param sequence The sequence number; only the low 8 bits are kept.
+     * @param nodeIds Node id of every record.
+     * @param windSpeeds Wind speed of every record in m/s.
+     * @param temperatures Temperature of every record in degC.
+     * @param rssis Signal strength of every record in dBm.
+     * @param nodeCount The number of records, 1..{@value #MAX_NODES}.
+     * @return The frame length.
+     */
+    public static int encode(
+            byte[] frame,
+            int sequence,
+            int[] nodeIds,
+            float[] windSpeeds,
+            float[] temperatures,
+            int[] rssis,
+            int nodeCount) {
+        frame[0] = SYNC_0;
+        frame[1] = SYNC_1;
+        frame[VERSION_OFFSET] = VERSION;
+        frame[SEQUENCE_OFFSET] = (byte) sequence;
+        frame[NODE_COUNT_OFFSET] = (byte) nodeCount;
+        for (int i = 0; i < nodeCount; i++) {
+            int record = HEADER_LENGTH + i * NODE_LENGTH;
+            frame[record + NODE_ID_OFFSET] = (byte) nodeIds[i];
+            writeUint16(
+                    frame,
+                    record + WIND_SPEED_OFFSET,
+                    clamp(Math.round(windSpeeds[i] * 100), 0, 0xFFFF));
+            writeUint16(
+                    frame,
+                    record + TEMPERATURE_OFFSET,
+                    clamp(Math.round(temperatures[i] * 100), Short.MIN_VALUE, Short.MAX_VALUE));
+            frame[record + RSSI_OFFSET] = (byte) clamp(rssis[i], Byte.MIN_VALUE, Byte.MAX_VALUE);
+        }
+        int length = frameLength(nodeCount);
+        writeUint16(
+                frame,
+                length - CRC_LENGTH,
+                crc16(frame, VERSION_OFFSET, length - VERSION_OFFSET - CRC_LENGTH));
+        return length;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static void writeUint16(byte[] frame, int index, int value) {
+        frame[index] = (byte) value;
+        frame[index + 1] = (byte) (value >> 8);
+    }
+
+    /**
+     * @return The unsigned little-endian 16-bit value at {@code index}.
+     */
+    public static int readUint16(byte[] frame, int index) {
+        return (frame[index] & 0xFF) | (frame[index + 1] & 0xFF) << 8;
+    }
+
+    /**
+     * @return The signed little-endian 16-bit value at {@code index}.
+     */
+    public static int readInt16(byte[] frame, int index) {
+        return (short) readUint16(frame, index);
+    }
+}
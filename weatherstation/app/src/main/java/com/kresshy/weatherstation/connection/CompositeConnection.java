@@ -6,6 +6,7 @@ import android.os.Parcelable;
 
 import com.kresshy.weatherstation.bluetooth.BleConnection;
 import com.kresshy.weatherstation.bluetooth.BluetoothConnection;
+import com.kresshy.weatherstation.bluetooth.ReplayDevice;
 import com.kresshy.weatherstation.bluetooth.SimulatorDevice;
 import com.kresshy.weatherstation.util.PermissionHelper;
 
@@ -15,7 +16,7 @@ import javax.inject.Inject;
 
 /**
  * A composite connection that routes commands to the appropriate implementation (Classic BT, BLE,
- * or Simulator) based on the device type.
+ * Simulator or Replay) based on the device type.
  */
 public class CompositeConnection implements Connection {
 
@@ -23,6 +24,7 @@ public class CompositeConnection implements Connection {
     private final BluetoothConnection classicConnection;
     private final BleConnection bleConnection;
     private final SimulatorConnection simulatorConnection;
+    private final ReplayConnection replayConnection;
 
     private Connection activeConnection;
     private HardwareEventListener listener;
@@ -35,17 +37,20 @@ public class CompositeConnection implements Connection {
      * @param classicConnection The Bluetooth Classic implementation.
      * @param bleConnection The Bluetooth Low Energy implementation.
      * @param simulatorConnection The virtual station implementation.
+     * @param replayConnection The recording playback implementation.
      */
     @Inject
     public CompositeConnection(
             @dagger.hilt.android.qualifiers.ApplicationContext Context context,
             BluetoothConnection classicConnection,
             BleConnection bleConnection,
-            SimulatorConnection simulatorConnection) {
+            SimulatorConnection simulatorConnection,
+            ReplayConnection replayConnection) {
         this.context = context;
         this.classicConnection = classicConnection;
         this.bleConnection = bleConnection;
         this.simulatorConnection = simulatorConnection;
+        this.replayConnection = replayConnection;
     }
 
     /**
@@ -59,13 +64,14 @@ public class CompositeConnection implements Connection {
         classicConnection.start(listener);
         bleConnection.start(listener);
         simulatorConnection.start(listener);
+        replayConnection.start(listener);
     }
 
     /**
      * Routes a connection request to the appropriate implementation based on the provided device
-     * type (Classic, BLE, or Simulator). Stops any currently active connection only if a switch in
-     * the underlying implementation is required (e.g., from Classic to BLE). This prevents
-     * reconnection loops when device metadata is updated during discovery.
+     * type (Classic, BLE, Simulator or Replay). Stops any currently active connection only if a
+     * switch in the underlying implementation is required (e.g., from Classic to BLE). This
+     * prevents reconnection loops when device metadata is updated during discovery.
      *
      * @param device The target device.
      * @param listener The listener to receive hardware events.
@@ -114,6 +120,8 @@ public class CompositeConnection implements Connection {
     private Connection resolveTargetConnection(Parcelable device, Parcelable oldDevice) {
         if (device instanceof SimulatorDevice) {
             return simulatorConnection;
+        } else if (device instanceof ReplayDevice) {
+            return replayConnection;
         } else if (device instanceof BluetoothDevice) {
             BluetoothDevice btDevice = (BluetoothDevice) device;
             int type = btDevice.getType();
@@ -130,6 +138,7 @@ public class CompositeConnection implements Connection {
                 // 1. Use persistence if address matches active session
                 if (activeConnection != null
                         && activeConnection != simulatorConnection
+                        && activeConnection != replayConnection
                         && isSameDevice(oldDevice, device)) {
                     Timber.i(
                             "Device type is UNKNOWN for %s, persisting active %s driver.",
@@ -193,6 +202,8 @@ public class CompositeConnection implements Connection {
             return ((BluetoothDevice) d1).getAddress().equals(((BluetoothDevice) d2).getAddress());
         } else if (d1 instanceof SimulatorDevice) {
             return ((SimulatorDevice) d1).getAddress().equals(((SimulatorDevice) d2).getAddress());
+        } else if (d1 instanceof ReplayDevice) {
+            return ((ReplayDevice) d1).getPath().equals(((ReplayDevice) d2).getPath());
         }
         return false;
     }
@@ -230,5 +241,6 @@ public class CompositeConnection implements Connection {
         classicConnection.setCallback(listener);
         bleConnection.setCallback(listener);
         simulatorConnection.setCallback(listener);
+        replayConnection.setCallback(listener);
     }
 }
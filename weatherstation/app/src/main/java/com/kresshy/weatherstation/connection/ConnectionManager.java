@@ -53,6 +53,15 @@ public class ConnectionManager {
         connection.connect(device, listener);
     }
 
+    /**
+     * Transmits raw bytes to the station over the active connection, e.g. protocol requests.
+     *
+     * @param out The data payload to transmit.
+     */
+    public void write(byte[] out) {
+        connection.write(out);
+    }
+
     /**
      * Retrieves the current state of the underlying connection. This is used to determine if the
      * system is currently connected, connecting, or disconnected.
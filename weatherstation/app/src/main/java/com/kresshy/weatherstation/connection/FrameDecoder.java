@@ -0,0 +1,240 @@
+package com.kresshy.weatherstation.connection;
+
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+
+/**
+ * Streaming byte-level decoder for the station framing ("WS_{DATA}_end" or "start_{DATA}_end")
+ * and for length-prefixed {@link BinaryFrame binary frames}. Shared by all byte-oriented
+ * transports so that Classic and BLE links frame data identically.
+ *
+ * <p>The decoder runs one incremental matcher per marker and copies bytes into a fixed buffer only
+ * while a frame is open, so every input byte costs O(1) and no objects are allocated after
+ * construction. When an end marker completes, the most recent start marker wins and everything
+ * before it is discarded, matching the behaviour of the original string-based framing. Frames that
+ * outgrow the buffer are dropped and counted.
+ *
+ * <p>A binary sync word opens a binary frame even inside an unfinished text frame, since it never
+ * occurs in ASCII text. The header announces the frame length, text markers are ignored until it
+ * is complete, and frames whose checksum does not match are dropped and counted.
+ *
+ * <p>Instances are not thread-safe; each connection owns its own decoder.
+ */
+public final class FrameDecoder {
+
+    /** Receives complete frames straight out of the decoder buffer. */
+    public interface FrameListener {
+        /**
+         * Called for every complete frame, including its start and end markers or its binary
+         * header and checksum. The buffer is reused by the decoder and is only valid for the
+         * duration of the call.
+         *
+         * @param frame The decoder buffer.
+         * @param offset Start of the frame within the buffer.
+         * @param length Length of the frame in bytes.
+         */
+        void onFrame(byte[] frame, int offset, int length);
+    }
+
+    /** Default upper bound for a single frame, large enough for multi-node JSON frames. */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024;
+
+    private static final byte[] WS_MARKER = {'W', 'S', '_'};
+    private static final byte[] START_MARKER = {'s', 't', 'a', 'r', 't', '_'};
+    private static final byte[] END_MARKER = {'_', 'e', 'n', 'd'};
+
+    private final FrameListener listener;
+    private final byte[] buffer;
+
+    private int wsMatched = 0;
+    private int startMatched = 0;
+    private int endMatched = 0;
+
+    private boolean inFrame = false;
+    private int frameLength = 0;
+    private long overflowCount = 0;
+
+    // Binary framing: whether the last byte was SYNC_0, and the announced length once known
+    private boolean syncMatched = false;
+    private boolean inBinaryFrame = false;
+    private int binaryLength = 0;
+    private long crcErrorCount = 0;
+
+    // Start of the chunk being fed, for the extraction latency of the frames it completes
+    private long chunkStart = 0;
+
+    /**
+     * Creates a decoder with the {@link #DEFAULT_MAX_FRAME_LENGTH default} frame limit.
+     *
+     * @param listener The consumer of complete frames.
+     */
+    public FrameDecoder(FrameListener listener) {
+        this(DEFAULT_MAX_FRAME_LENGTH, listener);
+    }
+
+    /**
+     * @param maxFrameLength The largest frame, in bytes, that will be delivered.
+     * @param listener The consumer of complete frames.
+     */
+    public FrameDecoder(int maxFrameLength, FrameListener listener) {
+        if (maxFrameLength < START_MARKER.length + END_MARKER.length) {
+            throw new IllegalArgumentException("maxFrameLength too small: " + maxFrameLength);
+        }
+        this.buffer = new byte[maxFrameLength];
+        this.listener = listener;
+    }
+
+    /**
+     * Feeds a chunk of bytes received from the transport. Frames may span any number of chunks.
+     *
+     * @param data The received bytes.
+     * @param offset Start of the chunk within {@code data}.
+     * @param length Number of bytes in the chunk.
+     */
+    public void feed(byte[] data, int offset, int length) {
+        final int end = offset + length;
+        chunkStart = PipelineMetrics.start();
+        for (int i = offset; i < end; i++) {
+            final byte b = data[i];
+
+            if (inBinaryFrame) {
+                feedBinary(b);
+                continue;
+            }
+            if (syncMatched && b == BinaryFrame.SYNC_1) {
+                openBinaryFrame();
+                continue;
+            }
+            syncMatched = b == BinaryFrame.SYNC_0;
+
+            if (inFrame) {
+                if (frameLength == buffer.length) {
+                    // Oversized frame: drop it and wait for the next start marker
+                    inFrame = false;
+                    frameLength = 0;
+                    overflowCount++;
+                } else {
+                    buffer[frameLength++] = b;
+                }
+            }
+
+            wsMatched = advance(WS_MARKER, wsMatched, b);
+            if (wsMatched == WS_MARKER.length) {
+                openFrame(WS_MARKER);
+                wsMatched = 0;
+            }
+
+            startMatched = advance(START_MARKER, startMatched, b);
+            if (startMatched == START_MARKER.length) {
+                openFrame(START_MARKER);
+                startMatched = 0;
+            }
+
+            endMatched = advance(END_MARKER, endMatched, b);
+            if (endMatched == END_MARKER.length) {
+                endMatched = 0;
+                if (inFrame) {
+                    inFrame = false;
+                    int frameBytes = frameLength;
+                    frameLength = 0;
+                    PipelineMetrics.record(PipelineMetrics.Stage.EXTRACT, chunkStart);
+                    listener.onFrame(buffer, 0, frameBytes);
+                }
+            }
+        }
+    }
+
+    /** Starts collecting a binary frame whose sync word has just been received. */
+    private void openBinaryFrame() {
+        buffer[0] = BinaryFrame.SYNC_0;
+        buffer[1] = BinaryFrame.SYNC_1;
+        frameLength = 2;
+        inBinaryFrame = true;
+        binaryLength = 0;
+        syncMatched = false;
+        // Any unfinished text frame is abandoned
+        inFrame = false;
+        wsMatched = 0;
+        startMatched = 0;
+        endMatched = 0;
+    }
+
+    /** Collects one byte of a binary frame and delivers the frame once it is complete. */
+    private void feedBinary(byte b) {
+        buffer[frameLength++] = b;
+        if (frameLength == BinaryFrame.HEADER_LENGTH) {
+            binaryLength = BinaryFrame.expectedLength(buffer, 0);
+            if (binaryLength < 0) {
+                // Not a supported header, most likely a stray sync word
+                closeBinaryFrame();
+            } else if (binaryLength > buffer.length) {
+                overflowCount++;
+                closeBinaryFrame();
+            }
+        } else if (frameLength == binaryLength) {
+            int frameBytes = frameLength;
+            closeBinaryFrame();
+            if (BinaryFrame.isValid(buffer, 0, frameBytes)) {
+                PipelineMetrics.record(PipelineMetrics.Stage.EXTRACT, chunkStart);
+                listener.onFrame(buffer, 0, frameBytes);
+            } else {
+                crcErrorCount++;
+            }
+        }
+    }
+
+    private void closeBinaryFrame() {
+        inBinaryFrame = false;
+        binaryLength = 0;
+        frameLength = 0;
+    }
+
+    /**
+     * Advances a marker matcher by one byte. The markers have no proper prefix that is also a
+     * suffix, so a mismatch can only restart the match at the first marker byte.
+     */
+    private static int advance(byte[] marker, int matched, byte b) {
+        if (marker[matched] == b) return matched + 1;
+        return marker[0] == b ? 1 : 0;
+    }
+
+    /** Starts a new frame with the given marker, discarding any partially collected frame. */
+    private void openFrame(byte[] marker) {
+        System.arraycopy(marker, 0, buffer, 0, marker.length);
+        frameLength = marker.length;
+        inFrame = true;
+    }
+
+    /** Discards any partial frame and marker progress, e.g. when a new connection starts. */
+    public void reset() {
+        wsMatched = 0;
+        startMatched = 0;
+        endMatched = 0;
+        inFrame = false;
+        frameLength = 0;
+        syncMatched = false;
+        inBinaryFrame = false;
+        binaryLength = 0;
+    }
+
+    /**
+     * @return true if a start marker or sync word has been seen and the frame is not complete
+     *     yet.
+     */
+    public boolean isInFrame() {
+        return inFrame || inBinaryFrame;
+    }
+
+    /**
+     * @return The number of frames dropped because they exceeded the maximum frame length.
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    /**
+     * @return The number of binary frames dropped because their checksum did not match.
+     */
+    public long getCrcErrorCount() {
+        return crcErrorCount;
+    }
+}
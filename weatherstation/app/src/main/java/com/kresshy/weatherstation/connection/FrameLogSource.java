@@ -0,0 +1,105 @@
+package com.kresshy.weatherstation.connection;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a raw frame log: a text file with one received frame per line, written as the receive time
+ * in epoch milliseconds, whitespace and the frame. Binary frames are written as pairs of hex digits
+ * without separators, as in {@code arduino/test/golden_frames.hex}; anything else is taken as a
+ * text frame verbatim, so frames copied from a field log replay byte for byte, garbage included.
+ * Empty lines and lines starting with {@code #} are skipped.
+ *
+ * <pre>
+ * # station 2, 14:02 dropout
+ * 1700000000000 WS_{"version":2,"numberOfNodes":1,"measurements":[...]}_end
+ * 1700000000100 A55A03070100D2009808C4D7F8
+ * </pre>
+ */
+public final class FrameLogSource implements ReplaySource {
+
+    private final BufferedReader reader;
+    private byte[] frame = new byte[64];
+    private int length;
+    private long timestampMillis;
+    private int lineNumber;
+
+    /**
+     * @param file The frame log.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FrameLogSource(File file) throws IOException {
+        this.reader =
+                new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int split = 0;
+            while (split < line.length() && !Character.isWhitespace(line.charAt(split))) split++;
+            try {
+                timestampMillis = Long.parseLong(line.substring(0, split));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": bad timestamp", e);
+            }
+            String text = line.substring(split).trim();
+            if (isHex(text)) {
+                length = text.length() / 2;
+                ensureCapacity(length);
+                for (int i = 0; i < length; i++) {
+                    frame[i] = (byte) Integer.parseInt(text.substring(2 * i, 2 * i + 2), 16);
+                }
+            } else {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                length = bytes.length;
+                ensureCapacity(length);
+                System.arraycopy(bytes, 0, frame, 0, length);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isHex(String text) {
+        if (text.isEmpty() || text.length() % 2 != 0) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (frame.length < capacity) frame = new byte[Math.max(capacity, frame.length * 2)];
+    }
+
+    @Override
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public byte[] getFrame() {
+        return frame;
+    }
+
+    @Override
+    public int getFrameLength() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
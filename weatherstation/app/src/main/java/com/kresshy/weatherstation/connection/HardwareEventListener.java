@@ -1,5 +1,7 @@
 package com.kresshy.weatherstation.connection;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Listener interface for hardware-level events. This interface defines the contract for handling
  * raw data packets, connection state transitions, and system-level notifications from the hardware
@@ -17,6 +19,61 @@ public interface HardwareEventListener {
      */
     void onRawDataReceived(String data);
 
+    /**
+     * Called when a byte-oriented transport has decoded a complete frame. The buffer belongs to
+     * the transport's {@link FrameDecoder} and is only valid for the duration of the call.
+     *
+     * <p>The default implementation decodes the frame once and forwards it to {@link
+     * #onRawDataReceived(String)}.
+     *
+     * @param frame The buffer holding the frame, including its start and end markers.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     */
+    default void onFrameReceived(byte[] frame, int offset, int length) {
+        onRawDataReceived(new String(frame, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Like {@link #onRawDataReceived(String)}, with the wall-clock time the message was received.
+     * Called by listeners that hand data to another thread, so the readings are stamped with the
+     * time they arrived rather than the time they are parsed.
+     *
+     * <p>The default implementation ignores the time.
+     *
+     * @param data The raw string payload.
+     * @param receivedAtMillis The time the message was received, in milliseconds since the epoch.
+     */
+    default void onRawDataReceived(String data, long receivedAtMillis) {
+        onRawDataReceived(data);
+    }
+
+    /**
+     * Like {@link #onFrameReceived(byte[], int, int)}, with the wall-clock time the frame was
+     * received.
+     *
+     * <p>The default implementation ignores the time.
+     *
+     * @param frame The buffer holding the frame, including its start and end markers.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     * @param receivedAtMillis The time the frame was received, in milliseconds since the epoch.
+     */
+    default void onFrameReceived(byte[] frame, int offset, int length, long receivedAtMillis) {
+        onFrameReceived(frame, offset, length);
+    }
+
+    /**
+     * Called before a new source starts delivering data. A source that can wait, such as a replay,
+     * may be held up until its data has been processed; a live transport never is, since the
+     * station keeps sending regardless.
+     *
+     * <p>The default implementation does nothing.
+     *
+     * @param canWait Whether the new source can wait for its data to be processed.
+     */
+    default void onSourceChanged(boolean canWait) {}
+
     /**
      * Called when the physical hardware connection state changes. This provides the necessary
      * signals to update the UI and internal state machines.
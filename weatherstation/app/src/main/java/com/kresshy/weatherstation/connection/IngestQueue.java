@@ -0,0 +1,384 @@
+package com.kresshy.weatherstation.connection;
+
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+
+import timber.log.Timber;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands received data from the transport threads to a single processing thread through a bounded
+ * ring the consumer drains without locking. It decorates the {@link HardwareEventListener} of the
+ * data layer: frames and raw strings are copied into preallocated slots and the transport callback
+ * returns immediately, while parsing, analysis and LiveData updates run on the ingest thread.
+ * State, toast and log events are rare and cheap, so they are forwarded directly on the calling
+ * thread.
+ *
+ * <p>The ring has a single consumer, the ingest thread. Producers are serialized by a lock: usually
+ * one transport offers data, but while the connection switches, a reader that is still winding
+ * down or a late BLE callback may offer data alongside the next transport. The lock is uncontended
+ * otherwise, so it costs the transport thread next to nothing. When the ring is full,
+ * {@link OverflowPolicy#DROP_OLDEST} discards the oldest unprocessed entry by advancing the
+ * consumer position with a CAS, and {@link OverflowPolicy#BLOCK} parks the transport thread until
+ * the consumer has made room. The consumer copies an entry out before processing it, so a slot is
+ * never held for longer than one copy.
+ *
+ * <p>The {@link Config} sets the capacity and the policy for live transports. A source that reports
+ * through {@link #onSourceChanged(boolean)} that it can wait, such as a replay, is always blocked
+ * instead, so none of its data is lost however fast it plays.
+ *
+ * <p>Each entry records the wall-clock time it was offered at and is delivered through the
+ * timestamped callbacks, so readings carry the time they arrived rather than the time the ingest
+ * thread got round to them after a stall.
+ */
+public final class IngestQueue implements HardwareEventListener {
+
+    /** What to do with new data when the ring is full. */
+    public enum OverflowPolicy {
+        /** Discard the oldest queued entry; the transport never waits. */
+        DROP_OLDEST,
+        /** Park the transport thread until an entry has been processed. */
+        BLOCK
+    }
+
+    /** Size and overflow behaviour of a queue. */
+    public static final class Config {
+        /** The number of entries the ring holds; rounded up to a power of two. */
+        public final int capacity;
+
+        /** What to do when the ring is full while a source that cannot wait is active. */
+        public final OverflowPolicy livePolicy;
+
+        /**
+         * @param capacity The number of entries the ring holds.
+         * @param livePolicy What to do when the ring is full while a live transport is active.
+         */
+        public Config(int capacity, OverflowPolicy livePolicy) {
+            this.capacity = capacity;
+            this.livePolicy = livePolicy;
+        }
+    }
+
+    /** Default number of queued entries, several seconds of data at 10 Hz. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Default configuration: the default capacity, dropping the oldest entry on overflow. */
+    public static final Config DEFAULT_CONFIG =
+            new Config(DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+
+    // Below every position, including the negative ones checked during the first pass of the ring
+    private static final long NOT_CLAIMED = Long.MIN_VALUE;
+    private static final long BLOCK_PARK_NANOS = 1_000_000;
+
+    private final HardwareEventListener delegate;
+    private final OverflowPolicy livePolicy;
+
+    /** Policy for the active source; {@link OverflowPolicy#BLOCK} while it can wait. */
+    private volatile OverflowPolicy policy;
+
+    private final Slot[] slots;
+    private final int mask;
+
+    /** Position of the next entry to consume; advanced by the consumer and by dropping. */
+    private final AtomicLong head = new AtomicLong();
+
+    /** Position of the next entry to produce; written by the producer only. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Position the consumer is copying out of its slot, or {@link #NOT_CLAIMED}. */
+    private volatile long claimed = NOT_CLAIMED;
+
+    /** Held while an entry is reserved, filled and published. */
+    private final Object producerLock = new Object();
+
+    private final Thread consumer;
+    private volatile boolean consumerWaiting = false;
+    private volatile Thread blockedProducer;
+    private volatile boolean running = true;
+
+    // Counters, each written by one thread
+    private volatile long droppedCount = 0;
+    private volatile long deliveredCount = 0;
+    private volatile long maxDepth = 0;
+
+    // Consumer-side copy of the entry being processed
+    private byte[] scratch = new byte[FrameDecoder.DEFAULT_MAX_FRAME_LENGTH];
+
+    /**
+     * Creates a queue with the {@link #DEFAULT_CONFIG default configuration} and starts its ingest
+     * thread.
+     *
+     * @param delegate The listener that processes data on the ingest thread.
+     */
+    public IngestQueue(HardwareEventListener delegate) {
+        this(delegate, DEFAULT_CONFIG);
+    }
+
+    /**
+     * Creates a queue and starts its ingest thread.
+     *
+     * @param delegate The listener that processes data on the ingest thread.
+     * @param config The capacity and the policy for live transports.
+     */
+    public IngestQueue(HardwareEventListener delegate, Config config) {
+        this(delegate, config.capacity, config.livePolicy);
+    }
+
+    /**
+     * Creates a queue and starts its ingest thread.
+     *
+     * @param delegate The listener that processes data on the ingest thread.
+     * @param capacity The number of entries the ring holds; rounded up to a power of two.
+     * @param livePolicy What to do when the ring is full while a live transport is active.
+     */
+    public IngestQueue(HardwareEventListener delegate, int capacity, OverflowPolicy livePolicy) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.delegate = delegate;
+        this.livePolicy = livePolicy;
+        this.policy = livePolicy;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) slots[i] = new Slot();
+
+        consumer = new Thread(this::consumeLoop, "weather-ingest");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void onRawDataReceived(String data) {
+        onRawDataReceived(data, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onRawDataReceived(String data, long receivedAtMillis) {
+        synchronized (producerLock) {
+            Slot slot = acquire();
+            if (slot == null) return;
+            slot.text = data;
+            slot.length = -1;
+            slot.receivedAt = receivedAtMillis;
+            publish();
+        }
+    }
+
+    @Override
+    public void onFrameReceived(byte[] frame, int offset, int length) {
+        onFrameReceived(frame, offset, length, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onFrameReceived(byte[] frame, int offset, int length, long receivedAtMillis) {
+        synchronized (producerLock) {
+            Slot slot = acquire();
+            if (slot == null) return;
+            if (slot.data.length < length) slot.data = new byte[length];
+            System.arraycopy(frame, offset, slot.data, 0, length);
+            slot.text = null;
+            slot.length = length;
+            slot.receivedAt = receivedAtMillis;
+            publish();
+        }
+    }
+
+    /**
+     * Blocks a source that can wait when the ring is full, and applies the live policy to any
+     * other. The change also applies to a producer that is already waiting for room.
+     *
+     * @param canWait Whether the new source can wait for its data to be processed.
+     */
+    @Override
+    public void onSourceChanged(boolean canWait) {
+        policy = canWait ? OverflowPolicy.BLOCK : livePolicy;
+        delegate.onSourceChanged(canWait);
+    }
+
+    @Override
+    public void onConnectionStateChange(ConnectionState state) {
+        delegate.onConnectionStateChange(state);
+    }
+
+    @Override
+    public void onConnected() {
+        delegate.onConnected();
+    }
+
+    @Override
+    public void onToastMessage(String message) {
+        delegate.onToastMessage(message);
+    }
+
+    @Override
+    public void onLogMessage(String message) {
+        delegate.onLogMessage(message);
+    }
+
+    /**
+     * Reserves the slot for the next entry, applying the overflow policy when the ring is full.
+     * Must hold {@code producerLock}. A blocked producer that is interrupted, such as a replay
+     * being stopped, gives up its entry and keeps its interrupt status.
+     *
+     * @return The slot to fill, or null if the queue has been closed or the producer interrupted.
+     */
+    private Slot acquire() {
+        final long t = tail.get();
+        while (true) {
+            if (!running) return null;
+            long h = head.get();
+            if (t - h < slots.length) break;
+
+            if (policy == OverflowPolicy.DROP_OLDEST) {
+                if (head.compareAndSet(h, h + 1)) {
+                    long dropped = ++droppedCount;
+                    if (dropped == 1 || dropped % 100 == 0) {
+                        Timber.w("Ingest queue full, %d entries dropped so far", dropped);
+                    }
+                    break;
+                }
+            } else {
+                if (Thread.currentThread().isInterrupted()) {
+                    droppedCount++;
+                    return null;
+                }
+                blockedProducer = Thread.currentThread();
+                if (t - head.get() >= slots.length) {
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                }
+                blockedProducer = null;
+            }
+        }
+
+        // The consumer may still be copying the entry that previously used this slot
+        while (claimed == t - slots.length) {
+            Thread.yield();
+        }
+        return slots[(int) t & mask];
+    }
+
+    /**
+     * Makes the filled slot visible to the consumer and wakes it if it is idle. Must hold {@code
+     * producerLock}.
+     */
+    private void publish() {
+        long t = tail.get();
+        slots[(int) t & mask].enqueuedAt = PipelineMetrics.start();
+        t++;
+        // A volatile write, so the check of consumerWaiting below cannot move before it
+        tail.set(t);
+        long depth = t - head.get();
+        if (depth > maxDepth) maxDepth = depth;
+        if (consumerWaiting) LockSupport.unpark(consumer);
+    }
+
+    private void consumeLoop() {
+        while (running) {
+            long h = head.get();
+            if (h == tail.get()) {
+                consumerWaiting = true;
+                if (h == tail.get() && running) LockSupport.park(this);
+                consumerWaiting = false;
+                continue;
+            }
+
+            // Announce the claim before taking it, so the producer cannot reuse the slot early
+            claimed = h;
+            if (!head.compareAndSet(h, h + 1)) {
+                // The producer dropped this entry in the meantime
+                claimed = NOT_CLAIMED;
+                continue;
+            }
+            Slot slot = slots[(int) h & mask];
+            String text = slot.text;
+            int length = slot.length;
+            long enqueuedAt = slot.enqueuedAt;
+            long receivedAt = slot.receivedAt;
+            if (length > 0) {
+                if (scratch.length < length) scratch = new byte[length];
+                System.arraycopy(slot.data, 0, scratch, 0, length);
+            }
+            claimed = NOT_CLAIMED;
+
+            Thread producer = blockedProducer;
+            if (producer != null) LockSupport.unpark(producer);
+
+            PipelineMetrics.record(PipelineMetrics.Stage.QUEUE, enqueuedAt);
+            PipelineMetrics.beginFrame(enqueuedAt);
+            // Counted before the hand-off, so a delegate that has seen an entry also sees the count
+            deliveredCount++;
+            try {
+                if (length < 0) {
+                    delegate.onRawDataReceived(text, receivedAt);
+                } else {
+                    delegate.onFrameReceived(scratch, 0, length, receivedAt);
+                }
+            } catch (RuntimeException e) {
+                Timber.e(e, "Ingest: failed to process received data");
+            }
+        }
+    }
+
+    /** Stops the ingest thread. Entries still queued are discarded. */
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        Thread producer = blockedProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+
+    /**
+     * @return The number of entries waiting to be processed.
+     */
+    public int getDepth() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return The largest number of entries that were queued at once.
+     */
+    public long getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The number of entries discarded by {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return The number of entries handed to the delegate.
+     */
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    /**
+     * @return The policy applied when the ring is full, which depends on the active source.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return The number of entries the ring holds.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /** A preallocated ring entry holding either a frame or a raw string. */
+    private static final class Slot {
+        byte[] data = new byte[FrameDecoder.DEFAULT_MAX_FRAME_LENGTH];
+        int length;
+        String text;
+
+        /** Monotonic start of the queue stage, for {@link PipelineMetrics}. */
+        long enqueuedAt;
+
+        /** Wall-clock time the entry was received, stamped on its readings. */
+        long receivedAt;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kresshy.weatherstation.connection;
+
+import timber.log.Timber;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Negotiates the wire format with the station over {@link Connection#write(byte[])}. When the
+ * first frame of a connection arrives the app asks for {@link BinaryFrame binary frames}; firmware
+ * that understands the request switches over, and older firmware ignores it and keeps sending
+ * JSON. Waiting for the first frame guarantees that the transport can already write, which is not
+ * yet the case when some transports report {@code onConnected()}.
+ *
+ * <p>The decoder and parser accept both formats at all times, so the negotiator never has to
+ * block data. It only watches which frames arrive: if the station keeps sending JSON after the
+ * request, binary is assumed to be unsupported and the link stays on JSON. If a binary station
+ * falls back to JSON, e.g. after a firmware reset, the request is sent once more.
+ *
+ * <p>Methods are called from the transport threads and synchronize on the instance.
+ */
+public final class ProtocolNegotiator {
+
+    /** Wire formats the station can send. */
+    public enum Protocol {
+        /** "WS_{json}_end" text frames, protocol version 2. */
+        JSON,
+        /** Compact binary frames, protocol version 3. */
+        BINARY
+    }
+
+    /** Asks the firmware to send binary frames. */
+    public static final byte[] REQUEST_BINARY = "PROTO 3\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** Asks the firmware to send JSON frames. */
+    public static final byte[] REQUEST_JSON = "PROTO 2\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** Text frames tolerated after a binary request before falling back to JSON. */
+    static final int TEXT_FRAMES_BEFORE_FALLBACK = 5;
+
+    private final ConnectionManager connectionManager;
+
+    private Protocol protocol = Protocol.JSON;
+    private boolean preferBinary = false;
+    private boolean negotiationDue = false;
+    private boolean requestPending = false;
+    private int textFramesSinceRequest = 0;
+
+    /**
+     * @param connectionManager The manager whose active connection carries the requests.
+     */
+    public ProtocolNegotiator(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Arms negotiation for a freshly established connection; the request is sent when the first
+     * frame arrives. When binary frames are not wanted but the station still sends them, it is
+     * explicitly asked for JSON, since firmware keeps its format across app reconnects.
+     *
+     * @param preferBinary Whether to request binary frames.
+     */
+    public synchronized void onConnected(boolean preferBinary) {
+        this.preferBinary = preferBinary;
+        protocol = Protocol.JSON;
+        negotiationDue = true;
+        requestPending = false;
+    }
+
+    /**
+     * Observes a complete frame received from the station.
+     *
+     * @param frame The buffer holding the frame.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     */
+    public synchronized void onFrame(byte[] frame, int offset, int length) {
+        if (BinaryFrame.hasSyncWord(frame, offset, length)) {
+            if (protocol != Protocol.BINARY) {
+                Timber.d("Station switched to binary frames");
+            }
+            protocol = Protocol.BINARY;
+            requestPending = false;
+            if (negotiationDue && !preferBinary) connectionManager.write(REQUEST_JSON);
+            negotiationDue = false;
+            return;
+        }
+
+        if (negotiationDue) {
+            negotiationDue = false;
+            if (preferBinary) requestBinary();
+        } else if (protocol == Protocol.BINARY) {
+            Timber.d("Station fell back to JSON frames");
+            protocol = Protocol.JSON;
+            if (preferBinary) requestBinary();
+        } else if (requestPending && ++textFramesSinceRequest >= TEXT_FRAMES_BEFORE_FALLBACK) {
+            Timber.d("Station does not support binary frames, staying on JSON");
+            requestPending = false;
+        }
+    }
+
+    /**
+     * @return The format of the frames the station currently sends.
+     */
+    public synchronized Protocol getProtocol() {
+        return protocol;
+    }
+
+    private void requestBinary() {
+        requestPending = true;
+        textFramesSinceRequest = 0;
+        connectionManager.write(REQUEST_BINARY);
+    }
+}
@@ -0,0 +1,264 @@
+package com.kresshy.weatherstation.connection;
+
+import android.os.Parcelable;
+
+import com.kresshy.weatherstation.bluetooth.ReplayDevice;
+import com.kresshy.weatherstation.recording.SessionLog;
+import com.kresshy.weatherstation.recording.SessionStore;
+
+import timber.log.Timber;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+/**
+ * A connection that plays a recording back through the live pipeline, so field problems can be
+ * reproduced and the repository, analyzers and UI load-tested with real data and no station.
+ *
+ * <p>Session logs ({@link SessionStore#FILE_SUFFIX}) replay as {@link SeriesSource} binary frames;
+ * any other file is read as a {@link FrameLogSource} raw frame log. Binary frames are delivered
+ * through {@link HardwareEventListener#onFrameReceived(byte[], int, int, long)} like a byte
+ * transport would, text frames through {@link HardwareEventListener#onRawDataReceived(String,
+ * long)}, each with the time it was recorded at.
+ *
+ * <p>Frames keep the spacing they were recorded with, divided by the playback speed. Pauses longer
+ * than {@value #MAX_GAP_MS} ms, such as the time between two sessions, are shortened to that. The
+ * readings carry their recorded times whatever the speed, so averages, gust windows and rollups
+ * see the session as it happened.
+ *
+ * <p>Unpaced replays are only limited by the data layer. The connection controller reports a replay
+ * as a source that can wait ({@link HardwareEventListener#onSourceChanged(boolean)}), so the {@link
+ * IngestQueue} blocks the replay thread while its ring is full instead of dropping frames.
+ */
+public class ReplayConnection implements Connection {
+
+    /** Plays the recording with its original timing. */
+    public static final double REAL_TIME = 1;
+
+    /** Plays the recording without pauses. */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    /** Longest pause between two frames of a replay. */
+    static final long MAX_GAP_MS = 60_000;
+
+    /** How long stopping a replay waits for its thread to end. */
+    static final long STOP_TIMEOUT_MS = 2_000;
+
+    private volatile ConnectionState state = ConnectionState.stopped;
+    private volatile HardwareEventListener listener;
+
+    /**
+     * Serializes starting and stopping, so a replay thread has ended before the next one starts.
+     * Held while joining the old thread, which needs the monitor of {@code this} to finish.
+     */
+    private final Object lifecycleLock = new Object();
+
+    /** The replay thread; guarded by {@code this}. */
+    private Thread thread;
+    private volatile long replayedFrames;
+
+    /** Creates an idle replay connection. */
+    @Inject
+    public ReplayConnection() {}
+
+    /**
+     * Prepares the replay service and notifies the listener that it is ready but disconnected.
+     *
+     * @param listener The listener to receive state updates.
+     */
+    @Override
+    public void start(HardwareEventListener listener) {
+        this.listener = listener;
+        state = ConnectionState.disconnected;
+        listener.onConnectionStateChange(state);
+    }
+
+    /**
+     * Starts replaying the recording of a {@link ReplayDevice} on a background thread. The
+     * connection reports {@link ConnectionState#disconnected} once the recording ends.
+     *
+     * @param device The {@link ReplayDevice} to play.
+     * @param listener The listener to receive the replayed frames.
+     */
+    @Override
+    public void connect(Parcelable device, HardwareEventListener listener) {
+        if (!(device instanceof ReplayDevice)) {
+            Timber.e("Cannot replay %s", device);
+            return;
+        }
+        ReplayDevice replay = (ReplayDevice) device;
+        File file = new File(replay.getPath());
+        play(() -> open(file), replay.getSpeed(), listener);
+    }
+
+    /** Opens the source of a replay on the replay thread. */
+    interface SourceFactory {
+        ReplaySource open() throws IOException;
+    }
+
+    /**
+     * @param file A session log or raw frame log.
+     * @return A source reading it.
+     * @throws IOException If the file cannot be opened.
+     */
+    static ReplaySource open(File file) throws IOException {
+        if (file.getName().endsWith(SessionStore.FILE_SUFFIX)) {
+            return new SeriesSource(SessionLog.read(file));
+        }
+        return new FrameLogSource(file);
+    }
+
+    /**
+     * Replaces any running replay with a new one. The old replay thread is stopped and waited for
+     * first, so the two never deliver frames at the same time.
+     *
+     * @param factory Opens the recording.
+     * @param speed Playback speed relative to real time.
+     * @param listener The listener to receive the replayed frames.
+     */
+    void play(SourceFactory factory, double speed, HardwareEventListener listener) {
+        synchronized (lifecycleLock) {
+            stopThread();
+            synchronized (this) {
+                this.listener = listener;
+                state = ConnectionState.connecting;
+                listener.onConnectionStateChange(state);
+                replayedFrames = 0;
+                thread = new Thread(() -> run(factory, speed), "replay");
+                thread.start();
+            }
+        }
+    }
+
+    private void run(SourceFactory factory, double speed) {
+        Thread self = Thread.currentThread();
+        try (ReplaySource source = factory.open()) {
+            if (!setState(self, ConnectionState.connected)) return;
+            HardwareEventListener l = listener;
+            if (l != null) l.onConnected();
+
+            boolean paced = speed > 0 && !Double.isInfinite(speed);
+            long startNanos = System.nanoTime();
+            long previousMillis = 0;
+            long offsetMillis = 0;
+            while (!self.isInterrupted() && source.next()) {
+                long timestampMillis = source.getTimestampMillis();
+                if (replayedFrames > 0) {
+                    long gap = timestampMillis - previousMillis;
+                    offsetMillis += Math.max(0, Math.min(gap, MAX_GAP_MS));
+                }
+                previousMillis = timestampMillis;
+                if (paced) {
+                    long due = startNanos + (long) (offsetMillis * 1_000_000.0 / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                deliver(source.getFrame(), source.getFrameLength(), timestampMillis);
+                replayedFrames++;
+            }
+            l = listener;
+            if (l != null && !self.isInterrupted()) {
+                l.onLogMessage("Replay finished after " + replayedFrames + " frames");
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        } catch (IOException | RuntimeException e) {
+            Timber.e(e, "Replay failed");
+            HardwareEventListener l = listener;
+            if (l != null) l.onToastMessage("Replay failed: " + e.getMessage());
+        }
+        setState(self, ConnectionState.disconnected);
+    }
+
+    private void deliver(byte[] frame, int length, long timestampMillis) {
+        HardwareEventListener l = listener;
+        if (l == null) return;
+        if (BinaryFrame.hasSyncWord(frame, 0, length)) {
+            l.onFrameReceived(frame, 0, length, timestampMillis);
+        } else {
+            l.onRawDataReceived(
+                    new String(frame, 0, length, StandardCharsets.UTF_8), timestampMillis);
+        }
+    }
+
+    /** Changes the state unless the replay running on {@code self} has been replaced or stopped. */
+    private boolean setState(Thread self, ConnectionState newState) {
+        synchronized (this) {
+            if (thread != self) return false;
+            state = newState;
+        }
+        HardwareEventListener l = listener;
+        if (l != null) l.onConnectionStateChange(newState);
+        return true;
+    }
+
+    /** Stops the running replay and waits for its thread to end. */
+    @Override
+    public void stop() {
+        synchronized (lifecycleLock) {
+            stopThread();
+            state = ConnectionState.stopped;
+        }
+    }
+
+    /**
+     * Interrupts the replay thread and waits up to {@link #STOP_TIMEOUT_MS} for it to end. Must
+     * hold {@code lifecycleLock} but not the monitor of {@code this}.
+     */
+    private void stopThread() {
+        Thread previous;
+        synchronized (this) {
+            previous = thread;
+            thread = null;
+        }
+        if (previous == null) return;
+        previous.interrupt();
+        try {
+            previous.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (previous.isAlive()) {
+            Timber.w("Replay thread did not stop within %d ms", STOP_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Replays have no station to talk to; writes are only logged.
+     *
+     * @param out The byte array to be written.
+     */
+    @Override
+    public void write(byte[] out) {
+        Timber.d("Replay ignored write of %d bytes", out.length);
+    }
+
+    /**
+     * @return {@link ConnectionState#connected} while a replay is playing.
+     */
+    @Override
+    public ConnectionState getState() {
+        return state;
+    }
+
+    /**
+     * Routes the replayed frames to a new listener, including those of a running replay.
+     *
+     * @param listener The new listener implementation.
+     */
+    @Override
+    public void setCallback(HardwareEventListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The number of frames delivered by the current or last replay.
+     */
+    public long getReplayedFrameCount() {
+        return replayedFrames;
+    }
+}
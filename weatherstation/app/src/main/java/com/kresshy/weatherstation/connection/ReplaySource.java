@@ -0,0 +1,34 @@
+package com.kresshy.weatherstation.connection;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A recording that {@link ReplayConnection} plays back, read one frame at a time in the order the
+ * frames were received.
+ */
+public interface ReplaySource extends Closeable {
+
+    /**
+     * Advances to the next frame.
+     *
+     * @return false if the recording has no more frames.
+     * @throws IOException If the recording cannot be read.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return Receive time of the current frame in epoch milliseconds.
+     */
+    long getTimestampMillis();
+
+    /**
+     * @return The buffer holding the current frame from index 0; only valid until {@link #next()}.
+     */
+    byte[] getFrame();
+
+    /**
+     * @return Length of the current frame in bytes.
+     */
+    int getFrameLength();
+}
@@ -0,0 +1,69 @@
+package com.kresshy.weatherstation.connection;
+
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+/**
+ * Replays recorded readings, such as a session log, as the {@link BinaryFrame}s a station would
+ * have sent. Consecutive readings with the same timestamp were received in one frame, so they are
+ * encoded into one multi-node frame again. Binary frames carry every recorded field, including the
+ * signal strength, at the resolution the station measures.
+ */
+public final class SeriesSource implements ReplaySource {
+
+    private final WeatherSeries series;
+    private final byte[] frame = new byte[BinaryFrame.frameLength(BinaryFrame.MAX_NODES)];
+    private final int[] nodeIds = new int[BinaryFrame.MAX_NODES];
+    private final float[] windSpeeds = new float[BinaryFrame.MAX_NODES];
+    private final float[] temperatures = new float[BinaryFrame.MAX_NODES];
+    private final int[] rssis = new int[BinaryFrame.MAX_NODES];
+    private int position;
+    private int sequence;
+    private int length;
+    private long timestampMillis;
+
+    /**
+     * @param series The readings, oldest first.
+     */
+    public SeriesSource(WeatherSeries series) {
+        this.series = series;
+    }
+
+    @Override
+    public boolean next() {
+        if (position >= series.size()) return false;
+        timestampMillis = series.getTimestampMillis(position);
+        int nodeCount = 0;
+        while (position < series.size()
+                && nodeCount < BinaryFrame.MAX_NODES
+                && series.getTimestampMillis(position) == timestampMillis) {
+            nodeIds[nodeCount] = series.getNodeId(position);
+            windSpeeds[nodeCount] = series.getWindSpeed(position);
+            temperatures[nodeCount] = series.getTemperature(position);
+            rssis[nodeCount] = series.getRssi(position);
+            nodeCount++;
+            position++;
+        }
+        length =
+                BinaryFrame.encode(
+                        frame, sequence++, nodeIds, windSpeeds, temperatures, rssis, nodeCount);
+        return true;
+    }
+
+    @Override
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public byte[] getFrame() {
+        return frame;
+    }
+
+    @Override
+    public int getFrameLength() {
+        return length;
+    }
+
+    @Override
+    public void close() {}
+}
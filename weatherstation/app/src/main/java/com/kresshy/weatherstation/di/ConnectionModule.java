@@ -2,6 +2,7 @@ package com.kresshy.weatherstation.di;
 
 import com.kresshy.weatherstation.connection.CompositeConnection;
 import com.kresshy.weatherstation.connection.Connection;
+import com.kresshy.weatherstation.connection.IngestQueue;
 
 import dagger.Module;
 import dagger.Provides;
@@ -28,4 +29,17 @@ public class ConnectionModule {
     public Connection provideConnection(CompositeConnection compositeConnection) {
         return compositeConnection;
     }
+
+    /**
+     * Provides the size and overflow behaviour of the queue between the transports and the
+     * repository. Live transports cannot be held up, so the oldest entry is dropped when the queue
+     * is full; replays are blocked instead whatever is configured here.
+     *
+     * @return The {@link IngestQueue.Config} of the repository's ingest queue.
+     */
+    @Provides
+    @Singleton
+    public IngestQueue.Config provideIngestQueueConfig() {
+        return IngestQueue.DEFAULT_CONFIG;
+    }
 }
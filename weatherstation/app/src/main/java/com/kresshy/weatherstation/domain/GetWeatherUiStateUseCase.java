@@ -3,6 +3,7 @@ package com.kresshy.weatherstation.domain;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
 import com.kresshy.weatherstation.repository.WeatherRepository;
 import com.kresshy.weatherstation.weather.WeatherUiState;
 
@@ -41,7 +42,12 @@ public class GetWeatherUiStateUseCase {
         uiState.setValue(WeatherUiState.empty());
 
         // Single Source of Truth: Only update state when a fully processed heartbeat arrives.
-        uiState.addSource(repository.getProcessedWeatherData(), data -> updateState(data));
+        uiState.addSource(
+                repository.getProcessedWeatherData(),
+                data -> {
+                    PipelineMetrics.recordDelivery();
+                    updateState(data);
+                });
 
         // Also update for independent state changes from Control Plane
         uiState.addSource(connectionController.getConnectionState(), state -> updateState(null));
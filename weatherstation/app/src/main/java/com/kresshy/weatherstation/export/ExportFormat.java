@@ -0,0 +1,26 @@
+package com.kresshy.weatherstation.export;
+
+/** File formats readings can be exported in. Both are written gzip-compressed. */
+public enum ExportFormat {
+    /** Comma-separated values with a header row, for spreadsheets and pandas. */
+    CSV(".csv.gz"),
+
+    /** One JSON object per line, for scripts and log tooling. */
+    JSON_LINES(".jsonl.gz");
+
+    /** Media type of the exported files. */
+    public static final String MIME_TYPE = "application/gzip";
+
+    private final String fileSuffix;
+
+    ExportFormat(String fileSuffix) {
+        this.fileSuffix = fileSuffix;
+    }
+
+    /**
+     * @return The file name suffix, including the compression suffix.
+     */
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+}
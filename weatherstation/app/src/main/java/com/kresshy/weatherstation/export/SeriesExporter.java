@@ -0,0 +1,183 @@
+package com.kresshy.weatherstation.export;
+
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the readings of a {@link WeatherSeries} to an output stream as CSV or JSON lines. Rows
+ * are formatted straight into one fixed byte buffer, which is written out whenever it cannot take
+ * another row, so an export of any length runs in constant memory and allocates nothing per row.
+ *
+ * <p>Every row carries the timestamp in epoch milliseconds, the node id, wind speed in m/s,
+ * temperature in degC and signal strength in dBm. Values are written with three decimals, finer
+ * than any station measures. A value that is not finite is written as {@code NaN} in CSV and as
+ * {@code null} in JSON.
+ *
+ * <p>An exporter is not thread-safe; use one per export thread.
+ */
+public final class SeriesExporter {
+
+    /** Receives the progress of an export. */
+    public interface ProgressListener {
+        /**
+         * @param done Rows written so far.
+         * @param total Rows of the export.
+         */
+        void onProgress(int done, int total);
+    }
+
+    /** Default size of the row buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** Rows between two progress reports. */
+    static final int PROGRESS_INTERVAL = 8192;
+
+    /** Longest row either format can produce. */
+    private static final int MAX_ROW_BYTES = 160;
+
+    private static final byte[] CSV_HEADER =
+            ascii("timestamp_ms,node_id,wind_speed,temperature,rssi\n");
+    private static final byte[] JSON_TIMESTAMP = ascii("{\"timestampMillis\":");
+    private static final byte[] JSON_NODE_ID = ascii(",\"nodeId\":");
+    private static final byte[] JSON_WIND_SPEED = ascii(",\"windSpeed\":");
+    private static final byte[] JSON_TEMPERATURE = ascii(",\"temperature\":");
+    private static final byte[] JSON_RSSI = ascii(",\"rssi\":");
+    private static final byte[] NAN = ascii("NaN");
+    private static final byte[] NULL = ascii("null");
+
+    private final ExportFormat format;
+    private final byte[] buffer;
+    private int position;
+
+    /**
+     * @param format The format to write.
+     * @param bufferSize Size of the row buffer; raised to hold at least one row.
+     */
+    public SeriesExporter(ExportFormat format, int bufferSize) {
+        this.format = format;
+        this.buffer = new byte[Math.max(bufferSize, MAX_ROW_BYTES)];
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes every reading of a series, preceded by the CSV header. The stream is flushed but not
+     * closed.
+     *
+     * @param series The readings, oldest first.
+     * @param out Where the rows go.
+     * @param listener Receives progress every {@value #PROGRESS_INTERVAL} rows and at the end, or
+     *     null.
+     * @throws InterruptedIOException If the thread is interrupted; the output is then incomplete.
+     * @throws IOException If the stream fails.
+     */
+    public void export(WeatherSeries series, OutputStream out, ProgressListener listener)
+            throws IOException {
+        position = 0;
+        if (format == ExportFormat.CSV) put(CSV_HEADER);
+        int total = series.size();
+        for (int i = 0; i < total; i++) {
+            if (position + MAX_ROW_BYTES > buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            if (format == ExportFormat.CSV) {
+                putCsvRow(series, i);
+            } else {
+                putJsonRow(series, i);
+            }
+            if ((i + 1) % PROGRESS_INTERVAL == 0) {
+                if (Thread.interrupted()) throw new InterruptedIOException("Export cancelled");
+                if (listener != null) listener.onProgress(i + 1, total);
+            }
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+        if (listener != null) listener.onProgress(total, total);
+    }
+
+    private void putCsvRow(WeatherSeries series, int i) {
+        putLong(series.getTimestampMillis(i));
+        buffer[position++] = ',';
+        putLong(series.getNodeId(i));
+        buffer[position++] = ',';
+        putDecimal(series.getWindSpeed(i), NAN);
+        buffer[position++] = ',';
+        putDecimal(series.getTemperature(i), NAN);
+        buffer[position++] = ',';
+        putLong(series.getRssi(i));
+        buffer[position++] = '\n';
+    }
+
+    private void putJsonRow(WeatherSeries series, int i) {
+        put(JSON_TIMESTAMP);
+        putLong(series.getTimestampMillis(i));
+        put(JSON_NODE_ID);
+        putLong(series.getNodeId(i));
+        put(JSON_WIND_SPEED);
+        putDecimal(series.getWindSpeed(i), NULL);
+        put(JSON_TEMPERATURE);
+        putDecimal(series.getTemperature(i), NULL);
+        put(JSON_RSSI);
+        putLong(series.getRssi(i));
+        buffer[position++] = '}';
+        buffer[position++] = '\n';
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+            if (value == Long.MIN_VALUE) {
+                // Its magnitude does not fit a long; print it from the last digit up
+                putDigits(-(value / 10));
+                buffer[position++] = (byte) ('0' - value % 10);
+                return;
+            }
+            value = -value;
+        }
+        putDigits(value);
+    }
+
+    /** Writes a non-negative number without allocating. */
+    private void putDigits(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void putDecimal(float value, byte[] notANumber) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            put(notANumber);
+            return;
+        }
+        // Clamped so the magnitude stays printable; no station value comes near the bound
+        long thousandths = Math.round(Math.max(-1e18, Math.min(1e18, value * 1000.0)));
+        if (thousandths < 0) {
+            buffer[position++] = '-';
+            thousandths = -thousandths;
+        }
+        putDigits(thousandths / 1000);
+        buffer[position++] = '.';
+        int fraction = (int) (thousandths % 1000);
+        buffer[position++] = (byte) ('0' + fraction / 100);
+        buffer[position++] = (byte) ('0' + fraction / 10 % 10);
+        buffer[position++] = (byte) ('0' + fraction % 10);
+    }
+}
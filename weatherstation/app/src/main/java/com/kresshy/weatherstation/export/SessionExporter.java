@@ -0,0 +1,240 @@
+package com.kresshy.weatherstation.export;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.kresshy.weatherstation.repository.WeatherRepository;
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+import timber.log.Timber;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Exports measurements for offline analysis as gzip-compressed CSV or JSON lines, ready to share
+ * through the app's {@code FileProvider}. Exports run one at a time on a background thread and
+ * stream the readings through a {@link SeriesExporter}: recorded sessions are read from their
+ * memory-mapped files and the live window from a snapshot, so the heap used does not grow with the
+ * length of the export.
+ *
+ * <p>A file is written under a temporary name and renamed once complete, so a failed or cancelled
+ * export never leaves a truncated file to share. Starting an export deletes the earlier ones, since
+ * they are only kept until shared.
+ */
+@Singleton
+public class SessionExporter {
+
+    /** Receives the outcome of an export, on the export thread. */
+    public interface Callback extends SeriesExporter.ProgressListener {
+        /**
+         * @param file The complete export.
+         */
+        void onExported(File file);
+
+        /**
+         * @param e Why the export failed or that it was cancelled.
+         */
+        void onFailed(IOException e);
+    }
+
+    /** Directory of the exports within the app's external files, shared by the FileProvider. */
+    public static final String DIRECTORY_NAME = "exports";
+
+    private static final String TEMPORARY_SUFFIX = ".part";
+
+    /** Size of the gzip stream buffers. */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final WeatherRepository repository;
+    @Nullable private final File directory;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "session-export");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * Keeps exports in the {@value #DIRECTORY_NAME} directory of the app's external files.
+     *
+     * @param context Application context.
+     * @param repository Source of the recorded and live readings.
+     */
+    @Inject
+    public SessionExporter(@ApplicationContext Context context, WeatherRepository repository) {
+        this(exportDirectory(context), repository);
+    }
+
+    /**
+     * @param directory Where exports are written, or null if there is no storage.
+     * @param repository Source of the recorded and live readings.
+     */
+    @VisibleForTesting
+    public SessionExporter(@Nullable File directory, WeatherRepository repository) {
+        this.directory = directory;
+        this.repository = repository;
+    }
+
+    @Nullable
+    private static File exportDirectory(Context context) {
+        File files = context.getExternalFilesDir(null);
+        return files == null ? null : new File(files, DIRECTORY_NAME);
+    }
+
+    /**
+     * Exports the recorded readings of every node in a time range.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis End of the range in epoch milliseconds, exclusive.
+     * @param format The file format.
+     * @param callback Receives progress and the outcome.
+     * @return The running export; cancel it to stop.
+     */
+    public Future<?> exportRecorded(
+            long fromMillis, long toMillis, ExportFormat format, Callback callback) {
+        return executor.submit(
+                () ->
+                        run(
+                                () -> repository.getRecordedHistory(fromMillis, toMillis),
+                                fromMillis,
+                                format,
+                                callback));
+    }
+
+    /**
+     * Exports the readings of the live observation window.
+     *
+     * @param format The file format.
+     * @param callback Receives progress and the outcome.
+     * @return The running export; cancel it to stop.
+     */
+    public Future<?> exportLiveWindow(ExportFormat format, Callback callback) {
+        return executor.submit(
+                () ->
+                        run(
+                                repository::getHistorySnapshot,
+                                System.currentTimeMillis(),
+                                format,
+                                callback));
+    }
+
+    /** Reads the readings of an export on the export thread. */
+    private interface Source {
+        WeatherSeries read();
+    }
+
+    /** Runs an export and reports its outcome; every failure reaches {@link Callback#onFailed}. */
+    private void run(Source source, long startMillis, ExportFormat format, Callback callback) {
+        File file;
+        try {
+            file = export(source.read(), startMillis, format, callback);
+        } catch (IOException e) {
+            Timber.e(e, "Export failed");
+            callback.onFailed(e);
+            return;
+        } catch (RuntimeException e) {
+            // E.g. a damaged recording or a failing listener; the caller still waits for an outcome
+            Timber.e(e, "Export failed");
+            callback.onFailed(new IOException("Export failed: " + e, e));
+            return;
+        }
+        callback.onExported(file);
+    }
+
+    /**
+     * Writes an export on the calling thread.
+     *
+     * @param series The readings to export.
+     * @param startMillis Time the export is named after.
+     * @param format The file format.
+     * @param listener Receives progress, or null.
+     * @return The complete file.
+     * @throws IOException If there is no storage, the write fails or the thread is interrupted.
+     */
+    File export(
+            WeatherSeries series,
+            long startMillis,
+            ExportFormat format,
+            @Nullable SeriesExporter.ProgressListener listener)
+            throws IOException {
+        if (directory == null) throw new IOException("No storage for exports");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        deleteEarlierExports();
+
+        String name =
+                "weather-"
+                        + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                                .format(new Date(startMillis))
+                        + format.getFileSuffix();
+        File file = new File(directory, name);
+        File temporary = new File(directory, name + TEMPORARY_SUFFIX);
+        boolean complete = false;
+        try {
+            try (OutputStream out = gzip(temporary)) {
+                new SeriesExporter(format, SeriesExporter.DEFAULT_BUFFER_SIZE)
+                        .export(series, out, listener);
+            }
+            if (!temporary.renameTo(file)) throw new IOException("Cannot rename " + temporary);
+            complete = true;
+            return file;
+        } finally {
+            if (!complete && temporary.exists() && !temporary.delete()) {
+                Timber.w("Cannot delete %s", temporary);
+            }
+        }
+    }
+
+    /** Opens a gzip stream tuned for throughput; measurement text compresses well even so. */
+    private static OutputStream gzip(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), STREAM_BUFFER_SIZE);
+        try {
+            return new GZIPOutputStream(out, STREAM_BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    private void deleteEarlierExports() {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isFile() && !file.delete()) Timber.w("Cannot delete %s", file);
+        }
+    }
+
+    /**
+     * @return Where exports are written, or null if there is no storage.
+     */
+    @Nullable
+    public File getDirectory() {
+        return directory;
+    }
+}
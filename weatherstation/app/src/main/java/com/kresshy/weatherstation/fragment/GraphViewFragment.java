@@ -22,6 +22,8 @@ import com.github.mikephil.charting.formatter.ValueFormatter;
 import com.kresshy.weatherstation.R;
 import com.kresshy.weatherstation.activity.WSActivity;
 import com.kresshy.weatherstation.databinding.FragmentDashboardBinding;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+import com.kresshy.weatherstation.weather.RollupSeries;
 import com.kresshy.weatherstation.weather.WeatherData;
 import com.kresshy.weatherstation.weather.WeatherUiState;
 import com.kresshy.weatherstation.weather.WeatherViewModel;
@@ -31,7 +33,6 @@ import dagger.hilt.android.AndroidEntryPoint;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -41,6 +42,9 @@ import java.util.Locale;
 @AndroidEntryPoint
 public class GraphViewFragment extends Fragment {
 
+    /** Number of points the charts aim for when filled from history. */
+    private static final int CHART_TARGET_POINTS = 300;
+
     private int windowIntervalSeconds = 300;
     @javax.inject.Inject SharedPreferences sharedPreferences;
 
@@ -53,6 +57,12 @@ public class GraphViewFragment extends Fragment {
     private Double firstWindValue = null;
     private Double firstTempValue = null;
 
+    /** Length of one chart point; live readings are averaged into the newest point. */
+    private long chartResolutionMillis = 1000;
+
+    private long chartBucketStart = Long.MIN_VALUE;
+    private int chartBucketCount = 0;
+
     private final SimpleDateFormat xAxisFormat =
             new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
 
@@ -141,24 +151,29 @@ public class GraphViewFragment extends Fragment {
     }
 
     private void populateChartsFromHistory() {
-        List<WeatherData> history = weatherViewModel.getHistoricalWeatherData();
-        if (history != null && !history.isEmpty()) {
+        RollupSeries history = weatherViewModel.getRollupSeries(CHART_TARGET_POINTS);
+        if (history != null && history.size() > 0) {
             windSpeedSet.clear();
             temperatureSet.clear();
 
-            WeatherData first = history.get(0);
-            firstTimestamp = first.getTimestamp().getTime();
-            firstWindValue = first.getWindSpeed();
-            firstTempValue = first.getTemperature();
+            int last = history.size() - 1;
+            chartResolutionMillis = history.getResolutionMillis();
+            chartBucketStart = history.getStartMillis(last);
+            chartBucketCount = history.getCount(last);
+
+            firstTimestamp = history.getStartMillis(0);
+            firstWindValue = history.getWindMean(0);
+            firstTempValue = history.getTemperatureMean(0);
 
             // Anchor the start of the session to the bottom corner
             binding.windSpeedChart.getAxisLeft().setAxisMinimum(firstWindValue.floatValue());
             binding.temperatureChart.getAxisLeft().setAxisMinimum(firstTempValue.floatValue());
 
-            for (WeatherData data : history) {
-                float offsetSeconds = (data.getTimestamp().getTime() - firstTimestamp) / 1000f;
-                windSpeedSet.addEntry(new Entry(offsetSeconds, (float) data.getWindSpeed()));
-                temperatureSet.addEntry(new Entry(offsetSeconds, (float) data.getTemperature()));
+            for (int i = 0; i <= last; i++) {
+                float offsetSeconds = (history.getStartMillis(i) - firstTimestamp) / 1000f;
+                windSpeedSet.addEntry(new Entry(offsetSeconds, (float) history.getWindMean(i)));
+                temperatureSet.addEntry(
+                        new Entry(offsetSeconds, (float) history.getTemperatureMean(i)));
             }
             binding.windSpeedChart.getData().notifyDataChanged();
             binding.windSpeedChart.notifyDataSetChanged();
@@ -169,9 +184,7 @@ public class GraphViewFragment extends Fragment {
             binding.temperatureChart.invalidate();
 
             // Correctly set initial visible window
-            float lastX =
-                    (history.get(history.size() - 1).getTimestamp().getTime() - firstTimestamp)
-                            / 1000f;
+            float lastX = (chartBucketStart - firstTimestamp) / 1000f;
 
             binding.windSpeedChart.getXAxis().setAxisMaximum(lastX);
             binding.windSpeedChart.getXAxis().setAxisMinimum(lastX - windowIntervalSeconds);
@@ -180,13 +193,16 @@ public class GraphViewFragment extends Fragment {
             binding.temperatureChart.getXAxis().setAxisMinimum(lastX - windowIntervalSeconds);
 
             // Initialize overlay text from history
-            WeatherData latest = history.get(history.size() - 1);
             binding.currentWindText.setText(
                     String.format(
-                            java.util.Locale.getDefault(), "%.2f m/s", latest.getWindSpeed()));
+                            java.util.Locale.getDefault(),
+                            "%.2f m/s",
+                            history.getWindMean(last)));
             binding.currentTempText.setText(
                     String.format(
-                            java.util.Locale.getDefault(), "%.2f°C", latest.getTemperature()));
+                            java.util.Locale.getDefault(),
+                            "%.2f°C",
+                            history.getTemperatureMean(last)));
 
             // Initialize trends from history/viewmodel
             binding.windTrendText.setText(
@@ -270,32 +286,45 @@ public class GraphViewFragment extends Fragment {
             binding.temperatureChart.getAxisLeft().setAxisMinimum(firstTempValue.floatValue());
         }
 
+        long chartStart = PipelineMetrics.start();
+        long timestamp = data.getTimestamp().getTime();
+        long bucketStart = timestamp - Math.floorMod(timestamp, chartResolutionMillis);
+        boolean newPoint = bucketStart > chartBucketStart;
+        if (newPoint) {
+            chartBucketStart = bucketStart;
+            chartBucketCount = 0;
+        }
+        chartBucketCount++;
+        float x = (chartBucketStart - firstTimestamp) / 1000f;
         addValueToSet(
-                binding.windSpeedChart,
-                windSpeedSet,
-                (float) data.getWindSpeed(),
-                data.getTimestamp().getTime());
+                binding.windSpeedChart, windSpeedSet, (float) data.getWindSpeed(), x, newPoint);
         addValueToSet(
                 binding.temperatureChart,
                 temperatureSet,
                 (float) data.getTemperature(),
-                data.getTimestamp().getTime());
+                x,
+                newPoint);
+        PipelineMetrics.recordChart(chartStart);
     }
 
-    private void addValueToSet(LineChart chart, LineDataSet set, float value, long timestamp) {
-        // Calculation of nextX remains relative to the captured firstTimestamp
-        float nextX = (timestamp - firstTimestamp) / 1000f;
-        set.addEntry(new Entry(nextX, value));
-
-        // Synchronize with repository's pruning
-        List<WeatherData> history = weatherViewModel.getHistoricalWeatherData();
-        if (history != null && !history.isEmpty()) {
-            // Remove entries from the UI set that are no longer in the repository history
-            while (set.getEntryCount() > 0
-                    && set.getEntryForIndex(0).getX()
-                            < (history.get(0).getTimestamp().getTime() - firstTimestamp) / 1000f) {
-                set.removeEntry(0);
-            }
+    /**
+     * Starts a new chart point or folds the value into the running mean of the newest point, then
+     * drops points that have scrolled out of the observation window.
+     */
+    private void addValueToSet(
+            LineChart chart, LineDataSet set, float value, float nextX, boolean newPoint) {
+        int count = set.getEntryCount();
+        if (newPoint || count == 0) {
+            set.addEntry(new Entry(nextX, value));
+        } else {
+            Entry newest = set.getEntryForIndex(count - 1);
+            newest.setY(newest.getY() + (value - newest.getY()) / chartBucketCount);
+        }
+
+        // Match the repository's pruning without copying its history
+        while (set.getEntryCount() > 1
+                && set.getEntryForIndex(0).getX() < nextX - windowIntervalSeconds) {
+            set.removeEntry(0);
         }
 
         chart.getData().notifyDataChanged();
@@ -3,6 +3,8 @@ package com.kresshy.weatherstation.fragment;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,33 +19,64 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.kresshy.weatherstation.R;
+import com.kresshy.weatherstation.bluetooth.ReplayDevice;
+import com.kresshy.weatherstation.bluetooth.WeatherConnectionController;
+import com.kresshy.weatherstation.connection.ReplayConnection;
 import com.kresshy.weatherstation.databinding.FragmentLogManagerBinding;
 import com.kresshy.weatherstation.databinding.LogItemBinding;
+import com.kresshy.weatherstation.export.ExportFormat;
+import com.kresshy.weatherstation.export.SessionExporter;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+import com.kresshy.weatherstation.recording.SessionStore;
 
 import dagger.hilt.android.AndroidEntryPoint;
 
 import timber.log.Timber;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
 
 /**
  * Fragment that provides a management interface for application log files. Allows users to view,
- * selectively share via the Android Share Sheet, or delete stored log files.
+ * selectively share via the Android Share Sheet, or delete stored log files. When pipeline metrics
+ * are enabled, their latest statistics are shared along with the selected logs. Measurements can
+ * be exported as compressed CSV or JSON lines and shared the same way, and a recorded session can
+ * be replayed through the live pipeline at a chosen speed.
  */
 @AndroidEntryPoint
 public class LogManagerFragment extends Fragment {
 
+    /** Replay speeds, in the order of {@code R.array.replay_speed_entries}. */
+    private static final double[] REPLAY_SPEEDS = {
+        ReplayConnection.REAL_TIME, 10, 60, ReplayConnection.AS_FAST_AS_POSSIBLE
+    };
+
     private FragmentLogManagerBinding binding;
     private LogAdapter adapter;
     private final List<File> logFiles = new ArrayList<>();
     private final Set<File> selectedFiles = new HashSet<>();
 
+    @Inject SessionExporter sessionExporter;
+    @Inject SessionStore sessionStore;
+    @Inject WeatherConnectionController connectionController;
+    @Nullable private Future<?> export;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     /** Required empty public constructor for fragment instantiation. */
     public LogManagerFragment() {}
 
@@ -64,6 +97,8 @@ public class LogManagerFragment extends Fragment {
 
         binding.btnShare.setOnClickListener(v -> shareSelectedLogs());
         binding.btnDelete.setOnClickListener(v -> confirmDeleteLogs());
+        binding.btnExport.setOnClickListener(v -> chooseExport());
+        binding.btnReplay.setOnClickListener(v -> chooseReplay());
 
         loadLogFiles();
     }
@@ -98,10 +133,14 @@ public class LogManagerFragment extends Fragment {
             return;
         }
 
+        List<File> files = new ArrayList<>(selectedFiles);
+        File metricsFile = writePipelineMetrics();
+        if (metricsFile != null) files.add(metricsFile);
+
         Intent intent = new Intent(Intent.ACTION_SEND_MULTIPLE);
-        intent.setType("text/html");
+        intent.setType(metricsFile != null ? "text/*" : "text/html");
         ArrayList<Uri> uris = new ArrayList<>();
-        for (File file : selectedFiles) {
+        for (File file : files) {
             uris.add(
                     FileProvider.getUriForFile(
                             requireContext(),
@@ -113,6 +152,160 @@ public class LogManagerFragment extends Fragment {
         startActivity(Intent.createChooser(intent, getString(R.string.share)));
     }
 
+    /**
+     * Writes the current pipeline latency statistics next to the logs so they are shared along
+     * with them. The file is not listed, since it only ends in ".txt".
+     *
+     * @return The written file, or null if metrics are disabled or the file could not be written.
+     */
+    @Nullable
+    private File writePipelineMetrics() {
+        if (!PipelineMetrics.isEnabled()) return null;
+        File file =
+                new File(
+                        new File(requireContext().getExternalFilesDir(null), "logs"),
+                        "pipeline-metrics.txt");
+        try (Writer writer =
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(PipelineMetrics.report());
+            return file;
+        } catch (IOException e) {
+            Timber.e(e, "Failed to write pipeline metrics");
+            return null;
+        }
+    }
+
+    /** Asks what to export, then runs the export in the background. */
+    private void chooseExport() {
+        if (export != null && !export.isDone()) return;
+        String[] choices = {
+            getString(R.string.export_recorded_csv),
+            getString(R.string.export_recorded_json_lines),
+            getString(R.string.export_live_csv),
+            getString(R.string.export_live_json_lines)
+        };
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle(R.string.export_title)
+                .setItems(
+                        choices,
+                        (dialog, which) -> {
+                            ExportFormat format =
+                                    which % 2 == 0 ? ExportFormat.CSV : ExportFormat.JSON_LINES;
+                            startExport(which < 2, format);
+                        })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void startExport(boolean recorded, ExportFormat format) {
+        binding.exportProgress.setProgress(0);
+        binding.exportProgress.setVisibility(View.VISIBLE);
+        SessionExporter.Callback callback =
+                new SessionExporter.Callback() {
+                    @Override
+                    public void onProgress(int done, int total) {
+                        int progress = total == 0 ? 1000 : (int) (1000L * done / total);
+                        onMainThread(() -> binding.exportProgress.setProgress(progress));
+                    }
+
+                    @Override
+                    public void onExported(File file) {
+                        onMainThread(
+                                () -> {
+                                    binding.exportProgress.setVisibility(View.GONE);
+                                    shareExport(file);
+                                });
+                    }
+
+                    @Override
+                    public void onFailed(IOException e) {
+                        onMainThread(
+                                () -> {
+                                    binding.exportProgress.setVisibility(View.GONE);
+                                    String message =
+                                            getString(R.string.export_failed, e.getMessage());
+                                    Toast.makeText(requireContext(), message, Toast.LENGTH_LONG)
+                                            .show();
+                                });
+                    }
+                };
+        if (recorded) {
+            long now = System.currentTimeMillis();
+            export =
+                    sessionExporter.exportRecorded(
+                            now - 24 * 60 * 60 * 1000L, now, format, callback);
+        } else {
+            export = sessionExporter.exportLiveWindow(format, callback);
+        }
+    }
+
+    /** Asks which recorded session to replay, newest first, then how fast. */
+    private void chooseReplay() {
+        File[] sessions = sessionStore.listSessions();
+        if (sessions.length == 0) {
+            Toast.makeText(requireContext(), R.string.no_sessions_found, Toast.LENGTH_SHORT)
+                    .show();
+            return;
+        }
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+        File[] newestFirst = new File[sessions.length];
+        String[] labels = new String[sessions.length];
+        for (int i = 0; i < sessions.length; i++) {
+            newestFirst[i] = sessions[sessions.length - 1 - i];
+            labels[i] = format.format(new Date(SessionStore.sessionStart(newestFirst[i])));
+        }
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle(R.string.replay_title)
+                .setItems(
+                        labels,
+                        (dialog, which) -> chooseReplaySpeed(newestFirst[which], labels[which]))
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void chooseReplaySpeed(File session, String label) {
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle(R.string.replay_speed_title)
+                .setItems(
+                        R.array.replay_speed_entries,
+                        (dialog, which) -> {
+                            // Connecting through the controller stops the station connection
+                            connectionController.connectToDevice(
+                                    new ReplayDevice(
+                                            getString(R.string.replay_device_name, label),
+                                            session.getPath(),
+                                            REPLAY_SPEEDS[which]));
+                            Toast.makeText(
+                                            requireContext(),
+                                            getString(R.string.replay_started, label),
+                                            Toast.LENGTH_SHORT)
+                                    .show();
+                        })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /** Runs an export callback on the main thread while the view still exists. */
+    private void onMainThread(Runnable action) {
+        mainHandler.post(
+                () -> {
+                    if (binding != null) action.run();
+                });
+    }
+
+    private void shareExport(File file) {
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(ExportFormat.MIME_TYPE);
+        intent.putExtra(
+                Intent.EXTRA_STREAM,
+                FileProvider.getUriForFile(
+                        requireContext(),
+                        requireContext().getPackageName() + ".fileprovider",
+                        file));
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(intent, getString(R.string.share)));
+    }
+
     /** Displays a confirmation dialog before deleting selected files. */
     private void confirmDeleteLogs() {
         if (selectedFiles.isEmpty()) return;
@@ -138,6 +331,8 @@ public class LogManagerFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // The export is only shared from this screen
+        if (export != null) export.cancel(true);
         binding = null;
     }
 
@@ -0,0 +1,112 @@
+package com.kresshy.weatherstation.fragment;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.kresshy.weatherstation.R;
+import com.kresshy.weatherstation.connection.IngestQueue;
+import com.kresshy.weatherstation.databinding.FragmentPipelineMetricsBinding;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+import com.kresshy.weatherstation.repository.WeatherRepository;
+import com.kresshy.weatherstation.repository.WeatherRepositoryImpl;
+
+import dagger.hilt.android.AndroidEntryPoint;
+
+/**
+ * Debug screen that shows the per-stage latency histograms of {@link PipelineMetrics}, the
+ * counters of the ingest queue and the outliers rejected per node, refreshed once per second while
+ * visible.
+ */
+@AndroidEntryPoint
+public class PipelineMetricsFragment extends Fragment {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    @javax.inject.Inject WeatherRepository weatherRepository;
+
+    private FragmentPipelineMetricsBinding binding;
+
+    private final Runnable refresh =
+            new Runnable() {
+                @Override
+                public void run() {
+                    if (binding == null) return;
+                    binding.metricsText.setText(buildReport());
+                    binding.getRoot().postDelayed(this, REFRESH_INTERVAL_MS);
+                }
+            };
+
+    /** Required empty public constructor for fragment instantiation. */
+    public PipelineMetricsFragment() {}
+
+    @Override
+    public View onCreateView(
+            @NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        binding = FragmentPipelineMetricsBinding.inflate(inflater, container, false);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        binding.btnReset.setOnClickListener(
+                v -> {
+                    PipelineMetrics.reset();
+                    binding.metricsText.setText(buildReport());
+                });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        refresh.run();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        binding.getRoot().removeCallbacks(refresh);
+    }
+
+    /** Combines the stage histograms with the ingest queue and outlier counters. */
+    private String buildReport() {
+        StringBuilder sb = new StringBuilder(PipelineMetrics.report());
+        IngestQueue queue =
+                weatherRepository instanceof WeatherRepositoryImpl
+                        ? ((WeatherRepositoryImpl) weatherRepository).getIngestQueue()
+                        : null;
+        if (queue != null) {
+            sb.append('\n')
+                    .append(
+                            getString(
+                                    R.string.pipeline_metrics_queue_format,
+                                    queue.getDepth(),
+                                    queue.getCapacity(),
+                                    queue.getMaxDepth(),
+                                    queue.getDeliveredCount(),
+                                    queue.getDroppedCount()));
+        }
+        for (int nodeId : weatherRepository.getNodeIds()) {
+            sb.append('\n')
+                    .append(
+                            getString(
+                                    R.string.pipeline_metrics_outliers_format,
+                                    nodeId,
+                                    weatherRepository.getRejectedWindReadings(nodeId),
+                                    weatherRepository.getRejectedTemperatureReadings(nodeId)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+}
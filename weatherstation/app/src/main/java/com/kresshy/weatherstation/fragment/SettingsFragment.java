@@ -10,6 +10,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 
 import com.kresshy.weatherstation.R;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
 
 import dagger.hilt.android.AndroidEntryPoint;
 
@@ -23,6 +24,9 @@ public class SettingsFragment extends PreferenceFragmentCompat {
     /** Key for the measurement display interval preference. */
     public static final String KEY_PREF_INTERVAL = "pref_interval";
 
+    /** Key for the preference that turns pipeline latency metrics on. */
+    public static final String KEY_PREF_PIPELINE_METRICS = "pref_pipeline_metrics";
+
     /** Required empty public constructor for fragment instantiation. */
     public SettingsFragment() {
         // Required empty public constructor
@@ -49,6 +53,25 @@ public class SettingsFragment extends PreferenceFragmentCompat {
                         return true;
                     });
         }
+
+        Preference pipelineMetricsPref = findPreference(KEY_PREF_PIPELINE_METRICS);
+        if (pipelineMetricsPref != null) {
+            pipelineMetricsPref.setOnPreferenceChangeListener(
+                    (preference, newValue) -> {
+                        PipelineMetrics.setEnabled((Boolean) newValue);
+                        return true;
+                    });
+        }
+
+        Preference showPipelineMetricsPref = findPreference("pref_show_pipeline_metrics");
+        if (showPipelineMetricsPref != null) {
+            showPipelineMetricsPref.setOnPreferenceClickListener(
+                    preference -> {
+                        NavHostFragment.findNavController(this)
+                                .navigate(R.id.pipelineMetricsFragment);
+                        return true;
+                    });
+        }
     }
 
     /**
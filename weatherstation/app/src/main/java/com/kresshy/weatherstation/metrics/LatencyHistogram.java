@@ -0,0 +1,117 @@
+package com.kresshy.weatherstation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds with log-linear buckets: values below {@value
+ * #SUB_BUCKETS} get one bucket each, and every power of two above is split into {@value
+ * #SUB_BUCKETS} equal buckets. Reported percentiles are therefore within 1/{@value #SUB_BUCKETS}
+ * (6.25%) of the recorded value, over a range up to {@link #MAX_TRACKABLE_NANOS} (about 68 s);
+ * longer durations count in the last bucket, but {@link #getMax()} stays exact.
+ *
+ * <p>{@link #record(long)} allocates nothing and takes no lock, so it can be called on every frame
+ * from any thread. Readers see a consistent enough view for monitoring, but not an atomic snapshot
+ * while recording continues.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Linear buckets per power of two. */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_EXPONENT = 36;
+
+    /** Largest duration with its own bucket, 2^36 - 1 ns. */
+    public static final long MAX_TRACKABLE_NANOS = (1L << MAX_EXPONENT) - 1;
+
+    /** Number of buckets: the linear range plus {@link #SUB_BUCKETS} per larger power of two. */
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration. Negative values, e.g. from a clock read on another core, count as 0.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        total.incrementAndGet();
+        long current;
+        while (nanos > (current = max.get())) {
+            if (max.compareAndSet(current, nanos)) break;
+        }
+    }
+
+    /**
+     * @return The number of recorded durations.
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * @return The largest recorded duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket that holds it, capped at the
+     * recorded maximum.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) count += counts.get(i);
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(bucketUpperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Clears all recorded durations. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @param nanos A non-negative duration.
+     * @return The index of the bucket counting that duration.
+     */
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        if (nanos > MAX_TRACKABLE_NANOS) return BUCKET_COUNT - 1;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param index A bucket index.
+     * @return The largest duration counted by that bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
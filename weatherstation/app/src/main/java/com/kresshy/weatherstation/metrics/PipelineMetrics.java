@@ -0,0 +1,183 @@
+package com.kresshy.weatherstation.metrics;
+
+import java.util.Locale;
+
+/**
+ * Process-wide latency histograms for each stage between bytes arriving from the station and a
+ * chart point being updated. Like {@code android.os.Trace}, it is reached statically so the
+ * transports and the decoder can be instrumented without threading a dependency through them.
+ *
+ * <p>A stage is timed as:
+ *
+ * <pre>
+ * long start = PipelineMetrics.start();
+ * ... work ...
+ * PipelineMetrics.record(PipelineMetrics.Stage.PARSE, start);
+ * </pre>
+ *
+ * <p>While disabled, {@link #start()} returns 0 without reading the clock and {@link
+ * #record(Stage, long)} ignores that value, so the instrumentation costs a volatile read per
+ * stage. Recording never allocates.
+ */
+public final class PipelineMetrics {
+
+    /** Instrumented stages, in pipeline order. */
+    public enum Stage {
+        /** Transport thread time per received chunk: frame extraction plus hand-off. */
+        READ("read"),
+        /** From the start of a chunk until a frame in it is complete. */
+        EXTRACT("extract"),
+        /** Wait in the ingest queue before processing starts. */
+        QUEUE("queue"),
+        /** Parsing a frame into readings. */
+        PARSE("parse"),
+        /** Outlier check of one reading. */
+        OUTLIER("outlier"),
+        /** Thermal analysis of one reading. */
+        ANALYZE("analyze"),
+        /** From posting processed data until the UI state observer runs. */
+        DELIVERY("delivery"),
+        /** Adding a point to the charts. */
+        CHART("chart"),
+        /** From frame hand-off until its point is on the chart. */
+        END_TO_END("end-to-end");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return The short name used in reports.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) HISTOGRAMS[i] = new LatencyHistogram();
+    }
+
+    private static volatile boolean enabled = false;
+
+    // Hand-over of the frame being processed from the ingest thread to the main thread
+    private static volatile long frameStart = 0;
+    private static volatile long postedFrameStart = 0;
+    private static volatile long postedAt = 0;
+
+    private PipelineMetrics() {}
+
+    /**
+     * Turns recording on or off. Recorded data is kept until {@link #reset()}.
+     *
+     * @param enabled Whether stages should be timed.
+     */
+    public static void setEnabled(boolean enabled) {
+        PipelineMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return true if stages are being timed.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The current time for a later {@link #record(Stage, long)}, or 0 while disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} for a stage.
+     *
+     * @param stage The stage that finished.
+     * @param startNanos The value returned by {@link #start()}; 0 records nothing.
+     */
+    public static void record(Stage stage, long startNanos) {
+        if (startNanos == 0 || !enabled) return;
+        HISTOGRAMS[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Notes that the ingest thread starts processing a frame handed off at {@code startNanos}.
+     *
+     * @param startNanos The hand-off time from {@link #start()}, or 0.
+     */
+    public static void beginFrame(long startNanos) {
+        frameStart = startNanos;
+    }
+
+    /** Notes that the current frame's processed data has been posted to the main thread. */
+    public static void markPosted() {
+        if (!enabled) return;
+        postedFrameStart = frameStart;
+        postedAt = System.nanoTime();
+    }
+
+    /** Records {@link Stage#DELIVERY} when the posted data reaches its observer. */
+    public static void recordDelivery() {
+        record(Stage.DELIVERY, postedAt);
+    }
+
+    /**
+     * Records {@link Stage#CHART} and the {@link Stage#END_TO_END} latency of the posted frame.
+     *
+     * @param startNanos The value returned by {@link #start()} before the chart update.
+     */
+    public static void recordChart(long startNanos) {
+        record(Stage.CHART, startNanos);
+        if (startNanos != 0) record(Stage.END_TO_END, postedFrameStart);
+    }
+
+    /**
+     * @param stage The stage to look up.
+     * @return The histogram of that stage.
+     */
+    public static LatencyHistogram getHistogram(Stage stage) {
+        return HISTOGRAMS[stage.ordinal()];
+    }
+
+    /** Clears all histograms. */
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) histogram.reset();
+    }
+
+    /**
+     * Formats count, p50, p99 and max of every stage as a fixed-width table in microseconds.
+     *
+     * @return The report, one line per stage after a header line.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(
+                String.format(
+                        Locale.US,
+                        "%-11s %8s %9s %9s %9s%n",
+                        "stage",
+                        "count",
+                        "p50 us",
+                        "p99 us",
+                        "max us"));
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = HISTOGRAMS[stage.ordinal()];
+            sb.append(
+                    String.format(
+                            Locale.US,
+                            "%-11s %8d %9.1f %9.1f %9.1f%n",
+                            stage.getLabel(),
+                            histogram.getCount(),
+                            histogram.getValueAtPercentile(50) / 1000.0,
+                            histogram.getValueAtPercentile(99) / 1000.0,
+                            histogram.getMax() / 1000.0));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.kresshy.weatherstation.recording;
+
+/** Reads the bit fields written by {@link BitOutput}. */
+final class BitInput {
+
+    private byte[] buffer;
+    private int position;
+    private int end;
+    private long accumulator;
+    private int availableBits;
+
+    /**
+     * @param buffer The array to read.
+     * @param offset Where the first bit is.
+     * @param end End of the readable bytes.
+     */
+    void reset(byte[] buffer, int offset, int end) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = end;
+        this.accumulator = 0;
+        this.availableBits = 0;
+    }
+
+    /**
+     * @param bits Width of the field, 1..64.
+     * @return The field in the low bits, zero-extended.
+     * @throws IllegalArgumentException If the field runs past the end of the data.
+     */
+    long read(int bits) {
+        if (bits > 32) {
+            long high = read(bits - 32);
+            return (high << 32) | read(32);
+        }
+        while (availableBits < bits) {
+            if (position >= end) throw new IllegalArgumentException("Truncated block");
+            accumulator = (accumulator << 8) | (buffer[position++] & 0xFF);
+            availableBits += 8;
+        }
+        availableBits -= bits;
+        return (accumulator >>> availableBits) & ((1L << bits) - 1);
+    }
+
+    /**
+     * @return Whether the next bit is a one.
+     */
+    boolean readBit() {
+        return read(1) != 0;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kresshy.weatherstation.recording;
+
+/** Writes bit fields, most significant bit first, into a caller-provided byte array. */
+final class BitOutput {
+
+    private byte[] buffer;
+    private int position;
+    private long accumulator;
+    private int pendingBits;
+
+    /**
+     * Starts writing at a byte offset, dropping any pending bits.
+     *
+     * @param buffer The array to fill.
+     * @param offset Where the first bit goes.
+     */
+    void reset(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.accumulator = 0;
+        this.pendingBits = 0;
+    }
+
+    /**
+     * @param value Holds the field in its low bits; higher bits are ignored.
+     * @param bits Width of the field, 1..64.
+     */
+    void write(long value, int bits) {
+        if (bits > 32) {
+            write(value >>> 32, bits - 32);
+            bits = 32;
+        }
+        accumulator = (accumulator << bits) | (value & ((1L << bits) - 1));
+        pendingBits += bits;
+        while (pendingBits >= 8) {
+            pendingBits -= 8;
+            buffer[position++] = (byte) (accumulator >>> pendingBits);
+        }
+    }
+
+    /**
+     * @param bit Whether to write a one.
+     */
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Pads the last byte with zeros.
+     *
+     * @return The offset just after the last written byte.
+     */
+    int flush() {
+        if (pendingBits > 0) {
+            buffer[position++] = (byte) (accumulator << (8 - pendingBits));
+            pendingBits = 0;
+        }
+        return position;
+    }
+
+    /**
+     * @return Bytes written or started so far, including a partly filled last byte.
+     */
+    int bytesUsed() {
+        return position + (pendingBits > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.kresshy.weatherstation.recording;
+
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Recorded readings of a time range, read in place from the memory-mapped segments of one or more
+ * {@link SessionLog} files. Nothing is copied: every getter reads the field straight from the
+ * mapped record, so a range costs only the pages that are actually touched.
+ *
+ * <p>The mapping stays valid after the files are closed and the view is immutable, so it can be
+ * read on any thread.
+ */
+public final class RecordedSeries implements WeatherSeries {
+
+    /** A range without recorded readings. */
+    public static final RecordedSeries EMPTY = new RecordedSeries(new ByteBuffer[0]);
+
+    /** Whole records, one buffer per session file, each starting at position 0. */
+    private final ByteBuffer[] parts;
+
+    /** Position in the series of the first reading of every part. */
+    private final int[] firstIndex;
+
+    private final int size;
+
+    RecordedSeries(ByteBuffer[] parts) {
+        this.parts = parts;
+        this.firstIndex = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            firstIndex[i] = total;
+            total += parts[i].limit() / SessionLog.RECORD_SIZE;
+        }
+        this.size = total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTimestampMillis(int index) {
+        int part = partOf(index);
+        return parts[part].getLong(offsetOf(part, index) + SessionLog.TIMESTAMP_OFFSET);
+    }
+
+    @Override
+    public float getWindSpeed(int index) {
+        int part = partOf(index);
+        return parts[part].getFloat(offsetOf(part, index) + SessionLog.WIND_SPEED_OFFSET);
+    }
+
+    @Override
+    public float getTemperature(int index) {
+        int part = partOf(index);
+        return parts[part].getFloat(offsetOf(part, index) + SessionLog.TEMPERATURE_OFFSET);
+    }
+
+    @Override
+    public int getRssi(int index) {
+        int part = partOf(index);
+        return parts[part].getInt(offsetOf(part, index) + SessionLog.RSSI_OFFSET);
+    }
+
+    @Override
+    public int getNodeId(int index) {
+        int part = partOf(index);
+        return parts[part].getInt(offsetOf(part, index) + SessionLog.NODE_ID_OFFSET);
+    }
+
+    @Override
+    public int indexAtOrAfter(long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestampMillis(middle) < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int partOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        if (parts.length == 1) return 0;
+        int part = Arrays.binarySearch(firstIndex, index);
+        // Parts are never empty, so an insertion point is just after the part holding the index
+        return part >= 0 ? part : -part - 2;
+    }
+
+    private int offsetOf(int part, int index) {
+        return (index - firstIndex[part]) * SessionLog.RECORD_SIZE;
+    }
+}
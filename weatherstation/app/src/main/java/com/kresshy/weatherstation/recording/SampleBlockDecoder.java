@@ -0,0 +1,163 @@
+package com.kresshy.weatherstation.recording;
+
+/**
+ * Reads back the readings of a {@link SampleBlockEncoder} block, one at a time and without
+ * allocating. A decoder can be reused for any number of blocks but is not thread-safe.
+ */
+public final class SampleBlockDecoder {
+
+    private final BitInput input = new BitInput();
+    private final SampleBlockState state = new SampleBlockState();
+    private int sampleCount;
+    private int decoded;
+
+    private long timestampMillis;
+    private float windSpeed;
+    private float temperature;
+    private int rssi;
+    private int nodeId;
+
+    /**
+     * Starts reading a block.
+     *
+     * @param block The buffer holding the block.
+     * @param offset Start of the block within the buffer.
+     * @param length Length of the block in bytes.
+     * @throws IllegalArgumentException If the block is shorter than its header.
+     */
+    public void reset(byte[] block, int offset, int length) {
+        if (length < SampleBlockEncoder.HEADER_SIZE) {
+            throw new IllegalArgumentException("Block of " + length + " bytes has no header");
+        }
+        sampleCount = readInt(block, offset);
+        if (sampleCount < 0) throw new IllegalArgumentException("Bad sample count " + sampleCount);
+        long firstTimestampMillis =
+                (long) readInt(block, offset + 4) << 32
+                        | (readInt(block, offset + 8) & 0xFFFFFFFFL);
+        state.reset(firstTimestampMillis);
+        input.reset(block, offset + SampleBlockEncoder.HEADER_SIZE, offset + length);
+        decoded = 0;
+    }
+
+    private static int readInt(byte[] block, int offset) {
+        return (block[offset] & 0xFF) << 24
+                | (block[offset + 1] & 0xFF) << 16
+                | (block[offset + 2] & 0xFF) << 8
+                | (block[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Decodes the next reading.
+     *
+     * @return false once every reading of the block has been read.
+     * @throws IllegalArgumentException If the block is truncated or corrupt.
+     */
+    public boolean next() {
+        if (decoded >= sampleCount) return false;
+        decoded++;
+
+        if (!input.readBit()) {
+            long predicted = state.predictedNode();
+            if (predicted == SampleBlockState.NO_NODE) throw corrupt();
+            nodeId = (int) predicted;
+        } else if (!input.readBit()) {
+            nodeId = (int) input.read(8);
+        } else {
+            nodeId = (int) input.read(32);
+        }
+        state.advanceNode(nodeId);
+        int slot = SampleBlockState.slotOf(nodeId);
+
+        long delta = state.deltas[slot] + readDeltaOfDelta();
+        timestampMillis = state.timestamps[slot] + delta;
+        state.timestamps[slot] = timestampMillis;
+        state.deltas[slot] = delta;
+
+        state.windBits[slot] =
+                readXor(state.windBits[slot], state.windLeading, state.windTrailing, slot);
+        windSpeed = Float.intBitsToFloat(state.windBits[slot]);
+        state.temperatureBits[slot] =
+                readXor(
+                        state.temperatureBits[slot],
+                        state.temperatureLeading,
+                        state.temperatureTrailing,
+                        slot);
+        temperature = Float.intBitsToFloat(state.temperatureBits[slot]);
+
+        if (input.readBit()) {
+            rssi = input.readBit() ? (int) input.read(32) : (byte) input.read(8);
+            state.rssis[slot] = rssi;
+        } else {
+            rssi = state.rssis[slot];
+        }
+        return true;
+    }
+
+    private long readDeltaOfDelta() {
+        if (!input.readBit()) return 0;
+        if (!input.readBit()) return input.read(7) - 63;
+        if (!input.readBit()) return input.read(9) - 255;
+        if (!input.readBit()) return input.read(12) - 2047;
+        return input.read(64);
+    }
+
+    private int readXor(int previous, int[] leading, int[] trailing, int slot) {
+        if (!input.readBit()) return previous;
+        if (input.readBit()) {
+            leading[slot] = (int) input.read(5);
+            int meaningful = (int) input.read(5) + 1;
+            trailing[slot] = 32 - leading[slot] - meaningful;
+            if (trailing[slot] < 0) throw corrupt();
+        } else if (leading[slot] < 0) {
+            throw corrupt();
+        }
+        int meaningful = 32 - leading[slot] - trailing[slot];
+        return previous ^ ((int) input.read(meaningful) << trailing[slot]);
+    }
+
+    private static IllegalArgumentException corrupt() {
+        return new IllegalArgumentException("Corrupt block");
+    }
+
+    /**
+     * @return The number of readings in the block.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return Time of the current reading in epoch milliseconds.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return Wind speed of the current reading in m/s.
+     */
+    public float getWindSpeed() {
+        return windSpeed;
+    }
+
+    /**
+     * @return Temperature of the current reading in degC.
+     */
+    public float getTemperature() {
+        return temperature;
+    }
+
+    /**
+     * @return Signal strength of the current reading in dBm.
+     */
+    public int getRssi() {
+        return rssi;
+    }
+
+    /**
+     * @return Node of the current reading.
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+}
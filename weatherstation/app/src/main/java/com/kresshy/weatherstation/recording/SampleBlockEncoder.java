@@ -0,0 +1,209 @@
+package com.kresshy.weatherstation.recording;
+
+/**
+ * Compresses a stream of readings into self-contained blocks, in the manner of Facebook's Gorilla
+ * time series encoding. Each field is predicted from the previous reading of the same node and only
+ * the surprise is stored:
+ *
+ * <ul>
+ *   <li>node id: one bit when it is the node that followed the previous node last time, so nodes
+ *       reporting round-robin cost a bit per reading; otherwise the id itself.
+ *   <li>timestamp: the delta-of-delta against the node's previous interval, in a 1, 9, 12 or 16
+ *       bit bucket, or 68 bits when the interval jumps by more than two seconds.
+ *   <li>wind speed and temperature: the XOR with the node's previous float, as one bit when equal,
+ *       otherwise the meaningful bits inside the previous or a new leading/trailing-zero window.
+ *   <li>RSSI: one bit when unchanged, otherwise a byte or, out of its range, an int.
+ * </ul>
+ *
+ * <p>Masts reporting at 0.01 resolution take six to seven bytes per reading, against {@value
+ * SessionLog#RECORD_SIZE} in a {@link SessionLog}; most of it is the mantissa noise of the two
+ * floats. The encoding is lossless: readings decode bit-identical.
+ *
+ * <p>A block starts with the sample count and the first timestamp, {@value #HEADER_SIZE} bytes,
+ * and decodes on its own, so blocks can be stored, skipped and verified independently. {@link
+ * #append} never allocates; a block is full once it cannot take another worst-case reading of
+ * {@value #MAX_SAMPLE_BYTES} bytes. An encoder is not thread-safe.
+ */
+public final class SampleBlockEncoder {
+
+    /** Bytes of the block header: sample count and first timestamp. */
+    public static final int HEADER_SIZE = 4 + 8;
+
+    /** Most bytes a single reading can take. */
+    public static final int MAX_SAMPLE_BYTES = 28;
+
+    private final byte[] block;
+    private final BitOutput output = new BitOutput();
+    private final SampleBlockState state = new SampleBlockState();
+    private int sampleCount;
+    private long firstTimestampMillis;
+    private int length;
+
+    /**
+     * @param maxBlockBytes Capacity of a block, at least {@link #HEADER_SIZE} + {@link
+     *     #MAX_SAMPLE_BYTES}.
+     */
+    public SampleBlockEncoder(int maxBlockBytes) {
+        if (maxBlockBytes < HEADER_SIZE + MAX_SAMPLE_BYTES) {
+            throw new IllegalArgumentException("Block of " + maxBlockBytes + " bytes is too small");
+        }
+        this.block = new byte[maxBlockBytes];
+        reset();
+    }
+
+    /** Discards the current block and starts a new one. */
+    public void reset() {
+        sampleCount = 0;
+        length = 0;
+        output.reset(block, HEADER_SIZE);
+    }
+
+    /**
+     * Adds a reading to the block.
+     *
+     * @return false, without adding the reading, if the block is full or finished.
+     */
+    public boolean append(
+            long timestampMillis, float windSpeed, float temperature, int rssi, int nodeId) {
+        if (length > 0 || output.bytesUsed() + MAX_SAMPLE_BYTES > block.length) return false;
+        if (sampleCount == 0) {
+            firstTimestampMillis = timestampMillis;
+            state.reset(timestampMillis);
+        }
+        sampleCount++;
+
+        if (nodeId == state.predictedNode()) {
+            output.writeBit(false);
+        } else {
+            output.writeBit(true);
+            if (nodeId >= 0 && nodeId <= 0xFF) {
+                output.write(0, 1);
+                output.write(nodeId, 8);
+            } else {
+                output.write(1, 1);
+                output.write(nodeId, 32);
+            }
+        }
+        state.advanceNode(nodeId);
+        int slot = SampleBlockState.slotOf(nodeId);
+
+        long delta = timestampMillis - state.timestamps[slot];
+        writeDeltaOfDelta(delta - state.deltas[slot]);
+        state.timestamps[slot] = timestampMillis;
+        state.deltas[slot] = delta;
+
+        state.windBits[slot] =
+                writeXor(
+                        Float.floatToRawIntBits(windSpeed),
+                        state.windBits[slot],
+                        state.windLeading,
+                        state.windTrailing,
+                        slot);
+        state.temperatureBits[slot] =
+                writeXor(
+                        Float.floatToRawIntBits(temperature),
+                        state.temperatureBits[slot],
+                        state.temperatureLeading,
+                        state.temperatureTrailing,
+                        slot);
+
+        if (rssi == state.rssis[slot]) {
+            output.writeBit(false);
+        } else if (rssi >= Byte.MIN_VALUE && rssi <= Byte.MAX_VALUE) {
+            output.write(0b10, 2);
+            output.write(rssi, 8);
+        } else {
+            output.write(0b11, 2);
+            output.write(rssi, 32);
+        }
+        state.rssis[slot] = rssi;
+        return true;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            output.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            output.write(0b10, 2);
+            output.write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            output.write(0b110, 3);
+            output.write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            output.write(0b1110, 4);
+            output.write(dod + 2047, 12);
+        } else {
+            output.write(0b1111, 4);
+            output.write(dod, 64);
+        }
+    }
+
+    /** Writes a float as its XOR with the previous one and returns its bits. */
+    private int writeXor(int bits, int previous, int[] leading, int[] trailing, int slot) {
+        int xor = bits ^ previous;
+        if (xor == 0) {
+            output.writeBit(false);
+            return bits;
+        }
+        output.writeBit(true);
+        int lead = Integer.numberOfLeadingZeros(xor);
+        int trail = Integer.numberOfTrailingZeros(xor);
+        if (leading[slot] >= 0 && lead >= leading[slot] && trail >= trailing[slot]) {
+            // Inside the previous window: only the meaningful bits
+            output.writeBit(false);
+            output.write(xor >>> trailing[slot], 32 - leading[slot] - trailing[slot]);
+        } else {
+            int meaningful = 32 - lead - trail;
+            output.writeBit(true);
+            output.write(lead, 5);
+            output.write(meaningful - 1, 5);
+            output.write(xor >>> trail, meaningful);
+            leading[slot] = lead;
+            trailing[slot] = trail;
+        }
+        return bits;
+    }
+
+    /**
+     * Completes the block. Appending is refused until {@link #reset()}.
+     *
+     * @return Length of the block in {@link #getBuffer()}.
+     */
+    public int finish() {
+        if (length == 0) {
+            length = output.flush();
+            writeInt(0, sampleCount);
+            writeInt(4, (int) (firstTimestampMillis >>> 32));
+            writeInt(8, (int) firstTimestampMillis);
+        }
+        return length;
+    }
+
+    private void writeInt(int offset, int value) {
+        block[offset] = (byte) (value >>> 24);
+        block[offset + 1] = (byte) (value >>> 16);
+        block[offset + 2] = (byte) (value >>> 8);
+        block[offset + 3] = (byte) value;
+    }
+
+    /**
+     * @return The buffer holding the block from index 0; reused by the next block.
+     */
+    public byte[] getBuffer() {
+        return block;
+    }
+
+    /**
+     * @return The number of readings in the block.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return Bytes the block takes so far, header included.
+     */
+    public int getEncodedLength() {
+        return length > 0 ? length : output.bytesUsed();
+    }
+}
@@ -0,0 +1,75 @@
+package com.kresshy.weatherstation.recording;
+
+import java.util.Arrays;
+
+/**
+ * The predictions that {@link SampleBlockEncoder} and {@link SampleBlockDecoder} keep in step:
+ * per node the previous timestamp, timestamp delta, value bits and XOR window, plus which node
+ * followed which. Nodes share one of {@value #SLOTS} slots by the low bits of their id; a clash
+ * only costs compression, since both sides see the same clash.
+ */
+final class SampleBlockState {
+
+    static final int SLOTS = 256;
+
+    /** Marks a slot without a known successor. */
+    static final long NO_NODE = Long.MIN_VALUE;
+
+    final long[] timestamps = new long[SLOTS];
+    final long[] deltas = new long[SLOTS];
+    final int[] windBits = new int[SLOTS];
+    final int[] windLeading = new int[SLOTS];
+    final int[] windTrailing = new int[SLOTS];
+    final int[] temperatureBits = new int[SLOTS];
+    final int[] temperatureLeading = new int[SLOTS];
+    final int[] temperatureTrailing = new int[SLOTS];
+    final int[] rssis = new int[SLOTS];
+    final long[] successors = new long[SLOTS];
+
+    /** Node of the previous sample, or {@link #NO_NODE}. */
+    long previousNode;
+
+    /**
+     * Forgets everything, as at the start of a block.
+     *
+     * @param firstTimestampMillis Timestamp every node's first delta is taken from.
+     */
+    void reset(long firstTimestampMillis) {
+        Arrays.fill(timestamps, firstTimestampMillis);
+        Arrays.fill(deltas, 0);
+        Arrays.fill(windBits, 0);
+        Arrays.fill(windLeading, -1);
+        Arrays.fill(windTrailing, 0);
+        Arrays.fill(temperatureBits, 0);
+        Arrays.fill(temperatureLeading, -1);
+        Arrays.fill(temperatureTrailing, 0);
+        Arrays.fill(rssis, 0);
+        Arrays.fill(successors, NO_NODE);
+        previousNode = NO_NODE;
+    }
+
+    /**
+     * @param nodeId A node id.
+     * @return The slot holding its predictions.
+     */
+    static int slotOf(long nodeId) {
+        return (int) nodeId & (SLOTS - 1);
+    }
+
+    /**
+     * @return The node expected after the previous one, or {@link #NO_NODE}.
+     */
+    long predictedNode() {
+        return previousNode == NO_NODE ? NO_NODE : successors[slotOf(previousNode)];
+    }
+
+    /**
+     * Records the node of a sample as the successor of the previous one.
+     *
+     * @param nodeId The node of the sample.
+     */
+    void advanceNode(int nodeId) {
+        if (previousNode != NO_NODE) successors[slotOf(previousNode)] = nodeId;
+        previousNode = nodeId;
+    }
+}
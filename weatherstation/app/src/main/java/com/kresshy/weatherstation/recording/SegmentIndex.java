@@ -0,0 +1,170 @@
+package com.kresshy.weatherstation.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Sparse index of a {@link SessionLog}: for every {@value #SEGMENT_MS} ms segment that holds
+ * readings, the segment start and the file offset of its first record. A day at 10 Hz needs 144
+ * entries of 16 bytes, so the whole index is read at once and searched in memory.
+ *
+ * <p>The index lives next to its log in a file with an {@code .idx} suffix and is written after the
+ * records it points to. A crash can therefore only lose trailing entries, which makes the last
+ * remaining segment look longer; readers still find every record, they just map a little more.
+ */
+final class SegmentIndex {
+
+    /** Time span of a segment. Segments start at multiples of it since the epoch. */
+    static final long SEGMENT_MS = 10 * 60_000;
+
+    /** Bytes of an entry: segment start and file offset. */
+    static final int ENTRY_SIZE = 16;
+
+    private long[] starts = new long[16];
+    private long[] offsets = new long[16];
+    private int size;
+
+    /**
+     * @param file A session log.
+     * @return The file holding its index.
+     */
+    static File fileFor(File file) {
+        return new File(file.getParentFile(), file.getName() + ".idx");
+    }
+
+    /**
+     * @param timestampMillis Time of a reading in epoch milliseconds.
+     * @return Start of the segment that holds it.
+     */
+    static long segmentOf(long timestampMillis) {
+        long offset = timestampMillis % SEGMENT_MS;
+        return timestampMillis - (offset < 0 ? offset + SEGMENT_MS : offset);
+    }
+
+    /**
+     * Reads the index of a log, keeping the entries up to the first one that is torn, out of order
+     * or points outside the records.
+     *
+     * @param file The index file; a missing file gives an empty index.
+     * @param dataEnd End of the complete records of the log.
+     * @return The index.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    static SegmentIndex read(File file, long dataEnd) throws IOException {
+        SegmentIndex index = new SegmentIndex();
+        if (!file.isFile()) return index;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            int entries = (int) (channel.size() / ENTRY_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(entries * ENTRY_SIZE);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= ENTRY_SIZE) {
+                long start = buffer.getLong();
+                long offset = buffer.getLong();
+                boolean aligned = (offset - SessionLog.HEADER_SIZE) % SessionLog.RECORD_SIZE == 0;
+                // The first segment starts with the first record
+                boolean ordered =
+                        index.size == 0
+                                ? offset == SessionLog.HEADER_SIZE
+                                : start > index.starts[index.size - 1]
+                                        && offset > index.offsets[index.size - 1];
+                if (!aligned || !ordered || offset >= dataEnd) break;
+                index.add(start, offset);
+            }
+            return index;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Adds the next segment.
+     *
+     * @param startMillis Start of the segment.
+     * @param offset File offset of its first record.
+     */
+    void add(long startMillis, long offset) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        starts[size] = startMillis;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * Drops the entries added after the first {@code newSize}.
+     *
+     * @param newSize The number of entries to keep.
+     */
+    void truncate(int newSize) {
+        if (newSize < size) size = newSize;
+    }
+
+    /**
+     * Writes entries to an index file at the channel's position.
+     *
+     * @param channel The index file.
+     * @param from The first entry to write.
+     * @throws IOException If the write fails.
+     */
+    void write(FileChannel channel, int from) throws IOException {
+        if (from >= size) return;
+        ByteBuffer buffer = ByteBuffer.allocate((size - from) * ENTRY_SIZE);
+        for (int i = from; i < size; i++) buffer.putLong(starts[i]).putLong(offsets[i]);
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * @return The number of segments.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param segment Number of the segment.
+     * @return Its start in epoch milliseconds.
+     */
+    long getStartMillis(int segment) {
+        return starts[segment];
+    }
+
+    /**
+     * @param segment Number of the segment.
+     * @return The file offset of its first record.
+     */
+    long getOffset(int segment) {
+        return offsets[segment];
+    }
+
+    /**
+     * Finds the segment that holds a point in time.
+     *
+     * @param timestampMillis Time in epoch milliseconds.
+     * @return The last segment starting at or before it, or -1 if every segment starts later.
+     */
+    int segmentAt(long timestampMillis) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,447 @@
+package com.kresshy.weatherstation.recording;
+
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of the accepted readings of one recording session.
+ *
+ * <p>The file starts with a {@value #HEADER_SIZE}-byte header: the magic number {@code "WSRL"}, the
+ * format version, the record size and the session start in epoch milliseconds. Fixed-size records
+ * of {@value #RECORD_SIZE} bytes follow, big-endian:
+ *
+ * <pre>
+ *   int    payload length ({@value #PAYLOAD_SIZE})
+ *   long   timestamp, epoch milliseconds
+ *   float  wind speed, m/s
+ *   float  temperature, degrees Celsius
+ *   int    signal strength, dBm
+ *   int    node id
+ *   int    CRC-32 of the length and payload
+ * </pre>
+ *
+ * <p>A reading timestamped before its predecessor is stored at the predecessor's time, so the
+ * records are sorted by time. A {@link SegmentIndex} next to the file records where every
+ * {@value SegmentIndex#SEGMENT_MS} ms segment starts, so a time range can be read without scanning
+ * the file.
+ *
+ * <p>A process that dies mid-write leaves at most a torn last record. {@link #open(File, long)}
+ * checks every record and truncates the file at the first one that is incomplete or fails its
+ * checksum, so appends always continue after the last good reading. It then rebuilds the index
+ * from the records that remain. An append that fails is rolled back the same way while the log is
+ * open, so the file, the index and the last timestamp keep describing the same records.
+ *
+ * <p>Instances are not thread-safe; the {@link SessionRecorder} writes from a single thread.
+ */
+public final class SessionLog {
+
+    static final int MAGIC = 0x5753524C; // "WSRL"
+    static final short VERSION = 1;
+
+    /** Bytes before the first record. */
+    public static final int HEADER_SIZE = 16;
+
+    /** Bytes of a record without its length prefix and checksum. */
+    public static final int PAYLOAD_SIZE = 8 + 4 + 4 + 4 + 4;
+
+    /** Bytes of a complete record. */
+    public static final int RECORD_SIZE = 4 + PAYLOAD_SIZE + 4;
+
+    // Offsets of the fields within a record
+    static final int TIMESTAMP_OFFSET = 4;
+    static final int WIND_SPEED_OFFSET = 12;
+    static final int TEMPERATURE_OFFSET = 16;
+    static final int RSSI_OFFSET = 20;
+    static final int NODE_ID_OFFSET = 24;
+    static final int CRC_OFFSET = 4 + PAYLOAD_SIZE;
+
+    /** Records checked or read per channel call. */
+    private static final int CHUNK_RECORDS = 2048;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final RandomAccessFile indexRaf;
+    private final SegmentIndex index;
+    private final long sessionStartMillis;
+    private final long truncatedBytes;
+    private final CRC32 crc = new CRC32();
+    private long recordCount;
+    private long lastTimestampMillis;
+
+    /** Supplies the channel records are appended through; lets tests make writes fail. */
+    interface ChannelWrapper {
+        FileChannel wrap(FileChannel channel);
+    }
+
+    private SessionLog(
+            File file,
+            RandomAccessFile raf,
+            FileChannel channel,
+            RandomAccessFile indexRaf,
+            SegmentIndex index,
+            long sessionStartMillis,
+            long recordCount,
+            long lastTimestampMillis,
+            long truncatedBytes) {
+        this.file = file;
+        this.raf = raf;
+        this.channel = channel;
+        this.indexRaf = indexRaf;
+        this.index = index;
+        this.sessionStartMillis = sessionStartMillis;
+        this.recordCount = recordCount;
+        this.lastTimestampMillis = lastTimestampMillis;
+        this.truncatedBytes = truncatedBytes;
+    }
+
+    /**
+     * Opens a session file for appending, creating it if needed. An existing file is recovered:
+     * a torn or corrupt tail is cut off after the last valid record and the index is rebuilt.
+     *
+     * @param file The session file.
+     * @param sessionStartMillis Start of the session, written to the header of a new file.
+     * @return The open log, positioned after the last valid record.
+     * @throws IOException If the file cannot be read or written, or is not a session file.
+     */
+    public static SessionLog open(File file, long sessionStartMillis) throws IOException {
+        return open(file, sessionStartMillis, channel -> channel);
+    }
+
+    /**
+     * Like {@link #open(File, long)}, with the records written through a wrapped channel.
+     *
+     * @param file The session file.
+     * @param sessionStartMillis Start of the session, written to the header of a new file.
+     * @param wrapper Wraps the channel of the session file.
+     * @return The open log, positioned after the last valid record.
+     * @throws IOException If the file cannot be read or written, or is not a session file.
+     */
+    static SessionLog open(File file, long sessionStartMillis, ChannelWrapper wrapper)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        RandomAccessFile indexRaf = null;
+        try {
+            FileChannel channel = wrapper.wrap(raf.getChannel());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            SegmentIndex index = new SegmentIndex();
+            long start = sessionStartMillis;
+            long size = channel.size();
+            long validEnd = HEADER_SIZE;
+            if (size < HEADER_SIZE) {
+                // New file, or one whose header never made it to disk
+                header.putInt(MAGIC)
+                        .putShort(VERSION)
+                        .putShort((short) RECORD_SIZE)
+                        .putLong(sessionStartMillis)
+                        .flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                size = HEADER_SIZE;
+            } else {
+                readFully(channel, header, 0);
+                start = checkHeader(header, file);
+                validEnd = scan(channel, size, index);
+                if (validEnd < size) channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+
+            indexRaf = new RandomAccessFile(SegmentIndex.fileFor(file), "rw");
+            indexRaf.setLength(0);
+            index.write(indexRaf.getChannel(), 0);
+
+            long lastTimestamp = Long.MIN_VALUE;
+            if (validEnd > HEADER_SIZE) {
+                ByteBuffer timestamp = ByteBuffer.allocate(8);
+                readFully(channel, timestamp, validEnd - RECORD_SIZE + TIMESTAMP_OFFSET);
+                lastTimestamp = timestamp.getLong(0);
+            }
+            return new SessionLog(
+                    file,
+                    raf,
+                    channel,
+                    indexRaf,
+                    index,
+                    start,
+                    (validEnd - HEADER_SIZE) / RECORD_SIZE,
+                    lastTimestamp,
+                    size - validEnd);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            if (indexRaf != null) indexRaf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the valid records of a session file without changing it.
+     *
+     * @param file The session file.
+     * @return The readings in file order.
+     * @throws IOException If the file cannot be read or is not a session file.
+     */
+    public static WeatherHistory read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() < HEADER_SIZE) throw new IOException("No header: " + file);
+            readFully(channel, header, 0);
+            checkHeader(header, file);
+
+            WeatherHistory history = new WeatherHistory();
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * RECORD_SIZE);
+            long position = HEADER_SIZE;
+            long size = channel.size();
+            while (position + RECORD_SIZE <= size) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), size - position));
+                readFully(channel, chunk, position);
+                chunk.flip();
+                while (chunk.remaining() >= RECORD_SIZE) {
+                    int offset = chunk.position();
+                    if (!isValid(chunk, offset, crc)) return history;
+                    history.add(
+                            chunk.getLong(offset + TIMESTAMP_OFFSET),
+                            chunk.getFloat(offset + WIND_SPEED_OFFSET),
+                            chunk.getFloat(offset + TEMPERATURE_OFFSET),
+                            chunk.getInt(offset + RSSI_OFFSET),
+                            chunk.getInt(offset + NODE_ID_OFFSET));
+                    chunk.position(offset + RECORD_SIZE);
+                    position += RECORD_SIZE;
+                }
+            }
+            return history;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the payload of a record at the buffer's position, leaving the checksum to {@link
+     * #append(ByteBuffer)}. Filling a buffer this way is cheap enough for the ingest thread.
+     *
+     * @param buffer A heap buffer with at least {@value #RECORD_SIZE} bytes remaining.
+     * @param timestampMillis Time of the reading in epoch milliseconds.
+     * @param windSpeed The wind speed in m/s.
+     * @param temperature The temperature in degrees Celsius.
+     * @param rssi The signal strength in dBm, or 0 if unknown.
+     * @param nodeId The sensor node that sent the reading.
+     */
+    public static void put(
+            ByteBuffer buffer,
+            long timestampMillis,
+            float windSpeed,
+            float temperature,
+            int rssi,
+            int nodeId) {
+        buffer.putInt(PAYLOAD_SIZE)
+                .putLong(timestampMillis)
+                .putFloat(windSpeed)
+                .putFloat(temperature)
+                .putInt(rssi)
+                .putInt(nodeId)
+                .putInt(0);
+    }
+
+    /**
+     * @param buffer Records written by {@link #put}.
+     * @param offset Start of a record in the buffer.
+     * @return Its timestamp.
+     */
+    static long timestampAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Seals the records between the buffer's position and limit with their checksums and appends
+     * them, then adds the segments they start to the index. Timestamps earlier than the preceding
+     * record's are raised to it first. The buffer's position is advanced to its limit.
+     *
+     * <p>If the write fails, the file and its index are cut back to where they ended before the
+     * call and the log keeps its previous state, so no partial record or dangling index entry is
+     * left behind. Should the cut fail as well, the log must be closed; reopening it repairs the
+     * file.
+     *
+     * @param records A heap buffer of whole records written by {@link #put}.
+     * @throws IOException If the write fails.
+     */
+    public void append(ByteBuffer records) throws IOException {
+        int start = records.position();
+        int length = records.remaining();
+        if (length % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Not whole records: " + length + " bytes");
+        }
+        byte[] array = records.array();
+        int base = records.arrayOffset();
+        long end = channel.position();
+        long fileOffset = end - start;
+        long previousTimestamp = lastTimestampMillis;
+        int indexed = index.size();
+        long lastSegment = indexed == 0 ? Long.MIN_VALUE : index.getStartMillis(indexed - 1);
+        for (int offset = start; offset < start + length; offset += RECORD_SIZE) {
+            long timestamp = timestampAt(records, offset);
+            if (timestamp < lastTimestampMillis) {
+                timestamp = lastTimestampMillis;
+                records.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+            }
+            lastTimestampMillis = timestamp;
+            long segment = SegmentIndex.segmentOf(timestamp);
+            if (segment > lastSegment) {
+                index.add(segment, fileOffset + offset);
+                lastSegment = segment;
+            }
+
+            crc.reset();
+            crc.update(array, base + offset, CRC_OFFSET);
+            records.putInt(offset + CRC_OFFSET, (int) crc.getValue());
+        }
+        try {
+            while (records.hasRemaining()) channel.write(records);
+            // After the records, so an entry never points past them
+            index.write(indexRaf.getChannel(), indexed);
+        } catch (IOException e) {
+            index.truncate(indexed);
+            lastTimestampMillis = previousTimestamp;
+            try {
+                channel.truncate(end);
+                channel.position(end);
+                indexRaf.setLength((long) indexed * SegmentIndex.ENTRY_SIZE);
+                indexRaf.seek(indexRaf.length());
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+        recordCount += length / RECORD_SIZE;
+    }
+
+    /**
+     * Forces the appended records to the storage device, so they survive a power loss as well as a
+     * crash of the process.
+     *
+     * @throws IOException If the sync fails.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+        indexRaf.getChannel().force(false);
+    }
+
+    /**
+     * Closes the file. Records already appended are kept even without a {@link #force()}, as the
+     * operating system writes them out.
+     *
+     * @throws IOException If closing fails.
+     */
+    public void close() throws IOException {
+        try {
+            raf.close();
+        } finally {
+            indexRaf.close();
+        }
+    }
+
+    /**
+     * @return The session file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return Start of the session from the file header, in epoch milliseconds.
+     */
+    public long getSessionStartMillis() {
+        return sessionStartMillis;
+    }
+
+    /**
+     * @return The number of valid records in the file.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return Timestamp of the last valid record, or {@link Long#MIN_VALUE} if there is none.
+     */
+    public long getLastTimestampMillis() {
+        return lastTimestampMillis;
+    }
+
+    /**
+     * @return How many bytes of a torn or corrupt tail {@link #open(File, long)} cut off.
+     */
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    private static long checkHeader(ByteBuffer header, File file) throws IOException {
+        header.flip();
+        int magic = header.getInt();
+        short version = header.getShort();
+        short recordSize = header.getShort();
+        if (magic != MAGIC || version != VERSION || recordSize != RECORD_SIZE) {
+            throw new IOException("Not a version " + VERSION + " session file: " + file);
+        }
+        return header.getLong();
+    }
+
+    /**
+     * Finds the end of the last valid record, checking records from the header on, and indexes the
+     * segments they start.
+     */
+    private static long scan(FileChannel channel, long size, SegmentIndex index)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * RECORD_SIZE);
+        long position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= size) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), size - position));
+            readFully(channel, chunk, position);
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_SIZE) {
+                int offset = chunk.position();
+                if (!isValid(chunk, offset, crc)) return position;
+                long segment = SegmentIndex.segmentOf(timestampAt(chunk, offset));
+                if (index.size() == 0 || segment > index.getStartMillis(index.size() - 1)) {
+                    index.add(segment, position);
+                }
+                chunk.position(offset + RECORD_SIZE);
+                position += RECORD_SIZE;
+            }
+        }
+        return position;
+    }
+
+    private static boolean isValid(ByteBuffer chunk, int offset, CRC32 crc) {
+        if (chunk.getInt(offset) != PAYLOAD_SIZE) return false;
+        crc.reset();
+        crc.update(chunk.array(), chunk.arrayOffset() + offset, CRC_OFFSET);
+        return chunk.getInt(offset + CRC_OFFSET) == (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.kresshy.weatherstation.recording;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.kresshy.weatherstation.weather.WeatherData;
+
+import timber.log.Timber;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Appends every accepted reading to a {@link SessionLog} in the {@link SessionStore}. A reading
+ * that arrives more than {@value #SESSION_GAP_MS} ms after its predecessor starts a new session
+ * file named after its timestamp.
+ *
+ * <p>The ingest thread only copies the reading into the pending half of a double buffer under a
+ * short lock. A writer thread swaps the halves at least every {@value #FLUSH_INTERVAL_MS} ms, or
+ * sooner when the pending half is half full, then checksums and writes the batch through the file
+ * channel. File I/O therefore never runs on the ingest thread. If the writer falls a whole buffer
+ * behind, new readings are dropped and counted rather than blocking the ingest thread.
+ */
+@Singleton
+public class SessionRecorder {
+
+    /** Readings further apart than this belong to different sessions. */
+    public static final long SESSION_GAP_MS = 10 * 60_000;
+
+    /** Longest time an accepted reading waits in memory before it is written. */
+    public static final long FLUSH_INTERVAL_MS = 1_000;
+
+    /** Longest time a written reading waits before it is forced to the storage device. */
+    static final long FORCE_INTERVAL_MS = 10_000;
+
+    /** Default capacity of each buffer half, several minutes of readings at 10 Hz. */
+    static final int DEFAULT_CAPACITY = 4096;
+
+    @Nullable private final File directory;
+    private final long flushIntervalMillis;
+    /**
+     * Guards the buffers and the batch counters. The writer and flushing threads both wait on it,
+     * so it is always signalled with {@code notifyAll()}.
+     */
+    private final Object lock = new Object();
+
+    /** Filled by the ingest thread; guarded by {@code lock}. */
+    private ByteBuffer pending;
+
+    /** Drained by the writer thread. */
+    private ByteBuffer writing;
+
+    private final Thread writer;
+    private boolean writerWaiting = false;
+    private boolean closed = false;
+    private boolean flushRequested = false;
+    private long swappedBatches = 0;
+    private long writtenBatches = 0;
+
+    private volatile long recordedCount = 0;
+    private volatile long droppedCount = 0;
+    private volatile long writtenCount = 0;
+
+    // Writer thread state
+    private SessionLog log;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long lastForce;
+
+    /**
+     * Records into the directory of a session store.
+     *
+     * @param store Where sessions are kept.
+     */
+    @Inject
+    public SessionRecorder(SessionStore store) {
+        this(store.getDirectory(), DEFAULT_CAPACITY, FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * @param directory Where session files are created, or null to discard every reading.
+     * @param capacity The number of readings each buffer half holds.
+     * @param flushIntervalMillis Longest time a reading waits in memory.
+     */
+    @VisibleForTesting
+    public SessionRecorder(@Nullable File directory, int capacity, long flushIntervalMillis) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        this.directory = directory;
+        this.flushIntervalMillis = flushIntervalMillis;
+        pending = ByteBuffer.allocate(capacity * SessionLog.RECORD_SIZE);
+        writing = ByteBuffer.allocate(capacity * SessionLog.RECORD_SIZE);
+
+        writer = new Thread(this::writeLoop, "session-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an accepted reading for writing. Called on the ingest thread.
+     *
+     * @param data The reading.
+     */
+    public void record(WeatherData data) {
+        record(
+                data.getTimestamp().getTime(),
+                (float) data.getWindSpeed(),
+                (float) data.getTemperature(),
+                data.getRssi(),
+                data.getNodeId());
+    }
+
+    /**
+     * Queues an accepted reading for writing.
+     *
+     * @param timestampMillis Time of the reading in epoch milliseconds.
+     * @param windSpeed The wind speed in m/s.
+     * @param temperature The temperature in degrees Celsius.
+     * @param rssi The signal strength in dBm, or 0 if unknown.
+     * @param nodeId The sensor node that sent the reading.
+     */
+    public void record(
+            long timestampMillis, float windSpeed, float temperature, int rssi, int nodeId) {
+        synchronized (lock) {
+            if (closed || directory == null) return;
+            if (pending.remaining() < SessionLog.RECORD_SIZE) {
+                long dropped = ++droppedCount;
+                if (dropped == 1 || dropped % 1000 == 0) {
+                    Timber.w("Session recorder behind, %d readings dropped so far", dropped);
+                }
+                return;
+            }
+            SessionLog.put(pending, timestampMillis, windSpeed, temperature, rssi, nodeId);
+            recordedCount++;
+            if (writerWaiting && pending.position() >= pending.capacity() / 2) lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes every reading queued so far and waits until it has been written.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (lock) {
+            // The next swap takes every reading queued so far
+            long target = swappedBatches + 1;
+            flushRequested = true;
+            lock.notifyAll();
+            while (writtenBatches < target && writer.isAlive()) lock.wait();
+        }
+    }
+
+    /**
+     * Like {@link #flush()}, but gives up waiting after a time limit, e.g. on the main thread while
+     * the app is torn down. The readings are still written once the writer gets to them.
+     *
+     * @param timeoutMillis Longest time to wait, in milliseconds.
+     * @return {@code false} if the readings were not written in time.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            long target = swappedBatches + 1;
+            flushRequested = true;
+            lock.notifyAll();
+            while (writtenBatches < target && writer.isAlive()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) return false;
+                lock.wait(wait);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes the queued readings, closes the session file and stops the writer thread. Readings
+     * recorded afterwards are discarded.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void close() throws InterruptedException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        writer.join();
+    }
+
+    /**
+     * @return The number of readings queued for writing.
+     */
+    public long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * @return The number of readings written to a session file.
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * @return The number of readings dropped because the writer was a whole buffer behind.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stop;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (!closed
+                        && !flushRequested
+                        && pending.position() < pending.capacity() / 2) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) break;
+                    writerWaiting = true;
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                    writerWaiting = false;
+                }
+                stop = closed;
+                flushRequested = false;
+                ByteBuffer swap = pending;
+                pending = writing;
+                writing = swap;
+                swappedBatches++;
+            }
+
+            writing.flip();
+            try {
+                write(writing);
+            } catch (RuntimeException e) {
+                // Keep the thread alive, or every later reading would pile up and be dropped
+                Timber.e(e, "Session recorder: failed to write a batch");
+            }
+            writing.clear();
+            if (stop) closeLog();
+
+            synchronized (lock) {
+                writtenBatches++;
+                lock.notifyAll();
+            }
+            if (stop) return;
+        }
+    }
+
+    /** Appends a batch, starting a new session file wherever readings are too far apart. */
+    private void write(ByteBuffer batch) {
+        int end = batch.limit();
+        int start = batch.position();
+        for (int offset = start; offset < end; offset += SessionLog.RECORD_SIZE) {
+            long timestamp = SessionLog.timestampAt(batch, offset);
+            if (lastTimestamp == Long.MIN_VALUE) {
+                resumeLog(timestamp);
+            } else if (timestamp - lastTimestamp > SESSION_GAP_MS) {
+                append(batch, start, offset);
+                closeLog();
+                openLog(timestamp);
+                start = offset;
+            }
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+        }
+        append(batch, start, end);
+
+        long now = System.currentTimeMillis();
+        if (log != null && now - lastForce >= FORCE_INTERVAL_MS) {
+            lastForce = now;
+            try {
+                log.force();
+            } catch (IOException e) {
+                Timber.e(e, "Session recorder: failed to sync %s", log.getFile());
+            }
+        }
+    }
+
+    /**
+     * Continues the newest session file if the first reading since the recorder started is within
+     * {@link #SESSION_GAP_MS} of its last record, e.g. after the process was killed and restarted.
+     * Opening the file cuts off the record the killed process may have torn.
+     */
+    private void resumeLog(long timestamp) {
+        File newest = null;
+        long newestStart = Long.MIN_VALUE;
+        File[] files = directory.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            long start = SessionStore.sessionStart(files[i]);
+            if (start != Long.MIN_VALUE && start > newestStart && start <= timestamp) {
+                newest = files[i];
+                newestStart = start;
+            }
+        }
+        if (newest != null) {
+            try {
+                log = SessionLog.open(newest, newestStart);
+                reportTruncation();
+                long last = log.getLastTimestampMillis();
+                if (last != Long.MIN_VALUE && timestamp - last <= SESSION_GAP_MS) {
+                    lastTimestamp = last;
+                    lastForce = System.currentTimeMillis();
+                    return;
+                }
+                closeLog();
+            } catch (IOException e) {
+                Timber.w(e, "Session recorder: cannot resume %s", newest);
+                log = null;
+            }
+        }
+        openLog(timestamp);
+    }
+
+    /**
+     * Appends part of a batch. If that fails, the log is closed and the next batch resumes it, so
+     * reopening repairs whatever the failed write left in the file.
+     */
+    private void append(ByteBuffer batch, int start, int end) {
+        if (log == null || start == end) return;
+        int limit = batch.limit();
+        batch.limit(end).position(start);
+        try {
+            log.append(batch);
+            writtenCount += (end - start) / SessionLog.RECORD_SIZE;
+        } catch (IOException e) {
+            Timber.e(e, "Session recorder: failed to write %s", log.getFile());
+            closeLog();
+            lastTimestamp = Long.MIN_VALUE;
+        } finally {
+            batch.limit(limit);
+        }
+    }
+
+    private void openLog(long sessionStartMillis) {
+        File file = SessionStore.fileFor(directory, sessionStartMillis);
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            log = SessionLog.open(file, sessionStartMillis);
+            reportTruncation();
+            lastForce = System.currentTimeMillis();
+        } catch (IOException e) {
+            Timber.e(e, "Session recorder: failed to open %s", file);
+            log = null;
+        }
+    }
+
+    private void reportTruncation() {
+        if (log.getTruncatedBytes() > 0) {
+            Timber.w(
+                    "Session recorder: cut %d bytes of a torn tail off %s",
+                    log.getTruncatedBytes(), log.getFile());
+        }
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.force();
+            log.close();
+        } catch (IOException e) {
+            Timber.e(e, "Session recorder: failed to close %s", log.getFile());
+        }
+        log = null;
+    }
+}
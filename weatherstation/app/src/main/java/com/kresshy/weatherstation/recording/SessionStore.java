@@ -0,0 +1,201 @@
+package com.kresshy.weatherstation.recording;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The directory of recorded sessions: one {@link SessionLog} per session, named after the time of
+ * its first reading, each with its {@link SegmentIndex}.
+ *
+ * <p>{@link #read(long, long)} uses the indexes to map only the segments that overlap a time range,
+ * then narrows them to the range by binary search over the sorted, fixed-size records. Reading
+ * three hours back in a day-long session therefore touches a few hundred kilobytes instead of the
+ * whole file. Reads may run on any thread while the {@link SessionRecorder} appends; a record that
+ * is still being written fails its checksum and is left out.
+ */
+@Singleton
+public class SessionStore {
+
+    static final String FILE_PREFIX = "session-";
+
+    /** File name suffix of session logs. */
+    public static final String FILE_SUFFIX = ".wsr";
+
+    @Nullable private final File directory;
+
+    /**
+     * Keeps sessions in the {@code sessions} directory of the app's private files.
+     *
+     * @param context Application context.
+     */
+    @Inject
+    public SessionStore(@ApplicationContext Context context) {
+        this(sessionDirectory(context));
+    }
+
+    /**
+     * @param directory Where session files are kept, or null to keep none.
+     */
+    @VisibleForTesting
+    public SessionStore(@Nullable File directory) {
+        this.directory = directory;
+    }
+
+    @Nullable
+    private static File sessionDirectory(Context context) {
+        File files = context.getFilesDir();
+        return files == null ? null : new File(files, "sessions");
+    }
+
+    /**
+     * @return Where session files are kept, or null if there is no storage.
+     */
+    @Nullable
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param directory The session directory.
+     * @param sessionStartMillis Time of the first reading of a session.
+     * @return Its file.
+     */
+    static File fileFor(File directory, long sessionStartMillis) {
+        return new File(directory, FILE_PREFIX + sessionStartMillis + FILE_SUFFIX);
+    }
+
+    /**
+     * @param file A file of the session directory.
+     * @return Start of the session it holds, or {@link Long#MIN_VALUE} if it is not a session log.
+     */
+    public static long sessionStart(File file) {
+        String name = file.getName();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) return Long.MIN_VALUE;
+        try {
+            return Long.parseLong(
+                    name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return The session logs, oldest session first.
+     */
+    public File[] listSessions() {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files == null) return new File[0];
+        List<File> sessions = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (sessionStart(file) != Long.MIN_VALUE) sessions.add(file);
+        }
+        File[] sorted = sessions.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(sessionStart(a), sessionStart(b)));
+        return sorted;
+    }
+
+    /**
+     * Reads the recorded readings of a time range across sessions.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis End of the range in epoch milliseconds, exclusive.
+     * @return The readings, oldest first, mapped rather than copied.
+     * @throws IOException If a session file cannot be read.
+     */
+    public RecordedSeries read(long fromMillis, long toMillis) throws IOException {
+        if (toMillis <= fromMillis) return RecordedSeries.EMPTY;
+        File[] sessions = listSessions();
+        List<ByteBuffer> parts = new ArrayList<>();
+        for (int i = 0; i < sessions.length; i++) {
+            if (sessionStart(sessions[i]) >= toMillis) break;
+            // Sessions do not overlap, so one is over once the next has started
+            if (i + 1 < sessions.length && sessionStart(sessions[i + 1]) <= fromMillis) continue;
+            ByteBuffer part = readRange(sessions[i], fromMillis, toMillis);
+            if (part.limit() > 0) parts.add(part);
+        }
+        return parts.isEmpty()
+                ? RecordedSeries.EMPTY
+                : new RecordedSeries(parts.toArray(new ByteBuffer[0]));
+    }
+
+    /** Maps the segments of one session that overlap a range and trims them to it. */
+    private static ByteBuffer readRange(File file, long fromMillis, long toMillis)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long records = (channel.size() - SessionLog.HEADER_SIZE) / SessionLog.RECORD_SIZE;
+            long dataEnd = SessionLog.HEADER_SIZE + Math.max(0, records) * SessionLog.RECORD_SIZE;
+            SegmentIndex index = SegmentIndex.read(SegmentIndex.fileFor(file), dataEnd);
+
+            // Without an index the whole file is one segment
+            long begin = SessionLog.HEADER_SIZE;
+            long end = dataEnd;
+            int first = index.segmentAt(fromMillis);
+            if (first >= 0) begin = index.getOffset(first);
+            int last = index.segmentAt(toMillis - 1);
+            if (last + 1 < index.size()) end = index.getOffset(last + 1);
+            if (end <= begin) return ByteBuffer.allocate(0);
+
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, begin, end - begin);
+            int count = (int) ((end - begin) / SessionLog.RECORD_SIZE);
+            int low = firstAtOrAfter(mapped, count, fromMillis);
+            int high = firstAtOrAfter(mapped, count, toMillis);
+            if (end == dataEnd) {
+                // The recorder may be writing the newest records right now
+                CRC32 crc = new CRC32();
+                byte[] record = new byte[SessionLog.RECORD_SIZE];
+                while (high > low && !isComplete(mapped, high - 1, crc, record)) high--;
+            }
+            mapped.limit(high * SessionLog.RECORD_SIZE).position(low * SessionLog.RECORD_SIZE);
+            return mapped.slice();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static int firstAtOrAfter(ByteBuffer records, int count, long timestampMillis) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long timestamp =
+                    records.getLong(
+                            middle * SessionLog.RECORD_SIZE + SessionLog.TIMESTAMP_OFFSET);
+            if (timestamp < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isComplete(ByteBuffer records, int index, CRC32 crc, byte[] record) {
+        ByteBuffer copy = records.duplicate();
+        copy.position(index * SessionLog.RECORD_SIZE);
+        copy.get(record);
+        ByteBuffer view = ByteBuffer.wrap(record);
+        if (view.getInt(0) != SessionLog.PAYLOAD_SIZE) return false;
+        crc.reset();
+        crc.update(record, 0, SessionLog.CRC_OFFSET);
+        return view.getInt(SessionLog.CRC_OFFSET) == (int) crc.getValue();
+    }
+}
@@ -0,0 +1,289 @@
+package com.kresshy.weatherstation.recording;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+import timber.log.Timber;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the live state of the sensor nodes in one file across process death: the readings of the
+ * observation window, the converged averages of the thermal analyzer and the baselines of the
+ * outlier filters. A restarted process restores them and carries on scoring at once instead of
+ * sitting at WAITING with blank charts while everything warms up again.
+ *
+ * <p>The window is stored in {@link SampleBlockEncoder} blocks, about seven bytes per reading, so
+ * a five-minute window at 10 Hz takes some 20 KB. A new file is written beside the old one, forced
+ * to storage and renamed over it, and carries a CRC32 of its content, so a write cut short by the
+ * process dying leaves the previous snapshot in place. Reading and writing may run on any thread
+ * but must not overlap.
+ */
+@Singleton
+public class WarmStartStore {
+
+    static final String FILE_NAME = "warm-start.bin";
+
+    private static final String TEMPORARY_SUFFIX = ".part";
+
+    /** "WSWS". */
+    private static final int MAGIC = 0x57535753;
+
+    private static final int VERSION = 1;
+
+    /** Capacity of each encoded block of readings. */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /** Upper bound on the values of an outlier baseline, against reading a garbled count. */
+    private static final int MAX_BASELINE_SIZE = 4096;
+
+    @Nullable private final File file;
+
+    /**
+     * Keeps the snapshot in the app's private files.
+     *
+     * @param context Application context.
+     */
+    @Inject
+    public WarmStartStore(@ApplicationContext Context context) {
+        this(snapshotFile(context));
+    }
+
+    /**
+     * @param file Where the snapshot is kept, or null to keep none.
+     */
+    @VisibleForTesting
+    public WarmStartStore(@Nullable File file) {
+        this.file = file;
+    }
+
+    @Nullable
+    private static File snapshotFile(Context context) {
+        File files = context.getFilesDir();
+        return files == null ? null : new File(files, FILE_NAME);
+    }
+
+    /** The saved state of one sensor node. */
+    public static final class NodeSnapshot {
+        public final int nodeId;
+        public final WeatherSeries history;
+        @Nullable public final ThermalAnalyzer.State analyzer;
+        public final double[] windBaseline;
+        public final double[] temperatureBaseline;
+
+        /**
+         * @param nodeId The sensor node.
+         * @param history Its readings of the observation window, oldest first.
+         * @param analyzer The averages of its thermal analyzer, or null if it has none yet.
+         * @param windBaseline Recent wind speeds of its outlier filter, oldest first.
+         * @param temperatureBaseline Recent temperatures of its outlier filter, oldest first.
+         */
+        public NodeSnapshot(
+                int nodeId,
+                WeatherSeries history,
+                @Nullable ThermalAnalyzer.State analyzer,
+                double[] windBaseline,
+                double[] temperatureBaseline) {
+            this.nodeId = nodeId;
+            this.history = history;
+            this.analyzer = analyzer;
+            this.windBaseline = windBaseline;
+            this.temperatureBaseline = temperatureBaseline;
+        }
+    }
+
+    /**
+     * Replaces the saved state.
+     *
+     * @param nodes The state of every node, the primary node first.
+     * @throws IOException If the snapshot cannot be written; the previous one is then kept.
+     */
+    public void write(List<NodeSnapshot> nodes) throws IOException {
+        if (file == null) throw new IOException("No storage for the warm start snapshot");
+        File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+        boolean complete = false;
+        try {
+            FileOutputStream stream = new FileOutputStream(temporary);
+            try {
+                CheckedOutputStream checked =
+                        new CheckedOutputStream(
+                                new BufferedOutputStream(stream, BLOCK_SIZE), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nodes.size());
+                SampleBlockEncoder encoder = new SampleBlockEncoder(BLOCK_SIZE);
+                for (NodeSnapshot node : nodes) writeNode(out, node, encoder);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                stream.getFD().sync();
+            } finally {
+                stream.close();
+            }
+            if (!temporary.renameTo(file)) throw new IOException("Cannot rename " + temporary);
+            complete = true;
+        } finally {
+            if (!complete && temporary.exists() && !temporary.delete()) {
+                Timber.w("Cannot delete %s", temporary);
+            }
+        }
+    }
+
+    private static void writeNode(
+            DataOutputStream out, NodeSnapshot node, SampleBlockEncoder encoder)
+            throws IOException {
+        out.writeInt(node.nodeId);
+        ThermalAnalyzer.State analyzer = node.analyzer;
+        out.writeBoolean(analyzer != null);
+        if (analyzer != null) {
+            out.writeDouble(analyzer.fastEmaTemp);
+            out.writeDouble(analyzer.slowEmaTemp);
+            out.writeDouble(analyzer.fastEmaWind);
+            out.writeDouble(analyzer.slowEmaWind);
+            out.writeLong(analyzer.lastTimestampMillis);
+        }
+        writeBaseline(out, node.windBaseline);
+        writeBaseline(out, node.temperatureBaseline);
+
+        // Blocks of readings, ended by an empty block
+        WeatherSeries history = node.history;
+        encoder.reset();
+        for (int i = 0; i < history.size(); i++) {
+            if (!appendReading(encoder, history, i)) {
+                writeBlock(out, encoder);
+                encoder.reset();
+                appendReading(encoder, history, i);
+            }
+        }
+        if (encoder.getSampleCount() > 0) writeBlock(out, encoder);
+        out.writeInt(0);
+    }
+
+    private static boolean appendReading(
+            SampleBlockEncoder encoder, WeatherSeries history, int index) {
+        return encoder.append(
+                history.getTimestampMillis(index),
+                history.getWindSpeed(index),
+                history.getTemperature(index),
+                history.getRssi(index),
+                history.getNodeId(index));
+    }
+
+    private static void writeBlock(DataOutputStream out, SampleBlockEncoder encoder)
+            throws IOException {
+        int length = encoder.finish();
+        out.writeInt(length);
+        out.write(encoder.getBuffer(), 0, length);
+    }
+
+    private static void writeBaseline(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) out.writeDouble(value);
+    }
+
+    /**
+     * Reads the saved state back.
+     *
+     * @return The state of every node, the primary node first, or null if nothing was saved or
+     *     the snapshot is damaged.
+     */
+    @Nullable
+    public List<NodeSnapshot> read() {
+        if (file == null || !file.isFile()) return null;
+        try {
+            CheckedInputStream checked =
+                    new CheckedInputStream(
+                            new BufferedInputStream(new FileInputStream(file), BLOCK_SIZE),
+                            new CRC32());
+            try (DataInputStream in = new DataInputStream(checked)) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a warm start snapshot");
+                }
+                int count = in.readInt();
+                if (count < 0) throw new IOException("Bad node count " + count);
+                List<NodeSnapshot> nodes = new ArrayList<>();
+                SampleBlockDecoder decoder = new SampleBlockDecoder();
+                byte[] block = new byte[BLOCK_SIZE];
+                for (int i = 0; i < count; i++) nodes.add(readNode(in, decoder, block));
+                int expected = (int) checked.getChecksum().getValue();
+                int actual = in.readInt();
+                if (actual != expected || in.read() != -1) {
+                    throw new IOException("Checksum mismatch");
+                }
+                return nodes;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Timber.w(e, "Ignoring warm start snapshot %s", file);
+            return null;
+        }
+    }
+
+    private static NodeSnapshot readNode(
+            DataInputStream in, SampleBlockDecoder decoder, byte[] block) throws IOException {
+        int nodeId = in.readInt();
+        ThermalAnalyzer.State analyzer = null;
+        if (in.readBoolean()) {
+            analyzer =
+                    new ThermalAnalyzer.State(
+                            in.readDouble(),
+                            in.readDouble(),
+                            in.readDouble(),
+                            in.readDouble(),
+                            in.readLong());
+        }
+        double[] windBaseline = readBaseline(in);
+        double[] temperatureBaseline = readBaseline(in);
+
+        WeatherHistory history = new WeatherHistory();
+        for (int length = in.readInt(); length != 0; length = in.readInt()) {
+            if (length < 0 || length > BLOCK_SIZE) throw new IOException("Bad block " + length);
+            in.readFully(block, 0, length);
+            decoder.reset(block, 0, length);
+            while (decoder.next()) {
+                history.add(
+                        decoder.getTimestampMillis(),
+                        decoder.getWindSpeed(),
+                        decoder.getTemperature(),
+                        decoder.getRssi(),
+                        decoder.getNodeId());
+            }
+        }
+        return new NodeSnapshot(nodeId, history, analyzer, windBaseline, temperatureBaseline);
+    }
+
+    private static double[] readBaseline(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_BASELINE_SIZE) throw new IOException("Bad baseline " + size);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) values[i] = in.readDouble();
+        return values;
+    }
+
+    /** Deletes the saved state. */
+    public void clear() {
+        if (file != null && file.exists() && !file.delete()) Timber.w("Cannot delete %s", file);
+    }
+}
@@ -2,7 +2,11 @@ package com.kresshy.weatherstation.repository;
 
 import androidx.lifecycle.LiveData;
 
+import com.kresshy.weatherstation.weather.HistorySnapshot;
+import com.kresshy.weatherstation.weather.RollupSeries;
+import com.kresshy.weatherstation.weather.ThermalCycle;
 import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherSeries;
 
 import java.util.List;
 
@@ -66,6 +70,15 @@ public interface WeatherRepository {
      */
     LiveData<Integer> getThermalScore();
 
+    /**
+     * Provides an observable stream of the temperature cycle of the primary node, the rhythm of 1
+     * to 15 minutes in which thermals come and go, with the predicted next thermal window. It is
+     * updated in the background every few seconds.
+     *
+     * @return Observable cycle; null while no cycle stands out from the noise.
+     */
+    LiveData<ThermalCycle> getThermalCycle();
+
     /**
      * Provides an observable stream of the launch detector's enabled state. This allows UI
      * components to react to settings changes.
@@ -89,6 +102,105 @@ public interface WeatherRepository {
      */
     List<WeatherData> getHistoricalWeatherData();
 
+    /**
+     * Provides the historical weather data points of a single sensor node of a multi-node mast.
+     *
+     * @param nodeId The sensor node.
+     * @return List of historical weather data points of that node, empty if it has not reported.
+     */
+    List<WeatherData> getHistoricalWeatherData(int nodeId);
+
+    /**
+     * Provides the history of the primary node as an immutable view over the stored readings.
+     * Unlike {@link #getHistoricalWeatherData()} nothing is copied, and a reader that keeps the
+     * previous {@link HistorySnapshot#getVersion()} can fetch only the newer readings with {@link
+     * HistorySnapshot#since(long)}.
+     *
+     * @return A snapshot of the observation window, oldest reading first.
+     */
+    HistorySnapshot getHistorySnapshot();
+
+    /**
+     * Provides the history of a single sensor node as an immutable view over the stored readings.
+     *
+     * @param nodeId The sensor node.
+     * @return A snapshot of that node's observation window, empty if it has not reported.
+     */
+    HistorySnapshot getHistorySnapshot(int nodeId);
+
+    /**
+     * Reads the recorded readings of every node in a time range from the session store, which
+     * reaches back beyond the in-memory observation window. Readings of the last second may not be
+     * written yet. Reads storage, so call it off the main thread.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis End of the range in epoch milliseconds, exclusive.
+     * @return The readings, oldest first; empty if none were recorded or storage failed.
+     */
+    WeatherSeries getRecordedHistory(long fromMillis, long toMillis);
+
+    /**
+     * Saves the observation window, analyzer averages and outlier baselines of every node, so that
+     * a process restarted after being killed scores and charts at once. The state is also saved
+     * periodically while readings arrive; call this on teardown to save the newest readings too.
+     * Blocks until the state is written or a few seconds have passed.
+     */
+    void saveWarmStart();
+
+    /**
+     * Provides the chart history of the primary node as time buckets holding the min, max and mean
+     * of wind speed and temperature. The coarsest of the 1 s, 10 s and 60 s resolutions that still
+     * yields {@code targetPoints} buckets is used, so long observation windows stay cheap to plot.
+     *
+     * @param targetPoints The number of points the chart wants to draw.
+     * @return A snapshot of the buckets, oldest first.
+     */
+    RollupSeries getRollupSeries(int targetPoints);
+
+    /**
+     * Provides the chart history of a single sensor node as time buckets.
+     *
+     * @param nodeId The sensor node.
+     * @param targetPoints The number of points the chart wants to draw.
+     * @return A snapshot of the buckets, oldest first; empty if the node has not reported.
+     */
+    RollupSeries getRollupSeries(int nodeId, int targetPoints);
+
+    /**
+     * Provides an observable stream of processed weather data for a single sensor node. Each node
+     * is analyzed independently of the others.
+     *
+     * @param nodeId The sensor node.
+     * @return Observable atomic update of that node's raw data and calculated trends.
+     */
+    LiveData<com.kresshy.weatherstation.weather.ProcessedWeatherData> getProcessedWeatherData(
+            int nodeId);
+
+    /**
+     * Counts the wind speeds of a sensor node that were far from the rolling median of the node's
+     * recent readings and replaced by it.
+     *
+     * @param nodeId The sensor node.
+     * @return The number of rejected wind speeds.
+     */
+    long getRejectedWindReadings(int nodeId);
+
+    /**
+     * Counts the temperatures of a sensor node that were far from the rolling median of the node's
+     * recent readings and replaced by it.
+     *
+     * @param nodeId The sensor node.
+     * @return The number of rejected temperatures.
+     */
+    long getRejectedTemperatureReadings(int nodeId);
+
+    /**
+     * Lists the sensor nodes that have reported so far.
+     *
+     * @return The node ids, in the order they first appeared.
+     */
+    int[] getNodeIds();
+
     /**
      * Provides an observable stream of toast messages. Used to communicate transient errors or
      * status updates to the user.
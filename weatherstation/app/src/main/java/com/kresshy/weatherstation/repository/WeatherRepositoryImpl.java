@@ -3,22 +3,45 @@ package com.kresshy.weatherstation.repository;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.kresshy.weatherstation.connection.ConnectionState;
 import com.kresshy.weatherstation.connection.HardwareEventListener;
+import com.kresshy.weatherstation.connection.IngestQueue;
+import com.kresshy.weatherstation.metrics.PipelineMetrics;
+import com.kresshy.weatherstation.recording.SessionRecorder;
+import com.kresshy.weatherstation.recording.SessionStore;
+import com.kresshy.weatherstation.recording.WarmStartStore;
+import com.kresshy.weatherstation.util.IntObjectMap;
+import com.kresshy.weatherstation.weather.HampelFilter;
+import com.kresshy.weatherstation.weather.HistorySnapshot;
+import com.kresshy.weatherstation.weather.RollupEngine;
+import com.kresshy.weatherstation.weather.RollupSeries;
 import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.ThermalCycle;
+import com.kresshy.weatherstation.weather.ThermalCycleDetector;
 import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherDataBatch;
+import com.kresshy.weatherstation.weather.WeatherHistory;
 import com.kresshy.weatherstation.weather.WeatherMessageParser;
+import com.kresshy.weatherstation.weather.WeatherSeries;
 
 import dagger.hilt.android.qualifiers.ApplicationContext;
 
 import timber.log.Timber;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -27,6 +50,18 @@ import javax.inject.Singleton;
  * Implementation of {@link WeatherRepository} that manages the flow of weather data. It coordinates
  * parsing raw data strings, analyzing thermal trends, applying user-defined calibration offsets,
  * and managing hardware connection lifecycles (with auto-reconnect).
+ *
+ * <p>Every sensor node of a multi-node mast keeps its own history, outlier state and thermal
+ * analyzer. The single-node streams follow the primary node, which is the first node to report.
+ *
+ * <p>That state is saved to the {@link WarmStartStore} every {@value #WARM_START_INTERVAL_MS} ms
+ * while readings arrive, and restored in the background when the repository is created, so a
+ * process killed by the system comes back with its charts and converged trends.
+ *
+ * <p>Replayed readings carry their recorded times, so they must not mix with live ones. When a
+ * replay starts the live state is saved and every node starts empty; replayed readings are neither
+ * recorded as a session nor saved for a warm start; when live data arrives again the nodes are
+ * emptied once more and the saved live state is restored.
  */
 @Singleton
 public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventListener {
@@ -35,6 +70,11 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
     private final ThermalAnalyzer thermalAnalyzer;
     private final WeatherMessageParser messageParser;
     private final SharedPreferences sharedPreferences;
+    private final SessionRecorder sessionRecorder;
+    private final SessionStore sessionStore;
+    private final WarmStartStore warmStartStore;
+    private final com.kresshy.weatherstation.bluetooth.WeatherConnectionController
+            connectionController;
 
     private final MutableLiveData<com.kresshy.weatherstation.weather.ProcessedWeatherData>
             processedWeatherData = new MutableLiveData<>();
@@ -48,13 +88,75 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
     private final MutableLiveData<Double> windTrend = new MutableLiveData<>(0.0);
     private final MutableLiveData<Integer> thermalScore = new MutableLiveData<>(0);
     private final MutableLiveData<Boolean> launchDetectorEnabled = new MutableLiveData<>(false);
-    private final List<WeatherData> historicalData = new ArrayList<>();
+    private final MutableLiveData<ThermalCycle> thermalCycle = new MutableLiveData<>();
     private long windowIntervalMillis = 300000; // Default 5 minutes
 
     private final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener;
 
-    private static final double MAX_TEMP_JUMP = 10.0; // Max physically possible jump in deg/sec
-    private WeatherData lastSaneData = null;
+    // Hampel outlier filters: window of raw readings, MAD multiplier and always-tolerated jump.
+    // The wind window spans several gusts, about 10 s at 10 Hz, so their spread widens the
+    // threshold and the onset of a gust is not mistaken for a glitch.
+    private static final int TEMP_OUTLIER_WINDOW = 31;
+    private static final double TEMP_OUTLIER_THRESHOLD = 3.0;
+    private static final double MIN_TEMP_DEVIATION = 2.0; // deg C
+    private static final int WIND_OUTLIER_WINDOW = 101;
+    private static final double WIND_OUTLIER_THRESHOLD = 4.0;
+    private static final double MIN_WIND_DEVIATION = 8.0; // m/s
+
+    /** Moves received data off the transport threads; null until bridged with the controller. */
+    private IngestQueue ingestQueue;
+
+    /** Reused for every receive buffer; also serializes processing of concurrent buffers. */
+    private final WeatherDataBatch batch = new WeatherDataBatch();
+
+    /** Pipeline state of every sensor node seen so far, keyed by node id. Guards itself. */
+    private final IntObjectMap<NodeState> nodes = new IntObjectMap<>();
+
+    /** The node that drives the single-node LiveData streams: the first node that reported. */
+    private int primaryNodeId = NO_NODE;
+
+    private static final int NO_NODE = Integer.MIN_VALUE;
+
+    private boolean analyzerEnabled = false;
+    private double analyzerSensitivity = 1.0;
+
+    /** Runs the thermal cycle detection off the ingest thread, once per detector sample. */
+    private final ScheduledExecutorService cycleExecutor =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "thermal-cycles");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /** Cycle detection of the primary node and its reused bucket copy. Guards itself. */
+    private final ThermalCycleDetector cycleDetector = new ThermalCycleDetector();
+
+    private final RollupSeries cycleBuckets = new RollupSeries();
+
+    /** How often the node state is saved while readings arrive. */
+    static final long WARM_START_INTERVAL_MS = 60_000;
+
+    /** Restores and saves the node state off the ingest thread, one at a time. */
+    private final ScheduledExecutorService warmStartExecutor =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "warm-start");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /** Readings accepted so far across all nodes. Guarded by {@code nodes}. */
+    private long acceptedReadings = 0;
+
+    /** Value of {@link #acceptedReadings} when the node state was last saved. */
+    private volatile long savedReadings = 0;
+
+    /** How long the ingest thread waits for the live state to come back after a replay. */
+    static final long WARM_START_TIMEOUT_MS = 5_000;
+
+    /** Whether the nodes hold replayed readings. Changed on the ingest thread only. */
+    private volatile boolean replaying = false;
 
     /**
      * Initializes the WeatherRepository implementation. Connects to the hardware controller, loads
@@ -65,6 +167,10 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
      * @param messageParser Component for parsing raw sensor messages.
      * @param sharedPreferences Persistent storage for user settings.
      * @param connectionController Component managing the Bluetooth connection.
+     * @param sessionRecorder Component persisting every accepted reading.
+     * @param sessionStore Component reading the recorded sessions back.
+     * @param warmStartStore Component keeping the node state across process restarts.
+     * @param ingestConfig Size and overflow behaviour of the queue feeding the ingest thread.
      */
     @Inject
     public WeatherRepositoryImpl(
@@ -72,18 +178,28 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
             ThermalAnalyzer thermalAnalyzer,
             WeatherMessageParser messageParser,
             SharedPreferences sharedPreferences,
-            com.kresshy.weatherstation.bluetooth.WeatherConnectionController connectionController) {
+            com.kresshy.weatherstation.bluetooth.WeatherConnectionController connectionController,
+            SessionRecorder sessionRecorder,
+            SessionStore sessionStore,
+            WarmStartStore warmStartStore,
+            IngestQueue.Config ingestConfig) {
         this.context = context;
         this.thermalAnalyzer = thermalAnalyzer;
         this.messageParser = messageParser;
         this.sharedPreferences = sharedPreferences;
+        this.sessionRecorder = sessionRecorder;
+        this.sessionStore = sessionStore;
+        this.warmStartStore = warmStartStore;
+        this.connectionController = connectionController;
 
-        // Bridge with the Control Plane
+        // Bridge with the Control Plane. Received data is processed on the ingest thread, so the
+        // transport threads return to the radio right away.
         if (connectionController
                 instanceof com.kresshy.weatherstation.bluetooth.WeatherConnectionControllerImpl) {
+            ingestQueue = new IngestQueue(this, ingestConfig);
             ((com.kresshy.weatherstation.bluetooth.WeatherConnectionControllerImpl)
                             connectionController)
-                    .setHardwareEventListener(this);
+                    .setHardwareEventListener(ingestQueue);
         }
 
         loadLaunchDetectorSettings(sharedPreferences);
@@ -97,6 +213,27 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
                     }
                 };
         sharedPreferences.registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+
+        cycleExecutor.scheduleWithFixedDelay(
+                () -> {
+                    // An exception would cancel every later run
+                    try {
+                        analyzeThermalCycles();
+                    } catch (RuntimeException e) {
+                        Timber.e(e, "Thermal cycle detection failed");
+                    }
+                },
+                ThermalCycleDetector.SAMPLE_INTERVAL_MS,
+                ThermalCycleDetector.SAMPLE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+        // Restore before the first save can replace the snapshot of the previous process
+        warmStartExecutor.execute(this::restoreWarmStart);
+        warmStartExecutor.scheduleWithFixedDelay(
+                this::writeWarmStart,
+                WARM_START_INTERVAL_MS,
+                WARM_START_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
     }
 
     @VisibleForTesting
@@ -111,6 +248,18 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
 
         thermalAnalyzer.setEnabled(enabled);
         thermalAnalyzer.setSensitivity(sensitivity);
+        synchronized (nodes) {
+            analyzerEnabled = enabled;
+            analyzerSensitivity = sensitivity;
+            for (int i = 0; i < nodes.size(); i++) {
+                ThermalAnalyzer analyzer = nodes.valueAt(i).analyzer;
+                if (analyzer != null && analyzer != thermalAnalyzer) {
+                    analyzer.setEnabled(enabled);
+                    analyzer.setSensitivity(sensitivity);
+                }
+                nodes.valueAt(i).rollups.setWindow(windowIntervalMillis);
+            }
+        }
         launchDetectorEnabled.postValue(enabled);
 
         if (!enabled) {
@@ -186,6 +335,16 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
         return thermalScore;
     }
 
+    /**
+     * Returns an observable stream of the primary node's temperature cycle.
+     *
+     * @return A LiveData containing the cycle, or null while none is detected.
+     */
+    @Override
+    public LiveData<ThermalCycle> getThermalCycle() {
+        return thermalCycle;
+    }
+
     /**
      * Checks if the launch detector is currently enabled.
      *
@@ -207,14 +366,306 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
     }
 
     /**
-     * Retrieves a copy of the historical weather data points.
+     * Retrieves a copy of the historical weather data points of the primary node.
      *
      * @return A list of historical data.
      */
     @Override
     public List<WeatherData> getHistoricalWeatherData() {
-        synchronized (historicalData) {
-            return new ArrayList<>(historicalData);
+        return toWeatherDataList(getHistorySnapshot());
+    }
+
+    /**
+     * Retrieves a copy of the historical weather data points of one node.
+     *
+     * @param nodeId The sensor node.
+     * @return A list of historical data, empty if the node has not reported.
+     */
+    @Override
+    public List<WeatherData> getHistoricalWeatherData(int nodeId) {
+        return toWeatherDataList(getHistorySnapshot(nodeId));
+    }
+
+    /**
+     * Captures the history of the primary node without copying its readings.
+     *
+     * @return A snapshot of the window, empty if no node has reported.
+     */
+    @Override
+    public HistorySnapshot getHistorySnapshot() {
+        synchronized (nodes) {
+            return primaryNodeId == NO_NODE
+                    ? HistorySnapshot.EMPTY
+                    : getHistorySnapshot(primaryNodeId);
+        }
+    }
+
+    /**
+     * Captures the history of one node without copying its readings. The lock is held only while
+     * the page references are collected.
+     *
+     * @param nodeId The sensor node.
+     * @return A snapshot of the window, empty if the node has not reported.
+     */
+    @Override
+    public HistorySnapshot getHistorySnapshot(int nodeId) {
+        synchronized (nodes) {
+            NodeState node = nodes.get(nodeId);
+            return node == null ? HistorySnapshot.EMPTY : node.history.snapshot();
+        }
+    }
+
+    /**
+     * Reads the recorded readings of every node in a time range. Only the stored segments that
+     * overlap the range are mapped, and the readings are not copied.
+     *
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive.
+     * @param toMillis End of the range in epoch milliseconds, exclusive.
+     * @return The readings, oldest first; empty if none were recorded or storage failed.
+     */
+    @Override
+    public WeatherSeries getRecordedHistory(long fromMillis, long toMillis) {
+        try {
+            return sessionStore.read(fromMillis, toMillis);
+        } catch (IOException e) {
+            Timber.e(e, "Failed to read recorded history");
+            return HistorySnapshot.EMPTY;
+        }
+    }
+
+    /**
+     * Saves the node state on the warm start thread and waits up to {@link
+     * #WARM_START_TIMEOUT_MS} for it, so the save is not lost when the process dies right after
+     * teardown.
+     */
+    @Override
+    public void saveWarmStart() {
+        Future<?> save = warmStartExecutor.submit(this::writeWarmStart);
+        try {
+            save.get(WARM_START_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Timber.w(e, "Warm start not saved in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the state of every node that has readings, unless nothing was accepted since the last
+     * save or the nodes hold a replay. The {@code nodes} lock is held only to share the history
+     * pages and copy the analyzer averages and filter baselines; encoding and file I/O run after
+     * it is released.
+     */
+    @VisibleForTesting
+    void writeWarmStart() {
+        List<WarmStartStore.NodeSnapshot> saved;
+        long readings;
+        synchronized (nodes) {
+            readings = acceptedReadings;
+            if (replaying || readings == savedReadings) return;
+            saved = captureNodes();
+        }
+        writeNodes(saved, readings);
+    }
+
+    /** Copies the state of every node that has readings, primary first. Must hold the lock. */
+    private List<WarmStartStore.NodeSnapshot> captureNodes() {
+        List<WarmStartStore.NodeSnapshot> saved = new ArrayList<>();
+        if (primaryNodeId != NO_NODE) {
+            saved.add(captureNode(primaryNodeId, nodes.get(primaryNodeId)));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeState node = nodes.valueAt(i);
+            if (nodes.keyAt(i) != primaryNodeId && node.history.size() > 0) {
+                saved.add(captureNode(nodes.keyAt(i), node));
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Writes captured node state on the warm start thread.
+     *
+     * @param saved The state of every node.
+     * @param readings Value of {@link #acceptedReadings} when it was captured.
+     */
+    private void writeNodes(List<WarmStartStore.NodeSnapshot> saved, long readings) {
+        try {
+            long start = System.nanoTime();
+            warmStartStore.write(saved);
+            savedReadings = readings;
+            Timber.d(
+                    "Saved warm start of %d nodes in %d ms",
+                    saved.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            // A later save tries again; an exception must not cancel the schedule
+            Timber.e(e, "Failed to save warm start");
+        }
+    }
+
+    /** Copies the state of a node for saving. Must hold the {@code nodes} lock. */
+    private static WarmStartStore.NodeSnapshot captureNode(int nodeId, NodeState node) {
+        return new WarmStartStore.NodeSnapshot(
+                nodeId,
+                node.history.snapshot(),
+                node.analyzer == null ? null : node.analyzer.getState(),
+                baseline(node.windFilter),
+                baseline(node.temperatureFilter));
+    }
+
+    private static double[] baseline(HampelFilter filter) {
+        double[] values = new double[filter.getBaselineSize()];
+        for (int i = 0; i < values.length; i++) values[i] = filter.getBaselineValue(i);
+        return values;
+    }
+
+    /**
+     * Restores the node state the previous process saved. A node is skipped if it has reported
+     * since this process started, or if its newest saved reading has left the observation window.
+     */
+    @VisibleForTesting
+    void restoreWarmStart() {
+        long start = System.nanoTime();
+        List<WarmStartStore.NodeSnapshot> saved = warmStartStore.read();
+        if (saved == null || saved.isEmpty()) return;
+        int restored = 0;
+        long now = System.currentTimeMillis();
+        synchronized (nodes) {
+            for (WarmStartStore.NodeSnapshot node : saved) {
+                if (restoreNode(node, now)) restored++;
+            }
+        }
+        Timber.i(
+                "Restored warm start of %d of %d nodes in %d ms",
+                restored,
+                saved.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /** Restores one node. Must hold the {@code nodes} lock. */
+    private boolean restoreNode(WarmStartStore.NodeSnapshot saved, long nowMillis) {
+        WeatherSeries history = saved.history;
+        if (history.size() == 0) return false;
+        NodeState existing = nodes.get(saved.nodeId);
+        if (existing != null && existing.analyzer != null) return false;
+        long newest = history.getTimestampMillis(history.size() - 1);
+        if (nowMillis - newest > windowIntervalMillis) return false;
+
+        NodeState node = nodeState(saved.nodeId);
+        for (int i = 0; i < history.size(); i++) {
+            long timestamp = history.getTimestampMillis(i);
+            float windSpeed = history.getWindSpeed(i);
+            float temperature = history.getTemperature(i);
+            node.history.add(
+                    timestamp, windSpeed, temperature, history.getRssi(i), history.getNodeId(i));
+            node.rollups.add(timestamp, windSpeed, temperature);
+        }
+        node.windFilter.restoreBaseline(saved.windBaseline, saved.windBaseline.length);
+        node.temperatureFilter.restoreBaseline(
+                saved.temperatureBaseline, saved.temperatureBaseline.length);
+        node.analyzer = createAnalyzer(saved.nodeId);
+        node.analyzer.restore(saved.analyzer, history);
+        return true;
+    }
+
+    private static List<WeatherData> toWeatherDataList(HistorySnapshot snapshot) {
+        List<WeatherData> copy = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            copy.add(snapshot.toWeatherData(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Reads the chart history of the primary node at the coarsest resolution that still yields
+     * {@code targetPoints} buckets.
+     *
+     * @param targetPoints The number of points the chart wants to draw.
+     * @return A new series, empty if no node has reported.
+     */
+    @Override
+    public RollupSeries getRollupSeries(int targetPoints) {
+        synchronized (nodes) {
+            return primaryNodeId == NO_NODE
+                    ? new RollupSeries()
+                    : getRollupSeries(primaryNodeId, targetPoints);
+        }
+    }
+
+    /**
+     * Reads the chart history of one node at the coarsest resolution that still yields {@code
+     * targetPoints} buckets.
+     *
+     * @param nodeId The sensor node.
+     * @param targetPoints The number of points the chart wants to draw.
+     * @return A new series, empty if the node has not reported.
+     */
+    @Override
+    public RollupSeries getRollupSeries(int nodeId, int targetPoints) {
+        synchronized (nodes) {
+            NodeState node = nodes.get(nodeId);
+            RollupSeries series = new RollupSeries();
+            return node == null ? series : node.rollups.read(targetPoints, series);
+        }
+    }
+
+    /**
+     * Returns an observable stream of processed weather data for one node. The stream can be
+     * observed before the node reports for the first time.
+     *
+     * @param nodeId The sensor node.
+     * @return A LiveData containing processed data and trends of that node.
+     */
+    @Override
+    public LiveData<com.kresshy.weatherstation.weather.ProcessedWeatherData>
+            getProcessedWeatherData(int nodeId) {
+        synchronized (nodes) {
+            return nodeState(nodeId).processed;
+        }
+    }
+
+    /**
+     * Counts the wind speeds of one node rejected as outliers. A rejected wind speed is replaced
+     * by the recent median, or the reading is discarded if its temperature was rejected too.
+     *
+     * @param nodeId The sensor node.
+     * @return The number of rejected wind speeds, 0 if the node has not reported.
+     */
+    @Override
+    public long getRejectedWindReadings(int nodeId) {
+        synchronized (nodes) {
+            NodeState node = nodes.get(nodeId);
+            return node == null ? 0 : node.windFilter.getRejectedCount();
+        }
+    }
+
+    /**
+     * Counts the temperatures of one node rejected as outliers. A rejected temperature is replaced
+     * by the recent median, or the reading is discarded if its wind speed was rejected too.
+     *
+     * @param nodeId The sensor node.
+     * @return The number of rejected temperatures, 0 if the node has not reported.
+     */
+    @Override
+    public long getRejectedTemperatureReadings(int nodeId) {
+        synchronized (nodes) {
+            NodeState node = nodes.get(nodeId);
+            return node == null ? 0 : node.temperatureFilter.getRejectedCount();
+        }
+    }
+
+    /**
+     * Lists the nodes that have been seen so far, in the order they first appeared.
+     *
+     * @return The node ids.
+     */
+    @Override
+    public int[] getNodeIds() {
+        synchronized (nodes) {
+            int[] ids = new int[nodes.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = nodes.keyAt(i);
+            return ids;
         }
     }
 
@@ -238,62 +689,271 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
         return logMessage;
     }
 
+    /**
+     * Provides the queue between the transports and data processing, for its depth and drop
+     * counters.
+     *
+     * @return The ingest queue, or null if the repository is not connected to a controller.
+     */
+    @Nullable
+    public IngestQueue getIngestQueue() {
+        return ingestQueue;
+    }
+
     // --- HardwareEventListener Implementation ---
 
+    /** Processes a message received just now; see {@link #onRawDataReceived(String, long)}. */
+    @Override
+    public void onRawDataReceived(String data) {
+        onRawDataReceived(data, System.currentTimeMillis());
+    }
+
     /**
-     * Called when a raw string message is received from the hardware. Parses the message, applies
-     * calibration, and triggers thermal analysis.
+     * Called when a raw string message is received from the hardware. Parses every frame in the
+     * message, stamps the readings with the time it was received, applies calibration, and
+     * triggers thermal analysis. Runs on the ingest thread.
      */
     @Override
-    public void onRawDataReceived(String data) {
-        WeatherData weatherData = messageParser.parse(data);
-
-        if (weatherData != null) {
-            // --- Layer 2 Outlier Rejection ---
-            // Air temperature doesn't jump 10 degrees in a second. Discard glitches.
-            if (lastSaneData != null) {
-                double tempDelta =
-                        Math.abs(weatherData.getTemperature() - lastSaneData.getTemperature());
-                if (tempDelta > MAX_TEMP_JUMP) {
-                    Timber.w("OUTLIER DETECTED: Discarding temp jump of %.2f", tempDelta);
-                    return; // Reject this glitchy reading
+    public void onRawDataReceived(String data, long receivedAtMillis) {
+        synchronized (batch) {
+            long start = PipelineMetrics.start();
+            WeatherDataBatch readings = messageParser.parseAll(data, receivedAtMillis, batch);
+            PipelineMetrics.record(PipelineMetrics.Stage.PARSE, start);
+            processBatch(readings);
+        }
+    }
+
+    /**
+     * Processes a frame received just now; see {@link #onFrameReceived(byte[], int, int, long)}.
+     */
+    @Override
+    public void onFrameReceived(byte[] frame, int offset, int length) {
+        onFrameReceived(frame, offset, length, System.currentTimeMillis());
+    }
+
+    /**
+     * Called when a transport has decoded a complete frame. Parses the frame straight from the
+     * transport buffer, then processes it like {@link #onRawDataReceived(String, long)}.
+     */
+    @Override
+    public void onFrameReceived(byte[] frame, int offset, int length, long receivedAtMillis) {
+        synchronized (batch) {
+            long start = PipelineMetrics.start();
+            WeatherDataBatch readings =
+                    messageParser.parseAll(frame, offset, length, receivedAtMillis, batch);
+            PipelineMetrics.record(PipelineMetrics.Stage.PARSE, start);
+            processBatch(readings);
+        }
+    }
+
+    /**
+     * Runs every reading of a batch through its node's outlier rejection, history tracking,
+     * session recording and thermal analysis in receive order, then publishes the newest accepted
+     * reading of each node once. A backlog of frames therefore feeds the analyzers completely
+     * without flooding the UI with updates. Node state is looked up by primitive id, so extra nodes
+     * add no per-frame allocation beyond their readings.
+     */
+    private void processBatch(WeatherDataBatch readings) {
+        boolean replay = connectionController.isReplaying();
+        if (replay != replaying) switchSource(replay);
+        synchronized (nodes) {
+            for (int i = 0; i < readings.size(); i++) {
+                WeatherData weatherData = readings.get(i);
+                NodeState node = nodeState(weatherData.getNodeId());
+                if (node.analyzer == null) {
+                    node.analyzer = createAnalyzer(weatherData.getNodeId());
                 }
-            }
-            lastSaneData = weatherData;
-
-            // Track historical data for chart persistence
-            long dataTime = weatherData.getTimestamp().getTime();
-            synchronized (historicalData) {
-                historicalData.add(weatherData);
-
-                // Prune data older than the window relative to the new data point
-                while (!historicalData.isEmpty()
-                        && (dataTime - historicalData.get(0).getTimestamp().getTime()
-                                > windowIntervalMillis)) {
-                    historicalData.remove(0);
+
+                // --- Layer 2 Outlier Rejection ---
+                // Compare each channel with the rolling median of the node's recent readings.
+                // Both filters see every reading so their windows stay aligned. A rejected value
+                // is replaced by that median, so a glitch in one channel keeps the other one.
+                long start = PipelineMetrics.start();
+                boolean windSane = node.windFilter.accept(weatherData.getWindSpeed());
+                boolean temperatureSane =
+                        node.temperatureFilter.accept(weatherData.getTemperature());
+                PipelineMetrics.record(PipelineMetrics.Stage.OUTLIER, start);
+                if (!windSane || !temperatureSane) {
+                    double wind =
+                            windSane
+                                    ? weatherData.getWindSpeed()
+                                    : node.windFilter.getLastMedian();
+                    double temperature =
+                            temperatureSane
+                                    ? weatherData.getTemperature()
+                                    : node.temperatureFilter.getLastMedian();
+                    if ((!windSane && !temperatureSane) || Double.isNaN(wind + temperature)) {
+                        Timber.w(
+                                "OUTLIER DETECTED: Discarding wind %.2f, temp %.2f on node %d",
+                                weatherData.getWindSpeed(),
+                                weatherData.getTemperature(),
+                                weatherData.getNodeId());
+                        continue; // Nothing left to keep of this glitchy reading
+                    }
+                    Timber.w(
+                            "OUTLIER DETECTED: Replacing wind %.2f, temp %.2f with %.2f, %.2f on"
+                                    + " node %d",
+                            weatherData.getWindSpeed(),
+                            weatherData.getTemperature(),
+                            wind,
+                            temperature,
+                            weatherData.getNodeId());
+                    weatherData.setWindSpeed(wind);
+                    weatherData.setTemperature(temperature);
+                }
+
+                // Track historical data for chart persistence; the recorder writes it off-thread
+                node.history.add(weatherData);
+                if (!replaying) {
+                    acceptedReadings++;
+                    sessionRecorder.record(weatherData);
                 }
+                node.rollups.add(
+                        weatherData.getTimestamp().getTime(),
+                        weatherData.getWindSpeed(),
+                        weatherData.getTemperature());
+
+                start = PipelineMetrics.start();
+                node.result = node.analyzer.analyze(weatherData);
+                PipelineMetrics.record(PipelineMetrics.Stage.ANALYZE, start);
+                node.newest = weatherData;
             }
 
-            ThermalAnalyzer.AnalysisResult result = thermalAnalyzer.analyze(weatherData);
+            for (int i = 0; i < nodes.size(); i++) {
+                NodeState node = nodes.valueAt(i);
+                if (node.newest == null) continue;
 
-            // Atomic Heartbeat Update
-            processedWeatherData.postValue(
-                    new com.kresshy.weatherstation.weather.ProcessedWeatherData(
-                            weatherData,
-                            result.decision,
-                            result.tempTrend,
-                            result.windTrend,
-                            result.score));
+                // Prune data older than the window relative to the newest data point
+                long dataTime = node.newest.getTimestamp().getTime();
+                node.history.evictBefore(dataTime - windowIntervalMillis);
 
-            // Keep legacy individual posts for now to prevent breaking other observers
-            launchDecision.postValue(result.decision);
-            tempTrend.postValue(result.tempTrend);
-            windTrend.postValue(result.windTrend);
-            thermalScore.postValue(result.score);
-            latestWeatherData.postValue(weatherData);
+                publish(nodes.keyAt(i), node.newest, node.result);
+                node.newest = null;
+                node.result = null;
+            }
         }
     }
 
+    /**
+     * Moves between live and replayed data. Starting a replay saves the live state and empties the
+     * nodes; ending one empties them again and restores the saved state, waiting up to {@link
+     * #WARM_START_TIMEOUT_MS} for it. Runs on the ingest thread before a batch is processed.
+     *
+     * @param replay Whether the next readings are replayed.
+     */
+    private void switchSource(boolean replay) {
+        List<WarmStartStore.NodeSnapshot> live = null;
+        long readings;
+        synchronized (cycleDetector) {
+            synchronized (nodes) {
+                readings = acceptedReadings;
+                if (replay && readings != savedReadings) live = captureNodes();
+                replaying = replay;
+                for (int i = 0; i < nodes.size(); i++) nodes.valueAt(i).reset();
+                primaryNodeId = NO_NODE;
+                thermalAnalyzer.reset();
+            }
+            cycleDetector.reset();
+        }
+
+        if (replay) {
+            Timber.i("Replay started, setting the live state aside");
+            if (live != null) {
+                List<WarmStartStore.NodeSnapshot> saved = live;
+                warmStartExecutor.execute(() -> writeNodes(saved, readings));
+            }
+            return;
+        }
+        Timber.i("Live data again, restoring the state from before the replay");
+        // Queued behind the save of the live state
+        Future<?> restore = warmStartExecutor.submit(this::restoreWarmStart);
+        try {
+            restore.get(WARM_START_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Timber.w(e, "Live state not restored after replay");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Feeds the finished 10 s temperature buckets of the primary node to the cycle detector and
+     * posts its estimate. Runs on the cycle thread; the {@code nodes} lock is held only to copy the
+     * buckets, and each new bucket then costs the detector a fixed O(bins).
+     */
+    @VisibleForTesting
+    void analyzeThermalCycles() {
+        synchronized (cycleDetector) {
+            synchronized (nodes) {
+                if (primaryNodeId == NO_NODE) return;
+                nodes.get(primaryNodeId)
+                        .rollups
+                        .readResolution(ThermalCycleDetector.SAMPLE_INTERVAL_MS, cycleBuckets);
+            }
+            // The newest bucket may still be filling; already fed buckets are skipped
+            for (int i = 0; i < cycleBuckets.size() - 1; i++) {
+                cycleDetector.add(
+                        cycleBuckets.getStartMillis(i), cycleBuckets.getTemperatureMean(i));
+            }
+            thermalCycle.postValue(cycleDetector.estimate());
+        }
+    }
+
+    /** Returns the state of a node, creating it on first use. Must hold the {@code nodes} lock. */
+    private NodeState nodeState(int nodeId) {
+        NodeState node = nodes.get(nodeId);
+        if (node == null) {
+            node = new NodeState(windowIntervalMillis);
+            nodes.put(nodeId, node);
+        }
+        return node;
+    }
+
+    /**
+     * Picks the analyzer for a node's first reading. The first node to report becomes the primary
+     * node and keeps the injected analyzer. Must hold the {@code nodes} lock.
+     */
+    private ThermalAnalyzer createAnalyzer(int nodeId) {
+        if (primaryNodeId == NO_NODE) {
+            primaryNodeId = nodeId;
+            return thermalAnalyzer;
+        }
+        ThermalAnalyzer analyzer = new ThermalAnalyzer();
+        analyzer.setEnabled(analyzerEnabled);
+        analyzer.setSensitivity(analyzerSensitivity);
+        return analyzer;
+    }
+
+    private void publish(
+            int nodeId, WeatherData newest, ThermalAnalyzer.AnalysisResult result) {
+        // Atomic Heartbeat Update
+        com.kresshy.weatherstation.weather.ProcessedWeatherData heartbeat =
+                new com.kresshy.weatherstation.weather.ProcessedWeatherData(
+                        newest,
+                        result.decision,
+                        result.tempTrend,
+                        result.windTrend,
+                        result.score,
+                        result.gust,
+                        result.lull,
+                        result.peakGust,
+                        result.lowestLull,
+                        result.windP90);
+        nodes.get(nodeId).processed.postValue(heartbeat);
+        if (nodeId != primaryNodeId) {
+            return;
+        }
+        PipelineMetrics.markPosted();
+        processedWeatherData.postValue(heartbeat);
+
+        // Keep legacy individual posts for now to prevent breaking other observers
+        launchDecision.postValue(result.decision);
+        tempTrend.postValue(result.tempTrend);
+        windTrend.postValue(result.windTrend);
+        thermalScore.postValue(result.score);
+        latestWeatherData.postValue(newest);
+    }
+
     /**
      * Responds to changes in the hardware connection state. Currently handled by the controller.
      *
@@ -329,4 +989,39 @@ public class WeatherRepositoryImpl implements WeatherRepository, HardwareEventLi
     public void onLogMessage(String message) {
         logMessage.postValue(message);
     }
+
+    /**
+     * History, chart rollups, outlier filters and thermal analysis of one sensor node. The primary
+     * node uses the injected {@link ThermalAnalyzer}; every other node gets its own instance.
+     */
+    private static final class NodeState {
+        final WeatherHistory history = new WeatherHistory();
+        final RollupEngine rollups;
+        final MutableLiveData<com.kresshy.weatherstation.weather.ProcessedWeatherData> processed =
+                new MutableLiveData<>();
+        final HampelFilter windFilter =
+                new HampelFilter(WIND_OUTLIER_WINDOW, WIND_OUTLIER_THRESHOLD, MIN_WIND_DEVIATION);
+        final HampelFilter temperatureFilter =
+                new HampelFilter(TEMP_OUTLIER_WINDOW, TEMP_OUTLIER_THRESHOLD, MIN_TEMP_DEVIATION);
+        ThermalAnalyzer analyzer;
+
+        // Newest accepted reading of the batch being processed
+        WeatherData newest;
+        ThermalAnalyzer.AnalysisResult result;
+
+        NodeState(long windowMillis) {
+            rollups = new RollupEngine(windowMillis);
+        }
+
+        /** Forgets every reading; observers of {@link #processed} stay attached. */
+        void reset() {
+            history.clear();
+            rollups.clear();
+            windFilter.reset();
+            temperatureFilter.reset();
+            analyzer = null;
+            newest = null;
+            result = null;
+        }
+    }
 }
@@ -14,6 +14,7 @@ import androidx.lifecycle.LifecycleService;
 
 import com.kresshy.weatherstation.R;
 import com.kresshy.weatherstation.activity.WSActivity;
+import com.kresshy.weatherstation.recording.SessionRecorder;
 import com.kresshy.weatherstation.repository.WeatherRepository;
 
 import dagger.hilt.android.AndroidEntryPoint;
@@ -39,10 +40,14 @@ public class WeatherService extends LifecycleService {
     private static final String CHANNEL_ID = "WeatherServiceChannel";
     private static final int NOTIFICATION_ID = 1;
 
+    /** Longest time teardown waits for the recorded readings to be written. */
+    private static final long RECORDER_FLUSH_TIMEOUT_MS = 2_000;
+
     @Inject WeatherRepository weatherRepository;
     @Inject com.kresshy.weatherstation.bluetooth.WeatherConnectionController connectionController;
     @Inject NotificationManager notificationManager;
     @Inject SharedPreferences sharedPreferences;
+    @Inject SessionRecorder sessionRecorder;
 
     /**
      * Called when the service is first created. Initializes the notification channel, starts the
@@ -198,12 +203,21 @@ public class WeatherService extends LifecycleService {
 
     /**
      * Called by the system to notify a Service that it is no longer used and is being removed.
-     * Ensures the Bluetooth connection is properly closed.
+     * Ensures the Bluetooth connection is properly closed, saves the live state for the next start
+     * and writes the readings still queued for the session recording.
      */
     @Override
     public void onDestroy() {
         super.onDestroy();
         Timber.d("WeatherService destroyed");
         connectionController.stopConnection();
+        weatherRepository.saveWarmStart();
+        try {
+            if (!sessionRecorder.flush(RECORDER_FLUSH_TIMEOUT_MS)) {
+                Timber.w("Recorded readings not written before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
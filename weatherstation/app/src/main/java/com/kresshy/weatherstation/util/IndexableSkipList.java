@@ -0,0 +1,204 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Sorted multiset of doubles with lookup by rank, insertion and removal in O(log n) expected time.
+ * Every link of the skip list records how many elements it jumps over, so the element at a given
+ * rank is found by walking down the levels like a search by value.
+ *
+ * <p>Nodes live in primitive arrays sized for {@code capacity} elements and are recycled through a
+ * free list, so nothing is allocated after construction. Instances are not thread-safe.
+ */
+public final class IndexableSkipList {
+
+    private static final int HEAD = 0;
+    private static final int NIL = -1;
+
+    private final int capacity;
+    private final int maxLevel;
+
+    /** Node values; node 0 is the head and holds no value. */
+    private final double[] values;
+
+    /** {@code next[level][node]}: the following node on that level, or {@link #NIL}. */
+    private final int[][] next;
+
+    /**
+     * {@code width[level][node]}: how far the rank advances when following that link. A link to
+     * {@link #NIL} counts as reaching rank {@code size + 1}.
+     */
+    private final int[][] width;
+
+    private final int[] freeNodes;
+    private int freeCount;
+
+    /** Scratch space for the search path, reused by every update. */
+    private final int[] update;
+
+    private final int[] rank;
+
+    private int levels = 1;
+    private int size = 0;
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    /**
+     * @param capacity The largest number of elements the list will hold.
+     */
+    public IndexableSkipList(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        this.capacity = capacity;
+        maxLevel = Math.max(1, 32 - Integer.numberOfLeadingZeros(capacity));
+        values = new double[capacity + 1];
+        next = new int[maxLevel][capacity + 1];
+        width = new int[maxLevel][capacity + 1];
+        freeNodes = new int[capacity];
+        update = new int[maxLevel];
+        rank = new int[maxLevel];
+        clear();
+    }
+
+    /**
+     * @return The number of elements.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an element, keeping the list sorted.
+     *
+     * @param value The element; must not be NaN.
+     * @throws IllegalStateException If the list is full.
+     */
+    public void insert(double value) {
+        if (size == capacity) throw new IllegalStateException("Full: " + capacity);
+        if (Double.isNaN(value)) throw new IllegalArgumentException("NaN");
+
+        int x = HEAD;
+        int position = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            while (next[level][x] != NIL && values[next[level][x]] < value) {
+                position += width[level][x];
+                x = next[level][x];
+            }
+            update[level] = x;
+            rank[level] = position;
+        }
+
+        int nodeLevels = randomLevels();
+        if (nodeLevels > levels) {
+            for (int level = levels; level < nodeLevels; level++) {
+                update[level] = HEAD;
+                rank[level] = 0;
+                next[level][HEAD] = NIL;
+                width[level][HEAD] = size + 1;
+            }
+            levels = nodeLevels;
+        }
+
+        int node = freeNodes[--freeCount];
+        values[node] = value;
+        for (int level = 0; level < nodeLevels; level++) {
+            int before = update[level];
+            int skipped = rank[0] - rank[level];
+            next[level][node] = next[level][before];
+            next[level][before] = node;
+            width[level][node] = width[level][before] - skipped;
+            width[level][before] = skipped + 1;
+        }
+        for (int level = nodeLevels; level < levels; level++) {
+            width[level][update[level]]++;
+        }
+        size++;
+    }
+
+    /**
+     * Removes one occurrence of an element.
+     *
+     * @param value The element.
+     * @return Whether the element was present.
+     */
+    public boolean remove(double value) {
+        int x = HEAD;
+        for (int level = levels - 1; level >= 0; level--) {
+            while (next[level][x] != NIL && values[next[level][x]] < value) {
+                x = next[level][x];
+            }
+            update[level] = x;
+        }
+        int node = next[0][x];
+        if (node == NIL || values[node] != value) return false;
+
+        for (int level = 0; level < levels; level++) {
+            int before = update[level];
+            if (next[level][before] == node) {
+                width[level][before] += width[level][node] - 1;
+                next[level][before] = next[level][node];
+            } else {
+                width[level][before]--;
+            }
+        }
+        while (levels > 1 && next[levels - 1][HEAD] == NIL) levels--;
+        freeNodes[freeCount++] = node;
+        size--;
+        return true;
+    }
+
+    /**
+     * @param index Rank of the element, 0 being the smallest.
+     * @return The element at that rank.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int target = index + 1;
+        int x = HEAD;
+        int position = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            while (next[level][x] != NIL && position + width[level][x] <= target) {
+                position += width[level][x];
+                x = next[level][x];
+            }
+            if (position == target) break;
+        }
+        return values[x];
+    }
+
+    /**
+     * Counts the elements below a value, which is also the rank the value would be inserted at.
+     *
+     * @param value The value to compare with.
+     * @return The number of elements strictly less than {@code value}.
+     */
+    public int countLessThan(double value) {
+        int x = HEAD;
+        int position = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            while (next[level][x] != NIL && values[next[level][x]] < value) {
+                position += width[level][x];
+                x = next[level][x];
+            }
+        }
+        return position;
+    }
+
+    /** Removes all elements. */
+    public void clear() {
+        size = 0;
+        levels = 1;
+        next[0][HEAD] = NIL;
+        width[0][HEAD] = 1;
+        freeCount = capacity;
+        for (int i = 0; i < capacity; i++) freeNodes[i] = capacity - i;
+    }
+
+    /** Levels for a new node: one, plus one more with probability 1/2 each, up to the maximum. */
+    private int randomLevels() {
+        // xorshift64
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        int extra = Long.numberOfTrailingZeros(seed | (1L << (maxLevel - 1)));
+        return 1 + extra;
+    }
+}
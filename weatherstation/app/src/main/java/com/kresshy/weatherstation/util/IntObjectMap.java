@@ -0,0 +1,167 @@
+package com.kresshy.weatherstation.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive {@code int} keys to objects with O(1) lookups and no boxing. Entries are kept
+ * densely in insertion order, and an open-addressing hash table with linear probing indexes into
+ * them, so {@link #keyAt(int)} and {@link #valueAt(int)} iterate without allocating.
+ *
+ * <p>Unlike {@code android.util.SparseArray}, which binary-searches its keys, lookups do not grow
+ * with the number of entries. Entries cannot be removed individually. Instances are not
+ * thread-safe.
+ *
+ * @param <V> Type of the values.
+ */
+public final class IntObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    /** Hash slots holding {@code index + 1} of an entry, or 0 when free. Kept at most half full. */
+    private int[] slots;
+
+    /** Creates an empty map sized for a handful of entries. */
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries to size the map for.
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        slots = new int[tableSizeFor(capacity)];
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The value mapped to {@code key}, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return true if the map contains {@code key}.
+     */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, replacing any previous value.
+     *
+     * @param key The key.
+     * @param value The value, which must not be null.
+     * @return The previous value, or null if the key was new.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("value == null");
+
+        int mask = slots.length - 1;
+        int slot = mix(key) & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            grow();
+            return put(key, value);
+        }
+        keys[size] = key;
+        values[size] = value;
+        slots[slot] = ++size;
+        return null;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index Position in insertion order, between 0 and {@link #size()} - 1.
+     * @return The key of the entry at that position.
+     */
+    public int keyAt(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return keys[index];
+    }
+
+    /**
+     * @param index Position in insertion order, between 0 and {@link #size()} - 1.
+     * @return The value of the entry at that position.
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return (V) values[index];
+    }
+
+    /** Removes all entries, keeping the allocated capacity. */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    private int indexOf(int key) {
+        int mask = slots.length - 1;
+        int slot = mix(key) & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (keys[index] == key) return index;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        slots = new int[tableSizeFor(capacity)];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(keys[i]) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = i + 1;
+        }
+    }
+
+    /** Smallest power of two that keeps {@code capacity} entries at or below half load. */
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    /** Spreads sequential node ids across the table. */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Maximum and minimum of the values seen over a sliding span of time, e.g. the gust and lull of the
+ * last 3 seconds. Each extreme is tracked by a monotonic deque: the maximum deque only keeps values
+ * that are larger than everything that arrived after them, so its front is the maximum of the span
+ * and values that can never become the maximum are dropped as soon as a larger one arrives. Every
+ * value enters and leaves each deque once, so an update costs amortised O(1) however long the span
+ * or however fast the readings.
+ *
+ * <p>The deques are primitive rings that double when a burst of readings fills them, so no memory
+ * is allocated per value once they have grown to the sample rate. Instances are not thread-safe.
+ */
+public final class MonotonicWindow {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long spanMillis;
+    private final Deque maxima = new Deque();
+    private final Deque minima = new Deque();
+    private long newestMillis = Long.MIN_VALUE;
+
+    /**
+     * @param spanMillis How far back from the newest value the extremes reach, in milliseconds.
+     */
+    public MonotonicWindow(long spanMillis) {
+        if (spanMillis <= 0) throw new IllegalArgumentException("spanMillis <= 0: " + spanMillis);
+        this.spanMillis = spanMillis;
+    }
+
+    /**
+     * @return How far back from the newest value the extremes reach, in milliseconds.
+     */
+    public long getSpanMillis() {
+        return spanMillis;
+    }
+
+    /**
+     * Adds a value and drops those that have left the span. A value older than the newest one is
+     * counted as arriving with it, so the window never moves backwards.
+     *
+     * @param timestampMillis When the value was measured.
+     * @param value The value; must not be NaN.
+     */
+    public void add(long timestampMillis, double value) {
+        if (Double.isNaN(value)) throw new IllegalArgumentException("NaN");
+        newestMillis = Math.max(newestMillis, timestampMillis);
+
+        while (maxima.size > 0 && maxima.backValue() <= value) maxima.removeBack();
+        maxima.addBack(newestMillis, value);
+        while (minima.size > 0 && minima.backValue() >= value) minima.removeBack();
+        minima.addBack(newestMillis, value);
+
+        long cutoff = newestMillis - spanMillis;
+        while (maxima.frontTimestamp() <= cutoff) maxima.removeFront();
+        while (minima.frontTimestamp() <= cutoff) minima.removeFront();
+    }
+
+    /**
+     * @return The largest value within the span of the newest one, or NaN if there is none.
+     */
+    public double getMax() {
+        return maxima.size > 0 ? maxima.frontValue() : Double.NaN;
+    }
+
+    /**
+     * @return The smallest value within the span of the newest one, or NaN if there is none.
+     */
+    public double getMin() {
+        return minima.size > 0 ? minima.frontValue() : Double.NaN;
+    }
+
+    /** Removes all values. */
+    public void clear() {
+        maxima.clear();
+        minima.clear();
+        newestMillis = Long.MIN_VALUE;
+    }
+
+    /** Ring of (timestamp, value) pairs that can be appended to and removed from both ends. */
+    private static final class Deque {
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private int head = 0;
+        private int size = 0;
+
+        void addBack(long timestamp, double value) {
+            if (size == values.length) grow();
+            int tail = (head + size) & (values.length - 1);
+            timestamps[tail] = timestamp;
+            values[tail] = value;
+            size++;
+        }
+
+        void removeBack() {
+            size--;
+        }
+
+        void removeFront() {
+            head = (head + 1) & (values.length - 1);
+            size--;
+        }
+
+        double backValue() {
+            return values[(head + size - 1) & (values.length - 1)];
+        }
+
+        double frontValue() {
+            return values[head];
+        }
+
+        /** The front timestamp; the newest value is never evicted, so the ring is never empty. */
+        long frontTimestamp() {
+            return timestamps[head];
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        private void grow() {
+            long[] newTimestamps = new long[timestamps.length * 2];
+            double[] newValues = new double[values.length * 2];
+            int firstRun = Math.min(size, values.length - head);
+            System.arraycopy(timestamps, head, newTimestamps, 0, firstRun);
+            System.arraycopy(values, head, newValues, 0, firstRun);
+            System.arraycopy(timestamps, 0, newTimestamps, firstRun, size - firstRun);
+            System.arraycopy(values, 0, newValues, firstRun, size - firstRun);
+            timestamps = newTimestamps;
+            values = newValues;
+            head = 0;
+        }
+    }
+}
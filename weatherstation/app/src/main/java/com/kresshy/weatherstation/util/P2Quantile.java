@@ -0,0 +1,151 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Streaming estimate of one quantile of a stream, e.g. the 90th percentile of the wind speed, using
+ * the P-square algorithm of Jain and Chlamtac. Instead of keeping the values, it keeps five
+ * markers: the minimum, the maximum, the wanted quantile and the two halfway between. Each value
+ * nudges the marker positions, and a marker that drifts from where its quantile should sit is moved
+ * by piecewise-parabolic interpolation between its neighbours.
+ *
+ * <p>The estimate covers every value since construction or the last {@link #clear()}, in constant
+ * memory and time per value. Until five values have arrived it is exact. Nothing is allocated after
+ * construction. Instances are not thread-safe.
+ */
+public final class P2Quantile {
+
+    private final double quantile;
+
+    /** Marker heights. */
+    private final double[] heights = new double[5];
+
+    /** Actual marker positions, 1-based ranks among the values so far. */
+    private final int[] positions = new int[5];
+
+    /** Desired marker positions. */
+    private final double[] desired = new double[5];
+
+    /** How far each desired position moves per value. */
+    private final double[] increments;
+
+    private long count = 0;
+
+    /**
+     * @param quantile The quantile to estimate, between 0 and 1, e.g. 0.9.
+     */
+    public P2Quantile(double quantile) {
+        if (!(quantile > 0 && quantile < 1)) {
+            throw new IllegalArgumentException("quantile not in (0, 1): " + quantile);
+        }
+        this.quantile = quantile;
+        increments = new double[] {0, quantile / 2, quantile, (1 + quantile) / 2, 1};
+    }
+
+    /**
+     * @return The quantile being estimated.
+     */
+    public double getQuantile() {
+        return quantile;
+    }
+
+    /**
+     * @return The number of values seen.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds a value to the estimate.
+     *
+     * @param value The new value; must not be NaN.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) throw new IllegalArgumentException("NaN");
+        if (count < 5) {
+            insertSorted((int) count, value);
+            count++;
+            if (count == 5) {
+                for (int i = 0; i < 5; i++) positions[i] = i + 1;
+                desired[0] = 1;
+                desired[1] = 1 + 2 * quantile;
+                desired[2] = 1 + 4 * quantile;
+                desired[3] = 3 + 2 * quantile;
+                desired[4] = 5;
+            }
+            return;
+        }
+        count++;
+
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[4]) {
+            heights[4] = value;
+            cell = 3;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) cell++;
+        }
+        for (int i = cell + 1; i < 5; i++) positions[i]++;
+        for (int i = 0; i < 5; i++) desired[i] += increments[i];
+
+        for (int i = 1; i < 4; i++) {
+            double drift = desired[i] - positions[i];
+            if ((drift >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (drift <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = drift > 0 ? 1 : -1;
+                double candidate = parabolic(i, step);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] = linear(i, step);
+                }
+                positions[i] += step;
+            }
+        }
+    }
+
+    /**
+     * @return The estimated quantile, or NaN if no value has been added.
+     */
+    public double getEstimate() {
+        if (count == 0) return Double.NaN;
+        if (count < 5) {
+            // Exact nearest-rank quantile of the sorted values
+            int rank = (int) Math.ceil(quantile * count);
+            return heights[Math.max(0, rank - 1)];
+        }
+        return heights[2];
+    }
+
+    /** Forgets all values. */
+    public void clear() {
+        count = 0;
+    }
+
+    /** Insertion step for the first five values, which are kept sorted in the marker heights. */
+    private void insertSorted(int size, double value) {
+        int i = size;
+        while (i > 0 && heights[i - 1] > value) {
+            heights[i] = heights[i - 1];
+            i--;
+        }
+        heights[i] = value;
+    }
+
+    private double parabolic(int i, int step) {
+        double below = positions[i] - positions[i - 1];
+        double above = positions[i + 1] - positions[i];
+        return heights[i]
+                + step
+                        / (double) (positions[i + 1] - positions[i - 1])
+                        * ((below + step) * (heights[i + 1] - heights[i]) / above
+                                + (above - step) * (heights[i] - heights[i - 1]) / below);
+    }
+
+    private double linear(int i, int step) {
+        return heights[i]
+                + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+    }
+}
@@ -0,0 +1,133 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Median and median absolute deviation (MAD) over the last {@code capacity} values of a stream.
+ * The values are kept in arrival order in a primitive ring and sorted in an {@link
+ * IndexableSkipList}. Adding a value costs O(log n), the median is one rank lookup, O(log n), and
+ * the MAD is found without touching every value in O(log n * log n).
+ *
+ * <p>To find the MAD, the sorted values are split at the median. The distances to the median then
+ * form two ascending runs, one walking down from the median and one walking up, and the MAD is the
+ * middle element of their merge. That element is selected by binary search on how many come from
+ * each run.
+ *
+ * <p>Nothing is allocated after construction. Instances are not thread-safe.
+ */
+public final class RollingMedian {
+
+    private final double[] values;
+    private final IndexableSkipList sorted;
+    private int start = 0;
+    private int size = 0;
+
+    // Split of the sorted values used while selecting the MAD
+    private double median;
+    private int below;
+
+    /**
+     * @param capacity The number of most recent values the statistics cover.
+     */
+    public RollingMedian(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        values = new double[capacity];
+        sorted = new IndexableSkipList(capacity);
+    }
+
+    /**
+     * Adds a value, evicting the oldest one if the window is full.
+     *
+     * @param value The new value; must not be NaN.
+     */
+    public void add(double value) {
+        if (size == values.length) {
+            sorted.remove(values[start]);
+            values[start] = value;
+            start = start + 1 == values.length ? 0 : start + 1;
+        } else {
+            int end = start + size;
+            values[end < values.length ? end : end - values.length] = value;
+            size++;
+        }
+        sorted.insert(value);
+    }
+
+    /**
+     * @return The number of values in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index Position in the window, 0 being the oldest value.
+     * @return The value at that position.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int i = start + index;
+        return values[i < values.length ? i : i - values.length];
+    }
+
+    /**
+     * @return The median of the window, or NaN if it is empty.
+     */
+    public double getMedian() {
+        if (size == 0) return Double.NaN;
+        int middle = size >>> 1;
+        if ((size & 1) == 1) return sorted.get(middle);
+        return (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    /**
+     * @return The median of the absolute deviations from the median, or NaN if the window is empty.
+     */
+    public double getMedianAbsoluteDeviation() {
+        if (size == 0) return Double.NaN;
+        median = getMedian();
+        below = sorted.countLessThan(median);
+        int middle = size >>> 1;
+        if ((size & 1) == 1) return selectDeviation(middle);
+        return (selectDeviation(middle - 1) + selectDeviation(middle)) / 2;
+    }
+
+    /** Removes all values. */
+    public void clear() {
+        sorted.clear();
+        start = 0;
+        size = 0;
+    }
+
+    /** The {@code k}-th smallest deviation, 0-based, merging the runs below and above the split. */
+    private double selectDeviation(int k) {
+        int belowCount = below;
+        int aboveCount = size - below;
+        // i deviations come from below the median and k + 1 - i from above
+        int low = Math.max(0, k + 1 - aboveCount);
+        int high = Math.min(k + 1, belowCount);
+        while (low < high) {
+            int i = (low + high) >>> 1;
+            int j = k + 1 - i;
+            if (deviationBelow(i) < deviationAbove(j - 1)) {
+                low = i + 1;
+            } else {
+                high = i;
+            }
+        }
+        int j = k + 1 - low;
+        double fromBelow = low > 0 ? deviationBelow(low - 1) : Double.NEGATIVE_INFINITY;
+        double fromAbove = j > 0 ? deviationAbove(j - 1) : Double.NEGATIVE_INFINITY;
+        return Math.max(fromBelow, fromAbove);
+    }
+
+    /** The {@code i}-th smallest distance among the values below the median. */
+    private double deviationBelow(int i) {
+        return median - sorted.get(below - 1 - i);
+    }
+
+    /** The {@code j}-th smallest distance among the values at or above the median. */
+    private double deviationAbove(int j) {
+        return sorted.get(below + j) - median;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Mean and variance over the last {@code capacity} values of a stream, updated in O(1) per value.
+ * The values live in a primitive ring buffer, and the statistics follow a windowed form of
+ * Welford's algorithm: adding a value while the window is full replaces the evicted value in the
+ * running mean and sum of squared deviations in a single step. Unlike running sums of {@code x}
+ * and {@code x * x}, this does not lose precision when the variance is small next to the mean, e.g.
+ * a steady wind of 4.00 m/s.
+ *
+ * <p>Nothing is allocated after construction. Instances are not thread-safe.
+ */
+public final class RollingStats {
+
+    private final double[] values;
+    private int start = 0;
+    private int size = 0;
+
+    private double mean = 0;
+    /** Sum of squared deviations from the mean. */
+    private double m2 = 0;
+
+    /**
+     * @param capacity The number of most recent values the statistics cover.
+     */
+    public RollingStats(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        values = new double[capacity];
+    }
+
+    /**
+     * Adds a value, evicting the oldest one if the window is full.
+     *
+     * @param value The new value.
+     */
+    public void add(double value) {
+        if (size < values.length) {
+            values[(start + size) % values.length] = value;
+            size++;
+            double delta = value - mean;
+            mean += delta / size;
+            m2 += delta * (value - mean);
+            return;
+        }
+
+        double evicted = values[start];
+        values[start] = value;
+        start = start + 1 == values.length ? 0 : start + 1;
+
+        double oldMean = mean;
+        mean += (value - evicted) / size;
+        m2 += (value - evicted) * (value - mean + evicted - oldMean);
+        // Rounding can push an all-equal window slightly below zero
+        if (m2 < 0) m2 = 0;
+    }
+
+    /**
+     * @return The number of values in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The largest number of values the window holds.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * @param index Position in the window, 0 being the oldest value.
+     * @return The value at that position.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int i = start + index;
+        return values[i < values.length ? i : i - values.length];
+    }
+
+    /**
+     * @return The mean of the window, or 0 if it is empty.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The population variance of the window, or 0 if it is empty.
+     */
+    public double getVariance() {
+        return size == 0 ? 0 : m2 / size;
+    }
+
+    /**
+     * @return The population standard deviation of the window, or 0 if it is empty.
+     */
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /** Removes all values. */
+    public void clear() {
+        start = 0;
+        size = 0;
+        mean = 0;
+        m2 = 0;
+    }
+}
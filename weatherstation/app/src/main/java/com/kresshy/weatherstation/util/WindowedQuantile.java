@@ -0,0 +1,84 @@
+package com.kresshy.weatherstation.util;
+
+/**
+ * Streaming estimate of one quantile of the recent values of a stream, e.g. the 90th percentile of
+ * the wind speed over the last 10 minutes. A {@link P2Quantile} never forgets a value, so two of
+ * them run staggered by half the span: every half span the older one is cleared and starts over as
+ * the newer one, and the estimate is read from the one that has run longer. It therefore covers
+ * between half a span and a whole span of the most recent values, in constant memory and time per
+ * value.
+ *
+ * <p>After a pause of a whole span or more both estimators start over. Instances are not
+ * thread-safe.
+ */
+public final class WindowedQuantile {
+
+    private final long spanMillis;
+    private final long halfSpanMillis;
+    private P2Quantile older;
+    private P2Quantile newer;
+
+    /** When {@code newer} started, or {@link Long#MIN_VALUE} while both are empty. */
+    private long newerStartMillis = Long.MIN_VALUE;
+
+    private long newestMillis = Long.MIN_VALUE;
+
+    /**
+     * @param quantile The quantile to estimate, between 0 and 1, e.g. 0.9.
+     * @param spanMillis How far back from the newest value the estimate reaches at most.
+     */
+    public WindowedQuantile(double quantile, long spanMillis) {
+        if (spanMillis < 2) throw new IllegalArgumentException("spanMillis < 2: " + spanMillis);
+        this.spanMillis = spanMillis;
+        halfSpanMillis = spanMillis / 2;
+        older = new P2Quantile(quantile);
+        newer = new P2Quantile(quantile);
+    }
+
+    /**
+     * @return How far back from the newest value the estimate reaches at most, in milliseconds.
+     */
+    public long getSpanMillis() {
+        return spanMillis;
+    }
+
+    /**
+     * Adds a value, first restarting an estimator if half a span has passed. A value older than the
+     * newest one is counted as arriving with it, so the window never moves backwards.
+     *
+     * @param timestampMillis When the value was measured.
+     * @param value The value; must not be NaN.
+     */
+    public void add(long timestampMillis, double value) {
+        if (Double.isNaN(value)) throw new IllegalArgumentException("NaN");
+        newestMillis = Math.max(newestMillis, timestampMillis);
+        if (newerStartMillis == Long.MIN_VALUE) {
+            newerStartMillis = newestMillis;
+        } else if (newestMillis - newerStartMillis >= halfSpanMillis) {
+            // The newer estimator may hold values from before the span after a long pause
+            if (newestMillis - newerStartMillis >= spanMillis) newer.clear();
+            P2Quantile swap = older;
+            older = newer;
+            newer = swap;
+            newer.clear();
+            newerStartMillis = newestMillis;
+        }
+        older.add(value);
+        newer.add(value);
+    }
+
+    /**
+     * @return The estimated quantile of the recent values, or NaN if there are none.
+     */
+    public double getEstimate() {
+        return older.getEstimate();
+    }
+
+    /** Removes all values. */
+    public void clear() {
+        older.clear();
+        newer.clear();
+        newerStartMillis = Long.MIN_VALUE;
+        newestMillis = Long.MIN_VALUE;
+    }
+}
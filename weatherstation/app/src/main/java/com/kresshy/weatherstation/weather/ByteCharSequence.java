@@ -0,0 +1,59 @@
+package com.kresshy.weatherstation.weather;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Presents a window of an ASCII byte buffer as characters without decoding it, so frames received
+ * from a transport can be parsed in place. Callers must only wrap ASCII data; {@link
+ * #subSequence(int, int)} is the only method that allocates.
+ *
+ * <p>Instances are reusable and not thread-safe.
+ */
+final class ByteCharSequence implements CharSequence {
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    /**
+     * Points this sequence at a new window.
+     *
+     * @param bytes The buffer, or null to release the previous one.
+     * @param offset Start of the window.
+     * @param length Length of the window.
+     */
+    void wrap(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return true if every byte in the window is ASCII.
+     */
+    static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (bytes[i] < 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(bytes, offset + start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+    }
+}
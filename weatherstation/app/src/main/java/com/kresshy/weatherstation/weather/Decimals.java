@@ -0,0 +1,51 @@
+package com.kresshy.weatherstation.weather;
+
+/**
+ * Exact decimal-to-double conversion for the short numbers sent by the station. A decimal with at
+ * most {@value #MAX_EXACT_DIGITS} significant digits and a power of ten within {@value
+ * #MAX_EXACT_POWER} is converted with one multiplication or division of two exactly representable
+ * doubles. That single rounding step gives the same result as {@link Double#parseDouble(String)}
+ * without creating a String.
+ */
+final class Decimals {
+
+    /** Mantissas with up to this many digits are exact doubles. */
+    static final int MAX_EXACT_DIGITS = 15;
+
+    /** Powers of ten up to this exponent are exact doubles. */
+    static final int MAX_EXACT_POWER = 22;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private Decimals() {}
+
+    /**
+     * @param digits The number of significant digits in the mantissa.
+     * @param power The decimal exponent applied to the mantissa.
+     * @return true if {@link #toDouble(long, int)} is exact for these parameters.
+     */
+    static boolean isExact(int digits, int power) {
+        return digits <= MAX_EXACT_DIGITS && power >= -MAX_EXACT_POWER && power <= MAX_EXACT_POWER;
+    }
+
+    /**
+     * Computes {@code mantissa * 10^power}. Only correctly rounded when {@link #isExact(int, int)}
+     * holds.
+     */
+    static double toDouble(long mantissa, int power) {
+        double value = mantissa;
+        return power < 0 ? value / POW10[-power] : value * POW10[power];
+    }
+
+    /**
+     * Appends a digit to a mantissa while it can still be exact; later digits are ignored, and the
+     * caller falls back to {@link Double#parseDouble(String)} because its digit count is too high.
+     */
+    static long accumulate(long mantissa, char digit, int digits) {
+        if (digits >= MAX_EXACT_DIGITS) return mantissa;
+        return mantissa * 10 + (digit - '0');
+    }
+}
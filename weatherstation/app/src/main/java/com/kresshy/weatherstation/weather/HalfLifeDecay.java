@@ -0,0 +1,55 @@
+package com.kresshy.weatherstation.weather;
+
+/**
+ * Decay factors {@code 2^(-t / halfLife)} for elapsed times in milliseconds, without calling
+ * {@link Math#exp(double)} per sample. Elapsed time is split into a low part below {@value
+ * #TABLE_SIZE} ms and a high part in steps of {@value #TABLE_SIZE} ms, each looked up in a table
+ * computed once, and the two factors are multiplied. Lookups are exact to rounding for any gap up
+ * to {@link #MAX_TABLE_MILLIS}; longer gaps decay to 0.
+ *
+ * <p>Instances are immutable and can be shared.
+ */
+final class HalfLifeDecay {
+
+    /** Entries per table. */
+    static final int TABLE_SIZE = 1024;
+
+    /** Longest elapsed time covered by the tables, about 17 minutes. */
+    static final long MAX_TABLE_MILLIS = (long) TABLE_SIZE * TABLE_SIZE - 1;
+
+    private final double halfLifeMillis;
+    private final double[] low = new double[TABLE_SIZE];
+    private final double[] high = new double[TABLE_SIZE];
+
+    /**
+     * @param halfLifeSeconds Time after which a value has lost half of its weight.
+     */
+    HalfLifeDecay(double halfLifeSeconds) {
+        if (!(halfLifeSeconds > 0)) {
+            throw new IllegalArgumentException("halfLifeSeconds must be > 0: " + halfLifeSeconds);
+        }
+        halfLifeMillis = halfLifeSeconds * 1000;
+        double lnHalfPerMilli = Math.log(0.5) / halfLifeMillis;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            low[i] = Math.exp(lnHalfPerMilli * i);
+            high[i] = Math.exp(lnHalfPerMilli * i * TABLE_SIZE);
+        }
+    }
+
+    /**
+     * @param elapsedMillis Time since the previous sample; negative values count as 0.
+     * @return The weight the previous average keeps, from 1 (no time passed) down to 0.
+     */
+    double retained(long elapsedMillis) {
+        if (elapsedMillis <= 0) return 1;
+        if (elapsedMillis > MAX_TABLE_MILLIS) return 0;
+        return low[(int) elapsedMillis & (TABLE_SIZE - 1)] * high[(int) (elapsedMillis >>> 10)];
+    }
+
+    /**
+     * @return The half-life in seconds.
+     */
+    double getHalfLifeSeconds() {
+        return halfLifeMillis / 1000;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kresshy.weatherstation.weather;
+
+import com.kresshy.weatherstation.util.RollingMedian;
+
+/**
+ * Hampel outlier filter for one channel of one sensor node. A value is rejected when it lies
+ * further from the median of the recent values than {@code threshold} times their scaled median
+ * absolute deviation (MAD), or than {@code minDeviation} when the signal is so steady that the MAD
+ * is close to zero.
+ *
+ * <p>Every finite value joins the window, rejected or not. A single glitch therefore cannot shift
+ * the median, while a genuine step change becomes the new baseline once it fills half the window,
+ * instead of being rejected forever the way a comparison with the last accepted value would.
+ *
+ * <p>A rejected value is meant to be replaced by the median it was judged against, {@link
+ * #getLastMedian()}, so a glitch in one channel does not cost the other channels of the reading.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class HampelFilter {
+
+    /** Scales the MAD to the standard deviation of normally distributed noise. */
+    static final double MAD_SCALE = 1.4826;
+
+    private final RollingMedian window;
+    private final double threshold;
+    private final double minDeviation;
+    private long rejectedCount = 0;
+    private double lastMedian = Double.NaN;
+
+    /**
+     * @param windowSize The number of recent values the median covers.
+     * @param threshold How many scaled MADs a value may deviate, 3 being the usual choice.
+     * @param minDeviation Deviation that is always tolerated, in the unit of the channel.
+     */
+    public HampelFilter(int windowSize, double threshold, double minDeviation) {
+        window = new RollingMedian(windowSize);
+        this.threshold = threshold;
+        this.minDeviation = minDeviation;
+    }
+
+    /**
+     * Checks a value against the recent ones, then adds it to the window.
+     *
+     * @param value The new value.
+     * @return {@code false} if the value is an outlier or not a finite number.
+     */
+    public boolean accept(double value) {
+        lastMedian = window.size() > 0 ? window.getMedian() : Double.NaN;
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            rejectedCount++;
+            return false;
+        }
+        boolean accepted = true;
+        if (window.size() > 0) {
+            double spread = threshold * MAD_SCALE * window.getMedianAbsoluteDeviation();
+            accepted = Math.abs(value - lastMedian) <= Math.max(spread, minDeviation);
+        }
+        window.add(value);
+        if (!accepted) rejectedCount++;
+        return accepted;
+    }
+
+    /**
+     * @return The median of the recent values the last value was judged against, its replacement
+     *     if it was rejected; NaN if there were none.
+     */
+    public double getLastMedian() {
+        return lastMedian;
+    }
+
+    /**
+     * @return The number of values rejected since construction or the last {@link #reset()}.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return The number of recent values the median currently covers.
+     */
+    public int getBaselineSize() {
+        return window.size();
+    }
+
+    /**
+     * @param index Position in the baseline, 0 being the oldest value.
+     * @return The recent value at that position.
+     */
+    public double getBaselineValue(int index) {
+        return window.get(index);
+    }
+
+    /**
+     * Replaces the recent values with a baseline saved earlier, e.g. before the process was
+     * killed, without checking them. The rejection count is left alone.
+     *
+     * @param values The recent values, oldest first.
+     * @param count How many of {@code values} to use.
+     */
+    public void restoreBaseline(double[] values, int count) {
+        window.clear();
+        lastMedian = Double.NaN;
+        for (int i = 0; i < count; i++) window.add(values[i]);
+    }
+
+    /** Forgets the recent values and the rejection count. */
+    public void reset() {
+        window.clear();
+        rejectedCount = 0;
+        lastMedian = Double.NaN;
+    }
+}
@@ -0,0 +1,148 @@
+package com.kresshy.weatherstation.weather;
+
+import java.util.Date;
+
+/**
+ * Immutable view of the readings a {@link WeatherHistory} held at one moment, from a start version
+ * up to an end version. Versions count every reading ever appended to the history, so a reader that
+ * has consumed up to version {@code n} can ask a newer snapshot for just the readings added since
+ * with {@link #since(long)}.
+ *
+ * <p>The view shares the history's pages rather than copying readings, and it can be read on any
+ * thread without blocking the writer.
+ */
+public final class HistorySnapshot implements WeatherSeries {
+
+    /** Snapshot of a history that has never received a reading. */
+    public static final HistorySnapshot EMPTY =
+            new HistorySnapshot(new WeatherHistory.Page[0], 0, 0, 0);
+
+    private final WeatherHistory.Page[] pages;
+
+    /** Page number of {@code pages[0]}. */
+    private final long firstPage;
+
+    private final long startVersion;
+    private final long endVersion;
+
+    HistorySnapshot(
+            WeatherHistory.Page[] pages, long firstPage, long startVersion, long endVersion) {
+        this.pages = pages;
+        this.firstPage = firstPage;
+        this.startVersion = startVersion;
+        this.endVersion = endVersion;
+    }
+
+    /**
+     * @return The version of the oldest reading in view.
+     */
+    public long getStartVersion() {
+        return startVersion;
+    }
+
+    /**
+     * @return The version after the newest reading in view; pass it to {@link #since(long)} on a
+     *     later snapshot to get what changed.
+     */
+    public long getVersion() {
+        return endVersion;
+    }
+
+    /**
+     * Narrows the view to the readings added after a version, sharing the same pages.
+     *
+     * @param version A version from an earlier snapshot.
+     * @return The newer readings. If some of them have already been evicted, the view starts at the
+     *     oldest reading still available; {@link #isContinuousFrom(long)} tells the cases apart.
+     */
+    public HistorySnapshot since(long version) {
+        long start = Math.min(Math.max(version, startVersion), endVersion);
+        return start == startVersion
+                ? this
+                : new HistorySnapshot(pages, firstPage, start, endVersion);
+    }
+
+    /**
+     * @param version A version from an earlier snapshot.
+     * @return Whether every reading added after {@code version} is still in view, so a reader that
+     *     has consumed up to it can catch up without gaps.
+     */
+    public boolean isContinuousFrom(long version) {
+        return version >= startVersion;
+    }
+
+    @Override
+    public int size() {
+        return (int) (endVersion - startVersion);
+    }
+
+    @Override
+    public long getTimestampMillis(int index) {
+        long seq = sequence(index);
+        return page(seq).timestamps[(int) seq & WeatherHistory.PAGE_MASK];
+    }
+
+    @Override
+    public float getWindSpeed(int index) {
+        long seq = sequence(index);
+        return page(seq).windSpeeds[(int) seq & WeatherHistory.PAGE_MASK];
+    }
+
+    @Override
+    public float getTemperature(int index) {
+        long seq = sequence(index);
+        return page(seq).temperatures[(int) seq & WeatherHistory.PAGE_MASK];
+    }
+
+    @Override
+    public int getRssi(int index) {
+        long seq = sequence(index);
+        return page(seq).rssis[(int) seq & WeatherHistory.PAGE_MASK];
+    }
+
+    @Override
+    public int getNodeId(int index) {
+        long seq = sequence(index);
+        return page(seq).nodeIds[(int) seq & WeatherHistory.PAGE_MASK];
+    }
+
+    @Override
+    public int indexAtOrAfter(long timestampMillis) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestampMillis(mid) < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recreates a reading as a {@link WeatherData}, for consumers of the object model.
+     *
+     * @param index Position in the view, 0 being the oldest reading.
+     * @return A new object holding the reading.
+     */
+    public WeatherData toWeatherData(int index) {
+        WeatherData data =
+                new WeatherData(getWindSpeed(index), getTemperature(index), getNodeId(index));
+        data.setRssi(getRssi(index));
+        data.setTimestamp(new Date(getTimestampMillis(index)));
+        return data;
+    }
+
+    private long sequence(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        return startVersion + index;
+    }
+
+    private WeatherHistory.Page page(long seq) {
+        return pages[(int) ((seq >>> WeatherHistory.PAGE_SHIFT) - firstPage)];
+    }
+}
@@ -1,5 +1,7 @@
 package com.kresshy.weatherstation.weather;
 
+import com.kresshy.weatherstation.connection.BinaryFrame;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +10,12 @@ import java.util.List;
  * deserialization of the modern communication protocol.
  */
 public class Measurement {
+    /** Protocol version of JSON frames. */
+    public static final int VERSION_JSON = 2;
+
+    /** Protocol version of compact binary frames, see {@link BinaryFrame}. */
+    public static final int VERSION_BINARY = BinaryFrame.VERSION;
+
     private int version;
     private int numberOfNodes;
     private List<WeatherData> measurements;
@@ -0,0 +1,301 @@
+package com.kresshy.weatherstation.weather;
+
+import java.util.Arrays;
+
+/**
+ * Reflection-free reader for the fixed JSON schema sent by the station firmware:
+ *
+ * <pre>
+ * {"version":2,"numberOfNodes":1,
+ *  "measurements":[{"windSpeed":3.21,"temperature":21.50,"nodeId":0,"rssi":-60}]}
+ * </pre>
+ *
+ * <p>The reader walks the characters once and stores every measurement in reusable primitive
+ * arrays, so a frame is decoded without building a {@link Measurement}, a list or boxed values,
+ * and frames with more nodes only grow the arrays once. Anything outside the strict schema (unknown
+ * keys, nulls, quoted numbers, lenient syntax, trailing data) is reported as {@link #UNKNOWN_SHAPE}
+ * so the caller can hand the frame to Gson and keep its exact behaviour.
+ *
+ * <p>Instances are not thread-safe.
+ */
+final class MeasurementJsonReader {
+
+    /** The frame does not match the strict schema; it must be parsed by Gson. */
+    static final int UNKNOWN_SHAPE = -1;
+
+    /** Thrown internally when the input leaves the strict schema. */
+    private static final UnknownShapeException UNKNOWN = new UnknownShapeException();
+
+    private CharSequence in;
+    private int pos;
+    private int end;
+
+    // Measurements of the last document, in document order
+    private int count;
+    private double[] windSpeeds = new double[4];
+    private double[] temperatures = new double[4];
+    private int[] nodeIds = new int[4];
+    private int[] rssis = new int[4];
+
+    /**
+     * Reads a JSON document from a window of a character sequence.
+     *
+     * @param input The characters holding the document.
+     * @param start Index of the first character of the document.
+     * @param limit Index one past the last character of the document.
+     * @return The number of measurements read, or {@link #UNKNOWN_SHAPE}.
+     */
+    int read(CharSequence input, int start, int limit) {
+        in = input;
+        pos = start;
+        end = limit;
+        count = 0;
+        try {
+            readDocument();
+            return count;
+        } catch (UnknownShapeException e) {
+            count = 0;
+            return UNKNOWN_SHAPE;
+        } finally {
+            in = null;
+        }
+    }
+
+    /**
+     * @param nodeId The node to look for.
+     * @return The index of the last measurement of that node, or -1. Using the last entry matches
+     *     {@link Measurement#getWeatherDataForNode(int)}.
+     */
+    int lastIndexOfNode(int nodeId) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (nodeIds[i] == nodeId) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param index Position of the measurement in the document.
+     * @param timestampMillis The time the document was received.
+     * @return A new WeatherData holding that measurement.
+     */
+    WeatherData toWeatherData(int index, long timestampMillis) {
+        WeatherData data =
+                new WeatherData(
+                        windSpeeds[index], temperatures[index], nodeIds[index], timestampMillis);
+        data.setRssi(rssis[index]);
+        return data;
+    }
+
+    private void readDocument() {
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() != '}') {
+            do {
+                skipWhitespace();
+                if (matchKey("version") || matchKey("numberOfNodes")) {
+                    readInt();
+                } else if (matchKey("measurements")) {
+                    readMeasurements();
+                } else {
+                    throw UNKNOWN;
+                }
+                skipWhitespace();
+            } while (tryConsume(','));
+        }
+        expect('}');
+        skipWhitespace();
+        if (pos != end) throw UNKNOWN;
+    }
+
+    private void readMeasurements() {
+        // A repeated key replaces the earlier list, as it does with Gson
+        count = 0;
+        expect('[');
+        skipWhitespace();
+        if (tryConsume(']')) return;
+        do {
+            skipWhitespace();
+            readWeatherData();
+            skipWhitespace();
+        } while (tryConsume(','));
+        expect(']');
+    }
+
+    private void readWeatherData() {
+        if (count == nodeIds.length) {
+            int capacity = count * 2;
+            windSpeeds = Arrays.copyOf(windSpeeds, capacity);
+            temperatures = Arrays.copyOf(temperatures, capacity);
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            rssis = Arrays.copyOf(rssis, capacity);
+        }
+        double windSpeed = 0;
+        double temperature = 0;
+        int nodeId = 0;
+        int rssi = 0;
+
+        expect('{');
+        skipWhitespace();
+        if (!tryConsume('}')) {
+            do {
+                skipWhitespace();
+                if (matchKey("windSpeed")) {
+                    windSpeed = readDouble();
+                } else if (matchKey("temperature")) {
+                    temperature = readDouble();
+                } else if (matchKey("nodeId")) {
+                    nodeId = readInt();
+                } else if (matchKey("rssi")) {
+                    rssi = readInt();
+                } else {
+                    throw UNKNOWN;
+                }
+                skipWhitespace();
+            } while (tryConsume(','));
+            expect('}');
+        }
+
+        windSpeeds[count] = windSpeed;
+        temperatures[count] = temperature;
+        nodeIds[count] = nodeId;
+        rssis[count] = rssi;
+        count++;
+    }
+
+    /**
+     * Consumes {@code "key"} followed by a colon if the input continues with it. Keys never contain
+     * escapes in this schema, so a plain character comparison is enough.
+     */
+    private boolean matchKey(String key) {
+        int n = key.length();
+        int p = pos;
+        if (p + n + 2 > end || in.charAt(p) != '"' || in.charAt(p + n + 1) != '"') return false;
+        for (int i = 0; i < n; i++) {
+            if (in.charAt(p + 1 + i) != key.charAt(i)) return false;
+        }
+        pos = p + n + 2;
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        return true;
+    }
+
+    private int readInt() {
+        boolean negative = tryConsume('-');
+        int digitsStart = pos;
+        long value = 0;
+        while (pos < end) {
+            char c = in.charAt(pos);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) throw UNKNOWN;
+            pos++;
+        }
+        int digits = pos - digitsStart;
+        if (digits == 0 || (digits > 1 && in.charAt(digitsStart) == '0')) throw UNKNOWN;
+        // Fractions and exponents are left to Gson, which accepts integral values like 1.0
+        if (pos < end && isNumberContinuation(in.charAt(pos))) throw UNKNOWN;
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw UNKNOWN;
+        return (int) value;
+    }
+
+    /**
+     * Parses a JSON number. Short values are converted exactly by {@link Decimals}; longer values
+     * are delegated to {@link Double#parseDouble(String)}.
+     */
+    private double readDouble() {
+        int numberStart = pos;
+        boolean negative = tryConsume('-');
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+
+        int intStart = pos;
+        while (pos < end && isDigit(in.charAt(pos))) {
+            mantissa = Decimals.accumulate(mantissa, in.charAt(pos), digits);
+            if (mantissa != 0 || digits != 0) digits++;
+            pos++;
+        }
+        int intDigits = pos - intStart;
+        if (intDigits == 0 || (intDigits > 1 && in.charAt(intStart) == '0')) throw UNKNOWN;
+
+        if (tryConsume('.')) {
+            int fracStart = pos;
+            while (pos < end && isDigit(in.charAt(pos))) {
+                mantissa = Decimals.accumulate(mantissa, in.charAt(pos), digits);
+                if (mantissa != 0 || digits != 0) digits++;
+                scale++;
+                pos++;
+            }
+            if (pos == fracStart) throw UNKNOWN;
+        }
+
+        int exponent = 0;
+        if (pos < end && (in.charAt(pos) == 'e' || in.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (in.charAt(pos) == '+' || in.charAt(pos) == '-')) {
+                negativeExponent = in.charAt(pos) == '-';
+                pos++;
+            }
+            int expStart = pos;
+            while (pos < end && isDigit(in.charAt(pos))) {
+                if (exponent < 1000) exponent = exponent * 10 + (in.charAt(pos) - '0');
+                pos++;
+            }
+            if (pos == expStart) throw UNKNOWN;
+            if (negativeExponent) exponent = -exponent;
+        }
+
+        int power = exponent - scale;
+        if (!Decimals.isExact(digits, power)) {
+            return Double.parseDouble(in.subSequence(numberStart, pos).toString());
+        }
+        double value = Decimals.toDouble(mantissa, power);
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberContinuation(char c) {
+        return c == '.' || c == 'e' || c == 'E';
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            char c = in.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+            pos++;
+        }
+    }
+
+    private char peek() {
+        if (pos >= end) throw UNKNOWN;
+        return in.charAt(pos);
+    }
+
+    private boolean tryConsume(char c) {
+        if (pos < end && in.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!tryConsume(c)) throw UNKNOWN;
+    }
+
+    /** Preallocated signal for a document outside the schema; carries no stack trace. */
+    private static final class UnknownShapeException extends RuntimeException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
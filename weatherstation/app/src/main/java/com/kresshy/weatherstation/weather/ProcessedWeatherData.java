@@ -12,6 +12,40 @@ public class ProcessedWeatherData {
     private final double tempTrend;
     private final double windTrend;
     private final int thermalScore;
+    private final double gust;
+    private final double lull;
+    private final double peakGust;
+    private final double lowestLull;
+    private final double windP90;
+
+    /**
+     * Initializes a new ProcessedWeatherData instance without wind extremes, which are reported as
+     * NaN.
+     *
+     * @param weatherData The raw sensor reading.
+     * @param launchDecision The current suitability for launching.
+     * @param tempTrend The calculated temperature trend.
+     * @param windTrend The calculated wind speed trend.
+     * @param thermalScore The 0-100 thermal rating.
+     */
+    public ProcessedWeatherData(
+            WeatherData weatherData,
+            WeatherRepository.LaunchDecision launchDecision,
+            double tempTrend,
+            double windTrend,
+            int thermalScore) {
+        this(
+                weatherData,
+                launchDecision,
+                tempTrend,
+                windTrend,
+                thermalScore,
+                Double.NaN,
+                Double.NaN,
+                Double.NaN,
+                Double.NaN,
+                Double.NaN);
+    }
 
     /**
      * Initializes a new ProcessedWeatherData instance. This object bundles raw data with all
@@ -22,18 +56,33 @@ public class ProcessedWeatherData {
      * @param tempTrend The calculated temperature trend.
      * @param windTrend The calculated wind speed trend.
      * @param thermalScore The 0-100 thermal rating.
+     * @param gust The highest wind speed of the last few seconds.
+     * @param lull The lowest wind speed of the last few seconds.
+     * @param peakGust The highest wind speed of the last minutes.
+     * @param lowestLull The lowest wind speed of the last minutes.
+     * @param windP90 The estimated 90th percentile wind speed of the last minutes.
      */
     public ProcessedWeatherData(
             WeatherData weatherData,
             WeatherRepository.LaunchDecision launchDecision,
             double tempTrend,
             double windTrend,
-            int thermalScore) {
+            int thermalScore,
+            double gust,
+            double lull,
+            double peakGust,
+            double lowestLull,
+            double windP90) {
         this.weatherData = weatherData;
         this.launchDecision = launchDecision;
         this.tempTrend = tempTrend;
         this.windTrend = windTrend;
         this.thermalScore = thermalScore;
+        this.gust = gust;
+        this.lull = lull;
+        this.peakGust = peakGust;
+        this.lowestLull = lowestLull;
+        this.windP90 = windP90;
     }
 
     /**
@@ -70,4 +119,39 @@ public class ProcessedWeatherData {
     public int getThermalScore() {
         return thermalScore;
     }
+
+    /**
+     * @return The highest wind speed of the last few seconds, or NaN if unknown.
+     */
+    public double getGust() {
+        return gust;
+    }
+
+    /**
+     * @return The lowest wind speed of the last few seconds, or NaN if unknown.
+     */
+    public double getLull() {
+        return lull;
+    }
+
+    /**
+     * @return The highest wind speed of the last minutes, or NaN if unknown.
+     */
+    public double getPeakGust() {
+        return peakGust;
+    }
+
+    /**
+     * @return The lowest wind speed of the last minutes, or NaN if unknown.
+     */
+    public double getLowestLull() {
+        return lowestLull;
+    }
+
+    /**
+     * @return The estimated 90th percentile wind speed of the last minutes, or NaN if unknown.
+     */
+    public double getWindP90() {
+        return windP90;
+    }
 }
@@ -0,0 +1,258 @@
+package com.kresshy.weatherstation.weather;
+
+/**
+ * Incrementally aggregates readings into 1 s, 10 s and 60 s buckets holding the count and the
+ * min, max and mean of wind speed and temperature. Every reading updates the newest bucket of each
+ * resolution in O(1), so long observation windows can be charted from a few hundred buckets
+ * instead of replotting every raw reading.
+ *
+ * <p>Each resolution keeps its buckets in a primitive ring sized for the observation window but
+ * never larger than {@link #MAX_BUCKETS}, so memory stays bounded however long the window is; a
+ * fine resolution then covers only the most recent part of a very long window. Buckets that fall
+ * out of the window are dropped as newer readings arrive.
+ *
+ * <p>Buckets are aligned to multiples of their resolution since the epoch. A reading older than
+ * the newest bucket of a resolution is counted in that bucket. Instances are not thread-safe.
+ */
+public final class RollupEngine {
+
+    /** Bucket lengths, finest first. */
+    private static final long[] RESOLUTIONS_MILLIS = {1_000, 10_000, 60_000};
+
+    /** Largest number of buckets kept per resolution. */
+    public static final int MAX_BUCKETS = 1800;
+
+    private final Level[] levels = new Level[RESOLUTIONS_MILLIS.length];
+    private long windowMillis;
+
+    /**
+     * @param windowMillis The observation window; buckets older than this are dropped.
+     */
+    public RollupEngine(long windowMillis) {
+        this.windowMillis = windowMillis;
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Level(RESOLUTIONS_MILLIS[i], capacityFor(RESOLUTIONS_MILLIS[i]));
+        }
+    }
+
+    /**
+     * Changes the observation window. The newest buckets that still fit are kept.
+     *
+     * @param windowMillis The new observation window.
+     */
+    public void setWindow(long windowMillis) {
+        if (windowMillis == this.windowMillis) return;
+        this.windowMillis = windowMillis;
+        for (Level level : levels) level.resize(capacityFor(level.resolutionMillis));
+    }
+
+    /**
+     * Adds a reading to every resolution.
+     *
+     * @param timestampMillis Time of the reading in epoch milliseconds.
+     * @param windSpeed The wind speed.
+     * @param temperature The temperature.
+     */
+    public void add(long timestampMillis, double windSpeed, double temperature) {
+        for (Level level : levels) {
+            level.add(timestampMillis, windSpeed, temperature);
+            level.prune(timestampMillis - windowMillis);
+        }
+    }
+
+    /**
+     * Picks the coarsest resolution that still has at least {@code targetPoints} buckets, or the
+     * finest resolution if none has that many.
+     *
+     * @param targetPoints The number of points the consumer wants to draw.
+     * @return The chosen resolution in milliseconds.
+     */
+    public long selectResolution(int targetPoints) {
+        return levels[selectLevel(targetPoints)].resolutionMillis;
+    }
+
+    /**
+     * Copies the buckets of the {@link #selectResolution(int) selected} resolution into {@code
+     * out}, oldest first.
+     *
+     * @param targetPoints The number of points the consumer wants to draw.
+     * @param out The series to fill; its previous contents are replaced.
+     * @return {@code out}, for chaining.
+     */
+    public RollupSeries read(int targetPoints, RollupSeries out) {
+        levels[selectLevel(targetPoints)].copyTo(out);
+        return out;
+    }
+
+    /**
+     * Copies the buckets of one resolution into {@code out}, oldest first.
+     *
+     * @param resolutionMillis One of the supported resolutions: 1000, 10000 or 60000.
+     * @param out The series to fill; its previous contents are replaced.
+     * @return {@code out}, for chaining.
+     */
+    public RollupSeries readResolution(long resolutionMillis, RollupSeries out) {
+        for (Level level : levels) {
+            if (level.resolutionMillis == resolutionMillis) {
+                level.copyTo(out);
+                return out;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported resolution: " + resolutionMillis);
+    }
+
+    /** Removes all buckets. */
+    public void clear() {
+        for (Level level : levels) level.clear();
+    }
+
+    private int selectLevel(int targetPoints) {
+        for (int i = levels.length - 1; i > 0; i--) {
+            if (levels[i].size >= targetPoints) return i;
+        }
+        return 0;
+    }
+
+    /** Buckets needed to cover the window, including a partial bucket at each end. */
+    private int capacityFor(long resolutionMillis) {
+        long buckets = windowMillis / resolutionMillis + 2;
+        return (int) Math.max(2, Math.min(MAX_BUCKETS, buckets));
+    }
+
+    /** Ring of buckets of one resolution, held in parallel primitive arrays. */
+    private static final class Level {
+        final long resolutionMillis;
+
+        long[] startMillis;
+        int[] counts;
+        double[] windMin;
+        double[] windMax;
+        double[] windSum;
+        double[] temperatureMin;
+        double[] temperatureMax;
+        double[] temperatureSum;
+
+        /** Index of the oldest bucket. */
+        int head = 0;
+
+        int size = 0;
+
+        Level(long resolutionMillis, int capacity) {
+            this.resolutionMillis = resolutionMillis;
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            startMillis = new long[capacity];
+            counts = new int[capacity];
+            windMin = new double[capacity];
+            windMax = new double[capacity];
+            windSum = new double[capacity];
+            temperatureMin = new double[capacity];
+            temperatureMax = new double[capacity];
+            temperatureSum = new double[capacity];
+        }
+
+        void add(long timestampMillis, double windSpeed, double temperature) {
+            long bucketStart = timestampMillis - Math.floorMod(timestampMillis, resolutionMillis);
+            int newest = size == 0 ? -1 : index(size - 1);
+            if (newest < 0 || bucketStart > startMillis[newest]) {
+                newest = append(bucketStart);
+                windMin[newest] = windSpeed;
+                windMax[newest] = windSpeed;
+                temperatureMin[newest] = temperature;
+                temperatureMax[newest] = temperature;
+            } else {
+                if (windSpeed < windMin[newest]) windMin[newest] = windSpeed;
+                if (windSpeed > windMax[newest]) windMax[newest] = windSpeed;
+                if (temperature < temperatureMin[newest]) temperatureMin[newest] = temperature;
+                if (temperature > temperatureMax[newest]) temperatureMax[newest] = temperature;
+            }
+            counts[newest]++;
+            windSum[newest] += windSpeed;
+            temperatureSum[newest] += temperature;
+        }
+
+        /** Starts a new bucket, evicting the oldest one when the ring is full. */
+        private int append(long bucketStart) {
+            int slot;
+            if (size == startMillis.length) {
+                slot = head;
+                head = next(head);
+            } else {
+                slot = index(size);
+                size++;
+            }
+            startMillis[slot] = bucketStart;
+            counts[slot] = 0;
+            windSum[slot] = 0;
+            temperatureSum[slot] = 0;
+            return slot;
+        }
+
+        /** Drops buckets that end at or before {@code cutoffMillis}. */
+        void prune(long cutoffMillis) {
+            while (size > 1 && startMillis[head] + resolutionMillis <= cutoffMillis) {
+                head = next(head);
+                size--;
+            }
+        }
+
+        void resize(int capacity) {
+            if (capacity == startMillis.length) return;
+            Level copy = new Level(resolutionMillis, capacity);
+            for (int i = Math.max(0, size - capacity); i < size; i++) {
+                int from = index(i);
+                int to = copy.size++;
+                copy.startMillis[to] = startMillis[from];
+                copy.counts[to] = counts[from];
+                copy.windMin[to] = windMin[from];
+                copy.windMax[to] = windMax[from];
+                copy.windSum[to] = windSum[from];
+                copy.temperatureMin[to] = temperatureMin[from];
+                copy.temperatureMax[to] = temperatureMax[from];
+                copy.temperatureSum[to] = temperatureSum[from];
+            }
+            startMillis = copy.startMillis;
+            counts = copy.counts;
+            windMin = copy.windMin;
+            windMax = copy.windMax;
+            windSum = copy.windSum;
+            temperatureMin = copy.temperatureMin;
+            temperatureMax = copy.temperatureMax;
+            temperatureSum = copy.temperatureSum;
+            head = 0;
+            size = copy.size;
+        }
+
+        void copyTo(RollupSeries out) {
+            out.reset(resolutionMillis, size);
+            for (int i = 0; i < size; i++) {
+                int j = index(i);
+                out.add(
+                        startMillis[j],
+                        counts[j],
+                        windMin[j],
+                        windMax[j],
+                        windSum[j] / counts[j],
+                        temperatureMin[j],
+                        temperatureMax[j],
+                        temperatureSum[j] / counts[j]);
+            }
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        private int index(int position) {
+            int i = head + position;
+            return i < startMillis.length ? i : i - startMillis.length;
+        }
+
+        private int next(int i) {
+            return i + 1 == startMillis.length ? 0 : i + 1;
+        }
+    }
+}
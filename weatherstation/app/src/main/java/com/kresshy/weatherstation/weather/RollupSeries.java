@@ -0,0 +1,136 @@
+package com.kresshy.weatherstation.weather;
+
+import java.util.Arrays;
+
+/**
+ * Time buckets of one resolution, oldest first, as read from a {@link RollupEngine}. Each bucket
+ * holds the number of readings and the min, max and mean of wind speed and temperature. Values are
+ * kept in primitive arrays that grow only when a larger series is read into the same instance.
+ */
+public final class RollupSeries {
+
+    private long resolutionMillis;
+    private int size;
+    private long[] startMillis = new long[0];
+    private int[] counts = new int[0];
+    private double[] windMin = new double[0];
+    private double[] windMax = new double[0];
+    private double[] windMean = new double[0];
+    private double[] temperatureMin = new double[0];
+    private double[] temperatureMax = new double[0];
+    private double[] temperatureMean = new double[0];
+
+    /** Prepares the arrays for {@code capacity} buckets and clears the series. */
+    void reset(long resolutionMillis, int capacity) {
+        this.resolutionMillis = resolutionMillis;
+        size = 0;
+        if (startMillis.length < capacity) {
+            startMillis = Arrays.copyOf(startMillis, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            windMin = Arrays.copyOf(windMin, capacity);
+            windMax = Arrays.copyOf(windMax, capacity);
+            windMean = Arrays.copyOf(windMean, capacity);
+            temperatureMin = Arrays.copyOf(temperatureMin, capacity);
+            temperatureMax = Arrays.copyOf(temperatureMax, capacity);
+            temperatureMean = Arrays.copyOf(temperatureMean, capacity);
+        }
+    }
+
+    /** Appends a bucket; {@link #reset(long, int)} must have made room for it. */
+    void add(
+            long start,
+            int count,
+            double windMin,
+            double windMax,
+            double windMean,
+            double temperatureMin,
+            double temperatureMax,
+            double temperatureMean) {
+        startMillis[size] = start;
+        counts[size] = count;
+        this.windMin[size] = windMin;
+        this.windMax[size] = windMax;
+        this.windMean[size] = windMean;
+        this.temperatureMin[size] = temperatureMin;
+        this.temperatureMax[size] = temperatureMax;
+        this.temperatureMean[size] = temperatureMean;
+        size++;
+    }
+
+    /**
+     * @return The number of buckets.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The length of each bucket in milliseconds, or 0 if nothing has been read.
+     */
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    /**
+     * @return The start time of a bucket in epoch milliseconds.
+     */
+    public long getStartMillis(int index) {
+        return startMillis[checkIndex(index)];
+    }
+
+    /**
+     * @return The number of readings in a bucket.
+     */
+    public int getCount(int index) {
+        return counts[checkIndex(index)];
+    }
+
+    /**
+     * @return The lowest wind speed in a bucket.
+     */
+    public double getWindMin(int index) {
+        return windMin[checkIndex(index)];
+    }
+
+    /**
+     * @return The highest wind speed in a bucket.
+     */
+    public double getWindMax(int index) {
+        return windMax[checkIndex(index)];
+    }
+
+    /**
+     * @return The mean wind speed of a bucket.
+     */
+    public double getWindMean(int index) {
+        return windMean[checkIndex(index)];
+    }
+
+    /**
+     * @return The lowest temperature in a bucket.
+     */
+    public double getTemperatureMin(int index) {
+        return temperatureMin[checkIndex(index)];
+    }
+
+    /**
+     * @return The highest temperature in a bucket.
+     */
+    public double getTemperatureMax(int index) {
+        return temperatureMax[checkIndex(index)];
+    }
+
+    /**
+     * @return The mean temperature of a bucket.
+     */
+    public double getTemperatureMean(int index) {
+        return temperatureMean[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return index;
+    }
+}
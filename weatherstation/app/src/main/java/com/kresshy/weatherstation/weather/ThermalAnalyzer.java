@@ -1,18 +1,32 @@
 package com.kresshy.weatherstation.weather;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.kresshy.weatherstation.repository.WeatherRepository;
+import com.kresshy.weatherstation.util.MonotonicWindow;
+import com.kresshy.weatherstation.util.RollingStats;
+import com.kresshy.weatherstation.util.WindowedQuantile;
 
 import timber.log.Timber;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
  * Analyzes weather data to determine if conditions are suitable for thermal launching. Uses
  * Exponential Moving Averages (EMA) to detect trends in temperature and wind speed.
+ *
+ * <p>The EMAs decay by the time elapsed between readings rather than per reading, with half-lives
+ * in seconds, so trends and scores mean the same at 1 Hz, 10 Hz, or over a link that loses
+ * packets. At one reading per second they match the former per-sample factors of 0.5 and 0.1.
+ * Readings that share a timestamp, e.g. a backlog delivered at once, are averaged into one step
+ * instead of each being credited with time that did not pass.
+ *
+ * <p>Alongside the trends it reports the gust and lull, the highest and lowest wind over the last
+ * few seconds and over the last minutes, and an estimate of the 90th percentile wind speed over the
+ * last minutes. These are kept in monotonic deques and staggered P-square estimators, so they cost
+ * amortised O(1) per reading at any sample rate.
  */
 @Singleton
 public class ThermalAnalyzer {
@@ -23,8 +37,15 @@ public class ThermalAnalyzer {
         public final double tempTrend;
         public final double windTrend;
         public final int score;
+        public final double gust;
+        public final double lull;
+        public final double peakGust;
+        public final double lowestLull;
+        public final double windP90;
 
         /**
+         * Creates a result without wind extremes, which are reported as NaN.
+         *
          * @param decision The calculated launch decision.
          * @param tempTrend The temperature trend (delta between fast and slow EMA).
          * @param windTrend The wind speed trend (delta between fast and slow EMA).
@@ -35,29 +56,227 @@ public class ThermalAnalyzer {
                 double tempTrend,
                 double windTrend,
                 int score) {
+            this(
+                    decision,
+                    tempTrend,
+                    windTrend,
+                    score,
+                    Double.NaN,
+                    Double.NaN,
+                    Double.NaN,
+                    Double.NaN,
+                    Double.NaN);
+        }
+
+        /**
+         * @param decision The calculated launch decision.
+         * @param tempTrend The temperature trend (delta between fast and slow EMA).
+         * @param windTrend The wind speed trend (delta between fast and slow EMA).
+         * @param score The 0-100 thermal suitability score.
+         * @param gust The highest wind speed over the gust span.
+         * @param lull The lowest wind speed over the gust span.
+         * @param peakGust The highest wind speed over the peak span.
+         * @param lowestLull The lowest wind speed over the peak span.
+         * @param windP90 The estimated 90th percentile wind speed over the last half to whole peak
+         *     span.
+         */
+        public AnalysisResult(
+                WeatherRepository.LaunchDecision decision,
+                double tempTrend,
+                double windTrend,
+                int score,
+                double gust,
+                double lull,
+                double peakGust,
+                double lowestLull,
+                double windP90) {
             this.decision = decision;
             this.tempTrend = tempTrend;
             this.windTrend = windTrend;
             this.score = score;
+            this.gust = gust;
+            this.lull = lull;
+            this.peakGust = peakGust;
+            this.lowestLull = lowestLull;
+            this.windP90 = windP90;
+        }
+    }
+
+    /**
+     * The tunable constants of the analysis: EMA half-lives and score thresholds. Kept apart from
+     * the runtime sensitivity so that a backtest can sweep them.
+     */
+    public static final class Parameters {
+
+        /** The values the app runs with. */
+        public static final Parameters DEFAULT =
+                new Parameters(FAST_HALF_LIFE_SECONDS, SLOW_HALF_LIFE_SECONDS, 70, 40, 20, 5.0);
+
+        public final double fastHalfLifeSeconds;
+        public final double slowHalfLifeSeconds;
+        public final int launchScore;
+        public final int potentialScore;
+        public final int poorScore;
+        public final double maxWindSpeed;
+
+        /**
+         * @param fastHalfLifeSeconds Half-life of the fast EMAs.
+         * @param slowHalfLifeSeconds Half-life of the slow EMAs.
+         * @param launchScore Lowest score that means LAUNCH.
+         * @param potentialScore Lowest score that means POTENTIAL.
+         * @param poorScore Scores below this mean POOR.
+         * @param maxWindSpeed Wind speed above which the score is heavily penalised, in m/s.
+         */
+        public Parameters(
+                double fastHalfLifeSeconds,
+                double slowHalfLifeSeconds,
+                int launchScore,
+                int potentialScore,
+                int poorScore,
+                double maxWindSpeed) {
+            this.fastHalfLifeSeconds = fastHalfLifeSeconds;
+            this.slowHalfLifeSeconds = slowHalfLifeSeconds;
+            this.launchScore = launchScore;
+            this.potentialScore = potentialScore;
+            this.poorScore = poorScore;
+            this.maxWindSpeed = maxWindSpeed;
+        }
+
+        @Override
+        public String toString() {
+            return "fast="
+                    + fastHalfLifeSeconds
+                    + "s slow="
+                    + slowHalfLifeSeconds
+                    + "s launch="
+                    + launchScore
+                    + " potential="
+                    + potentialScore
+                    + " poor="
+                    + poorScore
+                    + " maxWind="
+                    + maxWindSpeed;
+        }
+    }
+
+    /**
+     * The averages an analyzer has converged to, for saving across a process restart. The wind
+     * windows are not part of it; {@link #restore} rebuilds them from the recent readings.
+     */
+    public static final class State {
+        public final double fastEmaTemp;
+        public final double slowEmaTemp;
+        public final double fastEmaWind;
+        public final double slowEmaWind;
+        public final long lastTimestampMillis;
+
+        /**
+         * @param fastEmaTemp The fast temperature EMA.
+         * @param slowEmaTemp The slow temperature EMA.
+         * @param fastEmaWind The fast wind speed EMA.
+         * @param slowEmaWind The slow wind speed EMA.
+         * @param lastTimestampMillis Time of the newest reading the EMAs have seen.
+         */
+        public State(
+                double fastEmaTemp,
+                double slowEmaTemp,
+                double fastEmaWind,
+                double slowEmaWind,
+                long lastTimestampMillis) {
+            this.fastEmaTemp = fastEmaTemp;
+            this.slowEmaTemp = slowEmaTemp;
+            this.fastEmaWind = fastEmaWind;
+            this.slowEmaWind = slowEmaWind;
+            this.lastTimestampMillis = lastTimestampMillis;
         }
     }
 
     private static final int HISTORY_SIZE = 60;
-    private static final double FAST_ALPHA = 0.5;
-    private static final double SLOW_ALPHA = 0.1;
 
-    private final List<WeatherData> recentHistory = new ArrayList<>();
+    /** Half-life of the fast EMAs; weight 0.5 per second. */
+    static final double FAST_HALF_LIFE_SECONDS = 1.0;
+
+    /** Half-life of the slow EMAs; weight 0.9 per second, i.e. ln(0.5) / ln(0.9) seconds. */
+    static final double SLOW_HALF_LIFE_SECONDS = 6.5788;
+
+    /** Span of the gust and lull, the usual averaging time of a gust report. */
+    static final long GUST_SPAN_MS = 3_000;
+
+    /** Span of the peak gust and lowest lull, and the longest the wind percentile reaches back. */
+    static final long PEAK_SPAN_MS = 10 * 60_000;
+
+    private final Parameters parameters;
+    private final HalfLifeDecay fastDecay;
+    private final HalfLifeDecay slowDecay;
+
+    /** Wind speeds of the last {@link #HISTORY_SIZE} readings, for their standard deviation. */
+    private final RollingStats recentWind;
+
+    private final MonotonicWindow gustWindow;
+    private final MonotonicWindow peakWindow;
+    private final WindowedQuantile windP90;
     private double fastEmaTemp = -1;
     private double slowEmaTemp = -1;
     private double fastEmaWind = -1;
     private double slowEmaWind = -1;
+    private long lastTimestamp;
+
+    // The step opened by the newest timestamp: the EMAs before it, its decay factors and the mean
+    // of its readings, so a reading with the same timestamp can join it
+    private double priorFastTemp;
+    private double priorSlowTemp;
+    private double priorFastWind;
+    private double priorSlowWind;
+    private double stepFastKeep;
+    private double stepSlowKeep;
+    private double stepTemp;
+    private double stepWind;
+    private int stepReadings;
 
     private boolean isEnabled = false;
     private double sensitivityFactor = 1.0;
 
     /** Required constructor for Dagger Hilt dependency injection. */
     @Inject
-    public ThermalAnalyzer() {}
+    public ThermalAnalyzer() {
+        this(Parameters.DEFAULT);
+    }
+
+    /**
+     * @param parameters The half-lives and thresholds to analyze with, e.g. from a backtest.
+     */
+    public ThermalAnalyzer(Parameters parameters) {
+        this(parameters, HISTORY_SIZE, GUST_SPAN_MS, PEAK_SPAN_MS);
+    }
+
+    /**
+     * @param historySize The number of recent readings the wind variability covers.
+     */
+    @VisibleForTesting
+    ThermalAnalyzer(int historySize) {
+        this(Parameters.DEFAULT, historySize, GUST_SPAN_MS, PEAK_SPAN_MS);
+    }
+
+    /**
+     * @param historySize The number of recent readings the wind variability covers.
+     * @param gustSpanMillis How far back the gust and lull reach.
+     * @param peakSpanMillis How far back the peak gust and lowest lull reach.
+     */
+    @VisibleForTesting
+    ThermalAnalyzer(int historySize, long gustSpanMillis, long peakSpanMillis) {
+        this(Parameters.DEFAULT, historySize, gustSpanMillis, peakSpanMillis);
+    }
+
+    private ThermalAnalyzer(
+            Parameters parameters, int historySize, long gustSpanMillis, long peakSpanMillis) {
+        this.parameters = parameters;
+        fastDecay = new HalfLifeDecay(parameters.fastHalfLifeSeconds);
+        slowDecay = new HalfLifeDecay(parameters.slowHalfLifeSeconds);
+        recentWind = new RollingStats(historySize);
+        gustWindow = new MonotonicWindow(gustSpanMillis);
+        peakWindow = new MonotonicWindow(peakSpanMillis);
+        windP90 = new WindowedQuantile(0.9, peakSpanMillis);
+    }
 
     /**
      * Enables or disables the thermal analysis logic. When disabled, the analyzer will always
@@ -92,14 +311,14 @@ public class ThermalAnalyzer {
 
         if (fastEmaTemp == -1) {
             initializeEma(current);
-            return new AnalysisResult(WeatherRepository.LaunchDecision.WAITING, 0, 0, 0);
+            return result(WeatherRepository.LaunchDecision.WAITING, 0, 0, 0);
         }
 
         updateEma(current);
 
         double tempDelta = fastEmaTemp - slowEmaTemp;
         double windDelta = fastEmaWind - slowEmaWind;
-        double stdDevWind = calculateWindStdDev();
+        double stdDevWind = recentWind.getStdDev();
 
         // Calculate score and decision
         int score = calculateScore(tempDelta, windDelta, stdDevWind, current.getWindSpeed());
@@ -109,18 +328,38 @@ public class ThermalAnalyzer {
 
         // If disabled, we still return the trends but suppress the "actionable" results
         if (!isEnabled) {
-            return new AnalysisResult(
-                    WeatherRepository.LaunchDecision.WAITING, tempDelta, windDelta, 0);
+            return result(WeatherRepository.LaunchDecision.WAITING, tempDelta, windDelta, 0);
         }
 
-        return new AnalysisResult(decision, tempDelta, windDelta, score);
+        return result(decision, tempDelta, windDelta, score);
     }
 
     private void updateHistory(WeatherData current) {
-        recentHistory.add(current);
-        if (recentHistory.size() > HISTORY_SIZE) {
-            recentHistory.remove(0);
-        }
+        updateHistory(current.getTimestamp().getTime(), current.getWindSpeed());
+    }
+
+    private void updateHistory(long timestamp, double wind) {
+        recentWind.add(wind);
+        gustWindow.add(timestamp, wind);
+        peakWindow.add(timestamp, wind);
+        windP90.add(timestamp, wind);
+    }
+
+    private AnalysisResult result(
+            WeatherRepository.LaunchDecision decision,
+            double tempDelta,
+            double windDelta,
+            int score) {
+        return new AnalysisResult(
+                decision,
+                tempDelta,
+                windDelta,
+                score,
+                gustWindow.getMax(),
+                gustWindow.getMin(),
+                peakWindow.getMax(),
+                peakWindow.getMin(),
+                windP90.getEstimate());
     }
 
     private void initializeEma(WeatherData current) {
@@ -128,30 +367,49 @@ public class ThermalAnalyzer {
         slowEmaTemp = current.getTemperature();
         fastEmaWind = current.getWindSpeed();
         slowEmaWind = current.getWindSpeed();
+        lastTimestamp = current.getTimestamp().getTime();
+        startStep(0, 0);
+        stepTemp = current.getTemperature();
+        stepWind = current.getWindSpeed();
+        stepReadings = 1;
     }
 
-    private void updateEma(WeatherData current) {
-        fastEmaTemp = (current.getTemperature() * FAST_ALPHA) + (fastEmaTemp * (1 - FAST_ALPHA));
-        slowEmaTemp = (current.getTemperature() * SLOW_ALPHA) + (slowEmaTemp * (1 - SLOW_ALPHA));
-        fastEmaWind = (current.getWindSpeed() * FAST_ALPHA) + (fastEmaWind * (1 - FAST_ALPHA));
-        slowEmaWind = (current.getWindSpeed() * SLOW_ALPHA) + (slowEmaWind * (1 - SLOW_ALPHA));
+    /** Opens a step from the current EMAs with the given decay factors and no readings yet. */
+    private void startStep(double fastKeep, double slowKeep) {
+        priorFastTemp = fastEmaTemp;
+        priorSlowTemp = slowEmaTemp;
+        priorFastWind = fastEmaWind;
+        priorSlowWind = slowEmaWind;
+        stepFastKeep = fastKeep;
+        stepSlowKeep = slowKeep;
+        stepTemp = 0;
+        stepWind = 0;
+        stepReadings = 0;
     }
 
-    private double calculateWindStdDev() {
-        if (recentHistory.isEmpty()) return 0;
-
-        double sumWind = 0;
-        for (WeatherData d : recentHistory) {
-            sumWind += d.getWindSpeed();
-        }
-        double avgWind = sumWind / recentHistory.size();
-
-        double sumSqDiff = 0;
-        for (WeatherData d : recentHistory) {
-            sumSqDiff += Math.pow(d.getWindSpeed() - avgWind, 2);
+    /**
+     * Decays the EMAs by the time since the previous reading. After a long gap the old averages
+     * have no weight left, so the trends restart from the current reading.
+     *
+     * <p>A reading no newer than the previous one joins the previous step: the step is applied
+     * again with the mean of its readings, and the clock does not move. Out-of-order readings are
+     * merged the same way.
+     */
+    private void updateEma(WeatherData current) {
+        long timestamp = current.getTimestamp().getTime();
+        long elapsed = timestamp - lastTimestamp;
+        if (elapsed > 0) {
+            lastTimestamp = timestamp;
+            startStep(fastDecay.retained(elapsed), slowDecay.retained(elapsed));
         }
-
-        return Math.sqrt(sumSqDiff / recentHistory.size());
+        stepReadings++;
+        stepTemp += (current.getTemperature() - stepTemp) / stepReadings;
+        stepWind += (current.getWindSpeed() - stepWind) / stepReadings;
+
+        fastEmaTemp = (stepTemp * (1 - stepFastKeep)) + (priorFastTemp * stepFastKeep);
+        slowEmaTemp = (stepTemp * (1 - stepSlowKeep)) + (priorSlowTemp * stepSlowKeep);
+        fastEmaWind = (stepWind * (1 - stepFastKeep)) + (priorFastWind * stepFastKeep);
+        slowEmaWind = (stepWind * (1 - stepSlowKeep)) + (priorSlowWind * stepSlowKeep);
     }
 
     private int calculateScore(
@@ -161,7 +419,7 @@ public class ThermalAnalyzer {
         if (windDelta < 0) score += Math.min(30, (Math.abs(windDelta) * 60));
         if (stdDevWind < 1.0) score += ((1.0 - Math.min(1.0, stdDevWind)) * 20);
         if (tempDelta < -0.1) score -= 30;
-        if (currentWind > 5.0) score -= 40;
+        if (currentWind > parameters.maxWindSpeed) score -= 40;
 
         // Apply user-defined sensitivity
         score *= sensitivityFactor;
@@ -170,15 +428,53 @@ public class ThermalAnalyzer {
     }
 
     private WeatherRepository.LaunchDecision determineDecision(int score, double tempDelta) {
-        if (score >= 70) return WeatherRepository.LaunchDecision.LAUNCH;
-        if (score >= 40) return WeatherRepository.LaunchDecision.POTENTIAL;
-        if (score < 20 || tempDelta < -0.05) return WeatherRepository.LaunchDecision.POOR;
+        if (score >= parameters.launchScore) return WeatherRepository.LaunchDecision.LAUNCH;
+        if (score >= parameters.potentialScore) return WeatherRepository.LaunchDecision.POTENTIAL;
+        if (score < parameters.poorScore || tempDelta < -0.05) {
+            return WeatherRepository.LaunchDecision.POOR;
+        }
         return WeatherRepository.LaunchDecision.WAITING;
     }
 
+    /**
+     * @return The averages so far, or null before the first reading.
+     */
+    @Nullable
+    public State getState() {
+        if (fastEmaTemp == -1) return null;
+        return new State(fastEmaTemp, slowEmaTemp, fastEmaWind, slowEmaWind, lastTimestamp);
+    }
+
+    /**
+     * Picks up where an earlier analyzer stopped, so the next reading is scored against converged
+     * averages instead of starting over at WAITING. The wind variability, gust and lull windows
+     * and the 90th percentile are rebuilt from the recent readings; the peak gust and lowest lull
+     * therefore reach back no further than those readings do. A reading no newer than the saved
+     * averages does not move them, as the step it belongs to was not saved.
+     *
+     * @param state The averages of the earlier analyzer, or null to only rebuild the windows.
+     * @param recent The readings of this node the earlier analyzer saw last, oldest first.
+     */
+    public void restore(@Nullable State state, WeatherSeries recent) {
+        reset();
+        for (int i = 0; i < recent.size(); i++) {
+            updateHistory(recent.getTimestampMillis(i), recent.getWindSpeed(i));
+        }
+        if (state == null) return;
+        fastEmaTemp = state.fastEmaTemp;
+        slowEmaTemp = state.slowEmaTemp;
+        fastEmaWind = state.fastEmaWind;
+        slowEmaWind = state.slowEmaWind;
+        lastTimestamp = state.lastTimestampMillis;
+        startStep(1, 1);
+    }
+
     /** Resets the analyzer state, clearing history and EMA values. */
     public void reset() {
-        recentHistory.clear();
+        recentWind.clear();
+        gustWindow.clear();
+        peakWindow.clear();
+        windP90.clear();
         fastEmaTemp = -1;
         slowEmaTemp = -1;
         fastEmaWind = -1;
@@ -0,0 +1,98 @@
+package com.kresshy.weatherstation.weather;
+
+/**
+ * A periodic temperature cycle found by the {@link ThermalCycleDetector}, with the predicted next
+ * thermal window: the warm half of the cycle, when the temperature is above its trend.
+ */
+public final class ThermalCycle {
+    private final long periodMillis;
+    private final double amplitude;
+    private final double phase;
+    private final double confidence;
+    private final long estimatedAtMillis;
+    private final long windowStartMillis;
+    private final long windowEndMillis;
+
+    /**
+     * @param periodMillis The cycle period.
+     * @param amplitude Half the peak-to-peak temperature swing, in degrees Celsius.
+     * @param phase Cycle phase at {@code estimatedAtMillis} in radians, in [-pi, pi); 0 is the
+     *     warmest point and -pi/2 the start of the warm half.
+     * @param confidence Share of the band's spectral power in the cycle, from 0 to 1.
+     * @param estimatedAtMillis Time the phase refers to, the middle of the newest sample.
+     * @param windowStartMillis Start of the current or next warm half of the cycle.
+     * @param windowEndMillis End of that warm half.
+     */
+    public ThermalCycle(
+            long periodMillis,
+            double amplitude,
+            double phase,
+            double confidence,
+            long estimatedAtMillis,
+            long windowStartMillis,
+            long windowEndMillis) {
+        this.periodMillis = periodMillis;
+        this.amplitude = amplitude;
+        this.phase = phase;
+        this.confidence = confidence;
+        this.estimatedAtMillis = estimatedAtMillis;
+        this.windowStartMillis = windowStartMillis;
+        this.windowEndMillis = windowEndMillis;
+    }
+
+    /**
+     * @return The cycle period in milliseconds.
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * @return Half the peak-to-peak temperature swing, in degrees Celsius.
+     */
+    public double getAmplitude() {
+        return amplitude;
+    }
+
+    /**
+     * @return Cycle phase at {@link #getEstimatedAtMillis()} in radians; 0 is the warmest point.
+     */
+    public double getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return Share of the band's spectral power in the cycle, from 0 to 1.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return The time the phase and window refer to, in epoch milliseconds.
+     */
+    public long getEstimatedAtMillis() {
+        return estimatedAtMillis;
+    }
+
+    /**
+     * @return Start of the current or next thermal window, in epoch milliseconds.
+     */
+    public long getWindowStartMillis() {
+        return windowStartMillis;
+    }
+
+    /**
+     * @return End of the current or next thermal window, in epoch milliseconds.
+     */
+    public long getWindowEndMillis() {
+        return windowEndMillis;
+    }
+
+    /**
+     * @return Whether the estimate falls inside a thermal window.
+     */
+    public boolean isInWindow() {
+        return windowStartMillis <= estimatedAtMillis;
+    }
+}
@@ -0,0 +1,268 @@
+package com.kresshy.weatherstation.weather;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Finds periodic temperature cycles of 1 to 15 minutes, the rhythm in which thermals build and
+ * release, and predicts the next thermal window. Fed with one mean temperature per {@link
+ * #SAMPLE_INTERVAL_MS}, it keeps a sliding discrete Fourier transform of the last {@link
+ * #WINDOW_SAMPLES} samples for just the frequency bins of that band. Each sample updates every bin
+ * in O(1), so a sample costs O(bins) regardless of the window length. To stop rounding errors from
+ * accumulating, the bins are recomputed exactly once per window, which adds the same cost again
+ * amortised.
+ *
+ * <p>The transform runs over the differences between consecutive samples. Their spectrum holds no
+ * trace of a steady warming or cooling trend, and dividing each bin by the transfer function of the
+ * difference, {@code 1 - e^(-i w)}, gives the exact spectrum of the window with the line through
+ * its end points removed. The strongest bin then yields the period, refined from its neighbours
+ * with Quinn's estimator, and the phase, measured at the middle of the window where the phase of a
+ * rectangular window is unbiased.
+ *
+ * <p>Nothing is allocated per sample. Instances are not thread-safe.
+ */
+public final class ThermalCycleDetector {
+
+    /** Time covered by one sample. */
+    public static final long SAMPLE_INTERVAL_MS = 10_000;
+
+    /** Samples in the analysis window: 30 minutes, two cycles of the longest period. */
+    static final int WINDOW_SAMPLES = 180;
+
+    /** Shortest and longest period looked for. */
+    static final long MIN_PERIOD_MS = 60_000;
+
+    static final long MAX_PERIOD_MS = 15 * 60_000;
+
+    /** Smallest share of the band's power the strongest cycle must hold to be reported. */
+    static final double MIN_CONFIDENCE = 0.5;
+
+    /** Smallest amplitude reported, in degrees Celsius; below this is sensor noise. */
+    static final double MIN_AMPLITUDE = 0.05;
+
+    private static final long NO_SAMPLE = Long.MIN_VALUE;
+
+    private static final long WINDOW_MILLIS = WINDOW_SAMPLES * SAMPLE_INTERVAL_MS;
+    private static final int MIN_BIN = (int) (WINDOW_MILLIS / MAX_PERIOD_MS);
+    private static final int MAX_BIN = (int) (WINDOW_MILLIS / MIN_PERIOD_MS);
+    private static final int BINS = MAX_BIN - MIN_BIN + 1;
+
+    /** {@code cos(2 pi j / N)} and {@code sin(2 pi j / N)} for the window length N. */
+    private final double[] cos = new double[WINDOW_SAMPLES];
+
+    private final double[] sin = new double[WINDOW_SAMPLES];
+
+    /** Transform of the differences, bin {@code MIN_BIN + b} at index b. */
+    private final double[] re = new double[BINS];
+
+    private final double[] im = new double[BINS];
+
+    /** Scratch space for the detrended spectrum. */
+    private final double[] trendFreeRe = new double[BINS];
+
+    private final double[] trendFreeIm = new double[BINS];
+    private final double[] power = new double[BINS];
+
+    /** Differences in a ring; {@code next} is the oldest once the ring is full. */
+    private final double[] differences = new double[WINDOW_SAMPLES];
+
+    private int next = 0;
+    private int filled = 0;
+    private int sinceRecompute = 0;
+
+    private double lastTemperature;
+    private long lastSampleMillis = NO_SAMPLE;
+
+    public ThermalCycleDetector() {
+        for (int j = 0; j < WINDOW_SAMPLES; j++) {
+            double angle = 2 * Math.PI * j / WINDOW_SAMPLES;
+            cos[j] = Math.cos(angle);
+            sin[j] = Math.sin(angle);
+        }
+    }
+
+    /**
+     * Adds the mean temperature of one sample interval. Samples at or before the last one are
+     * ignored. Missing samples are filled in by linear interpolation; after a gap longer than the
+     * window the detector starts over.
+     *
+     * @param sampleStartMillis Start of the interval, a multiple of {@link #SAMPLE_INTERVAL_MS}.
+     * @param temperature The mean temperature over the interval.
+     */
+    public void add(long sampleStartMillis, double temperature) {
+        if (lastSampleMillis != NO_SAMPLE) {
+            if (sampleStartMillis <= lastSampleMillis) return;
+            long elapsed = sampleStartMillis - lastSampleMillis;
+            long steps = Math.max(1, (elapsed + SAMPLE_INTERVAL_MS / 2) / SAMPLE_INTERVAL_MS);
+            if (steps > WINDOW_SAMPLES) {
+                reset();
+            } else {
+                double step = (temperature - lastTemperature) / steps;
+                for (long s = 0; s < steps; s++) push(step);
+            }
+        }
+        lastTemperature = temperature;
+        lastSampleMillis = sampleStartMillis;
+    }
+
+    /**
+     * @return The start of the newest sample, or {@link Long#MIN_VALUE} if there is none.
+     */
+    public long getLastSampleMillis() {
+        return lastSampleMillis;
+    }
+
+    /**
+     * Looks for the strongest cycle in the current window, in O(bins).
+     *
+     * @return The cycle and the next thermal window it predicts, or null if the window is not full
+     *     yet or no cycle stands out from the noise.
+     */
+    @Nullable
+    public ThermalCycle estimate() {
+        if (filled < WINDOW_SAMPLES) return null;
+
+        double total = 0;
+        int peak = 0;
+        for (int b = 0; b < BINS; b++) {
+            int k = MIN_BIN + b;
+            // Divide by 1 - e^(-i w) to undo the difference
+            double zRe = 1 - cos[k];
+            double zIm = sin[k];
+            double norm = zRe * zRe + zIm * zIm;
+            trendFreeRe[b] = (re[b] * zRe + im[b] * zIm) / norm;
+            trendFreeIm[b] = (im[b] * zRe - re[b] * zIm) / norm;
+            power[b] = trendFreeRe[b] * trendFreeRe[b] + trendFreeIm[b] * trendFreeIm[b];
+            total += power[b];
+            if (power[b] > power[peak]) peak = b;
+        }
+        if (total == 0) return null;
+
+        // A cycle between two bins spreads its power over the neighbouring bins
+        double cyclePower = power[peak];
+        if (peak > 0) cyclePower += power[peak - 1];
+        if (peak < BINS - 1) cyclePower += power[peak + 1];
+        double confidence = cyclePower / total;
+        double amplitude = 2 * Math.sqrt(cyclePower) / WINDOW_SAMPLES;
+        if (confidence < MIN_CONFIDENCE || amplitude < MIN_AMPLITUDE) return null;
+
+        double frequency = MIN_BIN + peak + binOffset(peak);
+        double periodMillis = WINDOW_MILLIS / frequency;
+
+        int k = MIN_BIN + peak;
+        double halfWindow = (WINDOW_SAMPLES - 1) / 2.0;
+        double centrePhase =
+                Math.atan2(trendFreeIm[peak], trendFreeRe[peak])
+                        + 2 * Math.PI * k * halfWindow / WINDOW_SAMPLES;
+        double phase =
+                wrap(centrePhase + 2 * Math.PI * frequency * halfWindow / WINDOW_SAMPLES);
+
+        long estimatedAt = lastSampleMillis + SAMPLE_INTERVAL_MS / 2;
+        double radiansPerMilli = 2 * Math.PI / periodMillis;
+        long windowStart;
+        long windowEnd;
+        if (phase >= -Math.PI / 2 && phase < Math.PI / 2) {
+            // Warmer than the trend now; the window lasts until the phase reaches pi/2
+            windowStart = estimatedAt;
+            windowEnd = estimatedAt + Math.round((Math.PI / 2 - phase) / radiansPerMilli);
+        } else {
+            double untilStart = wrap(-Math.PI / 2 - phase);
+            if (untilStart < 0) untilStart += 2 * Math.PI;
+            windowStart = estimatedAt + Math.round(untilStart / radiansPerMilli);
+            windowEnd = windowStart + Math.round(periodMillis / 2);
+        }
+        return new ThermalCycle(
+                Math.round(periodMillis),
+                amplitude,
+                phase,
+                confidence,
+                estimatedAt,
+                windowStart,
+                windowEnd);
+    }
+
+    /** Forgets all samples. */
+    public void reset() {
+        Arrays.fill(differences, 0);
+        Arrays.fill(re, 0);
+        Arrays.fill(im, 0);
+        next = 0;
+        filled = 0;
+        sinceRecompute = 0;
+        lastSampleMillis = NO_SAMPLE;
+    }
+
+    /** Slides the window by one difference, updating every bin in O(1). */
+    private void push(double difference) {
+        double evicted = differences[next];
+        differences[next] = difference;
+        next = next + 1 == WINDOW_SAMPLES ? 0 : next + 1;
+        if (filled < WINDOW_SAMPLES) filled++;
+
+        double delta = difference - evicted;
+        for (int b = 0; b < BINS; b++) {
+            int k = MIN_BIN + b;
+            // Rotate by e^(i w) so the oldest sample stays at position 0
+            double r = re[b] + delta;
+            double i = im[b];
+            re[b] = r * cos[k] - i * sin[k];
+            im[b] = r * sin[k] + i * cos[k];
+        }
+        if (++sinceRecompute == WINDOW_SAMPLES) recompute();
+    }
+
+    /** Recomputes every bin from the stored differences, discarding accumulated rounding errors. */
+    private void recompute() {
+        for (int b = 0; b < BINS; b++) {
+            int k = MIN_BIN + b;
+            double sumRe = 0;
+            double sumIm = 0;
+            int index = next;
+            int angle = 0;
+            for (int n = 0; n < WINDOW_SAMPLES; n++) {
+                sumRe += differences[index] * cos[angle];
+                sumIm -= differences[index] * sin[angle];
+                index = index + 1 == WINDOW_SAMPLES ? 0 : index + 1;
+                angle += k;
+                if (angle >= WINDOW_SAMPLES) angle -= WINDOW_SAMPLES;
+            }
+            re[b] = sumRe;
+            im[b] = sumIm;
+        }
+        sinceRecompute = 0;
+    }
+
+    /**
+     * Quinn's estimate of how far the cycle's frequency lies from the centre of its strongest bin,
+     * from the ratios of the neighbouring bins to it. Unlike interpolating the magnitudes, it is
+     * unbiased for the rectangular window of a plain DFT.
+     *
+     * @return The offset in bins, between -1 and 1.
+     */
+    private double binOffset(int peak) {
+        double peakPower = power[peak];
+        double below = 0;
+        double above = 0;
+        if (peak > 0) below = realRatio(peak - 1, peak, peakPower);
+        if (peak < BINS - 1) above = realRatio(peak + 1, peak, peakPower);
+        double fromBelow = below / (1 - below);
+        double fromAbove = -above / (1 - above);
+        return fromBelow > 0 && fromAbove > 0 ? fromAbove : fromBelow;
+    }
+
+    /** Real part of the ratio of two bins of the detrended spectrum. */
+    private double realRatio(int numerator, int denominator, double denominatorPower) {
+        return (trendFreeRe[numerator] * trendFreeRe[denominator]
+                        + trendFreeIm[numerator] * trendFreeIm[denominator])
+                / denominatorPower;
+    }
+
+    /** Wraps an angle into [-pi, pi). */
+    private static double wrap(double angle) {
+        double wrapped = angle % (2 * Math.PI);
+        if (wrapped >= Math.PI) wrapped -= 2 * Math.PI;
+        if (wrapped < -Math.PI) wrapped += 2 * Math.PI;
+        return wrapped;
+    }
+}
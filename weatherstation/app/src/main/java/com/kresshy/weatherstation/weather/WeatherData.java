@@ -44,10 +44,23 @@ public class WeatherData {
      * @param nodeId The unique identifier of the sensor node.
      */
     public WeatherData(double windSpeed, double temperature, int nodeId) {
+        this(windSpeed, temperature, nodeId, System.currentTimeMillis());
+    }
+
+    /**
+     * Initializes a new WeatherData instance for a specific sensor node with the time it was
+     * received at, rather than the time it is created at.
+     *
+     * @param windSpeed The wind speed in m/s.
+     * @param temperature The temperature in degrees Celsius.
+     * @param nodeId The unique identifier of the sensor node.
+     * @param timestampMillis The time the reading was received, in milliseconds since the epoch.
+     */
+    public WeatherData(double windSpeed, double temperature, int nodeId, long timestampMillis) {
         this.windSpeed = windSpeed;
         this.temperature = temperature;
         this.nodeId = nodeId;
-        this.timestamp = new Date();
+        this.timestamp = new Date(timestampMillis);
     }
 
     /**
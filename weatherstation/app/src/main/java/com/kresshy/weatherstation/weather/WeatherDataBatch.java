@@ -0,0 +1,51 @@
+package com.kresshy.weatherstation.weather;
+
+import java.util.ArrayList;
+
+/**
+ * Reusable, ordered container for the readings extracted from one receive buffer. The parser
+ * clears and refills the same instance for every buffer, so steady-state parsing does not allocate
+ * a new collection per message.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class WeatherDataBatch {
+
+    private final ArrayList<WeatherData> items = new ArrayList<>();
+
+    /** Removes all readings, keeping the allocated capacity. */
+    public void clear() {
+        items.clear();
+    }
+
+    /**
+     * Appends a reading to the end of the batch.
+     *
+     * @param weatherData The reading to add.
+     */
+    public void add(WeatherData weatherData) {
+        items.add(weatherData);
+    }
+
+    /**
+     * @return The number of readings in the batch.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return true if the batch holds no readings.
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * @param index Position of the reading, in receive order.
+     * @return The reading at that position.
+     */
+    public WeatherData get(int index) {
+        return items.get(index);
+    }
+}
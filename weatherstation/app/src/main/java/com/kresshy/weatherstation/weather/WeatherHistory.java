@@ -0,0 +1,244 @@
+package com.kresshy.weatherstation.weather;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Readings of an observation window stored column by column: a {@code long} timestamp, {@code
+ * float} wind speed and temperature, and {@code int} signal strength and node id, 24 bytes per
+ * reading instead of a {@link WeatherData} with its boxed {@link java.util.Date}.
+ *
+ * <p>Columns are split into pages of {@value #PAGE_SIZE} readings held in a power-of-two ring, so
+ * the store grows a page at a time and an 8-hour session at 10 Hz needs about 7 MB. Evicting old
+ * readings only moves the start of the window; a page whose readings have all been evicted is kept
+ * for reuse unless a snapshot has seen it.
+ *
+ * <p>{@link #snapshot()} hands out a {@link HistorySnapshot} that shares the pages instead of
+ * copying readings. Written slots never change and a shared page is never reused, so the snapshot
+ * can be read on another thread while this history keeps growing. The history cannot tell when the
+ * last snapshot of a page is gone, so a history that is snapshotted regularly, as the live window
+ * is on every update, allocates a fresh page of about 96 KB every {@value #PAGE_SIZE} appends,
+ * some seven minutes at 10 Hz, and leaves the evicted one to the garbage collector. Only a history
+ * that is never snapshotted appends without allocating once its window is full.
+ *
+ * <p>A reading timestamped before its predecessor is stored at the predecessor's time, which keeps
+ * the time column sorted for binary search. Instances are not thread-safe: appends, eviction and
+ * {@link #snapshot()} must be serialized by the owner.
+ */
+public final class WeatherHistory implements WeatherSeries {
+
+    static final int PAGE_SHIFT = 12;
+
+    /** Readings per page. */
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Memory taken by one reading across all columns. */
+    static final int BYTES_PER_READING = 8 + 4 + 4 + 4 + 4;
+
+    /** Pages indexed by page number modulo the length, which is a power of two. */
+    private Page[] pages = new Page[4];
+
+    /** Emptied page kept for the next append. */
+    private Page spare;
+
+    /** Sequence number of the oldest reading; sequence numbers never repeat. */
+    private long head = 0;
+
+    /** Sequence number the next reading will get. */
+    private long tail = 0;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Appends a reading.
+     *
+     * @param timestampMillis Time of the reading in epoch milliseconds.
+     * @param windSpeed The wind speed in m/s.
+     * @param temperature The temperature in degrees Celsius.
+     * @param rssi The signal strength in dBm, or 0 if unknown.
+     * @param nodeId The sensor node that sent the reading.
+     */
+    public void add(
+            long timestampMillis, double windSpeed, double temperature, int rssi, int nodeId) {
+        if (timestampMillis < lastTimestamp) timestampMillis = lastTimestamp;
+        lastTimestamp = timestampMillis;
+
+        Page page =
+                (tail & PAGE_MASK) == 0 ? startPage(tail >>> PAGE_SHIFT) : pages[slot(tail)];
+        int i = (int) tail & PAGE_MASK;
+        page.timestamps[i] = timestampMillis;
+        page.windSpeeds[i] = (float) windSpeed;
+        page.temperatures[i] = (float) temperature;
+        page.rssis[i] = rssi;
+        page.nodeIds[i] = nodeId;
+        tail++;
+    }
+
+    /**
+     * Appends a reading.
+     *
+     * @param data The reading.
+     */
+    public void add(WeatherData data) {
+        add(
+                data.getTimestamp().getTime(),
+                data.getWindSpeed(),
+                data.getTemperature(),
+                data.getRssi(),
+                data.getNodeId());
+    }
+
+    /**
+     * Drops readings taken before a point in time.
+     *
+     * @param cutoffMillis Time in epoch milliseconds; readings at this time or later are kept.
+     */
+    public void evictBefore(long cutoffMillis) {
+        int keep = indexAtOrAfter(cutoffMillis);
+        if (keep > 0) moveHead(head + keep);
+    }
+
+    /**
+     * Captures the current readings. Only page references are copied, so this is O(pages).
+     *
+     * @return A view that stays valid however this history changes afterwards.
+     */
+    public HistorySnapshot snapshot() {
+        int pageCount = getPageCount();
+        Page[] shared = new Page[pageCount];
+        long firstPage = head >>> PAGE_SHIFT;
+        for (int p = 0; p < pageCount; p++) {
+            Page page = pages[(int) (firstPage + p) & (pages.length - 1)];
+            page.shared = true;
+            shared[p] = page;
+        }
+        return new HistorySnapshot(shared, firstPage, head, tail);
+    }
+
+    /**
+     * @return The version of the newest reading: the number of readings ever appended.
+     */
+    public long getVersion() {
+        return tail;
+    }
+
+    /** Removes all readings. */
+    public void clear() {
+        moveHead(tail);
+        lastTimestamp = Long.MIN_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    @Override
+    public long getTimestampMillis(int index) {
+        long seq = sequence(index);
+        return pages[slot(seq)].timestamps[(int) seq & PAGE_MASK];
+    }
+
+    @Override
+    public float getWindSpeed(int index) {
+        long seq = sequence(index);
+        return pages[slot(seq)].windSpeeds[(int) seq & PAGE_MASK];
+    }
+
+    @Override
+    public float getTemperature(int index) {
+        long seq = sequence(index);
+        return pages[slot(seq)].temperatures[(int) seq & PAGE_MASK];
+    }
+
+    @Override
+    public int getRssi(int index) {
+        long seq = sequence(index);
+        return pages[slot(seq)].rssis[(int) seq & PAGE_MASK];
+    }
+
+    @Override
+    public int getNodeId(int index) {
+        long seq = sequence(index);
+        return pages[slot(seq)].nodeIds[(int) seq & PAGE_MASK];
+    }
+
+    @Override
+    public int indexAtOrAfter(long timestampMillis) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestampMillis(mid) < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The number of pages currently holding readings.
+     */
+    @VisibleForTesting
+    int getPageCount() {
+        if (tail == head) return 0;
+        return (int) (((tail - 1) >>> PAGE_SHIFT) - (head >>> PAGE_SHIFT)) + 1;
+    }
+
+    private long sequence(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        return head + index;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq >>> PAGE_SHIFT) & (pages.length - 1);
+    }
+
+    /** Puts a page in place for {@code pageNumber}, growing the ring if every slot is in use. */
+    private Page startPage(long pageNumber) {
+        long firstPage = head >>> PAGE_SHIFT;
+        int needed = (int) (pageNumber - firstPage) + 1;
+        if (needed > pages.length) {
+            int length = pages.length;
+            while (length < needed) length <<= 1;
+            Page[] grown = new Page[length];
+            for (long p = firstPage; p < pageNumber; p++) {
+                grown[(int) p & (length - 1)] = pages[(int) p & (pages.length - 1)];
+            }
+            pages = grown;
+        }
+        Page page = spare != null ? spare : new Page();
+        page.shared = false;
+        spare = null;
+        pages[(int) pageNumber & (pages.length - 1)] = page;
+        return page;
+    }
+
+    /** Advances the oldest reading and releases the pages left wholly behind it. */
+    private void moveHead(long newHead) {
+        for (long p = head >>> PAGE_SHIFT; p < newHead >>> PAGE_SHIFT; p++) {
+            int slot = (int) p & (pages.length - 1);
+            // A page seen by a snapshot is left to the garbage collector once the snapshot is gone
+            if (pages[slot] != null && !pages[slot].shared) spare = pages[slot];
+            pages[slot] = null;
+        }
+        head = newHead;
+    }
+
+    /** One page of every column. */
+    static final class Page {
+        final long[] timestamps = new long[PAGE_SIZE];
+        final float[] windSpeeds = new float[PAGE_SIZE];
+        final float[] temperatures = new float[PAGE_SIZE];
+        final int[] rssis = new int[PAGE_SIZE];
+        final int[] nodeIds = new int[PAGE_SIZE];
+
+        /** Set once a snapshot holds this page; it is then never reused. */
+        boolean shared;
+    }
+}
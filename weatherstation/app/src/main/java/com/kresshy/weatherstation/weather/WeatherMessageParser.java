@@ -2,20 +2,36 @@ package com.kresshy.weatherstation.weather;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.kresshy.weatherstation.connection.BinaryFrame;
 
 import timber.log.Timber;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
- * Parses raw string messages from the weather station into WeatherData objects. Supports both
- * modern JSON format and legacy space-separated formats.
+ * Parses raw string messages from the weather station into WeatherData objects. Supports the
+ * compact binary format, modern JSON format and legacy space-separated formats.
+ *
+ * <p>Messages are scanned in place: frame markers are located by index, JSON frames that follow
+ * the firmware schema are decoded by a {@link MeasurementJsonReader} and legacy frames by a
+ * single-pass tokenizer, so the common paths create no intermediate Strings. Gson is only used for
+ * documents the reader does not recognise. Binary frames ({@link Measurement#VERSION_BINARY}) are
+ * recognised by their sync word and read field by field.
  */
 @Singleton
 public class WeatherMessageParser {
 
+    private static final String WS_MARKER = "WS_";
+    private static final String START_MARKER = "start_";
+    private static final String END_MARKER = "_end";
+
     private final Gson gson;
+    private final MeasurementJsonReader jsonReader = new MeasurementJsonReader();
+    private final ByteCharSequence byteWindow = new ByteCharSequence();
 
     /**
      * Initializes the parser with a GSON instance for JSON processing.
@@ -30,13 +46,180 @@ public class WeatherMessageParser {
     /**
      * Parses a raw string message received from the hardware sensor. This method is the primary
      * entry point for converting raw communication into domain objects. It automatically handles
-     * protocol framing and supports both modern JSON and legacy formats.
+     * protocol framing and supports both modern JSON and legacy formats. For multi-node frames only
+     * the reading of node 0 is returned; use {@link #parseAll(String, long, WeatherDataBatch)} to
+     * receive every node. The reading is stamped with the current time.
      *
      * @param rawData The raw message string from the sensor.
      * @return A parsed WeatherData object, or null if parsing fails or data is invalid.
      */
     public WeatherData parse(String rawData) {
-        if (rawData == null || rawData.trim().isEmpty()) {
+        if (rawData == null) {
+            return null;
+        }
+        return parseMessage(rawData, 0, rawData.length(), System.currentTimeMillis(), null);
+    }
+
+    /**
+     * Parses a complete frame straight from a transport buffer, as delivered by {@link
+     * com.kresshy.weatherstation.connection.FrameDecoder}. Binary frames and ASCII frames are read
+     * from the bytes without creating a String; anything else is decoded and handed to {@link
+     * #parse(String)}.
+     *
+     * @param frame The buffer holding the frame, including its markers.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     * @return A parsed WeatherData object for node 0, or null if parsing fails or data is invalid.
+     */
+    public WeatherData parse(byte[] frame, int offset, int length) {
+        if (BinaryFrame.hasSyncWord(frame, offset, length)) {
+            return parseBinary(frame, offset, length, System.currentTimeMillis(), null);
+        }
+        if (!ByteCharSequence.isAscii(frame, offset, length)) {
+            return parse(new String(frame, offset, length, StandardCharsets.UTF_8));
+        }
+        synchronized (byteWindow) {
+            byteWindow.wrap(frame, offset, length);
+            try {
+                return parseMessage(byteWindow, 0, length, System.currentTimeMillis(), null);
+            } finally {
+                byteWindow.wrap(null, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Parses a complete frame straight from a transport buffer and appends the readings of every
+     * node it carries, in frame order.
+     *
+     * @param frame The buffer holding the frame, including its markers.
+     * @param offset Start of the frame within the buffer.
+     * @param length Length of the frame in bytes.
+     * @param timestampMillis The time the frame was received; every reading is stamped with it.
+     * @param out The container to fill; it is cleared first and may be reused between calls.
+     * @return {@code out}, for chaining.
+     */
+    public WeatherDataBatch parseAll(
+            byte[] frame, int offset, int length, long timestampMillis, WeatherDataBatch out) {
+        if (BinaryFrame.hasSyncWord(frame, offset, length)) {
+            out.clear();
+            parseBinary(frame, offset, length, timestampMillis, out);
+            return out;
+        }
+        if (!ByteCharSequence.isAscii(frame, offset, length)) {
+            return parseAll(
+                    new String(frame, offset, length, StandardCharsets.UTF_8),
+                    timestampMillis,
+                    out);
+        }
+        out.clear();
+        synchronized (byteWindow) {
+            byteWindow.wrap(frame, offset, length);
+            try {
+                parseMessage(byteWindow, 0, length, timestampMillis, out);
+            } finally {
+                byteWindow.wrap(null, 0, 0);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Extracts and parses every complete frame in a buffer, in the order they were received. A
+     * buffer holding a BLE notification burst or a backlog after a stall yields one entry per node
+     * of every frame; frames that fail to parse are skipped. A buffer without any complete frame is
+     * parsed like {@link #parse(String)}, so unframed legacy messages still produce a reading.
+     *
+     * @param rawData The raw buffer from the sensor.
+     * @param timestampMillis The time the buffer was received; every reading is stamped with it.
+     * @param out The container to fill; it is cleared first and may be reused between calls.
+     * @return {@code out}, for chaining.
+     */
+    public WeatherDataBatch parseAll(String rawData, long timestampMillis, WeatherDataBatch out) {
+        out.clear();
+        if (rawData == null) {
+            return out;
+        }
+
+        int length = rawData.length();
+        int frameSearchStart = 0;
+        boolean sawFrame = false;
+        int endIdx = rawData.indexOf(END_MARKER);
+        while (endIdx != -1) {
+            int frameEnd = endIdx + END_MARKER.length();
+            // The latest start marker before this end marker wins, as in FrameDecoder
+            int startIdx =
+                    Math.max(
+                            lastIndexOf(rawData, WS_MARKER, endIdx, frameSearchStart),
+                            lastIndexOf(rawData, START_MARKER, endIdx, frameSearchStart));
+            if (startIdx != -1) {
+                sawFrame = true;
+                parseMessage(rawData, startIdx, frameEnd, timestampMillis, out);
+            }
+            frameSearchStart = frameEnd;
+            endIdx = rawData.indexOf(END_MARKER, frameEnd);
+        }
+
+        if (!sawFrame) {
+            parseMessage(rawData, 0, length, timestampMillis, out);
+        }
+        return out;
+    }
+
+    /**
+     * Decodes a {@link BinaryFrame}. Frames with a bad checksum or an unknown version are dropped.
+     *
+     * @param timestampMillis The time the frame was received.
+     * @param out Receives the readings of every node; when null only node 0 is parsed.
+     * @return The reading of node 0 when {@code out} is null, otherwise null.
+     */
+    private static WeatherData parseBinary(
+            byte[] frame, int offset, int length, long timestampMillis, WeatherDataBatch out) {
+        if (!BinaryFrame.isValid(frame, offset, length)
+                || (frame[offset + BinaryFrame.VERSION_OFFSET] & 0xFF)
+                        != Measurement.VERSION_BINARY) {
+            Timber.w("Dropping invalid binary frame of %d bytes", length);
+            return null;
+        }
+
+        WeatherData nodeZero = null;
+        int nodeCount = frame[offset + BinaryFrame.NODE_COUNT_OFFSET] & 0xFF;
+        for (int i = 0; i < nodeCount; i++) {
+            int record = offset + BinaryFrame.HEADER_LENGTH + i * BinaryFrame.NODE_LENGTH;
+            int nodeId = frame[record + BinaryFrame.NODE_ID_OFFSET] & 0xFF;
+            if (out == null && nodeId != 0) continue;
+
+            WeatherData data =
+                    new WeatherData(
+                            BinaryFrame.readUint16(frame, record + BinaryFrame.WIND_SPEED_OFFSET)
+                                    / 100.0,
+                            BinaryFrame.readInt16(frame, record + BinaryFrame.TEMPERATURE_OFFSET)
+                                    / 100.0,
+                            nodeId,
+                            timestampMillis);
+            data.setRssi(frame[record + BinaryFrame.RSSI_OFFSET]);
+            if (out != null) {
+                out.add(data);
+            } else {
+                // The last record of node 0 wins, as in Measurement#getWeatherDataForNode
+                nodeZero = data;
+            }
+        }
+        return nodeZero;
+    }
+
+    /**
+     * Parses the message held in {@code rawData[from, to)}.
+     *
+     * @param timestampMillis The time the message was received.
+     * @param out Receives the readings of every node; when null only node 0 is parsed.
+     * @return The reading of node 0 when {@code out} is null, otherwise null.
+     */
+    private WeatherData parseMessage(
+            CharSequence rawData, int from, int to, long timestampMillis, WeatherDataBatch out) {
+        int trimmedStart = trimStart(rawData, from, to);
+        int trimmedEnd = trimEnd(rawData, trimmedStart, to);
+        if (trimmedStart == trimmedEnd) {
             return null;
         }
 
@@ -44,42 +227,95 @@ public class WeatherMessageParser {
         // The protocol uses "WS_{DATA}_end" or "start_{DATA}_end".
         // We find the last occurrences to handle cases where multiple frames or junk are in the
         // buffer.
-        String pdu = "";
-        int endIdx = rawData.lastIndexOf("_end");
+        int pduStart = from;
+        int pduEnd = from;
+        int endIdx = lastIndexOf(rawData, END_MARKER, to - END_MARKER.length(), from);
         if (endIdx != -1) {
-            int startIdx = rawData.lastIndexOf("WS_", endIdx);
+            int startIdx = lastIndexOf(rawData, WS_MARKER, endIdx, from);
             if (startIdx != -1) {
-                pdu = rawData.substring(startIdx + 3, endIdx);
+                pduStart = startIdx + WS_MARKER.length();
+                pduEnd = endIdx;
             } else {
-                startIdx = rawData.lastIndexOf("start_", endIdx);
+                startIdx = lastIndexOf(rawData, START_MARKER, endIdx, from);
                 if (startIdx != -1) {
-                    pdu = rawData.substring(startIdx + 6, endIdx);
+                    pduStart = startIdx + START_MARKER.length();
+                    pduEnd = endIdx;
                 }
             }
         }
 
-        pdu = pdu.trim();
-        if (pdu.isEmpty()) {
+        // Markers can overlap, as in "WS_end"; treat that as an empty frame
+        if (pduStart > pduEnd) pduStart = pduEnd;
+        pduStart = trimStart(rawData, pduStart, pduEnd);
+        pduEnd = trimEnd(rawData, pduStart, pduEnd);
+
+        if (pduStart == pduEnd) {
             // Fallback for extremely legacy formats that might lack framing
-            pdu =
-                    rawData.trim()
-                            .replace("WS_", "")
-                            .replace("start_", "")
-                            .replace("_end", "")
-                            .trim();
+            int unframedStart = skipLeadingMarker(rawData, trimmedStart, trimmedEnd);
+            int unframedEnd = skipTrailingMarker(rawData, unframedStart, trimmedEnd);
+            if (containsMarker(rawData, unframedStart, Math.min(unframedEnd + 1, trimmedEnd))) {
+                // Markers in the middle of the buffer: strip them exactly as before
+                String pdu =
+                        rawData.subSequence(trimmedStart, trimmedEnd)
+                                .toString()
+                                .replace(WS_MARKER, "")
+                                .replace(START_MARKER, "")
+                                .replace(END_MARKER, "")
+                                .trim();
+                return parsePdu(pdu, 0, pdu.length(), timestampMillis, out);
+            }
+            pduStart = trimStart(rawData, unframedStart, unframedEnd);
+            pduEnd = trimEnd(rawData, pduStart, unframedEnd);
         }
 
-        if (pdu.isEmpty()) return null;
+        return parsePdu(rawData, pduStart, pduEnd, timestampMillis, out);
+    }
 
-        try {
-            Timber.d("Parsing cleaned PDU: %s", pdu);
+    /**
+     * Parses a trimmed PDU without its frame markers.
+     *
+     * @param timestampMillis The time the PDU was received.
+     * @param out Receives the readings of every node; when null only node 0 is parsed.
+     * @return The reading of node 0 when {@code out} is null, otherwise null.
+     */
+    private WeatherData parsePdu(
+            CharSequence text, int start, int end, long timestampMillis, WeatherDataBatch out) {
+        if (start == end) return null;
 
+        try {
             // 2. Try JSON parsing (Modern format)
-            if (pdu.startsWith("{")) {
+            if (text.charAt(start) == '{') {
+                synchronized (jsonReader) {
+                    int count = jsonReader.read(text, start, end);
+                    if (out == null) {
+                        int index = jsonReader.lastIndexOfNode(0);
+                        if (index >= 0) return jsonReader.toWeatherData(index, timestampMillis);
+                    } else if (count > 0) {
+                        for (int i = 0; i < count; i++) {
+                            out.add(jsonReader.toWeatherData(i, timestampMillis));
+                        }
+                        return null;
+                    }
+                }
+                String pdu = text.subSequence(start, end).toString();
                 try {
                     Measurement measurement = gson.fromJson(pdu, Measurement.class);
-                    if (measurement != null && measurement.getWeatherDataForNode(0) != null) {
-                        return measurement.getWeatherDataForNode(0);
+                    if (out == null) {
+                        WeatherData data =
+                                measurement == null ? null : measurement.getWeatherDataForNode(0);
+                        if (data != null) {
+                            data.setTimestamp(new Date(timestampMillis));
+                            return data;
+                        }
+                    } else if (measurement != null
+                            && measurement.getMeasurements() != null
+                            && !measurement.getMeasurements().isEmpty()) {
+                        for (WeatherData data : measurement.getMeasurements()) {
+                            if (data == null) continue;
+                            data.setTimestamp(new Date(timestampMillis));
+                            out.add(data);
+                        }
+                        return null;
                     }
                 } catch (JsonSyntaxException e) {
                     Timber.w("Failed to parse JSON, falling back to legacy: %s", pdu);
@@ -87,52 +323,227 @@ public class WeatherMessageParser {
             }
 
             // 3. Fallback to legacy space-separated format
-            return parseLegacy(pdu);
+            WeatherData legacy = parseLegacy(text, start, end, timestampMillis);
+            if (out == null) return legacy;
+            if (legacy != null) out.add(legacy);
 
         } catch (Exception e) {
-            Timber.e(e, "Error parsing message: %s", rawData);
+            Timber.e(e, "Error parsing message: %s", text);
         }
 
         return null;
     }
 
-    /** Parses legacy format: "{windSpeed} {temperature}" or "{windSpeed} {temperature} {nodeId}" */
-    private WeatherData parseLegacy(String pdu) {
+    /**
+     * Parses legacy format: "{windSpeed} {temperature}" or "{windSpeed} {temperature} {nodeId}".
+     *
+     * <p>Tokens are separated by runs of whitespace, commas or semicolons, and only the first three
+     * are looked at. A leading delimiter yields an empty first token, which reads as 0. Because the
+     * comma is a delimiter, the firmware is expected to send dot decimals.
+     */
+    private WeatherData parseLegacy(
+            CharSequence text, int start, int end, long timestampMillis) {
         try {
-            // Split by any common delimiter: whitespace, comma, or semicolon.
-            // Note: If comma is used as a decimal separator in the locale,
-            // this regex will split the number. We rely on the heuristic that
-            // the firmware sends dot or space-separated values.
-            String[] parts = pdu.split("[\\s,;]+");
+            boolean leadingEmpty = start < end && isDelimiter(text.charAt(start));
+            int windStart = start;
+            int windEnd = start;
+            int tempStart = start;
+            int tempEnd = start;
+            int nodeStart = -1;
+            int nodeEnd = -1;
 
-            if (parts.length >= 2) {
-                double windSpeed = parseDoubleSafe(parts[0], 0.0);
-                double temperature = parseDoubleSafe(parts[1], 0.0);
+            int tokens = leadingEmpty ? 1 : 0;
+            int p = start;
+            while (tokens < 3) {
+                while (p < end && isDelimiter(text.charAt(p))) p++;
+                if (p == end) break;
+                int q = p;
+                while (q < end && !isDelimiter(text.charAt(q))) q++;
+                if (tokens == 0) {
+                    windStart = p;
+                    windEnd = q;
+                } else if (tokens == 1) {
+                    tempStart = p;
+                    tempEnd = q;
+                } else {
+                    nodeStart = p;
+                    nodeEnd = q;
+                }
+                tokens++;
+                p = q;
+            }
+
+            // A leading empty token only counts when a real token follows it
+            if (tokens >= 2) {
+                double windSpeed = parseDoubleSafe(text, windStart, windEnd, 0.0);
+                double temperature = parseDoubleSafe(text, tempStart, tempEnd, 0.0);
 
                 int nodeId = 0;
-                if (parts.length >= 3) {
-                    try {
-                        nodeId = Integer.parseInt(parts[2].trim());
-                    } catch (NumberFormatException ignored) {
-                    }
+                if (nodeStart != -1) {
+                    nodeId = parseIntSafe(text, nodeStart, nodeEnd, 0);
                 }
 
-                return new WeatherData(windSpeed, temperature, nodeId);
+                return new WeatherData(windSpeed, temperature, nodeId, timestampMillis);
             }
         } catch (Exception e) {
-            Timber.e(e, "Invalid legacy format: %s", pdu);
+            Timber.e(e, "Invalid legacy format: %s", text);
         }
         return null;
     }
 
-    private double parseDoubleSafe(String value, double defaultValue) {
-        if (value == null) return defaultValue;
+    /** Matches the delimiters of the former {@code [\s,;]+} split. */
+    private static boolean isDelimiter(char c) {
+        return c == ' '
+                || c == '\t'
+                || c == '\n'
+                || c == '\r'
+                || c == '\f'
+                || c == 0x0B
+                || c == ','
+                || c == ';';
+    }
+
+    /**
+     * Parses a plain decimal token such as "-3.25" in place. Other notations accepted by {@link
+     * Double#parseDouble(String)} (exponents, NaN, type suffixes) take the slower string path.
+     */
+    private double parseDoubleSafe(CharSequence text, int start, int end, double defaultValue) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (text.charAt(p) == '-' || text.charAt(p) == '+')) {
+            negative = text.charAt(p) == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        boolean seenDot = false;
+        for (; p < end; p++) {
+            char c = text.charAt(p);
+            if (c >= '0' && c <= '9') {
+                mantissa = Decimals.accumulate(mantissa, c, digits);
+                if (mantissa != 0 || digits != 0) digits++;
+                if (seenDot) scale++;
+                anyDigit = true;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break;
+            }
+        }
+
+        if (p == end && anyDigit && Decimals.isExact(digits, -scale)) {
+            double value = Decimals.toDouble(mantissa, -scale);
+            return negative ? -value : value;
+        }
+
+        String value = text.subSequence(start, end).toString();
         try {
-            // Handle both dot and comma as decimal separator
-            return Double.parseDouble(value.replace(',', '.'));
+            return Double.parseDouble(value);
         } catch (NumberFormatException e) {
             Timber.w("Failed to parse double in legacy message: %s", value);
             return defaultValue;
         }
     }
+
+    /** Parses a node id token in place, falling back to {@link Integer#parseInt(String)}. */
+    private static int parseIntSafe(CharSequence text, int start, int end, int defaultValue) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (text.charAt(p) == '-' || text.charAt(p) == '+')) {
+            negative = text.charAt(p) == '-';
+            p++;
+        }
+        long value = 0;
+        int digitsStart = p;
+        for (; p < end; p++) {
+            char c = text.charAt(p);
+            if (c < '0' || c > '9' || value > Integer.MAX_VALUE) break;
+            value = value * 10 + (c - '0');
+        }
+        if (p == end && p > digitsStart) {
+            if (negative) value = -value;
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return (int) value;
+        }
+
+        try {
+            return Integer.parseInt(text.subSequence(start, end).toString().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // --- Scanning helpers over CharSequence ---
+
+    private static int trimStart(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * Same contract as {@link String#lastIndexOf(String, int)}, but only matches starting at or
+     * after {@code lowerBound}.
+     */
+    private static int lastIndexOf(
+            CharSequence text, String target, int fromIndex, int lowerBound) {
+        int i = Math.min(fromIndex, text.length() - target.length());
+        for (; i >= lowerBound; i--) {
+            if (regionMatches(text, i, target)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence text, int offset, String target) {
+        if (offset < 0 || offset + target.length() > text.length()) return false;
+        for (int j = 0; j < target.length(); j++) {
+            if (text.charAt(offset + j) != target.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static int skipLeadingMarker(CharSequence text, int start, int end) {
+        if (start + WS_MARKER.length() <= end && regionMatches(text, start, WS_MARKER)) {
+            return start + WS_MARKER.length();
+        }
+        if (start + START_MARKER.length() <= end && regionMatches(text, start, START_MARKER)) {
+            return start + START_MARKER.length();
+        }
+        return start;
+    }
+
+    private static int skipTrailingMarker(CharSequence text, int start, int end) {
+        int markerStart = end - END_MARKER.length();
+        if (markerStart >= start && regionMatches(text, markerStart, END_MARKER)) {
+            return markerStart;
+        }
+        return end;
+    }
+
+    /**
+     * Checks a region for any frame marker. The region passed by the fallback extends one
+     * character into a stripped trailing marker, so that a marker ending in its underscore (as in
+     * "xWS_end") is still found.
+     */
+    private static boolean containsMarker(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if ((c == 'W' && i + WS_MARKER.length() <= end && regionMatches(text, i, WS_MARKER))
+                    || (c == 's'
+                            && i + START_MARKER.length() <= end
+                            && regionMatches(text, i, START_MARKER))
+                    || (c == '_'
+                            && i + END_MARKER.length() <= end
+                            && regionMatches(text, i, END_MARKER))) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
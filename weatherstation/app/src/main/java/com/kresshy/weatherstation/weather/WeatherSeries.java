@@ -0,0 +1,51 @@
+package com.kresshy.weatherstation.weather;
+
+/**
+ * Read access to a run of readings held column by column, oldest first. Readings are in arrival
+ * order and their timestamps never decrease, so positions can be looked up by time.
+ */
+public interface WeatherSeries {
+
+    /**
+     * @return The number of readings.
+     */
+    int size();
+
+    /**
+     * @param index Position in the series, 0 being the oldest reading.
+     * @return Time of the reading in epoch milliseconds.
+     */
+    long getTimestampMillis(int index);
+
+    /**
+     * @param index Position in the series, 0 being the oldest reading.
+     * @return The wind speed in m/s.
+     */
+    float getWindSpeed(int index);
+
+    /**
+     * @param index Position in the series, 0 being the oldest reading.
+     * @return The temperature in degrees Celsius.
+     */
+    float getTemperature(int index);
+
+    /**
+     * @param index Position in the series, 0 being the oldest reading.
+     * @return The signal strength in dBm, or 0 if unknown.
+     */
+    int getRssi(int index);
+
+    /**
+     * @param index Position in the series, 0 being the oldest reading.
+     * @return The sensor node that sent the reading.
+     */
+    int getNodeId(int index);
+
+    /**
+     * Finds the oldest reading taken at or after a point in time.
+     *
+     * @param timestampMillis Time in epoch milliseconds.
+     * @return Its position, or {@link #size()} if every reading is older.
+     */
+    int indexAtOrAfter(long timestampMillis);
+}
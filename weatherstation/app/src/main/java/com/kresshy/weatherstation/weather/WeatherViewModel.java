@@ -175,6 +175,15 @@ public class WeatherViewModel extends ViewModel {
         return weatherRepository.getThermalScore();
     }
 
+    /**
+     * Provides the periodic temperature cycle and the predicted next thermal window.
+     *
+     * @return Observable cycle; null while none is detected.
+     */
+    public LiveData<ThermalCycle> getThermalCycle() {
+        return weatherRepository.getThermalCycle();
+    }
+
     /**
      * Checks if the analytical engine for thermal detection is enabled.
      *
@@ -202,6 +211,26 @@ public class WeatherViewModel extends ViewModel {
         return weatherRepository.getHistoricalWeatherData();
     }
 
+    /**
+     * Provides the history as an immutable view over the stored readings, without copying them.
+     *
+     * @return A snapshot of the observation window, oldest reading first.
+     */
+    public HistorySnapshot getHistorySnapshot() {
+        return weatherRepository.getHistorySnapshot();
+    }
+
+    /**
+     * Provides the chart history as time buckets at the coarsest resolution that still yields
+     * {@code targetPoints} buckets.
+     *
+     * @param targetPoints The number of points the chart wants to draw.
+     * @return A snapshot of the buckets, oldest first.
+     */
+    public RollupSeries getRollupSeries(int targetPoints) {
+        return weatherRepository.getRollupSeries(targetPoints);
+    }
+
     /**
      * Provides an observable stream for transient UI notifications.
      *
@@ -0,0 +1,31 @@
+package com.kresshy.weatherstation;
+
+import org.junit.Assume;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Skips the tests of a benchmark class unless the build is run with {@code
+ * -D}{@value #PROPERTY}{@code =true}. Benchmarks run for seconds each and print measurements
+ * rather than guard behaviour, so the regular test run leaves them out. The check runs before any
+ * {@code @Before} method, so a skipped benchmark does not build its test data either.
+ */
+public final class BenchmarkRule implements TestRule {
+
+    /** System property that enables the benchmarks. */
+    public static final String PROPERTY = "weatherstation.benchmark";
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                Assume.assumeTrue(
+                        "Benchmarks disabled, run with -D" + PROPERTY + "=true",
+                        Boolean.getBoolean(PROPERTY));
+                base.evaluate();
+            }
+        };
+    }
+}
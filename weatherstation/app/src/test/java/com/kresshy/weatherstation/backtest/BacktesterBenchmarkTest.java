@@ -0,0 +1,93 @@
+package com.kresshy.weatherstation.backtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Measures how many analyzer steps per second a parameter sweep replays, sequentially and on the
+ * common fork/join pool, and projects the time of a 1,000-configuration sweep over a day of 10 Hz
+ * readings.
+ */
+public class BacktesterBenchmarkTest {
+
+    private static final long SESSION_MILLIS = 3_600_000;
+    private static final long INTERVAL_MILLIS = 100;
+    private static final long DAY_READINGS = 864_000;
+    private static final int DAY_CONFIGURATIONS = 1_000;
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int ROUNDS = 3;
+
+    private Backtester backtester;
+    private int readings;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        Session session =
+                SyntheticSessions.create(SESSION_MILLIS, INTERVAL_MILLIS, 600_000, 300_000);
+        readings = session.size();
+        backtester = new Backtester(Collections.singletonList(session), 300_000);
+    }
+
+    @Test
+    public void sweep_ReplaysADayOfConfigurationsInSeconds() {
+        // 2 x 4 x 2 x 2 x 2 = 64 configurations over an hour at 10 Hz
+        ParameterGrid grid =
+                new ParameterGrid(
+                        new double[] {0.8, 1.2},
+                        new double[] {0.5, 1.0, 1.5, 2.0},
+                        new double[] {5.0, 10.0},
+                        new int[] {60, 80},
+                        new int[] {30, 45});
+        long steps = (long) grid.size() * readings;
+
+        long bestSequential = Long.MAX_VALUE;
+        long bestParallel = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            int fires = 0;
+            for (int i = 0; i < grid.size(); i++) {
+                fires += backtester.evaluate(grid, i).getLaunch().getFires();
+            }
+            long sequential = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BacktestResult[] results = backtester.run(grid);
+            long parallel = System.nanoTime() - start;
+
+            int parallelFires = 0;
+            for (BacktestResult result : results) parallelFires += result.getLaunch().getFires();
+            assertEquals(fires, parallelFires);
+
+            if (round >= WARMUP_ROUNDS) {
+                bestSequential = Math.min(bestSequential, sequential);
+                bestParallel = Math.min(bestParallel, parallel);
+            }
+        }
+
+        double nanosPerStep = (double) bestSequential / steps;
+        double parallelNanosPerStep = (double) bestParallel / steps;
+        double daySeconds = parallelNanosPerStep * DAY_READINGS * DAY_CONFIGURATIONS / 1e9;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf(
+                "Backtester: %,d configurations x %,d readings%n", grid.size(), readings);
+        System.out.printf(
+                "  sequential %,6.1f ns/step   fork/join %,6.1f ns/step on %d cores%n",
+                nanosPerStep, parallelNanosPerStep, cores);
+        System.out.printf(
+                "  projected %,d configurations x 1 day at 10 Hz: %,.1f s%n",
+                DAY_CONFIGURATIONS, daySeconds);
+
+        // One analyzer step must stay well under a microsecond of a single core
+        assertTrue(nanosPerStep < 1_000);
+    }
+}
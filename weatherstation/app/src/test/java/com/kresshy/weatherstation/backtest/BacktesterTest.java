@@ -0,0 +1,209 @@
+package com.kresshy.weatherstation.backtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/** Tests for {@link Backtester}, {@link Session} and {@link DetectionStats}. */
+public class BacktesterTest {
+
+    private static final long HOUR = 3_600_000;
+    private static final long TOLERANCE_MILLIS = 300_000;
+
+    private static Session thermalsEveryHalfHour() {
+        return SyntheticSessions.create(2 * HOUR, 1000, HOUR / 2, 600_000);
+    }
+
+    private static ParameterGrid defaults(int... launchScores) {
+        return new ParameterGrid(
+                new double[] {1.0},
+                new double[] {1.0},
+                new double[] {6.5788},
+                launchScores,
+                new int[] {40});
+    }
+
+    /** Verifies that thermals announced by warming air and easing wind are found ahead. */
+    @Test
+    public void evaluate_DetectsThermalsBeforeTheyStart() {
+        Backtester backtester =
+                new Backtester(
+                        Collections.singletonList(thermalsEveryHalfHour()), TOLERANCE_MILLIS);
+
+        BacktestResult result = backtester.evaluate(defaults(70), 0);
+
+        assertEquals(3, result.getPotential().getEvents());
+        assertEquals(1.0, result.getPotential().getRecall(), 0.0);
+        assertEquals(1.0, result.getPotential().getPrecision(), 0.0);
+        assertTrue(result.getPotential().getMeanLeadMillis() > 0);
+        assertEquals(1.0, result.getLaunch().getRecall(), 0.0);
+        // POTENTIAL needs a lower score, so it cannot come later than LAUNCH
+        assertTrue(
+                result.getPotential().getMeanLeadMillis()
+                        >= result.getLaunch().getMeanLeadMillis());
+    }
+
+    /** Verifies that the launch threshold only changes when LAUNCH fires. */
+    @Test
+    public void evaluate_UnreachableLaunchScore_NeverFires() {
+        Backtester backtester =
+                new Backtester(
+                        Collections.singletonList(thermalsEveryHalfHour()), TOLERANCE_MILLIS);
+        ParameterGrid grid = defaults(70, 101);
+
+        BacktestResult reachable = backtester.evaluate(grid, 0);
+        BacktestResult unreachable = backtester.evaluate(grid, 1);
+
+        assertTrue(reachable.getLaunch().getFires() > 0);
+        assertEquals(0, unreachable.getLaunch().getFires());
+        assertEquals(0.0, unreachable.getLaunch().getRecall(), 0.0);
+        assertTrue(Double.isNaN(unreachable.getLaunch().getPrecision()));
+        assertEquals(
+                reachable.getPotential().toString(), unreachable.getPotential().toString());
+    }
+
+    /** Verifies that fires during an unlabelled thermal count as false alarms. */
+    @Test
+    public void evaluate_UnlabelledThermal_IsFalseAlarm() {
+        long start = SyntheticSessions.START_MILLIS + HOUR / 2;
+        Session session =
+                SyntheticSessions.create(
+                        HOUR,
+                        1000,
+                        new long[] {start},
+                        new long[] {start + 600_000},
+                        new long[0],
+                        new long[0]);
+        Backtester backtester =
+                new Backtester(Collections.singletonList(session), TOLERANCE_MILLIS);
+
+        DetectionStats potential = backtester.evaluate(defaults(70), 0).getPotential();
+
+        assertTrue(potential.getFires() > 0);
+        assertEquals(0, potential.getHits());
+        assertEquals(0.0, potential.getPrecision(), 0.0);
+        assertTrue(Double.isNaN(potential.getRecall()));
+        assertTrue(Double.isNaN(potential.getMeanLeadMillis()));
+    }
+
+    /** Verifies that a fire earlier than the tolerance before a thermal does not count. */
+    @Test
+    public void evaluate_FireBeforeTolerance_IsMissed() {
+        long start = SyntheticSessions.START_MILLIS + HOUR / 2;
+        long[] thermalStarts = {start};
+        long[] thermalEnds = {start + 600_000};
+        // Label the thermal well after the readings show it
+        long[] labelStarts = {start + 2 * TOLERANCE_MILLIS};
+        long[] labelEnds = {start + 3 * TOLERANCE_MILLIS};
+        Session session =
+                SyntheticSessions.create(
+                        HOUR, 1000, thermalStarts, thermalEnds, labelStarts, labelEnds);
+        Backtester backtester =
+                new Backtester(Collections.singletonList(session), TOLERANCE_MILLIS);
+
+        DetectionStats potential = backtester.evaluate(defaults(70), 0).getPotential();
+
+        assertEquals(1, potential.getEvents());
+        assertEquals(0, potential.getDetectedEvents());
+        assertEquals(0.0, potential.getRecall(), 0.0);
+    }
+
+    /** Verifies that the statistics of several sessions add up. */
+    @Test
+    public void evaluate_CombinesSessions() {
+        Session session = thermalsEveryHalfHour();
+        Backtester single = new Backtester(Collections.singletonList(session), TOLERANCE_MILLIS);
+        Backtester both = new Backtester(Arrays.asList(session, session), TOLERANCE_MILLIS);
+
+        DetectionStats once = single.evaluate(defaults(70), 0).getLaunch();
+        DetectionStats twice = both.evaluate(defaults(70), 0).getLaunch();
+
+        assertEquals(2 * once.getFires(), twice.getFires());
+        assertEquals(2 * once.getEvents(), twice.getEvents());
+        assertEquals(once.getMeanLeadMillis(), twice.getMeanLeadMillis(), 1e-9);
+    }
+
+    /** Verifies that the parallel sweep gives the same results as evaluating one by one. */
+    @Test
+    public void run_MatchesSequentialEvaluation() {
+        Backtester backtester =
+                new Backtester(
+                        Collections.singletonList(
+                                SyntheticSessions.create(HOUR, 1000, HOUR / 4, 300_000)),
+                        TOLERANCE_MILLIS);
+        ParameterGrid grid =
+                new ParameterGrid(
+                        new double[] {0.8, 1.2},
+                        new double[] {0.5, 1.0, 2.0},
+                        new double[] {5.0, 10.0},
+                        new int[] {60, 80},
+                        new int[] {30, 45});
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        BacktestResult[] results;
+        try {
+            results = backtester.run(grid, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(grid.size(), results.length);
+        for (int i = 0; i < grid.size(); i++) {
+            BacktestResult expected = backtester.evaluate(grid, i);
+            assertEquals(i, results[i].getIndex());
+            assertEquals(expected.toString(), results[i].toString());
+        }
+    }
+
+    /** Verifies that a session copies the readings and events it is given. */
+    @Test
+    public void session_CopiesReadings() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(1000, 3.0, 20.0, 0, 1);
+        history.add(2000, 2.5, 20.5, 0, 1);
+        long[] starts = {1500};
+        Session session = new Session(history, starts, new long[] {1800});
+        history.add(3000, 2.0, 21.0, 0, 1);
+        starts[0] = 0;
+
+        assertEquals(2, session.size());
+        assertEquals(1, session.getEventCount());
+        assertEquals(2000, session.getTimestampMillis(1));
+        assertEquals(2.5f, session.getWindSpeed(1), 0f);
+        assertEquals(20.5f, session.getTemperature(1), 0f);
+        assertEquals(1500, session.getEventStartMillis(0));
+    }
+
+    /** Verifies that events out of order are rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void session_UnorderedEvents_Throws() {
+        new Session(new WeatherHistory(), new long[] {2000, 1000}, new long[] {3000, 1500});
+    }
+
+    /** Verifies that an event ending before it starts is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void session_EventEndingBeforeStart_Throws() {
+        new Session(new WeatherHistory(), new long[] {2000}, new long[] {1000});
+    }
+
+    /** Verifies that unmatched event starts and ends are rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void session_MismatchedEvents_Throws() {
+        new Session(new WeatherHistory(), new long[] {1000, 2000}, new long[] {1500});
+    }
+
+    /** Verifies that a negative tolerance is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_NegativeTolerance_Throws() {
+        List<Session> none = Collections.emptyList();
+        new Backtester(none, -1);
+    }
+}
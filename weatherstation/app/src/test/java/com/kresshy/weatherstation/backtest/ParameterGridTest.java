@@ -0,0 +1,80 @@
+package com.kresshy.weatherstation.backtest;
+
+import static org.junit.Assert.assertEquals;
+
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+
+import org.junit.Test;
+
+/** Tests for {@link ParameterGrid}. */
+public class ParameterGridTest {
+
+    private final ParameterGrid grid =
+            new ParameterGrid(
+                    new double[] {0.5, 1.0},
+                    new double[] {1.0, 2.0, 3.0},
+                    new double[] {10.0},
+                    new int[] {60, 70},
+                    new int[] {30, 40, 50});
+
+    /** Verifies that the grid holds every combination. */
+    @Test
+    public void size_IsProductOfDimensions() {
+        assertEquals(2 * 3 * 1 * 2 * 3, grid.size());
+    }
+
+    /** Verifies that the last dimension varies fastest and the sensitivity slowest. */
+    @Test
+    public void getParameters_DecodesIndexInOrder() {
+        ThermalAnalyzer.Parameters first = grid.getParameters(0);
+        assertEquals(1.0, first.fastHalfLifeSeconds, 0.0);
+        assertEquals(10.0, first.slowHalfLifeSeconds, 0.0);
+        assertEquals(60, first.launchScore);
+        assertEquals(30, first.potentialScore);
+
+        assertEquals(40, grid.getParameters(1).potentialScore);
+        assertEquals(70, grid.getParameters(3).launchScore);
+        assertEquals(30, grid.getParameters(3).potentialScore);
+        assertEquals(2.0, grid.getParameters(6).fastHalfLifeSeconds, 0.0);
+
+        ThermalAnalyzer.Parameters last = grid.getParameters(grid.size() - 1);
+        assertEquals(3.0, last.fastHalfLifeSeconds, 0.0);
+        assertEquals(70, last.launchScore);
+        assertEquals(50, last.potentialScore);
+    }
+
+    /** Verifies that the sensitivity changes once every other dimension has been swept. */
+    @Test
+    public void getSensitivity_DecodesSlowestDimension() {
+        assertEquals(0.5, grid.getSensitivity(0), 0.0);
+        assertEquals(0.5, grid.getSensitivity(17), 0.0);
+        assertEquals(1.0, grid.getSensitivity(18), 0.0);
+        assertEquals(1.0, grid.getSensitivity(35), 0.0);
+    }
+
+    /** Verifies that the settings not swept keep their defaults. */
+    @Test
+    public void getParameters_KeepsDefaultsOfFixedSettings() {
+        ThermalAnalyzer.Parameters parameters = grid.getParameters(5);
+        assertEquals(ThermalAnalyzer.Parameters.DEFAULT.poorScore, parameters.poorScore);
+        assertEquals(
+                ThermalAnalyzer.Parameters.DEFAULT.maxWindSpeed, parameters.maxWindSpeed, 0.0);
+    }
+
+    /** Verifies that an index outside the grid is rejected. */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getParameters_IndexOutOfRange_Throws() {
+        grid.getParameters(grid.size());
+    }
+
+    /** Verifies that a dimension without candidates is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_EmptyDimension_Throws() {
+        new ParameterGrid(
+                new double[] {1.0},
+                new double[0],
+                new double[] {10.0},
+                new int[] {70},
+                new int[] {40});
+    }
+}
@@ -0,0 +1,87 @@
+package com.kresshy.weatherstation.backtest;
+
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+/**
+ * Builds sessions with thermals of a known shape: a few minutes before every labelled thermal the
+ * temperature starts to climb and the wind eases, both level off while the thermal lasts and
+ * recover slowly afterwards.
+ */
+final class SyntheticSessions {
+
+    static final long START_MILLIS = 1_700_000_000_000L;
+
+    /** How long before the labelled start the air begins to warm. */
+    static final long WARMING_LEAD_MILLIS = 60_000;
+
+    private static final long WARMING_MILLIS = 240_000;
+    private static final long RECOVERY_MILLIS = 600_000;
+    private static final double BASE_TEMPERATURE = 20.0;
+    private static final double BASE_WIND = 4.0;
+    private static final double WARMING_RATE = 0.03 / 1000;
+    private static final double EASING_RATE = 0.01 / 1000;
+
+    private SyntheticSessions() {}
+
+    /**
+     * @param durationMillis Length of the session.
+     * @param intervalMillis Time between readings.
+     * @param eventEvery Time between the starts of the thermals, the first one starting after
+     *     one period.
+     * @param eventLength Length of each thermal.
+     * @return The session.
+     */
+    static Session create(
+            long durationMillis, long intervalMillis, long eventEvery, long eventLength) {
+        int events = (int) ((durationMillis - eventLength) / eventEvery);
+        long[] starts = new long[events];
+        long[] ends = new long[events];
+        for (int e = 0; e < events; e++) {
+            starts[e] = START_MILLIS + (e + 1) * eventEvery;
+            ends[e] = starts[e] + eventLength;
+        }
+        return create(durationMillis, intervalMillis, starts, ends, starts, ends);
+    }
+
+    /**
+     * @param durationMillis Length of the session.
+     * @param intervalMillis Time between readings.
+     * @param thermalStarts Start of every thermal in the readings.
+     * @param thermalEnds End of every thermal in the readings.
+     * @param labelStarts Start of every labelled thermal.
+     * @param labelEnds End of every labelled thermal.
+     * @return The session.
+     */
+    static Session create(
+            long durationMillis,
+            long intervalMillis,
+            long[] thermalStarts,
+            long[] thermalEnds,
+            long[] labelStarts,
+            long[] labelEnds) {
+        WeatherHistory history = new WeatherHistory();
+        for (long t = START_MILLIS; t < START_MILLIS + durationMillis; t += intervalMillis) {
+            double lift = 0;
+            for (int e = 0; e < thermalStarts.length; e++) {
+                lift = Math.max(lift, lift(t, thermalStarts[e], thermalEnds[e]));
+            }
+            double ripple = 0.05 * Math.sin(t / 7_000.0);
+            history.add(
+                    t,
+                    BASE_WIND - lift * EASING_RATE + ripple,
+                    BASE_TEMPERATURE + lift * WARMING_RATE,
+                    0,
+                    1);
+        }
+        return new Session(history, labelStarts, labelEnds);
+    }
+
+    /** Milliseconds of warming that have built up by a time. */
+    private static double lift(long t, long start, long end) {
+        long warmingStart = start - WARMING_LEAD_MILLIS;
+        if (t < warmingStart) return 0;
+        double peak = Math.min(WARMING_MILLIS, end - warmingStart);
+        if (t <= end) return Math.min(t - warmingStart, peak);
+        return Math.max(0, peak * (1 - (double) (t - end) / RECOVERY_MILLIS));
+    }
+}
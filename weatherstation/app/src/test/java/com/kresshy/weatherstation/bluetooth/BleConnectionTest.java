@@ -4,7 +4,13 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Build;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -15,18 +21,34 @@ import com.kresshy.weatherstation.connection.HardwareEventListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = Build.VERSION_CODES.S)
 public class BleConnectionTest {
 
+    private static final UUID NUS_SERVICE_UUID =
+            UUID.fromString("6e400001-b5a3-f393-e0a9-e50e24dcca9e");
+    private static final UUID NUS_RX_UUID = UUID.fromString("6e400003-b5a3-f393-e0a9-e50e24dcca9e");
+    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
     private Context context;
     @Mock private HardwareEventListener listener;
     @Mock private BluetoothDevice bluetoothDevice;
+    @Mock private SharedPreferences sharedPreferences;
+    @Mock private BluetoothGatt gatt;
+    @Mock private BluetoothGattService uartService;
+    @Mock private BluetoothGattCharacteristic rxCharacteristic;
+    @Mock private BluetoothGattDescriptor cccd;
 
     private BleConnection bleConnection;
 
@@ -34,7 +56,7 @@ public class BleConnectionTest {
     public void setUp() {
         MockitoAnnotations.openMocks(this);
         context = ApplicationProvider.getApplicationContext();
-        bleConnection = new BleConnection(context);
+        bleConnection = new BleConnection(context, sharedPreferences);
     }
 
     @Test
@@ -51,4 +73,81 @@ public class BleConnectionTest {
         assertEquals(ConnectionState.stopped, bleConnection.getState());
         verify(listener).onConnectionStateChange(ConnectionState.stopped);
     }
+
+    @Test
+    public void throughputMode_NegotiatesLinkBeforeEnablingNotifications() {
+        when(sharedPreferences.getBoolean("pref_ble_throughput_mode", false)).thenReturn(true);
+        when(gatt.requestMtu(BleConnection.THROUGHPUT_MTU)).thenReturn(true);
+        BluetoothGattCallback callback = connect();
+
+        callback.onServicesDiscovered(gatt, BluetoothGatt.GATT_SUCCESS);
+
+        verify(gatt).requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+        verify(gatt).requestMtu(BleConnection.THROUGHPUT_MTU);
+        verify(gatt, never()).writeDescriptor(any(BluetoothGattDescriptor.class));
+
+        callback.onMtuChanged(gatt, 247, BluetoothGatt.GATT_SUCCESS);
+
+        assertEquals(247, bleConnection.getMtu());
+        InOrder inOrder = inOrder(gatt);
+        inOrder.verify(gatt).requestMtu(BleConnection.THROUGHPUT_MTU);
+        inOrder.verify(gatt).writeDescriptor(cccd);
+    }
+
+    @Test
+    public void throughputMode_MtuRequestRejected_EnablesNotificationsAtDefaultMtu() {
+        when(sharedPreferences.getBoolean("pref_ble_throughput_mode", false)).thenReturn(true);
+        when(gatt.requestMtu(anyInt())).thenReturn(false);
+        BluetoothGattCallback callback = connect();
+
+        callback.onServicesDiscovered(gatt, BluetoothGatt.GATT_SUCCESS);
+
+        verify(gatt).writeDescriptor(cccd);
+        assertEquals(BleConnection.DEFAULT_MTU, bleConnection.getMtu());
+    }
+
+    @Test
+    public void defaultMode_EnablesNotificationsWithoutTouchingTheLink() {
+        BluetoothGattCallback callback = connect();
+
+        callback.onServicesDiscovered(gatt, BluetoothGatt.GATT_SUCCESS);
+
+        verify(gatt, never()).requestMtu(anyInt());
+        verify(gatt, never()).requestConnectionPriority(anyInt());
+        verify(gatt).writeDescriptor(cccd);
+    }
+
+    @Test
+    public void notifications_AreDecodedAndCounted() {
+        BluetoothGattCallback callback = connect();
+        byte[] first = "WS_{\"version\":2".getBytes(StandardCharsets.US_ASCII);
+        byte[] second = "}_end".getBytes(StandardCharsets.US_ASCII);
+
+        callback.onCharacteristicChanged(gatt, rxCharacteristic, first);
+        callback.onCharacteristicChanged(gatt, rxCharacteristic, second);
+
+        verify(listener)
+                .onFrameReceived(any(byte[].class), eq(0), eq(first.length + second.length));
+        assertEquals(2, bleConnection.getNotificationsReceived());
+        assertEquals(first.length + second.length, bleConnection.getBytesReceived());
+    }
+
+    /** Connects to the mocked device and returns the GATT callback handed to the stack. */
+    private BluetoothGattCallback connect() {
+        Shadows.shadowOf((android.app.Application) context)
+                .grantPermissions(android.Manifest.permission.BLUETOOTH_CONNECT);
+        ArgumentCaptor<BluetoothGattCallback> callback =
+                ArgumentCaptor.forClass(BluetoothGattCallback.class);
+        when(bluetoothDevice.connectGatt(any(Context.class), eq(false), callback.capture()))
+                .thenReturn(gatt);
+        when(gatt.getDevice()).thenReturn(bluetoothDevice);
+        when(bluetoothDevice.getAddress()).thenReturn("00:11:22:33:44:55");
+        when(gatt.getService(NUS_SERVICE_UUID)).thenReturn(uartService);
+        when(uartService.getCharacteristic(NUS_RX_UUID)).thenReturn(rxCharacteristic);
+        when(rxCharacteristic.getDescriptor(CCCD_UUID)).thenReturn(cccd);
+
+        bleConnection.start(listener);
+        bleConnection.connect(bluetoothDevice, listener);
+        return callback.getValue();
+    }
 }
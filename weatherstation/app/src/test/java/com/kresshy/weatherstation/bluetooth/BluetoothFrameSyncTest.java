@@ -1,73 +1,117 @@
 package com.kresshy.weatherstation.bluetooth;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import com.kresshy.weatherstation.connection.FrameDecoder;
+
+import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Unit test for Bluetooth frame synchronization logic. This tests the logic extracted from
- * BluetoothConnection.ConnectedRunnable.
+ * Unit test for Bluetooth frame synchronization. Drives the shared {@link FrameDecoder} used by
+ * both the RFCOMM and BLE transports.
  */
 public class BluetoothFrameSyncTest {
 
-    private String endMarker = "_end";
+    private List<String> receivedFrames;
+    private FrameDecoder decoder;
+
+    @Before
+    public void setUp() {
+        receivedFrames = new ArrayList<>();
+        decoder =
+                new FrameDecoder(
+                        64,
+                        (frame, offset, length) ->
+                                receivedFrames.add(
+                                        new String(
+                                                frame, offset, length, StandardCharsets.UTF_8)));
+    }
 
     @Test
     public void frameSync_WithLeadingJunk_ExtractsCorrectFrames() {
-        StringBuilder curMsg = new StringBuilder();
-        List<String> receivedFrames = new ArrayList<>();
-
         // Simulate incoming data with junk and multiple frames
-        String incomingData = "31\n30\nstart_5.5 22.2_endWS_{\"temp\":25}_endjunk";
-        curMsg.append(incomingData);
-
-        processBuffer(curMsg, receivedFrames);
+        feed("31\n30\nstart_5.5 22.2_endWS_{\"temp\":25}_endjunk");
 
         assertEquals(2, receivedFrames.size());
         assertEquals("start_5.5 22.2_end", receivedFrames.get(0));
         assertEquals("WS_{\"temp\":25}_end", receivedFrames.get(1));
-        assertEquals("junk", curMsg.toString());
+        assertFalse(decoder.isInFrame());
     }
 
     @Test
     public void frameSync_PartialFrames_WaitUntilComplete() {
-        StringBuilder curMsg = new StringBuilder();
-        List<String> receivedFrames = new ArrayList<>();
-
-        curMsg.append("junk_start_1.0");
-        processBuffer(curMsg, receivedFrames);
+        feed("junk_start_1.0");
         assertEquals(0, receivedFrames.size());
 
-        curMsg.append(" 20.0_en");
-        processBuffer(curMsg, receivedFrames);
+        feed(" 20.0_en");
         assertEquals(0, receivedFrames.size());
 
-        curMsg.append("d");
-        processBuffer(curMsg, receivedFrames);
+        feed("d");
         assertEquals(1, receivedFrames.size());
         assertEquals("start_1.0 20.0_end", receivedFrames.get(0));
-        assertEquals("", curMsg.toString());
+        assertFalse(decoder.isInFrame());
+    }
+
+    @Test
+    public void frameSync_MarkersSplitAcrossChunks_AreRecognised() {
+        feed("W");
+        feed("S");
+        feed("_1.0 2.0_");
+        feed("e");
+        feed("nd");
+
+        assertEquals(1, receivedFrames.size());
+        assertEquals("WS_1.0 2.0_end", receivedFrames.get(0));
+    }
+
+    @Test
+    public void frameSync_LatestStartMarkerWins() {
+        feed("WS_broken start_3.0 4.0_end");
+
+        assertEquals(1, receivedFrames.size());
+        assertEquals("start_3.0 4.0_end", receivedFrames.get(0));
+    }
+
+    @Test
+    public void frameSync_EndWithoutStart_IsDiscarded() {
+        feed("noise_endWS_1.0_end");
+
+        assertEquals(1, receivedFrames.size());
+        assertEquals("WS_1.0_end", receivedFrames.get(0));
+    }
+
+    @Test
+    public void frameSync_OversizedFrame_IsDroppedAndCounted() {
+        StringBuilder longFrame = new StringBuilder("WS_");
+        for (int i = 0; i < 100; i++) longFrame.append('x');
+        feed(longFrame.append("_end").toString());
+        feed("WS_ok_end");
+
+        assertEquals(1, decoder.getOverflowCount());
+        assertEquals(1, receivedFrames.size());
+        assertEquals("WS_ok_end", receivedFrames.get(0));
+    }
+
+    @Test
+    public void frameSync_Reset_DiscardsPartialFrame() {
+        feed("WS_1.0");
+        assertTrue(decoder.isInFrame());
+
+        decoder.reset();
+        feed(" 2.0_end");
+
+        assertEquals(0, receivedFrames.size());
     }
 
-    /** Logic extracted from BluetoothConnection.ConnectedRunnable.run() */
-    private void processBuffer(StringBuilder curMsg, List<String> output) {
-        int endIdx = curMsg.indexOf(endMarker);
-        while (endIdx != -1) {
-            int startWS = curMsg.lastIndexOf("WS_", endIdx);
-            int startLegacy = curMsg.lastIndexOf("start_", endIdx);
-            int startIdx = Math.max(startWS, startLegacy);
-
-            if (startIdx != -1) {
-                String fullMessage = curMsg.substring(startIdx, endIdx + endMarker.length());
-                output.add(fullMessage);
-                curMsg.delete(0, endIdx + endMarker.length());
-            } else {
-                curMsg.delete(0, endIdx + endMarker.length());
-            }
-            endIdx = curMsg.indexOf(endMarker);
-        }
+    private void feed(String chunk) {
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        decoder.feed(bytes, 0, bytes.length);
     }
 }
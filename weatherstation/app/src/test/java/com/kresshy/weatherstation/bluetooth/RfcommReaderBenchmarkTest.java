@@ -0,0 +1,116 @@
+package com.kresshy.weatherstation.bluetooth;
+
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares end-to-end frame latency and idle wakeups of the blocking RFCOMM reader against the
+ * legacy polling loop.
+ */
+public class RfcommReaderBenchmarkTest {
+
+    private static final int FRAMES = 40;
+    private static final long FRAME_GAP_MS = 37; // Not a divisor of the poll interval
+    private static final long IDLE_MS = 2000;
+    private static final byte[] FRAME =
+            ("WS_{\"version\":2,\"numberOfNodes\":1,\"measurements\":"
+                            + "[{\"windSpeed\":3.21,\"temperature\":21.50,\"nodeId\":0}]}_end\r\n")
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Test
+    public void blockingReader_BeatsPollingLoop() throws Exception {
+        Result polling = measure(RfcommReader.Mode.POLLING);
+        Result blocking = measure(RfcommReader.Mode.BLOCKING);
+
+        System.out.println("RFCOMM reader benchmark (" + FRAMES + " frames)");
+        System.out.println("  POLLING  " + polling);
+        System.out.println("  BLOCKING " + blocking);
+
+        assertTrue(blocking.p50Micros < polling.p50Micros);
+        assertTrue(blocking.idleWakeups < polling.idleWakeups);
+    }
+
+    private Result measure(RfcommReader.Mode mode) throws Exception {
+        PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(out, 4096);
+        long[] sentAt = new long[FRAMES];
+        long[] latencies = new long[FRAMES];
+        CountDownLatch received = new CountDownLatch(FRAMES);
+        int[] index = {0};
+
+        RfcommReader reader =
+                new RfcommReader(
+                        in,
+                        mode,
+                        (b, o, l) -> {
+                            int i = index[0]++;
+                            latencies[i] = System.nanoTime() - sentAt[i];
+                            received.countDown();
+                        });
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                reader.run();
+                            } catch (IOException | InterruptedException ignored) {
+                            }
+                        });
+        thread.start();
+
+        for (int i = 0; i < FRAMES; i++) {
+            sentAt[i] = System.nanoTime();
+            out.write(FRAME);
+            out.flush();
+            Thread.sleep(FRAME_GAP_MS);
+        }
+        received.await(5, TimeUnit.SECONDS);
+
+        long before = reader.getWakeups();
+        Thread.sleep(IDLE_MS);
+        long idleWakeups = reader.getWakeups() - before;
+
+        reader.stop();
+        out.close();
+        thread.interrupt();
+        thread.join(1000);
+
+        Arrays.sort(latencies);
+        return new Result(
+                latencies[FRAMES / 2] / 1000,
+                latencies[FRAMES - 1] / 1000,
+                idleWakeups * 1000 / IDLE_MS);
+    }
+
+    private static final class Result {
+        final long p50Micros;
+        final long maxMicros;
+        final long idleWakeups;
+
+        Result(long p50Micros, long maxMicros, long idleWakeups) {
+            this.p50Micros = p50Micros;
+            this.maxMicros = maxMicros;
+            this.idleWakeups = idleWakeups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "latency p50=%dus max=%dus, idle wakeups=%d/s",
+                    p50Micros, maxMicros, idleWakeups);
+        }
+    }
+}
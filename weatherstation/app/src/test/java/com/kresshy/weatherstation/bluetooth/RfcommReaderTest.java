@@ -0,0 +1,122 @@
+package com.kresshy.weatherstation.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.connection.FrameDecoder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Unit tests for {@link RfcommReader}. Verifies framing, end-of-stream and cancellation. */
+public class RfcommReaderTest {
+
+    @Test
+    public void blockingMode_ExtractsFramesUntilEndOfStream() throws Exception {
+        List<String> frames = new ArrayList<>();
+        byte[] data =
+                "31\n30\nstart_5.5 22.2_endWS_{\"temp\":25}_endjunk"
+                        .getBytes(StandardCharsets.UTF_8);
+        RfcommReader reader =
+                new RfcommReader(
+                        new ByteArrayInputStream(data), RfcommReader.Mode.BLOCKING, into(frames));
+
+        reader.run();
+
+        assertEquals(2, frames.size());
+        assertEquals("start_5.5 22.2_end", frames.get(0));
+        assertEquals("WS_{\"temp\":25}_end", frames.get(1));
+    }
+
+    @Test
+    public void pollingMode_ExtractsFrames() throws Exception {
+        List<String> frames = new ArrayList<>();
+        byte[] data = "WS_1.0 2.0_end".getBytes(StandardCharsets.UTF_8);
+        RfcommReader reader =
+                new RfcommReader(
+                        new ByteArrayInputStream(data), RfcommReader.Mode.POLLING, into(frames));
+
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                reader.run();
+                            } catch (Exception ignored) {
+                            }
+                        });
+        thread.start();
+        Thread.sleep(3 * RfcommReader.POLL_INTERVAL_MS);
+        reader.stop();
+        thread.join(1000);
+
+        assertFalse(thread.isAlive());
+        assertEquals(1, frames.size());
+        assertEquals("WS_1.0 2.0_end", frames.get(0));
+    }
+
+    /** Closing the stream must release a reader that is parked in a blocking read. */
+    @Test
+    public void blockingMode_CloseReleasesPendingRead() throws Exception {
+        PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(out);
+        CountDownLatch finished = new CountDownLatch(1);
+        RfcommReader reader = new RfcommReader(in, RfcommReader.Mode.BLOCKING, (b, o, l) -> {});
+
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                reader.run();
+                            } catch (IOException | InterruptedException ignored) {
+                            }
+                            finished.countDown();
+                        });
+        thread.start();
+        Thread.sleep(50);
+
+        reader.stop();
+        out.close();
+
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+    }
+
+    /** A quiet link must not wake the blocking reader. */
+    @Test
+    public void blockingMode_IdleLinkCausesNoWakeups() throws Exception {
+        PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(out);
+        RfcommReader reader = new RfcommReader(in, RfcommReader.Mode.BLOCKING, (b, o, l) -> {});
+
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                reader.run();
+                            } catch (IOException | InterruptedException ignored) {
+                            }
+                        });
+        thread.start();
+        Thread.sleep(300);
+
+        assertEquals(0, reader.getWakeups());
+
+        reader.stop();
+        out.close();
+        thread.join(1000);
+    }
+
+    private static FrameDecoder.FrameListener into(List<String> frames) {
+        return (frame, offset, length) ->
+                frames.add(new String(frame, offset, length, StandardCharsets.UTF_8));
+    }
+}
@@ -88,6 +88,20 @@ public class WeatherConnectionControllerImplTest {
         verify(connectionManager, times(0)).startConnection();
     }
 
+    @Test
+    public void connectToDevice_TellsTheDataLayerWhetherTheSourceCanWait() {
+        com.kresshy.weatherstation.connection.HardwareEventListener listener =
+                mock(com.kresshy.weatherstation.connection.HardwareEventListener.class);
+        controller.setHardwareEventListener(listener);
+
+        controller.connectToDevice(new ReplayDevice("Replay", "/sessions/session-1.wsr", 100));
+        verify(listener).onSourceChanged(true);
+
+        controller.connectToDevice(
+                new SimulatorDevice("Simulator Station", SimulatorDevice.SIMULATOR_ADDRESS));
+        verify(listener).onSourceChanged(false);
+    }
+
     @Test
     public void stopConnection_ShouldCallManagerStop() {
         controller.stopConnection();
@@ -0,0 +1,156 @@
+package com.kresshy.weatherstation.connection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the {@link BinaryFrame} layout and for binary framing in {@link FrameDecoder},
+ * using the frames produced by the firmware encoder.
+ */
+public class BinaryFrameTest {
+
+    private List<byte[]> golden;
+    private List<byte[]> receivedFrames;
+    private FrameDecoder decoder;
+
+    @Before
+    public void setUp() throws IOException {
+        golden = GoldenFrames.load();
+        receivedFrames = new ArrayList<>();
+        decoder =
+                new FrameDecoder(
+                        (frame, offset, length) ->
+                                receivedFrames.add(
+                                        Arrays.copyOfRange(frame, offset, offset + length)));
+    }
+
+    @Test
+    public void crc16_MatchesStandardCheckValue() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(0x29B1, BinaryFrame.crc16(check, 0, check.length));
+    }
+
+    @Test
+    public void goldenFrames_AreValid() {
+        assertEquals(3, golden.size());
+        for (byte[] frame : golden) {
+            assertTrue(BinaryFrame.isValid(frame, 0, frame.length));
+            assertEquals(frame.length, BinaryFrame.expectedLength(frame, 0));
+        }
+        assertEquals(13, golden.get(0).length);
+    }
+
+    @Test
+    public void isValid_CorruptedByte_IsRejected() {
+        byte[] frame = golden.get(1).clone();
+        frame[7] ^= 0x01;
+
+        assertFalse(BinaryFrame.isValid(frame, 0, frame.length));
+    }
+
+    @Test
+    public void expectedLength_UnsupportedHeader_IsRejected() {
+        byte[] frame = golden.get(0).clone();
+        frame[BinaryFrame.VERSION_OFFSET] = 2;
+        assertEquals(-1, BinaryFrame.expectedLength(frame, 0));
+
+        frame = golden.get(0).clone();
+        frame[BinaryFrame.NODE_COUNT_OFFSET] = 0;
+        assertEquals(-1, BinaryFrame.expectedLength(frame, 0));
+    }
+
+    @Test
+    public void decoder_BinaryFramesSplitAcrossChunks_AreDelivered() {
+        byte[] stream = concat(golden.get(0), golden.get(1), golden.get(2));
+        for (int i = 0; i < stream.length; i += 3) {
+            decoder.feed(stream, i, Math.min(3, stream.length - i));
+        }
+
+        assertEquals(3, receivedFrames.size());
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(golden.get(i), receivedFrames.get(i));
+        }
+        assertFalse(decoder.isInFrame());
+    }
+
+    @Test
+    public void decoder_MixedTextAndBinary_DeliversBothInOrder() {
+        byte[] text = "WS_{\"version\":2}_end\r\n".getBytes(StandardCharsets.US_ASCII);
+        // A text frame cut off by a protocol switch is abandoned at the sync word
+        byte[] cut = "WS_{\"vers".getBytes(StandardCharsets.US_ASCII);
+        byte[] stream = concat(text, golden.get(0), cut, golden.get(1), text);
+
+        decoder.feed(stream, 0, stream.length);
+
+        assertEquals(4, receivedFrames.size());
+        assertEquals(
+                "WS_{\"version\":2}_end",
+                new String(receivedFrames.get(0), StandardCharsets.US_ASCII));
+        assertArrayEquals(golden.get(0), receivedFrames.get(1));
+        assertArrayEquals(golden.get(1), receivedFrames.get(2));
+        assertEquals(
+                "WS_{\"version\":2}_end",
+                new String(receivedFrames.get(3), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void decoder_TextMarkersInsideBinaryPayload_AreIgnored() {
+        // Node record bytes that spell "_end" must not close anything
+        byte[] frame = golden.get(0).clone();
+        frame[5] = '_';
+        frame[6] = 'e';
+        frame[7] = 'n';
+        frame[8] = 'd';
+        int crc = BinaryFrame.crc16(frame, 2, frame.length - 4);
+        frame[frame.length - 2] = (byte) crc;
+        frame[frame.length - 1] = (byte) (crc >> 8);
+
+        decoder.feed(frame, 0, frame.length);
+
+        assertEquals(1, receivedFrames.size());
+        assertArrayEquals(frame, receivedFrames.get(0));
+    }
+
+    @Test
+    public void decoder_BadChecksum_IsDroppedAndCounted() {
+        byte[] corrupted = golden.get(0).clone();
+        corrupted[6] ^= 0x40;
+        byte[] stream = concat(corrupted, golden.get(1));
+
+        decoder.feed(stream, 0, stream.length);
+
+        assertEquals(1, decoder.getCrcErrorCount());
+        assertEquals(1, receivedFrames.size());
+        assertArrayEquals(golden.get(1), receivedFrames.get(0));
+    }
+
+    @Test
+    public void decoder_FrameLargerThanBuffer_IsDroppedAndCounted() {
+        decoder = new FrameDecoder(16, (frame, offset, length) -> receivedFrames.add(frame));
+        byte[] stream = concat(golden.get(2), golden.get(0));
+
+        decoder.feed(stream, 0, stream.length);
+
+        assertEquals(1, decoder.getOverflowCount());
+        assertEquals(1, receivedFrames.size());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) out.write(part, 0, part.length);
+        return out.toByteArray();
+    }
+}
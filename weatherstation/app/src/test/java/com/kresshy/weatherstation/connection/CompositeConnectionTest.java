@@ -12,6 +12,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.kresshy.weatherstation.bluetooth.BleConnection;
 import com.kresshy.weatherstation.bluetooth.BluetoothConnection;
+import com.kresshy.weatherstation.bluetooth.ReplayDevice;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +33,7 @@ public class CompositeConnectionTest {
     private BluetoothConnection classicConnection;
     private BleConnection bleConnection;
     private SimulatorConnection simulatorConnection;
+    private ReplayConnection replayConnection;
     private HardwareEventListener listener;
 
     @Before
@@ -45,11 +47,16 @@ public class CompositeConnectionTest {
         classicConnection = mock(BluetoothConnection.class);
         bleConnection = mock(BleConnection.class);
         simulatorConnection = mock(SimulatorConnection.class);
+        replayConnection = mock(ReplayConnection.class);
         listener = mock(HardwareEventListener.class);
 
         compositeConnection =
                 new CompositeConnection(
-                        context, classicConnection, bleConnection, simulatorConnection);
+                        context,
+                        classicConnection,
+                        bleConnection,
+                        simulatorConnection,
+                        replayConnection);
     }
 
     @Test
@@ -297,4 +304,24 @@ public class CompositeConnectionTest {
         // Assert: Heuristic should match OUI and route to BLE
         verify(bleConnection).connect(unknownDevice, listener);
     }
+
+    @Test
+    public void connect_WhenReplayDevice_ShouldStopBluetoothAndRouteToReplay() {
+        // Arrange
+        BluetoothDevice bleDevice = mock(BluetoothDevice.class);
+        when(bleDevice.getType()).thenReturn(BluetoothDevice.DEVICE_TYPE_LE);
+        when(bleDevice.getAddress()).thenReturn("00:11:22:33:44:55");
+        ReplayDevice replay =
+                new ReplayDevice("Replay", "/data/session.wsr", ReplayConnection.REAL_TIME);
+
+        // 1. Connected to a station
+        compositeConnection.connect(bleDevice, listener);
+
+        // 2. Switch to a replay
+        compositeConnection.connect(replay, listener);
+
+        // Assert: the station is released before the recording plays
+        verify(bleConnection).stop();
+        verify(replayConnection).connect(replay, listener);
+    }
 }
@@ -0,0 +1,105 @@
+package com.kresshy.weatherstation.connection;
+
+import static org.junit.Assert.assertEquals;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Compares the byte-level {@link FrameDecoder} against the string-based framing it replaced, on a
+ * clean link and on a noisy link where most bytes are not part of a frame.
+ */
+public class FrameDecoderBenchmarkTest {
+
+    private static final int CHUNK_SIZE = 20; // Default BLE notification payload
+    private static final int FRAMES = 20_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final String FRAME =
+            "WS_{\"version\":2,\"numberOfNodes\":1,\"measurements\":"
+                    + "[{\"windSpeed\":3.21,\"temperature\":21.50,\"nodeId\":0}]}_end\r\n";
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Test
+    public void frameDecoder_BeatsStringFraming() {
+        run("clean", stream(0));
+        run("noisy", stream(400));
+    }
+
+    private void run(String label, byte[] stream) {
+        int[] decoded = {0};
+        FrameDecoder decoder = new FrameDecoder((frame, offset, length) -> decoded[0]++);
+        LegacyFraming legacy = new LegacyFraming();
+
+        long decoderNanos = Long.MAX_VALUE;
+        long legacyNanos = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            decoded[0] = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < stream.length; i += CHUNK_SIZE) {
+                decoder.feed(stream, i, Math.min(CHUNK_SIZE, stream.length - i));
+            }
+            long d = System.nanoTime() - start;
+
+            legacy.frames = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < stream.length; i += CHUNK_SIZE) {
+                legacy.feed(stream, i, Math.min(CHUNK_SIZE, stream.length - i));
+            }
+            long l = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                decoderNanos = Math.min(decoderNanos, d);
+                legacyNanos = Math.min(legacyNanos, l);
+            }
+        }
+
+        assertEquals(FRAMES, decoded[0]);
+        assertEquals(FRAMES, legacy.frames);
+
+        double mb = stream.length / 1e6;
+        System.out.println("Frame decoder benchmark (" + label + ", " + stream.length + " bytes)");
+        System.out.printf("  StringBuilder %.1f MB/s%n", mb / (legacyNanos / 1e9));
+        System.out.printf("  FrameDecoder  %.1f MB/s%n", mb / (decoderNanos / 1e9));
+    }
+
+    /** Builds a stream of frames, each preceded by {@code noiseBytes} of non-marker junk. */
+    private static byte[] stream(int noiseBytes) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FRAMES; i++) {
+            for (int n = 0; n < noiseBytes; n++) sb.append((char) ('0' + random.nextInt(10)));
+            sb.append(FRAME);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Copy of the framing previously inlined in the Classic and BLE transports. */
+    private static final class LegacyFraming {
+        private static final String END_MARKER = "_end";
+        private final StringBuilder curMsg = new StringBuilder();
+        int frames;
+
+        void feed(byte[] data, int offset, int length) {
+            curMsg.append(new String(data, offset, length, StandardCharsets.UTF_8));
+            int endIdx = curMsg.indexOf(END_MARKER);
+            while (endIdx != -1) {
+                int startWS = curMsg.lastIndexOf("WS_", endIdx);
+                int startLegacy = curMsg.lastIndexOf("start_", endIdx);
+                int startIdx = Math.max(startWS, startLegacy);
+                if (startIdx != -1) {
+                    String fullMessage = curMsg.substring(startIdx, endIdx + END_MARKER.length());
+                    if (!fullMessage.isEmpty()) frames++;
+                }
+                curMsg.delete(0, endIdx + END_MARKER.length());
+                endIdx = curMsg.indexOf(END_MARKER);
+            }
+        }
+    }
+}
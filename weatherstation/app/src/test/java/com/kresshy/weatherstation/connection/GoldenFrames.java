@@ -0,0 +1,61 @@
+package com.kresshy.weatherstation.connection;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the binary frames produced by the firmware encoder test ({@code
+ * arduino/test/golden_frames.hex}), so the app decoder is checked against the same bytes.
+ */
+public final class GoldenFrames {
+
+    private static final String PATH = "arduino/test/golden_frames.hex";
+
+    private GoldenFrames() {}
+
+    /**
+     * @return The golden frames, in file order.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public static List<byte[]> load() throws IOException {
+        // Unit tests run from the module directory; search upwards for the repository root
+        File dir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        File file = new File(dir, PATH);
+        while (!file.isFile() && dir.getParentFile() != null) {
+            dir = dir.getParentFile();
+            file = new File(dir, PATH);
+        }
+
+        List<byte[]> frames = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                new FileInputStream(file), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                frames.add(fromHex(line));
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * @param hex Pairs of hex digits without separators.
+     * @return The decoded bytes.
+     */
+    public static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
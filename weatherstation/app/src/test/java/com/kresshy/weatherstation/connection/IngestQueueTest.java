@@ -0,0 +1,374 @@
+package com.kresshy.weatherstation.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Unit tests for {@link IngestQueue}. */
+public class IngestQueueTest {
+
+    private IngestQueue queue;
+
+    @After
+    public void tearDown() {
+        if (queue != null) queue.close();
+    }
+
+    @Test
+    public void frames_AreCopiedAndDeliveredInOrderOnTheIngestThread() throws Exception {
+        RecordingListener listener = new RecordingListener(10);
+        queue = new IngestQueue(listener);
+
+        byte[] buffer = new byte[8];
+        for (int i = 0; i < 10; i++) {
+            ByteBuffer.wrap(buffer).putInt(4, i);
+            queue.onFrameReceived(buffer, 4, 4);
+            // The transport reuses its buffer right after the callback
+            ByteBuffer.wrap(buffer).putInt(4, -1);
+        }
+
+        assertTrue(listener.await());
+        for (int i = 0; i < 10; i++) assertEquals(i, (int) listener.values.get(i));
+        assertEquals("weather-ingest", listener.threadName);
+        assertEquals(10, queue.getDeliveredCount());
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void rawStrings_AreDelivered() throws Exception {
+        RecordingListener listener = new RecordingListener(2);
+        queue = new IngestQueue(listener);
+
+        queue.onRawDataReceived("WS_1_end");
+        queue.onRawDataReceived("WS_2_end");
+
+        assertTrue(listener.await());
+        assertEquals(List.of(1, 2), listener.values);
+    }
+
+    @Test
+    public void receiveTimes_AreTakenWhenEntriesAreOffered() throws Exception {
+        RecordingListener listener = new RecordingListener(3);
+        listener.stallFirst = true;
+        queue = new IngestQueue(listener);
+
+        offer(0);
+        assertTrue(listener.stalled.await(5, TimeUnit.SECONDS));
+        long before = System.currentTimeMillis();
+        offer(1);
+        long after = System.currentTimeMillis();
+        queue.onRawDataReceived("WS_2_end", 1234L);
+        Thread.sleep(50);
+        listener.release.countDown();
+
+        assertTrue(listener.await());
+        long offered = listener.receivedAt.get(1);
+        assertTrue(offered >= before && offered <= after);
+        assertEquals(1234L, (long) listener.receivedAt.get(2));
+    }
+
+    @Test
+    public void controlEvents_AreForwardedOnTheCallingThread() {
+        RecordingListener listener = new RecordingListener(0);
+        queue = new IngestQueue(listener);
+
+        queue.onToastMessage("hello");
+
+        assertEquals(Thread.currentThread().getName(), listener.threadName);
+    }
+
+    @Test
+    public void dropOldest_WhenConsumerStalls_KeepsNewestEntries() throws Exception {
+        RecordingListener listener = new RecordingListener(5);
+        listener.stallFirst = true;
+        queue = new IngestQueue(listener, 4, IngestQueue.OverflowPolicy.DROP_OLDEST);
+
+        offer(0);
+        assertTrue(listener.stalled.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) offer(i);
+
+        assertEquals(4, queue.getDepth());
+        assertEquals(6, queue.getDroppedCount());
+
+        listener.release.countDown();
+        assertTrue(listener.await());
+        assertEquals(List.of(0, 7, 8, 9, 10), listener.values);
+        assertEquals(4, queue.getMaxDepth());
+    }
+
+    @Test
+    public void block_WhenConsumerStalls_ParksTheProducer() throws Exception {
+        RecordingListener listener = new RecordingListener(5);
+        listener.stallFirst = true;
+        queue = new IngestQueue(listener, 2, IngestQueue.OverflowPolicy.BLOCK);
+
+        offer(0);
+        assertTrue(listener.stalled.await(5, TimeUnit.SECONDS));
+        Thread producer =
+                new Thread(
+                        () -> {
+                            for (int i = 1; i <= 4; i++) offer(i);
+                        });
+        producer.start();
+        producer.join(200);
+        assertTrue("Producer should wait for room", producer.isAlive());
+
+        listener.release.countDown();
+        producer.join(5000);
+        assertTrue(listener.await());
+        assertEquals(List.of(0, 1, 2, 3, 4), listener.values);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void sourceThatCanWait_IsBlockedInsteadOfDropped() throws Exception {
+        RecordingListener listener = new RecordingListener(5);
+        listener.stallFirst = true;
+        queue =
+                new IngestQueue(
+                        listener,
+                        new IngestQueue.Config(2, IngestQueue.OverflowPolicy.DROP_OLDEST));
+        queue.onSourceChanged(true);
+        assertEquals(IngestQueue.OverflowPolicy.BLOCK, queue.getOverflowPolicy());
+
+        offer(0);
+        assertTrue(listener.stalled.await(5, TimeUnit.SECONDS));
+        Thread producer =
+                new Thread(
+                        () -> {
+                            for (int i = 1; i <= 4; i++) offer(i);
+                        });
+        producer.start();
+        producer.join(200);
+        assertTrue("A replay should wait for room", producer.isAlive());
+
+        listener.release.countDown();
+        producer.join(5000);
+        assertTrue(listener.await());
+        assertEquals(List.of(0, 1, 2, 3, 4), listener.values);
+        assertEquals(0, queue.getDroppedCount());
+
+        queue.onSourceChanged(false);
+        assertEquals(IngestQueue.OverflowPolicy.DROP_OLDEST, queue.getOverflowPolicy());
+    }
+
+    @Test
+    public void stress_DropOldest_DeliversIncreasingSequenceAndAccountsForEveryFrame()
+            throws Exception {
+        int frames = 200_000;
+        SequenceListener listener = new SequenceListener();
+        queue = new IngestQueue(listener, 8, IngestQueue.OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < frames; i++) offer(i);
+        offerUntilDelivered(listener, frames);
+
+        assertTrue(listener.inOrder);
+        assertEquals(frames + 1, queue.getDeliveredCount() + queue.getDroppedCount());
+    }
+
+    @Test
+    public void stress_Block_DeliversEveryFrameInOrder() throws Exception {
+        int frames = 200_000;
+        SequenceListener listener = new SequenceListener();
+        queue = new IngestQueue(listener, 8, IngestQueue.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < frames; i++) offer(i);
+        offerUntilDelivered(listener, frames);
+
+        assertTrue(listener.inOrder);
+        assertEquals(frames + 1, listener.count);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void stress_TwoProducers_NeitherOverwritesTheOther() throws Exception {
+        int frames = 100_000;
+        ProducerListener listener = new ProducerListener();
+        queue = new IngestQueue(listener, 8, IngestQueue.OverflowPolicy.BLOCK);
+
+        // A transport winding down while the next one starts
+        Thread[] producers = new Thread[2];
+        for (int p = 0; p < producers.length; p++) {
+            int producer = p;
+            producers[p] =
+                    new Thread(
+                            () -> {
+                                byte[] frame = new byte[8];
+                                for (int i = 0; i < frames; i++) {
+                                    ByteBuffer.wrap(frame).putInt(0, producer).putInt(4, i);
+                                    queue.onFrameReceived(frame, 0, 8);
+                                }
+                            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) producer.join(30_000);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (listener.count < 2L * frames && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(listener.inOrder);
+        assertEquals(2L * frames, listener.count);
+        assertEquals(frames - 1, listener.last[0]);
+        assertEquals(frames - 1, listener.last[1]);
+    }
+
+    private void offer(int value) {
+        byte[] frame = new byte[4];
+        ByteBuffer.wrap(frame).putInt(value);
+        queue.onFrameReceived(frame, 0, 4);
+    }
+
+    /** Sends a final marker frame, which can never be dropped, and waits until it arrives. */
+    private void offerUntilDelivered(SequenceListener listener, int marker) throws Exception {
+        offer(marker);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (listener.last != marker && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(marker, listener.last);
+    }
+
+    /** Records delivered values; frames carry an int, raw strings a number between markers. */
+    private static final class RecordingListener implements HardwareEventListener {
+        final List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> receivedAt = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done;
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean stallFirst = false;
+        volatile String threadName;
+
+        RecordingListener(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void onRawDataReceived(String data) {
+            record(Integer.parseInt(data.substring(3, data.length() - 4)));
+        }
+
+        @Override
+        public void onFrameReceived(byte[] frame, int offset, int length) {
+            record(ByteBuffer.wrap(frame, offset, length).getInt());
+        }
+
+        @Override
+        public void onRawDataReceived(String data, long receivedAtMillis) {
+            receivedAt.add(receivedAtMillis);
+            onRawDataReceived(data);
+        }
+
+        @Override
+        public void onFrameReceived(byte[] frame, int offset, int length, long receivedAtMillis) {
+            receivedAt.add(receivedAtMillis);
+            onFrameReceived(frame, offset, length);
+        }
+
+        private void record(int value) {
+            threadName = Thread.currentThread().getName();
+            values.add(value);
+            if (stallFirst) {
+                stallFirst = false;
+                stalled.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onConnectionStateChange(ConnectionState state) {}
+
+        @Override
+        public void onConnected() {}
+
+        @Override
+        public void onToastMessage(String message) {
+            threadName = Thread.currentThread().getName();
+        }
+
+        @Override
+        public void onLogMessage(String message) {}
+    }
+
+    /** Checks that the frames of every producer arrive once each, in the order offered. */
+    private static final class ProducerListener implements HardwareEventListener {
+        final int[] last = {-1, -1};
+        volatile boolean inOrder = true;
+        volatile long count = 0;
+
+        @Override
+        public void onRawDataReceived(String data) {}
+
+        @Override
+        public void onFrameReceived(byte[] frame, int offset, int length) {
+            ByteBuffer buffer = ByteBuffer.wrap(frame, offset, length);
+            int producer = buffer.getInt();
+            int value = buffer.getInt();
+            if (value != last[producer] + 1) inOrder = false;
+            last[producer] = value;
+            count++;
+        }
+
+        @Override
+        public void onConnectionStateChange(ConnectionState state) {}
+
+        @Override
+        public void onConnected() {}
+
+        @Override
+        public void onToastMessage(String message) {}
+
+        @Override
+        public void onLogMessage(String message) {}
+    }
+
+    /** Checks that delivered values only ever increase. */
+    private static final class SequenceListener implements HardwareEventListener {
+        volatile int last = -1;
+        volatile boolean inOrder = true;
+        volatile long count = 0;
+
+        @Override
+        public void onRawDataReceived(String data) {}
+
+        @Override
+        public void onFrameReceived(byte[] frame, int offset, int length) {
+            int value = ByteBuffer.wrap(frame, offset, length).getInt();
+            if (value <= last) inOrder = false;
+            last = value;
+            count++;
+            // Uneven processing time, so the ring runs full now and then
+            if ((value & 0xFF) == 0) Thread.yield();
+        }
+
+        @Override
+        public void onConnectionStateChange(ConnectionState state) {}
+
+        @Override
+        public void onConnected() {}
+
+        @Override
+        public void onToastMessage(String message) {}
+
+        @Override
+        public void onLogMessage(String message) {}
+    }
+}
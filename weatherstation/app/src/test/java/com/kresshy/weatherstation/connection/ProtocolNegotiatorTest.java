@@ -0,0 +1,93 @@
+package com.kresshy.weatherstation.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Unit tests for {@link ProtocolNegotiator}. */
+public class ProtocolNegotiatorTest {
+
+    private static final byte[] JSON_FRAME =
+            "WS_{\"version\":2}_end".getBytes(StandardCharsets.US_ASCII);
+
+    @Mock private ConnectionManager connectionManager;
+
+    private ProtocolNegotiator negotiator;
+    private byte[] binaryFrame;
+
+    @Before
+    public void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        negotiator = new ProtocolNegotiator(connectionManager);
+        binaryFrame = GoldenFrames.load().get(0);
+    }
+
+    @Test
+    public void firstFrame_RequestsBinary() {
+        negotiator.onConnected(true);
+        verify(connectionManager, never()).write(any());
+
+        receive(JSON_FRAME);
+        verify(connectionManager).write(ProtocolNegotiator.REQUEST_BINARY);
+
+        receive(binaryFrame);
+        assertEquals(ProtocolNegotiator.Protocol.BINARY, negotiator.getProtocol());
+    }
+
+    @Test
+    public void jsonOnlyFirmware_StaysOnJsonWithoutRepeatingTheRequest() {
+        negotiator.onConnected(true);
+        for (int i = 0; i < ProtocolNegotiator.TEXT_FRAMES_BEFORE_FALLBACK * 4; i++) {
+            receive(JSON_FRAME);
+        }
+
+        verify(connectionManager, times(1)).write(ProtocolNegotiator.REQUEST_BINARY);
+        assertEquals(ProtocolNegotiator.Protocol.JSON, negotiator.getProtocol());
+    }
+
+    @Test
+    public void stationFallsBackToJson_RequestsBinaryAgain() {
+        negotiator.onConnected(true);
+        receive(JSON_FRAME);
+        receive(binaryFrame);
+
+        receive(JSON_FRAME);
+
+        assertEquals(ProtocolNegotiator.Protocol.JSON, negotiator.getProtocol());
+        verify(connectionManager, times(2)).write(ProtocolNegotiator.REQUEST_BINARY);
+    }
+
+    @Test
+    public void binaryDisabled_AsksBinaryStationForJson() {
+        negotiator.onConnected(false);
+
+        receive(binaryFrame);
+        receive(binaryFrame);
+
+        verify(connectionManager, times(1)).write(ProtocolNegotiator.REQUEST_JSON);
+        verify(connectionManager, never()).write(ProtocolNegotiator.REQUEST_BINARY);
+    }
+
+    @Test
+    public void binaryDisabled_JsonStation_SendsNothing() {
+        negotiator.onConnected(false);
+
+        receive(JSON_FRAME);
+
+        verify(connectionManager, never()).write(any());
+    }
+
+    private void receive(byte[] frame) {
+        negotiator.onFrame(frame, 0, frame.length);
+    }
+}
@@ -0,0 +1,446 @@
+package com.kresshy.weatherstation.connection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.bluetooth.ReplayDevice;
+import com.kresshy.weatherstation.recording.SessionLog;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit tests for {@link ReplayConnection} and its sources. */
+public class ReplayConnectionTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final String JSON_FRAME =
+            "WS_{\"version\":2,\"numberOfNodes\":1,"
+                    + "\"measurements\":[{\"windSpeed\":3.5,\"temperature\":21.0,"
+                    + "\"nodeId\":0}]}_end";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReplayConnection connection;
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        connection = new ReplayConnection();
+        listener = new RecordingListener();
+    }
+
+    private File writeFrameLog(String... lines) throws IOException {
+        File file = folder.newFile("frames.log");
+        try (Writer writer =
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (String line : lines) writer.write(line + "\n");
+        }
+        return file;
+    }
+
+    private static byte[] binaryFrame(int nodeId, float windSpeed, float temperature, int rssi) {
+        byte[] frame = new byte[BinaryFrame.frameLength(1)];
+        BinaryFrame.encode(
+                frame,
+                7,
+                new int[] {nodeId},
+                new float[] {windSpeed},
+                new float[] {temperature},
+                new int[] {rssi},
+                1);
+        return frame;
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) builder.append(String.format("%02X", b));
+        return builder.toString();
+    }
+
+    private void replay(File file, double speed) {
+        connection.start(listener);
+        connection.connect(new ReplayDevice("Replay", file.getPath(), speed), listener);
+    }
+
+    /** Verifies that a frame log replays every text and binary frame in order. */
+    @Test
+    public void connect_FrameLog_DeliversEveryFrameInOrder() throws Exception {
+        byte[] binary = binaryFrame(2, 4.25f, -3.5f, -71);
+        File log =
+                writeFrameLog(
+                        "# captured in the field",
+                        START_MILLIS + " " + JSON_FRAME,
+                        "",
+                        (START_MILLIS + 100) + "\t" + hex(binary),
+                        (START_MILLIS + 200) + " start_garbage");
+
+        replay(log, ReplayConnection.AS_FAST_AS_POSSIBLE);
+
+        assertTrue(listener.awaitFinished());
+        assertEquals(
+                Arrays.asList(
+                        "state disconnected",
+                        "state connecting",
+                        "state connected",
+                        "connected",
+                        "raw " + JSON_FRAME,
+                        "frame " + hex(binary),
+                        "raw start_garbage",
+                        "log Replay finished after 3 frames",
+                        "state disconnected"),
+                listener.events());
+        assertEquals(3, connection.getReplayedFrameCount());
+        assertEquals(ConnectionState.disconnected, connection.getState());
+        // Frames carry the time they were recorded at, not the time they are replayed at
+        assertEquals(
+                Arrays.asList(START_MILLIS, START_MILLIS + 100, START_MILLIS + 200),
+                listener.times());
+    }
+
+    /** Verifies that recorded readings come back as the binary frames they were received in. */
+    @Test
+    public void connect_SessionLog_ReplaysReadingsAsBinaryFrames() throws Exception {
+        File file = new File(folder.getRoot(), "session-" + START_MILLIS + ".wsr");
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        ByteBuffer records = ByteBuffer.allocate(3 * SessionLog.RECORD_SIZE);
+        SessionLog.put(records, START_MILLIS, 3.25f, 20.5f, -60, 0);
+        SessionLog.put(records, START_MILLIS, 4.5f, 19.75f, -75, 1);
+        SessionLog.put(records, START_MILLIS + 100, 3.5f, 20.25f, -61, 0);
+        records.flip();
+        log.append(records);
+        log.close();
+
+        replay(file, ReplayConnection.AS_FAST_AS_POSSIBLE);
+
+        assertTrue(listener.awaitFinished());
+        List<byte[]> frames = listener.frames();
+        assertEquals(2, frames.size());
+        byte[] both = frames.get(0);
+        assertTrue(BinaryFrame.isValid(both, 0, both.length));
+        assertEquals(2, both[BinaryFrame.NODE_COUNT_OFFSET]);
+        int second = BinaryFrame.HEADER_LENGTH + BinaryFrame.NODE_LENGTH;
+        assertEquals(1, both[second + BinaryFrame.NODE_ID_OFFSET]);
+        assertEquals(450, BinaryFrame.readUint16(both, second + BinaryFrame.WIND_SPEED_OFFSET));
+        assertEquals(1975, BinaryFrame.readInt16(both, second + BinaryFrame.TEMPERATURE_OFFSET));
+        assertEquals(-75, both[second + BinaryFrame.RSSI_OFFSET]);
+        assertArrayEquals(binaryFrame(0, 3.5f, 20.25f, -61), withSequence(frames.get(1), 7));
+    }
+
+    /** Rewrites the sequence number and checksum so frames can be compared by content. */
+    private static byte[] withSequence(byte[] frame, int sequence) {
+        byte[] copy = frame.clone();
+        copy[BinaryFrame.SEQUENCE_OFFSET] = (byte) sequence;
+        int crc = BinaryFrame.crc16(copy, 2, copy.length - 4);
+        copy[copy.length - 2] = (byte) crc;
+        copy[copy.length - 1] = (byte) (crc >> 8);
+        return copy;
+    }
+
+    /** Verifies that frames keep their recorded spacing divided by the speed. */
+    @Test
+    public void connect_Speed_ScalesRecordedSpacing() throws Exception {
+        File log =
+                writeFrameLog(
+                        START_MILLIS + " " + JSON_FRAME,
+                        (START_MILLIS + 1000) + " " + JSON_FRAME,
+                        (START_MILLIS + 2000) + " " + JSON_FRAME);
+
+        long start = System.nanoTime();
+        replay(log, 10);
+        assertTrue(listener.awaitFinished());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, connection.getReplayedFrameCount());
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis >= 190);
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1500);
+    }
+
+    /** Verifies that the pause between two sessions does not stall a replay. */
+    @Test
+    public void connect_LongPause_IsShortened() throws Exception {
+        long tenHours = 10 * 60 * 60_000L;
+        File log =
+                writeFrameLog(
+                        START_MILLIS + " " + JSON_FRAME,
+                        (START_MILLIS + tenHours) + " " + JSON_FRAME);
+
+        long start = System.nanoTime();
+        replay(log, 1000);
+        assertTrue(listener.awaitFinished());
+
+        // Ten hours at 1000x would take 36 s; the shortened pause takes 60 ms
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+        assertEquals(2, connection.getReplayedFrameCount());
+    }
+
+    /** Verifies that stopping ends a real-time replay without delivering further frames. */
+    @Test
+    public void stop_HaltsReplay() throws Exception {
+        String[] lines = new String[10];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = (START_MILLIS + i * 1000L) + " " + JSON_FRAME;
+        }
+        replay(writeFrameLog(lines), ReplayConnection.REAL_TIME);
+        assertTrue(listener.awaitFrame());
+
+        connection.stop();
+        Thread.sleep(1200);
+
+        assertEquals(ConnectionState.stopped, connection.getState());
+        assertEquals(1, connection.getReplayedFrameCount());
+    }
+
+    /** Verifies that a new replay only starts once the previous one has stopped delivering. */
+    @Test
+    public void connect_WhilePlaying_NeverOverlapsTheTwoReplays() throws Exception {
+        String[] lines = new String[2000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = (START_MILLIS + i * 100L) + " " + JSON_FRAME;
+        }
+        File log = writeFrameLog(lines);
+        OverlapListener overlap = new OverlapListener();
+        connection.start(overlap);
+
+        for (int i = 0; i < 5; i++) {
+            connection.connect(
+                    new ReplayDevice("Replay", log.getPath(), ReplayConnection.AS_FAST_AS_POSSIBLE),
+                    overlap);
+            Thread.sleep(20);
+        }
+        connection.stop();
+
+        assertTrue(overlap.deliveries.get() > 0);
+        assertEquals(0, overlap.overlaps.get());
+        assertEquals(ConnectionState.stopped, connection.getState());
+    }
+
+    /** Counts frames delivered while another delivery was still in progress. */
+    private static class OverlapListener implements HardwareEventListener {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger deliveries = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        @Override
+        public void onRawDataReceived(String data) {
+            if (active.incrementAndGet() > 1) overlaps.incrementAndGet();
+            deliveries.incrementAndGet();
+            Thread.yield();
+            active.decrementAndGet();
+        }
+
+        @Override
+        public void onConnectionStateChange(ConnectionState state) {}
+
+        @Override
+        public void onConnected() {}
+
+        @Override
+        public void onToastMessage(String message) {}
+
+        @Override
+        public void onLogMessage(String message) {}
+    }
+
+    /** Verifies that an unpaced replay waits for a slow data layer instead of losing frames. */
+    @Test
+    public void connect_AsFastAsPossible_DeliversEveryFrameThroughAFullQueue() throws Exception {
+        int frames = 500;
+        String[] lines = new String[frames];
+        for (int i = 0; i < frames; i++) {
+            lines[i] = (START_MILLIS + i * 100L) + " " + JSON_FRAME;
+        }
+        File log = writeFrameLog(lines);
+        SlowListener slow = new SlowListener(frames, 0);
+        IngestQueue queue =
+                new IngestQueue(
+                        slow, new IngestQueue.Config(4, IngestQueue.OverflowPolicy.DROP_OLDEST));
+        try {
+            // As the connection controller does before connecting a replay
+            queue.onSourceChanged(true);
+            connection.start(queue);
+            connection.connect(
+                    new ReplayDevice("Replay", log.getPath(), ReplayConnection.AS_FAST_AS_POSSIBLE),
+                    queue);
+
+            assertTrue(slow.delivered.await(10, TimeUnit.SECONDS));
+            assertEquals(frames, connection.getReplayedFrameCount());
+            assertEquals(0, queue.getDroppedCount());
+            assertTrue(queue.getMaxDepth() > 1);
+        } finally {
+            connection.stop();
+            queue.close();
+        }
+    }
+
+    /** Verifies that stopping a replay that is waiting for the data layer ends it promptly. */
+    @Test
+    public void stop_WhileBlockedOnTheQueue_EndsReplay() throws Exception {
+        String[] lines = new String[100];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = (START_MILLIS + i * 100L) + " " + JSON_FRAME;
+        }
+        File log = writeFrameLog(lines);
+        SlowListener stalled = new SlowListener(lines.length, Long.MAX_VALUE);
+        IngestQueue queue =
+                new IngestQueue(
+                        stalled, new IngestQueue.Config(2, IngestQueue.OverflowPolicy.DROP_OLDEST));
+        try {
+            queue.onSourceChanged(true);
+            connection.start(queue);
+            connection.connect(
+                    new ReplayDevice("Replay", log.getPath(), ReplayConnection.AS_FAST_AS_POSSIBLE),
+                    queue);
+            assertTrue(stalled.first.await(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            connection.stop();
+
+            assertTrue((System.nanoTime() - start) / 1_000_000 < ReplayConnection.STOP_TIMEOUT_MS);
+            assertEquals(ConnectionState.stopped, connection.getState());
+            assertTrue(connection.getReplayedFrameCount() < lines.length);
+        } finally {
+            queue.close();
+        }
+    }
+
+    /** Processes frames slowly, or not at all after the first when {@code stallMillis} is huge. */
+    private static class SlowListener implements HardwareEventListener {
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch delivered;
+        private final long stallMillis;
+
+        SlowListener(int expected, long stallMillis) {
+            this.delivered = new CountDownLatch(expected);
+            this.stallMillis = stallMillis;
+        }
+
+        @Override
+        public void onRawDataReceived(String data) {
+            first.countDown();
+            delivered.countDown();
+            try {
+                Thread.sleep(stallMillis == 0 ? 1 : stallMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onConnectionStateChange(ConnectionState state) {}
+
+        @Override
+        public void onConnected() {}
+
+        @Override
+        public void onToastMessage(String message) {}
+
+        @Override
+        public void onLogMessage(String message) {}
+    }
+
+    /** Verifies that a damaged log is reported and ends the replay. */
+    @Test
+    public void connect_BadLog_ReportsFailure() throws Exception {
+        replay(writeFrameLog("yesterday " + JSON_FRAME), ReplayConnection.REAL_TIME);
+
+        assertTrue(listener.awaitFinished());
+        assertTrue(listener.events().contains("toast Replay failed: Line 1: bad timestamp"));
+        assertEquals(ConnectionState.disconnected, connection.getState());
+    }
+
+    /** Records every callback as a line of text. */
+    private static class RecordingListener implements HardwareEventListener {
+        private final List<String> events = new ArrayList<>();
+        private final List<byte[]> frames = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final CountDownLatch firstFrame = new CountDownLatch(1);
+        private boolean connected;
+
+        synchronized List<String> events() {
+            return new ArrayList<>(events);
+        }
+
+        synchronized List<byte[]> frames() {
+            return new ArrayList<>(frames);
+        }
+
+        synchronized List<Long> times() {
+            return new ArrayList<>(times);
+        }
+
+        boolean awaitFinished() throws InterruptedException {
+            return finished.await(5, TimeUnit.SECONDS);
+        }
+
+        boolean awaitFrame() throws InterruptedException {
+            return firstFrame.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public synchronized void onRawDataReceived(String data) {
+            events.add("raw " + data);
+            firstFrame.countDown();
+        }
+
+        @Override
+        public synchronized void onFrameReceived(byte[] frame, int offset, int length) {
+            byte[] copy = Arrays.copyOfRange(frame, offset, offset + length);
+            frames.add(copy);
+            events.add("frame " + hex(copy));
+            firstFrame.countDown();
+        }
+
+        @Override
+        public synchronized void onRawDataReceived(String data, long receivedAtMillis) {
+            times.add(receivedAtMillis);
+            onRawDataReceived(data);
+        }
+
+        @Override
+        public synchronized void onFrameReceived(
+                byte[] frame, int offset, int length, long receivedAtMillis) {
+            times.add(receivedAtMillis);
+            onFrameReceived(frame, offset, length);
+        }
+
+        @Override
+        public synchronized void onConnectionStateChange(ConnectionState state) {
+            events.add("state " + state);
+            if (state == ConnectionState.connected) connected = true;
+            if (state == ConnectionState.disconnected && connected) finished.countDown();
+        }
+
+        @Override
+        public synchronized void onConnected() {
+            events.add("connected");
+        }
+
+        @Override
+        public synchronized void onToastMessage(String message) {
+            events.add("toast " + message);
+        }
+
+        @Override
+        public synchronized void onLogMessage(String message) {
+            events.add("log " + message);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.kresshy.weatherstation.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Unit tests for {@link SeriesExporter}. */
+public class SeriesExporterTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private static WeatherHistory history() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(START_MILLIS, 3.25, 21.5, -60, 0);
+        history.add(START_MILLIS + 100, 0.004, -0.5, 0, 12);
+        history.add(START_MILLIS + 200, Double.NaN, -12.3456, -101, 3);
+        return history;
+    }
+
+    private static String export(ExportFormat format, WeatherHistory history, int bufferSize)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SeriesExporter(format, bufferSize).export(history, out, null);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /** Verifies the CSV header, column order and decimal formatting. */
+    @Test
+    public void export_Csv_WritesHeaderAndRows() throws IOException {
+        String csv = export(ExportFormat.CSV, history(), SeriesExporter.DEFAULT_BUFFER_SIZE);
+
+        assertEquals(
+                "timestamp_ms,node_id,wind_speed,temperature,rssi\n"
+                        + "1700000000000,0,3.250,21.500,-60\n"
+                        + "1700000000100,12,0.004,-0.500,0\n"
+                        + "1700000000200,3,NaN,-12.346,-101\n",
+                csv);
+    }
+
+    /** Verifies that every JSON line parses and carries the reading. */
+    @Test
+    public void export_JsonLines_WritesOneObjectPerReading() throws IOException {
+        String[] lines =
+                export(ExportFormat.JSON_LINES, history(), SeriesExporter.DEFAULT_BUFFER_SIZE)
+                        .split("\n");
+
+        assertEquals(3, lines.length);
+        JsonObject first = JsonParser.parseString(lines[0]).getAsJsonObject();
+        assertEquals(START_MILLIS, first.get("timestampMillis").getAsLong());
+        assertEquals(0, first.get("nodeId").getAsInt());
+        assertEquals(3.25, first.get("windSpeed").getAsDouble(), 0);
+        assertEquals(21.5, first.get("temperature").getAsDouble(), 0);
+        assertEquals(-60, first.get("rssi").getAsInt());
+        JsonObject last = JsonParser.parseString(lines[2]).getAsJsonObject();
+        assertTrue(last.get("windSpeed").isJsonNull());
+        assertEquals(-12.346, last.get("temperature").getAsDouble(), 0);
+    }
+
+    /** Verifies that a small buffer is written out between rows without losing any. */
+    @Test
+    public void export_SmallBuffer_MatchesLargeBuffer() throws IOException {
+        WeatherHistory history = new WeatherHistory();
+        for (int i = 0; i < 1000; i++) {
+            history.add(START_MILLIS + i * 100L, i / 7.0, 20 - i / 13.0, -i, i % 3);
+        }
+
+        assertEquals(
+                export(ExportFormat.JSON_LINES, history, SeriesExporter.DEFAULT_BUFFER_SIZE),
+                export(ExportFormat.JSON_LINES, history, 1));
+    }
+
+    /** Verifies that progress is reported at intervals and at the end. */
+    @Test
+    public void export_ReportsProgress() throws IOException {
+        WeatherHistory history = new WeatherHistory();
+        int total = 2 * SeriesExporter.PROGRESS_INTERVAL + 5;
+        for (int i = 0; i < total; i++) history.add(START_MILLIS + i, 1, 1, 0, 0);
+        List<Integer> progress = new ArrayList<>();
+
+        new SeriesExporter(ExportFormat.CSV, 1024)
+                .export(
+                        history,
+                        new ByteArrayOutputStream(),
+                        (done, all) -> {
+                            assertEquals(total, all);
+                            progress.add(done);
+                        });
+
+        assertEquals(3, progress.size());
+        assertEquals(SeriesExporter.PROGRESS_INTERVAL, (int) progress.get(0));
+        assertEquals(total, (int) progress.get(2));
+    }
+
+    /** Verifies that interrupting the thread cancels the export. */
+    @Test
+    public void export_Interrupted_Throws() throws IOException {
+        WeatherHistory history = new WeatherHistory();
+        for (int i = 0; i < SeriesExporter.PROGRESS_INTERVAL; i++) {
+            history.add(START_MILLIS + i, 1, 1, 0, 0);
+        }
+
+        Thread.currentThread().interrupt();
+        try {
+            new SeriesExporter(ExportFormat.CSV, 1024)
+                    .export(history, new ByteArrayOutputStream(), null);
+            fail("Expected the export to be cancelled");
+        } catch (InterruptedIOException expected) {
+            // Expected
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.kresshy.weatherstation.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+import com.kresshy.weatherstation.fakes.FakeWeatherRepository;
+import com.kresshy.weatherstation.recording.RecordedSeries;
+import com.kresshy.weatherstation.recording.SessionLog;
+import com.kresshy.weatherstation.recording.SessionStore;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+
+/**
+ * Measures exporting a day of recorded 10 Hz readings, read from the mapped session files, and the
+ * heap the export allocates.
+ */
+public class SessionExporterBenchmarkTest {
+
+    private static final long START_MILLIS = 1_700_000_400_000L;
+    private static final int RECORDS = 24 * 60 * 60 * 10;
+    private static final int BATCH = 4096;
+    private static final int ROUNDS = 3;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private SessionStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        File sessions = folder.newFolder("sessions");
+        File file = new File(sessions, "session-" + START_MILLIS + SessionStore.FILE_SUFFIX);
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        ByteBuffer batch = ByteBuffer.allocate(BATCH * SessionLog.RECORD_SIZE);
+        for (int i = 0; i < RECORDS; i += BATCH) {
+            batch.clear();
+            for (int j = i; j < Math.min(i + BATCH, RECORDS); j++) {
+                float wind = 3 + (j % 97) / 100f;
+                float temperature = 20 + (j % 389) / 100f;
+                SessionLog.put(batch, START_MILLIS + j * 100L, wind, temperature, -60, j % 3);
+            }
+            batch.flip();
+            log.append(batch);
+        }
+        log.close();
+        store = new SessionStore(sessions);
+    }
+
+    @Test
+    public void exportDay_Csv() throws Exception {
+        measure(ExportFormat.CSV);
+    }
+
+    @Test
+    public void exportDay_JsonLines() throws Exception {
+        measure(ExportFormat.JSON_LINES);
+    }
+
+    private void measure(ExportFormat format) throws Exception {
+        SessionExporter exporter =
+                new SessionExporter(folder.newFolder(), new FakeWeatherRepository());
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean countsAllocation = threads instanceof com.sun.management.ThreadMXBean;
+        long best = Long.MAX_VALUE;
+        long allocated = 0;
+        File file = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long startAllocated =
+                    countsAllocation
+                            ? ((com.sun.management.ThreadMXBean) threads)
+                                    .getThreadAllocatedBytes(Thread.currentThread().getId())
+                            : 0;
+            long start = System.nanoTime();
+            RecordedSeries day = store.read(START_MILLIS, Long.MAX_VALUE);
+            file = exporter.export(day, START_MILLIS, format, null);
+            best = Math.min(best, System.nanoTime() - start);
+            if (countsAllocation) {
+                allocated =
+                        ((com.sun.management.ThreadMXBean) threads)
+                                        .getThreadAllocatedBytes(Thread.currentThread().getId())
+                                - startAllocated;
+            }
+            assertEquals(RECORDS, day.size());
+        }
+
+        System.out.printf(
+                "SessionExporter %s: %,d rows in %.2f s, %.1f MB gzip, %,d bytes allocated%n",
+                format,
+                RECORDS,
+                best / 1e9,
+                file.length() / (double) (1 << 20),
+                allocated);
+
+        // A day must export in seconds without allocating per row
+        assertTrue(best < 10_000_000_000L);
+        if (countsAllocation) assertTrue(allocated < 1 << 20);
+    }
+}
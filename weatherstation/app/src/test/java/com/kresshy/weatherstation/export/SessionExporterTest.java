@@ -0,0 +1,168 @@
+package com.kresshy.weatherstation.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.fakes.FakeWeatherRepository;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/** Unit tests for {@link SessionExporter}. */
+public class SessionExporterTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeWeatherRepository repository;
+    private SessionExporter exporter;
+
+    @Before
+    public void setUp() {
+        repository = new FakeWeatherRepository();
+        exporter = new SessionExporter(new File(folder.getRoot(), "exports"), repository);
+    }
+
+    private static List<String> readGzip(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                new GZIPInputStream(new FileInputStream(file)),
+                                StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) lines.add(line);
+        }
+        return lines;
+    }
+
+    /** Records the outcome of a background export. */
+    private static class Outcome implements SessionExporter.Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile File file;
+        volatile IOException error;
+        volatile int lastProgress = -1;
+
+        @Override
+        public void onProgress(int rows, int total) {
+            lastProgress = rows;
+        }
+
+        @Override
+        public void onExported(File file) {
+            this.file = file;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailed(IOException e) {
+            this.error = e;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /** Verifies that recorded readings are exported as a gzip CSV in the background. */
+    @Test
+    public void exportRecorded_WritesGzipCsv() throws Exception {
+        WeatherHistory recorded = new WeatherHistory();
+        recorded.add(START_MILLIS, 3.5, 20, -60, 1);
+        recorded.add(START_MILLIS + 100, 3.75, 20.25, -61, 1);
+        repository.setRecordedHistory(recorded);
+        Outcome outcome = new Outcome();
+
+        exporter.exportRecorded(START_MILLIS, START_MILLIS + 1000, ExportFormat.CSV, outcome);
+        outcome.await();
+
+        assertTrue(outcome.file.getName().endsWith(".csv.gz"));
+        assertEquals(2, outcome.lastProgress);
+        List<String> lines = readGzip(outcome.file);
+        assertEquals(3, lines.size());
+        assertEquals("1700000000100,1,3.750,20.250,-61", lines.get(2));
+    }
+
+    /** Verifies that the live window is exported as JSON lines. */
+    @Test
+    public void exportLiveWindow_WritesGzipJsonLines() throws Exception {
+        WeatherHistory live = new WeatherHistory();
+        live.add(START_MILLIS, 2, 18, -70, 0);
+        repository.setHistorySnapshot(live.snapshot());
+        Outcome outcome = new Outcome();
+
+        exporter.exportLiveWindow(ExportFormat.JSON_LINES, outcome);
+        outcome.await();
+
+        List<String> lines = readGzip(outcome.file);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"timestampMillis\":1700000000000,\"nodeId\":0,"));
+    }
+
+    /** Verifies that only the newest export and no partial file is kept. */
+    @Test
+    public void export_DeletesEarlierExports() throws Exception {
+        WeatherHistory history = new WeatherHistory();
+        history.add(START_MILLIS, 2, 18, -70, 0);
+
+        File first = exporter.export(history, START_MILLIS, ExportFormat.CSV, null);
+        File second = exporter.export(history, START_MILLIS + 1000, ExportFormat.CSV, null);
+
+        assertFalse(first.exists());
+        assertTrue(second.exists());
+        assertEquals(1, exporter.getDirectory().list().length);
+    }
+
+    /** Verifies that an unchecked exception during the export is reported, not swallowed. */
+    @Test
+    public void exportLiveWindow_ThrowingListener_Fails() throws Exception {
+        WeatherHistory live = new WeatherHistory();
+        live.add(START_MILLIS, 2, 18, -70, 0);
+        repository.setHistorySnapshot(live.snapshot());
+        Outcome outcome =
+                new Outcome() {
+                    @Override
+                    public void onProgress(int rows, int total) {
+                        throw new IllegalStateException("listener failed");
+                    }
+                };
+
+        exporter.exportLiveWindow(ExportFormat.CSV, outcome);
+        outcome.await();
+
+        assertEquals(null, outcome.file);
+        assertTrue(outcome.error.getCause() instanceof IllegalStateException);
+        assertEquals(0, exporter.getDirectory().list().length);
+    }
+
+    /** Verifies that a missing storage directory is reported. */
+    @Test
+    public void exportRecorded_NoStorage_Fails() throws Exception {
+        Outcome outcome = new Outcome();
+
+        new SessionExporter((File) null, repository)
+                .exportRecorded(0, 1, ExportFormat.CSV, outcome);
+        outcome.await();
+
+        assertEquals(null, outcome.file);
+        assertEquals("No storage for exports", outcome.error.getMessage());
+    }
+}
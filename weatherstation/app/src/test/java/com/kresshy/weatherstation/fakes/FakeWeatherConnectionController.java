@@ -95,6 +95,11 @@ public class FakeWeatherConnectionController implements WeatherConnectionControl
     @Override
     public void connectToDevice(Parcelable device) {}
 
+    @Override
+    public boolean isReplaying() {
+        return false;
+    }
+
     @Override
     public void registerReceivers() {}
 
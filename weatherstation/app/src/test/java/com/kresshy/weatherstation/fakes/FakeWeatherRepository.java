@@ -4,7 +4,11 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.kresshy.weatherstation.repository.WeatherRepository;
+import com.kresshy.weatherstation.weather.HistorySnapshot;
+import com.kresshy.weatherstation.weather.RollupSeries;
+import com.kresshy.weatherstation.weather.ThermalCycle;
 import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherSeries;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,10 +30,24 @@ public class FakeWeatherRepository implements WeatherRepository {
     private final MutableLiveData<Double> tempTrend = new MutableLiveData<>(0.0);
     private final MutableLiveData<Double> windTrend = new MutableLiveData<>(0.0);
     private final MutableLiveData<Integer> thermalScore = new MutableLiveData<>(0);
+    private final MutableLiveData<ThermalCycle> thermalCycle = new MutableLiveData<>();
     private final MutableLiveData<Boolean> launchDetectorEnabled = new MutableLiveData<>(true);
 
+    private HistorySnapshot historySnapshot = HistorySnapshot.EMPTY;
+    private WeatherSeries recordedHistory = HistorySnapshot.EMPTY;
+
     // --- Control Methods for Testing ---
 
+    /** Sets the live window returned by {@link #getHistorySnapshot()}. */
+    public void setHistorySnapshot(HistorySnapshot snapshot) {
+        this.historySnapshot = snapshot;
+    }
+
+    /** Sets the readings returned by {@link #getRecordedHistory(long, long)} for any range. */
+    public void setRecordedHistory(WeatherSeries series) {
+        this.recordedHistory = series;
+    }
+
     /** Manually updates the latest weather data. */
     public void setWeatherData(WeatherData data) {
         latestWeatherData.postValue(data);
@@ -79,6 +97,11 @@ public class FakeWeatherRepository implements WeatherRepository {
         return thermalScore;
     }
 
+    @Override
+    public LiveData<ThermalCycle> getThermalCycle() {
+        return thermalCycle;
+    }
+
     @Override
     public LiveData<Boolean> isLaunchDetectorEnabled() {
         return launchDetectorEnabled;
@@ -94,6 +117,62 @@ public class FakeWeatherRepository implements WeatherRepository {
         return new ArrayList<>();
     }
 
+    @Override
+    public List<WeatherData> getHistoricalWeatherData(int nodeId) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public HistorySnapshot getHistorySnapshot() {
+        return historySnapshot;
+    }
+
+    @Override
+    public HistorySnapshot getHistorySnapshot(int nodeId) {
+        return HistorySnapshot.EMPTY;
+    }
+
+    @Override
+    public WeatherSeries getRecordedHistory(long fromMillis, long toMillis) {
+        return recordedHistory;
+    }
+
+    @Override
+    public void saveWarmStart() {
+        // Nothing to save
+    }
+
+    @Override
+    public RollupSeries getRollupSeries(int targetPoints) {
+        return new RollupSeries();
+    }
+
+    @Override
+    public RollupSeries getRollupSeries(int nodeId, int targetPoints) {
+        return new RollupSeries();
+    }
+
+    @Override
+    public LiveData<com.kresshy.weatherstation.weather.ProcessedWeatherData>
+            getProcessedWeatherData(int nodeId) {
+        return processedWeatherData;
+    }
+
+    @Override
+    public int[] getNodeIds() {
+        return new int[] {0};
+    }
+
+    @Override
+    public long getRejectedWindReadings(int nodeId) {
+        return 0;
+    }
+
+    @Override
+    public long getRejectedTemperatureReadings(int nodeId) {
+        return 0;
+    }
+
     @Override
     public LiveData<String> getToastMessage() {
         return toastMessage;
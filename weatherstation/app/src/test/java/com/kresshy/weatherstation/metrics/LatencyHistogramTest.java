@@ -0,0 +1,108 @@
+package com.kresshy.weatherstation.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** Unit tests for {@link LatencyHistogram}. */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_IsContiguousAndMonotonic() {
+        int previous = 0;
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            previous = index;
+        }
+    }
+
+    @Test
+    public void bucketUpperBound_IsTheLastValueOfItsBucket() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            long upper = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(upper));
+            assertEquals(i + 1, LatencyHistogram.bucketIndex(upper + 1));
+        }
+        assertEquals(
+                LatencyHistogram.MAX_TRACKABLE_NANOS,
+                LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentiles_AreWithinTheBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10_000];
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + random.nextInt(5_000_000);
+            histogram.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+
+        for (double percentile : new double[] {50, 90, 99}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact);
+            assertTrue(reported - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void smallValues_AreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(7);
+
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(3, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void outOfRangeValues_AreClampedButMaxIsExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(LatencyHistogram.MAX_TRACKABLE_NANOS * 4);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS * 4, histogram.getMax());
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void reset_ClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1234);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecording_CountsEveryValue() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] =
+                    new Thread(
+                            () -> {
+                                for (int i = 0; i < 50_000; i++) histogram.record(i);
+                            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(49_999, histogram.getMax());
+    }
+}
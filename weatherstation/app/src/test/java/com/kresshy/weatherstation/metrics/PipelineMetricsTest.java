@@ -0,0 +1,77 @@
+package com.kresshy.weatherstation.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+/** Unit tests for {@link PipelineMetrics}. */
+public class PipelineMetricsTest {
+
+    @After
+    public void tearDown() {
+        PipelineMetrics.setEnabled(false);
+        PipelineMetrics.reset();
+    }
+
+    @Test
+    public void disabled_RecordsNothing() {
+        PipelineMetrics.setEnabled(false);
+
+        long start = PipelineMetrics.start();
+        PipelineMetrics.record(PipelineMetrics.Stage.PARSE, start);
+
+        assertEquals(0, start);
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.Stage.PARSE).getCount());
+    }
+
+    @Test
+    public void enabled_RecordsElapsedTime() throws Exception {
+        PipelineMetrics.setEnabled(true);
+
+        long start = PipelineMetrics.start();
+        Thread.sleep(2);
+        PipelineMetrics.record(PipelineMetrics.Stage.ANALYZE, start);
+
+        LatencyHistogram histogram = PipelineMetrics.getHistogram(PipelineMetrics.Stage.ANALYZE);
+        assertEquals(1, histogram.getCount());
+        assertTrue(histogram.getMax() >= 2_000_000);
+    }
+
+    @Test
+    public void startedWhileDisabled_IsNotRecordedAfterEnabling() {
+        long start = PipelineMetrics.start();
+        PipelineMetrics.setEnabled(true);
+        PipelineMetrics.record(PipelineMetrics.Stage.READ, start);
+
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.Stage.READ).getCount());
+    }
+
+    @Test
+    public void postedFrame_RecordsDeliveryChartAndEndToEnd() {
+        PipelineMetrics.setEnabled(true);
+
+        PipelineMetrics.beginFrame(PipelineMetrics.start());
+        PipelineMetrics.markPosted();
+        PipelineMetrics.recordDelivery();
+        PipelineMetrics.recordChart(PipelineMetrics.start());
+
+        assertEquals(1, PipelineMetrics.getHistogram(PipelineMetrics.Stage.DELIVERY).getCount());
+        assertEquals(1, PipelineMetrics.getHistogram(PipelineMetrics.Stage.CHART).getCount());
+        assertEquals(1, PipelineMetrics.getHistogram(PipelineMetrics.Stage.END_TO_END).getCount());
+    }
+
+    @Test
+    public void report_ListsEveryStage() {
+        PipelineMetrics.setEnabled(true);
+        PipelineMetrics.getHistogram(PipelineMetrics.Stage.PARSE).record(12_345);
+
+        String report = PipelineMetrics.report();
+
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            assertTrue(report.contains(stage.getLabel()));
+        }
+        assertTrue(report.contains("12.3"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Measures the compression ratio and speed of {@link SampleBlockEncoder} on a simulator trace and
+ * on mast data read back from a {@link SessionLog}.
+ */
+public class SampleBlockBenchmarkTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final int SAMPLES = 1_000_000;
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    /** One node at 1 Hz drifting like {@code SimulatorConnection}, at the JSON frame's 0.01. */
+    private static WeatherHistory simulatorTrace() {
+        Random random = new Random(1);
+        WeatherHistory history = new WeatherHistory();
+        double temperature = 22;
+        double wind = 3;
+        int thermalTicks = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (thermalTicks == 0 && random.nextInt(100) < 2) thermalTicks = 45;
+            if (thermalTicks > 0) {
+                temperature += 0.04 + random.nextDouble() * 0.02;
+                wind = Math.max(0.1, wind - 0.15 - random.nextDouble() * 0.1);
+                thermalTicks--;
+            } else {
+                temperature += (22 - temperature) * 0.01 + (random.nextDouble() - 0.5) * 0.02;
+                wind += (3 - wind) * 0.01 + (random.nextDouble() - 0.5) * 0.1;
+                wind = Math.max(0.1, wind);
+            }
+            history.add(
+                    START_MILLIS + i * 1000L,
+                    Math.round(wind * 100) / 100.0,
+                    Math.round(temperature * 100) / 100.0,
+                    0,
+                    0);
+        }
+        return history;
+    }
+
+    /** Three masts at 10 Hz with arrival jitter, recorded to a session log and read back. */
+    private WeatherHistory recordedTrace() throws Exception {
+        Random random = new Random(2);
+        File file = new File(folder.getRoot(), "masts.wsr");
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        ByteBuffer batch = ByteBuffer.allocate(3000 * SessionLog.RECORD_SIZE);
+        double[] wind = {3, 4, 5};
+        double[] temperature = {20, 21, 22};
+        for (int i = 0; i < SAMPLES; i++) {
+            int node = i % 3;
+            wind[node] = Math.max(0, wind[node] + (random.nextDouble() - 0.5) * 0.2);
+            temperature[node] += (random.nextDouble() - 0.5) * 0.01;
+            SessionLog.put(
+                    batch,
+                    START_MILLIS + (i / 3) * 100L + random.nextInt(8),
+                    Math.round(wind[node] * 100) / 100f,
+                    Math.round(temperature[node] * 100) / 100f,
+                    -62 - random.nextInt(4),
+                    node + 1);
+            if (!batch.hasRemaining()) {
+                batch.flip();
+                log.append(batch);
+                batch.clear();
+            }
+        }
+        batch.flip();
+        log.append(batch);
+        log.close();
+        return SessionLog.read(file);
+    }
+
+    @Test
+    public void simulator_OneNode() {
+        measure("simulator 1 Hz", simulatorTrace());
+    }
+
+    @Test
+    public void recorded_ThreeMasts() throws Exception {
+        measure("3 masts 10 Hz", recordedTrace());
+    }
+
+    private static void measure(String label, WeatherSeries series) {
+        SampleBlockEncoder encoder = new SampleBlockEncoder(BLOCK_BYTES);
+        SampleBlockDecoder decoder = new SampleBlockDecoder();
+        // Blocks are kept back to back, each prefixed with its length
+        byte[] store = new byte[series.size() * SessionLog.RECORD_SIZE];
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        int stored = 0;
+        double sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            stored = 0;
+            int i = 0;
+            while (i < series.size()) {
+                encoder.reset();
+                while (i < series.size()
+                        && encoder.append(
+                                series.getTimestampMillis(i),
+                                series.getWindSpeed(i),
+                                series.getTemperature(i),
+                                series.getRssi(i),
+                                series.getNodeId(i))) {
+                    i++;
+                }
+                int length = encoder.finish();
+                ByteBuffer.wrap(store, stored, 4).putInt(length);
+                System.arraycopy(encoder.getBuffer(), 0, store, stored + 4, length);
+                stored += 4 + length;
+            }
+            long encoded = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int count = 0;
+            for (int offset = 0; offset < stored; ) {
+                int length = ByteBuffer.wrap(store, offset, 4).getInt();
+                decoder.reset(store, offset + 4, length);
+                while (decoder.next()) {
+                    sink += decoder.getWindSpeed();
+                    count++;
+                }
+                offset += 4 + length;
+            }
+            long decodedNanos = System.nanoTime() - start;
+            assertEquals(series.size(), count);
+            if (round >= WARMUP_ROUNDS) {
+                bestEncode = Math.min(bestEncode, encoded);
+                bestDecode = Math.min(bestDecode, decodedNanos);
+            }
+        }
+
+        double raw = (double) series.size() * SessionLog.RECORD_SIZE;
+        double ratio = raw / stored;
+        double megabytes = raw / (1 << 20);
+        System.out.printf(
+                "SampleBlock %s: %.2f bytes/sample, %.1fx vs SessionLog,"
+                        + " encode %.0f MB/s, decode %.0f MB/s of records (%s)%n",
+                label,
+                (double) stored / series.size(),
+                ratio,
+                megabytes / (bestEncode / 1e9),
+                megabytes / (bestDecode / 1e9),
+                sink > 0 ? "ok" : "");
+
+        assertTrue(ratio > 3);
+    }
+}
@@ -0,0 +1,193 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Unit tests for {@link SampleBlockEncoder} and {@link SampleBlockDecoder}. */
+public class SampleBlockCodecTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    /** Readings of a test stream, field by field. */
+    private static class Samples {
+        final long[] timestamps;
+        final float[] windSpeeds;
+        final float[] temperatures;
+        final int[] rssis;
+        final int[] nodeIds;
+
+        Samples(int count) {
+            timestamps = new long[count];
+            windSpeeds = new float[count];
+            temperatures = new float[count];
+            rssis = new int[count];
+            nodeIds = new int[count];
+        }
+
+        int size() {
+            return timestamps.length;
+        }
+    }
+
+    /** Three masts reporting round-robin at 10 Hz with arrival jitter and 0.01 resolution. */
+    private static Samples masts(int count, long seed) {
+        Random random = new Random(seed);
+        Samples samples = new Samples(count);
+        double[] wind = {3, 4, 5};
+        double[] temperature = {20, 21, 22};
+        for (int i = 0; i < count; i++) {
+            int node = i % 3;
+            wind[node] = Math.max(0, wind[node] + (random.nextDouble() - 0.5) * 0.2);
+            temperature[node] += (random.nextDouble() - 0.5) * 0.02;
+            samples.timestamps[i] = START_MILLIS + (i / 3) * 100L + random.nextInt(5);
+            samples.windSpeeds[i] = Math.round(wind[node] * 100) / 100f;
+            samples.temperatures[i] = Math.round(temperature[node] * 100) / 100f;
+            samples.rssis[i] = random.nextInt(10) == 0 ? -60 - random.nextInt(20) : -65;
+            samples.nodeIds[i] = node;
+        }
+        return samples;
+    }
+
+    /** Encodes readings from {@code from} until the block is full and returns how many fit. */
+    private static int encode(SampleBlockEncoder encoder, Samples samples, int from) {
+        int i = from;
+        while (i < samples.size()
+                && encoder.append(
+                        samples.timestamps[i],
+                        samples.windSpeeds[i],
+                        samples.temperatures[i],
+                        samples.rssis[i],
+                        samples.nodeIds[i])) {
+            i++;
+        }
+        encoder.finish();
+        return i - from;
+    }
+
+    private static void assertDecodes(
+            SampleBlockEncoder encoder, Samples samples, int from, int count) {
+        SampleBlockDecoder decoder = new SampleBlockDecoder();
+        decoder.reset(encoder.getBuffer(), 0, encoder.finish());
+        assertEquals(count, decoder.getSampleCount());
+        for (int i = from; i < from + count; i++) {
+            assertTrue(decoder.next());
+            assertEquals("timestamp " + i, samples.timestamps[i], decoder.getTimestampMillis());
+            assertEquals(
+                    "wind " + i,
+                    Float.floatToRawIntBits(samples.windSpeeds[i]),
+                    Float.floatToRawIntBits(decoder.getWindSpeed()));
+            assertEquals(
+                    "temperature " + i,
+                    Float.floatToRawIntBits(samples.temperatures[i]),
+                    Float.floatToRawIntBits(decoder.getTemperature()));
+            assertEquals("rssi " + i, samples.rssis[i], decoder.getRssi());
+            assertEquals("node " + i, samples.nodeIds[i], decoder.getNodeId());
+        }
+        assertFalse(decoder.next());
+    }
+
+    /** Verifies that typical mast data decodes bit-identical and compresses well. */
+    @Test
+    public void roundTrip_Masts_IsLosslessAndCompact() {
+        Samples samples = masts(3000, 1);
+        SampleBlockEncoder encoder = new SampleBlockEncoder(64 * 1024);
+
+        assertEquals(3000, encode(encoder, samples, 0));
+
+        assertDecodes(encoder, samples, 0, 3000);
+        double bytesPerSample = (double) encoder.finish() / 3000;
+        assertTrue("bytes per sample " + bytesPerSample, bytesPerSample < 8);
+    }
+
+    /** Verifies that values at the edges of every bucket and escape survive. */
+    @Test
+    public void roundTrip_EdgeValues_IsLossless() {
+        Samples samples = new Samples(12);
+        long[] timestamps = {
+            0, 100, 200, 137, 400, 5_000, 5_001, Long.MAX_VALUE / 2, -1, -2, 3_000_000_000L, 64
+        };
+        float[] floats = {
+            0f, -0f, Float.NaN, Float.POSITIVE_INFINITY, Float.MIN_VALUE, Float.MAX_VALUE,
+            -Float.MAX_VALUE, 1.5f, 1.5f, Float.intBitsToFloat(0x7FC00001), 3.25f, -273.15f
+        };
+        int[] rssis = {
+            0, 0, -128, 127, 128, -129, Integer.MIN_VALUE, Integer.MAX_VALUE, 5, 5, -60, 0
+        };
+        int[] nodeIds = {0, 255, 256, -1, Integer.MIN_VALUE, 0, 255, 0, 255, 511, 511, 7};
+        for (int i = 0; i < samples.size(); i++) {
+            samples.timestamps[i] = timestamps[i];
+            samples.windSpeeds[i] = floats[i];
+            samples.temperatures[i] = floats[floats.length - 1 - i];
+            samples.rssis[i] = rssis[i];
+            samples.nodeIds[i] = nodeIds[i];
+        }
+        SampleBlockEncoder encoder = new SampleBlockEncoder(1024);
+
+        assertEquals(12, encode(encoder, samples, 0));
+
+        assertDecodes(encoder, samples, 0, 12);
+    }
+
+    /** Verifies that a full block refuses readings and the next block decodes on its own. */
+    @Test
+    public void append_FullBlock_ContinuesInNextBlock() {
+        Samples samples = masts(2000, 2);
+        SampleBlockEncoder encoder = new SampleBlockEncoder(1024);
+
+        int first = encode(encoder, samples, 0);
+        assertTrue(first > 100 && first < 2000);
+        assertTrue(encoder.finish() <= 1024);
+        assertFalse(encoder.append(START_MILLIS, 1, 1, 1, 1));
+        assertDecodes(encoder, samples, 0, first);
+
+        encoder.reset();
+        int second = encode(encoder, samples, first);
+        assertTrue(second > 100);
+        assertDecodes(encoder, samples, first, second);
+    }
+
+    /** Verifies that an empty block is valid. */
+    @Test
+    public void finish_EmptyBlock_DecodesToNothing() {
+        SampleBlockEncoder encoder = new SampleBlockEncoder(64);
+
+        assertEquals(SampleBlockEncoder.HEADER_SIZE, encoder.finish());
+
+        SampleBlockDecoder decoder = new SampleBlockDecoder();
+        decoder.reset(encoder.getBuffer(), 0, encoder.finish());
+        assertFalse(decoder.next());
+    }
+
+    /** Verifies that a cut-off block is reported instead of decoding garbage. */
+    @Test
+    public void next_TruncatedBlock_Throws() {
+        Samples samples = masts(300, 3);
+        SampleBlockEncoder encoder = new SampleBlockEncoder(4096);
+        encode(encoder, samples, 0);
+        byte[] truncated = Arrays.copyOf(encoder.getBuffer(), encoder.finish() / 2);
+
+        SampleBlockDecoder decoder = new SampleBlockDecoder();
+        decoder.reset(truncated, 0, truncated.length);
+        try {
+            while (decoder.next()) {
+                // Decode until the data runs out
+            }
+            fail("Expected the truncation to be detected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    /** Verifies that a block too small for one reading is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_TinyBlock_Throws() {
+        new SampleBlockEncoder(SampleBlockEncoder.HEADER_SIZE + 4);
+    }
+}
@@ -0,0 +1,334 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Tests for {@link SessionLog}. */
+public class SessionLogTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ByteBuffer records(int from, int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(count * SessionLog.RECORD_SIZE);
+        for (int i = from; i < from + count; i++) {
+            SessionLog.put(buffer, START_MILLIS + i * 100L, 3 + i * 0.5f, 20 - i, -60 - i, i % 3);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private File logWith(int count) throws IOException {
+        File file = new File(folder.getRoot(), "session.wsr");
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        log.append(records(0, count));
+        log.close();
+        return file;
+    }
+
+    private static void appendBytes(File file, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(bytes);
+        }
+    }
+
+    /** Verifies that appended readings are read back unchanged. */
+    @Test
+    public void append_ThenRead_RoundTrips() throws IOException {
+        File file = logWith(5000);
+
+        WeatherHistory history = SessionLog.read(file);
+
+        assertEquals(SessionLog.HEADER_SIZE + 5000L * SessionLog.RECORD_SIZE, file.length());
+        assertEquals(5000, history.size());
+        for (int i = 0; i < 5000; i += 777) {
+            assertEquals(START_MILLIS + i * 100L, history.getTimestampMillis(i));
+            assertEquals(3 + i * 0.5f, history.getWindSpeed(i), 0f);
+            assertEquals(20 - i, history.getTemperature(i), 0f);
+            assertEquals(-60 - i, history.getRssi(i));
+            assertEquals(i % 3, history.getNodeId(i));
+        }
+    }
+
+    /** Verifies that reopening keeps the header and continues after the last record. */
+    @Test
+    public void open_ExistingFile_ContinuesAppending() throws IOException {
+        File file = logWith(3);
+
+        SessionLog log = SessionLog.open(file, START_MILLIS + 1_000_000);
+        assertEquals(START_MILLIS, log.getSessionStartMillis());
+        assertEquals(3, log.getRecordCount());
+        assertEquals(START_MILLIS + 200, log.getLastTimestampMillis());
+        log.append(records(3, 2));
+        assertEquals(START_MILLIS + 400, log.getLastTimestampMillis());
+        log.close();
+
+        WeatherHistory history = SessionLog.read(file);
+        assertEquals(5, history.size());
+        assertEquals(START_MILLIS + 400, history.getTimestampMillis(4));
+    }
+
+    /** Verifies that readings older than their predecessor are stored at its time. */
+    @Test
+    public void append_OutOfOrderTimestamp_IsRaisedToPredecessor() throws IOException {
+        File file = new File(folder.getRoot(), "session.wsr");
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        ByteBuffer buffer = ByteBuffer.allocate(3 * SessionLog.RECORD_SIZE);
+        SessionLog.put(buffer, START_MILLIS + 200, 3, 20, 0, 1);
+        SessionLog.put(buffer, START_MILLIS + 100, 3, 20, 0, 2);
+        SessionLog.put(buffer, START_MILLIS + 300, 3, 20, 0, 1);
+        buffer.flip();
+        log.append(buffer);
+        log.close();
+
+        WeatherHistory history = SessionLog.read(file);
+        assertEquals(START_MILLIS + 200, history.getTimestampMillis(1));
+        assertEquals(2, history.getNodeId(1));
+        assertEquals(START_MILLIS + 300, history.getTimestampMillis(2));
+    }
+
+    /** Verifies that a record torn by a crash is cut off and appends continue before it. */
+    @Test
+    public void open_TornTail_IsTruncated() throws IOException {
+        File file = logWith(3);
+        ByteBuffer torn = records(3, 1);
+        appendBytes(file, Arrays.copyOf(torn.array(), 11));
+
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        assertEquals(3, log.getRecordCount());
+        assertEquals(11, log.getTruncatedBytes());
+        assertEquals(SessionLog.HEADER_SIZE + 3L * SessionLog.RECORD_SIZE, file.length());
+        log.append(records(3, 1));
+        log.close();
+
+        assertEquals(4, SessionLog.read(file).size());
+    }
+
+    /** Verifies that everything from the first record failing its checksum is cut off. */
+    @Test
+    public void open_CorruptRecord_IsTruncatedWithEverythingAfterIt() throws IOException {
+        File file = logWith(4);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long windOfSecond = SessionLog.HEADER_SIZE + SessionLog.RECORD_SIZE + 12;
+            raf.seek(windOfSecond);
+            raf.writeFloat(99f);
+        }
+
+        assertEquals(1, SessionLog.read(file).size());
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        log.close();
+
+        assertEquals(1, log.getRecordCount());
+        assertEquals(3L * SessionLog.RECORD_SIZE, log.getTruncatedBytes());
+    }
+
+    /** Verifies that a file whose header was torn starts over. */
+    @Test
+    public void open_TornHeader_StartsOver() throws IOException {
+        File file = folder.newFile("torn.wsr");
+        appendBytes(file, new byte[] {0x57, 0x53, 0x52});
+
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        log.append(records(0, 1));
+        log.close();
+
+        assertEquals(0, log.getTruncatedBytes());
+        assertEquals(1, SessionLog.read(file).size());
+    }
+
+    /** Verifies that a file that is not a session log is left alone. */
+    @Test(expected = IOException.class)
+    public void open_ForeignFile_Throws() throws IOException {
+        File file = folder.newFile("foreign.wsr");
+        appendBytes(file, "<html>not a session</html>".getBytes(StandardCharsets.US_ASCII));
+
+        SessionLog.open(file, START_MILLIS);
+    }
+
+    /** Verifies that partial records are not appended. */
+    @Test(expected = IllegalArgumentException.class)
+    public void append_PartialRecord_Throws() throws IOException {
+        SessionLog log = SessionLog.open(new File(folder.getRoot(), "s.wsr"), START_MILLIS);
+        try {
+            ByteBuffer partial = records(0, 2);
+            partial.limit(partial.limit() - 1);
+            log.append(partial);
+        } finally {
+            log.close();
+        }
+    }
+
+    /** Verifies that a failed append leaves no partial record or dangling index entry behind. */
+    @Test
+    public void append_WriteFails_RollsBackFileAndIndex() throws IOException {
+        File file = new File(folder.getRoot(), "session.wsr");
+        File indexFile = SegmentIndex.fileFor(file);
+        FailingChannel[] failing = new FailingChannel[1];
+        SessionLog log =
+                SessionLog.open(
+                        file, START_MILLIS, channel -> failing[0] = new FailingChannel(channel));
+        log.append(records(0, 3));
+        long end = SessionLog.HEADER_SIZE + 3L * SessionLog.RECORD_SIZE;
+
+        // The next batch starts a new segment and fails halfway through its second record
+        ByteBuffer later = ByteBuffer.allocate(2 * SessionLog.RECORD_SIZE);
+        SessionLog.put(later, START_MILLIS + SegmentIndex.SEGMENT_MS, 5f, 15f, -70, 0);
+        SessionLog.put(later, START_MILLIS + SegmentIndex.SEGMENT_MS + 100, 6f, 14f, -71, 0);
+        later.flip();
+        failing[0].budget = SessionLog.RECORD_SIZE + SessionLog.RECORD_SIZE / 2;
+        try {
+            log.append(later);
+            fail("The write should fail");
+        } catch (IOException expected) {
+            // Disk full
+        }
+
+        assertEquals(end, file.length());
+        assertEquals(SegmentIndex.ENTRY_SIZE, indexFile.length());
+        assertEquals(3, log.getRecordCount());
+        assertEquals(START_MILLIS + 200, log.getLastTimestampMillis());
+
+        // Once the disk has room again, appends continue where the last good record ended
+        failing[0].budget = Long.MAX_VALUE;
+        later.rewind();
+        log.append(later);
+        log.close();
+
+        WeatherHistory history = SessionLog.read(file);
+        assertEquals(5, history.size());
+        assertEquals(START_MILLIS + SegmentIndex.SEGMENT_MS, history.getTimestampMillis(3));
+        SegmentIndex index = SegmentIndex.read(indexFile, file.length());
+        assertEquals(2, index.size());
+        assertEquals(end, index.getOffset(1));
+    }
+
+    /** Delegates to a file channel, failing writes once a byte budget is used up. */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel channel;
+        long budget = Long.MAX_VALUE;
+
+        FailingChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (budget <= 0) throw new IOException("Disk full");
+            if (src.remaining() <= budget) {
+                int written = channel.write(src);
+                budget -= written;
+                return written;
+            }
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + (int) budget);
+            int written = channel.write(part);
+            src.position(src.position() + written);
+            budget -= written;
+            return written;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target)
+                throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count)
+                throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Measures the sustained write throughput of {@link SessionLog} and what {@link
+ * SessionRecorder#record} costs the ingest thread per reading.
+ */
+public class SessionRecorderBenchmarkTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final int RECORDS = 1_000_000;
+    private static final int BATCH = 4096;
+    private static final int BURST = 1000;
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int ROUNDS = 3;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void append_SustainsThroughput() throws Exception {
+        ByteBuffer batch = ByteBuffer.allocate(BATCH * SessionLog.RECORD_SIZE);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            File file = new File(folder.getRoot(), "append-" + round + ".wsr");
+            long start = System.nanoTime();
+            SessionLog log = SessionLog.open(file, START_MILLIS);
+            for (int i = 0; i < RECORDS; i += BATCH) {
+                batch.clear();
+                for (int j = i; j < i + BATCH; j++) {
+                    SessionLog.put(batch, START_MILLIS + j * 100L, 3, 20, -60, 1);
+                }
+                batch.flip();
+                log.append(batch);
+            }
+            log.force();
+            log.close();
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) best = Math.min(best, elapsed);
+            assertTrue(file.delete());
+        }
+
+        double megabytes = (double) RECORDS * SessionLog.RECORD_SIZE / (1 << 20);
+        double seconds = best / 1e9;
+        System.out.printf(
+                "SessionLog.append: %,d records, %.1f MB/s, %,.0f records/s%n",
+                RECORDS, megabytes / seconds, RECORDS / seconds);
+
+        // 10 Hz from a handful of nodes needs a few hundred records per second
+        assertTrue(RECORDS / seconds > 100_000);
+    }
+
+    @Test
+    public void record_CostsTheIngestThreadLittle() throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            File directory = folder.newFolder();
+            SessionRecorder recorder =
+                    new SessionRecorder(directory, 4 * BURST, SessionRecorder.FLUSH_INTERVAL_MS);
+            long inRecord = 0;
+            for (int i = 0; i < RECORDS; i += BURST) {
+                long start = System.nanoTime();
+                for (int j = i; j < i + BURST; j++) {
+                    recorder.record(START_MILLIS + j * 100L, 3, 20, -60, 1);
+                }
+                inRecord += System.nanoTime() - start;
+                // Let the writer catch up, as it does between real readings
+                recorder.flush();
+            }
+            recorder.close();
+            assertEquals(0, recorder.getDroppedCount());
+            assertEquals(RECORDS, recorder.getWrittenCount());
+            if (round >= WARMUP_ROUNDS) best = Math.min(best, inRecord);
+        }
+
+        double nanosPerRecord = (double) best / RECORDS;
+        System.out.printf("SessionRecorder.record: %.1f ns per reading%n", nanosPerRecord);
+
+        assertTrue(nanosPerRecord < 1_000);
+    }
+}
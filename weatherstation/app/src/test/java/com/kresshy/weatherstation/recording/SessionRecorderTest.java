@@ -0,0 +1,169 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+/** Tests for {@link SessionRecorder}. */
+public class SessionRecorderTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    /** Long enough that only a full buffer, a flush or closing writes. */
+    private static final long NEVER = 3_600_000;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File[] sessionFiles() {
+        return new SessionStore(folder.getRoot()).listSessions();
+    }
+
+    /** Verifies that flushed readings are in the session file named after the first one. */
+    @Test
+    public void flush_WritesRecordedReadings() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        WeatherData data = new WeatherData(4.5, 21.5, 2);
+        data.setTimestamp(new Date(START_MILLIS));
+        data.setRssi(-70);
+        recorder.record(data);
+        for (int i = 1; i < 100; i++) recorder.record(START_MILLIS + i * 100, 3, 20, 0, 1);
+
+        recorder.flush();
+
+        File[] files = sessionFiles();
+        assertEquals(1, files.length);
+        assertEquals("session-" + START_MILLIS + ".wsr", files[0].getName());
+        WeatherHistory history = SessionLog.read(files[0]);
+        assertEquals(100, history.size());
+        assertEquals(4.5f, history.getWindSpeed(0), 0f);
+        assertEquals(21.5f, history.getTemperature(0), 0f);
+        assertEquals(-70, history.getRssi(0));
+        assertEquals(2, history.getNodeId(0));
+        assertEquals(START_MILLIS + 9900, history.getTimestampMillis(99));
+        assertEquals(100, recorder.getWrittenCount());
+        recorder.close();
+    }
+
+    /** Verifies that a flush with a time limit writes the queued readings. */
+    @Test
+    public void flushWithTimeout_WritesRecordedReadings() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        for (int i = 0; i < 10; i++) recorder.record(START_MILLIS + i * 100, 3, 20, 0, 1);
+
+        assertTrue(recorder.flush(5_000));
+
+        assertEquals(10, recorder.getWrittenCount());
+        assertEquals(10, SessionLog.read(sessionFiles()[0]).size());
+        recorder.close();
+    }
+
+    /** Verifies that the writer does not wait for the interval once half the buffer is used. */
+    @Test
+    public void record_HalfFullBuffer_IsWrittenEarly() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 8, NEVER);
+        for (int i = 0; i < 4; i++) recorder.record(START_MILLIS + i * 100, 3, 20, 0, 1);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (recorder.getWrittenCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(4, recorder.getWrittenCount());
+        recorder.close();
+    }
+
+    /** Verifies that closing writes what is queued and that later readings are discarded. */
+    @Test
+    public void close_WritesQueuedReadings() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        for (int i = 0; i < 10; i++) recorder.record(START_MILLIS + i * 100, 3, 20, 0, 1);
+
+        recorder.close();
+        recorder.record(START_MILLIS + 1000, 3, 20, 0, 1);
+
+        assertEquals(10, SessionLog.read(sessionFiles()[0]).size());
+        assertEquals(10, recorder.getRecordedCount());
+    }
+
+    /** Verifies that a long pause between readings starts a new session file. */
+    @Test
+    public void record_AfterSessionGap_StartsNewFile() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        long resumed = START_MILLIS + SessionRecorder.SESSION_GAP_MS + 1;
+        recorder.record(START_MILLIS, 3, 20, 0, 1);
+        recorder.record(START_MILLIS + SessionRecorder.SESSION_GAP_MS, 3, 20, 0, 1);
+        recorder.record(resumed + SessionRecorder.SESSION_GAP_MS, 3, 20, 0, 1);
+        recorder.record(resumed + SessionRecorder.SESSION_GAP_MS + 100, 3, 20, 0, 1);
+
+        recorder.close();
+
+        File[] files = sessionFiles();
+        assertEquals(2, files.length);
+        assertEquals(2, SessionLog.read(files[0]).size());
+        assertEquals(2, SessionLog.read(files[1]).size());
+        assertEquals(
+                "session-" + (resumed + SessionRecorder.SESSION_GAP_MS) + ".wsr",
+                files[1].getName());
+    }
+
+    /** Verifies that a restarted recorder repairs and continues the session it was killed in. */
+    @Test
+    public void record_AfterRestart_ResumesTornSession() throws Exception {
+        SessionRecorder first = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        for (int i = 0; i < 10; i++) first.record(START_MILLIS + i * 100, 3, 20, 0, 1);
+        first.close();
+        File file = sessionFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Half a record, as if the process died mid-write
+            raf.seek(raf.length());
+            raf.write(new byte[SessionLog.RECORD_SIZE / 2]);
+        }
+
+        SessionRecorder second = new SessionRecorder(folder.getRoot(), 1024, NEVER);
+        second.record(START_MILLIS + 60_000, 3, 20, 0, 1);
+        second.close();
+
+        assertEquals(1, sessionFiles().length);
+        WeatherHistory history = SessionLog.read(file);
+        assertEquals(11, history.size());
+        assertEquals(START_MILLIS + 60_000, history.getTimestampMillis(10));
+        assertEquals(SessionLog.HEADER_SIZE + 11L * SessionLog.RECORD_SIZE, file.length());
+    }
+
+    /** Verifies that a recorder without a directory discards readings. */
+    @Test
+    public void record_WithoutDirectory_DiscardsReadings() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(null, 16, NEVER);
+        recorder.record(START_MILLIS, 3, 20, 0, 1);
+        recorder.flush();
+        recorder.close();
+
+        assertEquals(0, recorder.getRecordedCount());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    /** Verifies that a file the recorder cannot use is reported and not resumed. */
+    @Test
+    public void record_UnreadableNewestFile_StartsNewFile() throws Exception {
+        File foreign = new File(folder.getRoot(), "session-" + START_MILLIS + ".wsr");
+        try (RandomAccessFile raf = new RandomAccessFile(foreign, "rw")) {
+            raf.write(new byte[64]);
+        }
+        SessionRecorder recorder = new SessionRecorder(folder.getRoot(), 16, NEVER);
+        recorder.record(START_MILLIS + 1000, 3, 20, 0, 1);
+        recorder.close();
+
+        assertEquals(2, sessionFiles().length);
+        assertEquals(1, SessionLog.read(sessionFiles()[1]).size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures range reads of {@link SessionStore} over a day recorded at 10 Hz against scanning the
+ * whole session with {@link SessionLog#read}.
+ */
+public class SessionStoreBenchmarkTest {
+
+    private static final long START_MILLIS = 1_700_000_400_000L;
+    private static final long INTERVAL_MS = 100;
+    private static final int RECORDS = 24 * 60 * 60 * 10;
+    private static final int BATCH = 4096;
+    private static final int READS = 200;
+    private static final int SCANS = 5;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = SessionStore.fileFor(folder.getRoot(), START_MILLIS);
+        SessionLog log = SessionLog.open(file, START_MILLIS);
+        ByteBuffer batch = ByteBuffer.allocate(BATCH * SessionLog.RECORD_SIZE);
+        for (int i = 0; i < RECORDS; i += BATCH) {
+            batch.clear();
+            for (int j = i; j < Math.min(i + BATCH, RECORDS); j++) {
+                SessionLog.put(batch, START_MILLIS + j * INTERVAL_MS, 3, 20, -60, 1);
+            }
+            batch.flip();
+            log.append(batch);
+        }
+        log.close();
+    }
+
+    @Test
+    public void read_TenMinutes() throws Exception {
+        measure("10 min", 10 * 60_000L);
+    }
+
+    @Test
+    public void read_ThreeHours() throws Exception {
+        measure("3 h", 3 * 60 * 60_000L);
+    }
+
+    private void measure(String label, long rangeMs) throws Exception {
+        SessionStore store = new SessionStore(folder.getRoot());
+        Random random = new Random(7);
+        long span = RECORDS * INTERVAL_MS - rangeMs;
+        long[] nanos = new long[READS];
+        double sink = 0;
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < READS; i++) {
+                long from = START_MILLIS + (long) (random.nextDouble() * span);
+                long start = System.nanoTime();
+                RecordedSeries series = store.read(from, from + rangeMs);
+                for (int j = 0; j < series.size(); j++) sink += series.getWindSpeed(j);
+                nanos[i] = System.nanoTime() - start;
+                assertEquals(rangeMs / INTERVAL_MS, series.size(), 1);
+            }
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[READS / 2] / 1e6;
+        double p99 = nanos[READS * 99 / 100] / 1e6;
+
+        long scan = Long.MAX_VALUE;
+        for (int i = 0; i < SCANS; i++) {
+            long start = System.nanoTime();
+            WeatherHistory history = SessionLog.read(file);
+            for (int j = 0; j < history.size(); j++) sink += history.getWindSpeed(j);
+            scan = Math.min(scan, System.nanoTime() - start);
+        }
+        double scanMillis = scan / 1e6;
+
+        System.out.printf(
+                "SessionStore.read %s of 24 h: p50 %.2f ms, p99 %.2f ms;"
+                        + " full SessionLog.read %.1f ms (%s)%n",
+                label, p50, p99, scanMillis, sink > 0 ? "ok" : "");
+
+        // Reading and iterating a range must beat decoding the whole day
+        assertTrue(p50 < scanMillis);
+    }
+}
@@ -0,0 +1,177 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/** Tests for {@link SessionStore}, {@link SegmentIndex} and {@link RecordedSeries}. */
+public class SessionStoreTest {
+
+    /** The start of a segment, so segment boundaries fall on whole ten-minute marks. */
+    private static final long START_MILLIS = 1_700_000_400_000L;
+
+    private static final long MINUTE = 60_000;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Writes a session of readings one second apart whose wind speed counts the readings. */
+    private File writeSession(long startMillis, int count) throws IOException {
+        File file = SessionStore.fileFor(folder.getRoot(), startMillis);
+        SessionLog log = SessionLog.open(file, startMillis);
+        ByteBuffer batch = ByteBuffer.allocate(1000 * SessionLog.RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            SessionLog.put(batch, startMillis + i * 1000L, i, 20, -60, i % 2);
+            if (!batch.hasRemaining() || i == count - 1) {
+                batch.flip();
+                log.append(batch);
+                batch.clear();
+            }
+        }
+        log.close();
+        return file;
+    }
+
+    private void assertRange(RecordedSeries series, long from, long to, long step) {
+        assertEquals((to - from) / step, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(from + i * step, series.getTimestampMillis(i));
+        }
+    }
+
+    /** Verifies that a range inside a session is read exactly, across segment boundaries. */
+    @Test
+    public void read_RangeAcrossSegments_ReturnsExactlyTheRange() throws IOException {
+        writeSession(START_MILLIS, 7200);
+        SessionStore store = new SessionStore(folder.getRoot());
+        long from = START_MILLIS + 25 * MINUTE + 500;
+        long to = START_MILLIS + 75 * MINUTE;
+
+        RecordedSeries series = store.read(from, to);
+
+        assertRange(series, START_MILLIS + 25 * MINUTE + 1000, to, 1000);
+        assertEquals(1501, series.getWindSpeed(0), 0f);
+        assertEquals(1, series.getNodeId(0));
+        assertEquals(-60, series.getRssi(0));
+        assertEquals(20, series.getTemperature(0), 0f);
+    }
+
+    /** Verifies that the index holds one entry per ten-minute segment. */
+    @Test
+    public void append_IndexesEverySegment() throws IOException {
+        File file = writeSession(START_MILLIS, 7200);
+
+        SegmentIndex index =
+                SegmentIndex.read(SegmentIndex.fileFor(file), file.length());
+
+        assertEquals(12, index.size());
+        assertEquals(START_MILLIS + 30 * MINUTE, index.getStartMillis(3));
+        assertEquals(
+                SessionLog.HEADER_SIZE + 1800L * SessionLog.RECORD_SIZE, index.getOffset(3));
+        assertEquals(3, index.segmentAt(START_MILLIS + 39 * MINUTE));
+        assertEquals(-1, index.segmentAt(START_MILLIS - 1));
+    }
+
+    /** Verifies that a missing or damaged index costs speed but not readings. */
+    @Test
+    public void read_WithoutIndex_ScansTheFile() throws IOException {
+        File file = writeSession(START_MILLIS, 3600);
+        File indexFile = SegmentIndex.fileFor(file);
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            // Keep two entries and tear the third
+            raf.setLength(2 * SegmentIndex.ENTRY_SIZE + 5);
+        }
+        SessionStore store = new SessionStore(folder.getRoot());
+        long from = START_MILLIS + 40 * MINUTE;
+        long to = START_MILLIS + 45 * MINUTE;
+
+        assertRange(store.read(from, to), from, to, 1000);
+        assertTrue(indexFile.delete());
+        assertRange(store.read(from, to), from, to, 1000);
+    }
+
+    /** Verifies that reopening a log rebuilds its index. */
+    @Test
+    public void open_RebuildsIndex() throws IOException {
+        File file = writeSession(START_MILLIS, 3600);
+        File indexFile = SegmentIndex.fileFor(file);
+        assertTrue(indexFile.delete());
+
+        SessionLog.open(file, START_MILLIS).close();
+
+        assertEquals(6L * SegmentIndex.ENTRY_SIZE, indexFile.length());
+    }
+
+    /** Verifies that a range spanning two sessions reads both in time order. */
+    @Test
+    public void read_RangeAcrossSessions_JoinsThem() throws IOException {
+        long second = START_MILLIS + 2 * 60 * MINUTE;
+        writeSession(START_MILLIS, 3600);
+        writeSession(second, 3600);
+        SessionStore store = new SessionStore(folder.getRoot());
+
+        RecordedSeries series = store.read(START_MILLIS + 50 * MINUTE, second + 10 * MINUTE);
+
+        assertEquals(600 + 600, series.size());
+        assertEquals(START_MILLIS + 50 * MINUTE, series.getTimestampMillis(0));
+        assertEquals(START_MILLIS + 60 * MINUTE - 1000, series.getTimestampMillis(599));
+        assertEquals(second, series.getTimestampMillis(600));
+        assertEquals(0, series.getWindSpeed(600), 0f);
+        assertEquals(600, series.indexAtOrAfter(START_MILLIS + 90 * MINUTE));
+        assertEquals(1200, series.indexAtOrAfter(second + 20 * MINUTE));
+        assertEquals(0, store.read(START_MILLIS + 70 * MINUTE, second).size());
+    }
+
+    /** Verifies that a record the recorder has not finished writing is left out. */
+    @Test
+    public void read_RecordBeingWritten_IsLeftOut() throws IOException {
+        File file = writeSession(START_MILLIS, 10);
+        ByteBuffer partial = ByteBuffer.allocate(SessionLog.RECORD_SIZE);
+        SessionLog.put(partial, START_MILLIS + 10_000, 10, 20, -60, 0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Full length, but the checksum has not been written yet
+            raf.seek(raf.length());
+            raf.write(partial.array());
+        }
+
+        RecordedSeries series = new SessionStore(folder.getRoot()).read(0, Long.MAX_VALUE);
+
+        assertEquals(10, series.size());
+    }
+
+    /** Verifies that empty ranges and stores give the empty series. */
+    @Test
+    public void read_NothingRecorded_ReturnsEmpty() throws IOException {
+        writeSession(START_MILLIS, 10);
+
+        assertSame(RecordedSeries.EMPTY, new SessionStore((File) null).read(0, Long.MAX_VALUE));
+        assertSame(
+                RecordedSeries.EMPTY,
+                new SessionStore(folder.getRoot()).read(START_MILLIS, START_MILLIS));
+        assertSame(
+                RecordedSeries.EMPTY,
+                new SessionStore(folder.getRoot()).read(0, START_MILLIS));
+    }
+
+    /** Verifies that only session logs are listed, oldest first. */
+    @Test
+    public void listSessions_SkipsOtherFiles() throws IOException {
+        writeSession(START_MILLIS + 1000, 1);
+        writeSession(START_MILLIS, 1);
+        folder.newFile("notes.txt");
+
+        File[] sessions = new SessionStore(folder.getRoot()).listSessions();
+
+        assertEquals(2, sessions.length);
+        assertEquals(START_MILLIS, SessionStore.sessionStart(sessions[0]));
+        assertEquals(START_MILLIS + 1000, SessionStore.sessionStart(sessions[1]));
+    }
+}
@@ -0,0 +1,162 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+import com.kresshy.weatherstation.weather.HampelFilter;
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long the thermal score takes to become useful again after the process is killed,
+ * with and without a warm start, and what the snapshot costs. A score is useful from the first
+ * reading after which it stays within {@value #TOLERANCE} points of an analyzer that was never
+ * interrupted.
+ */
+public class WarmStartBenchmarkTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final long WINDOW_MS = 5 * 60_000;
+    private static final long KILL_MS = 15 * 60_000;
+
+    /** Time the restarted process needs to reconnect and receive readings again. */
+    private static final long RESTART_GAP_MS = 20_000;
+
+    private static final long END_MS = 25 * 60_000;
+    private static final long CYCLE_MS = 8 * 60_000;
+    private static final int TOLERANCE = 5;
+    private static final int ROUNDS = 20;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void timeToUsefulScore_10Hz() throws Exception {
+        measure(100);
+    }
+
+    @Test
+    public void timeToUsefulScore_1Hz() throws Exception {
+        measure(1000);
+    }
+
+    /** Thermals every eight minutes: the air warms as the wind eases, then cools as it picks up. */
+    private static WeatherData[] session(long intervalMillis) {
+        Random random = new Random(25);
+        WeatherData[] readings = new WeatherData[(int) (END_MS / intervalMillis)];
+        for (int i = 0; i < readings.length; i++) {
+            double cycle = Math.sin(2 * Math.PI * i * intervalMillis / CYCLE_MS);
+            double wind = 4.5 - cycle + random.nextGaussian() * 0.25;
+            double temperature = 19 + 1.5 * cycle + random.nextGaussian() * 0.02;
+            WeatherData data =
+                    new WeatherData(Math.max(0, (float) wind), (float) temperature);
+            data.setTimestamp(new Date(START_MILLIS + i * intervalMillis));
+            readings[i] = data;
+        }
+        return readings;
+    }
+
+    private void measure(long intervalMillis) throws Exception {
+        WeatherData[] readings = session(intervalMillis);
+        ThermalAnalyzer reference = analyzer();
+        HampelFilter windFilter = new HampelFilter(101, 4.0, 8.0);
+        HampelFilter temperatureFilter = new HampelFilter(31, 3.0, 2.0);
+        WeatherHistory history = new WeatherHistory();
+        int kill = (int) (KILL_MS / intervalMillis);
+        for (int i = 0; i < kill; i++) {
+            windFilter.accept(readings[i].getWindSpeed());
+            temperatureFilter.accept(readings[i].getTemperature());
+            history.add(readings[i]);
+            history.evictBefore(readings[i].getTimestamp().getTime() - WINDOW_MS);
+            reference.analyze(readings[i]);
+        }
+
+        WarmStartStore store = new WarmStartStore(new File(folder.getRoot(), "warm-start.bin"));
+        List<WarmStartStore.NodeSnapshot> saved =
+                Collections.singletonList(
+                        new WarmStartStore.NodeSnapshot(
+                                0,
+                                history.snapshot(),
+                                reference.getState(),
+                                baseline(windFilter),
+                                baseline(temperatureFilter)));
+        long bestWrite = Long.MAX_VALUE;
+        long bestRestore = Long.MAX_VALUE;
+        ThermalAnalyzer warm = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            store.write(saved);
+            bestWrite = Math.min(bestWrite, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            WarmStartStore.NodeSnapshot restored = store.read().get(0);
+            warm = analyzer();
+            warm.restore(restored.analyzer, restored.history);
+            new HampelFilter(101, 4.0, 8.0)
+                    .restoreBaseline(restored.windBaseline, restored.windBaseline.length);
+            bestRestore = Math.min(bestRestore, System.nanoTime() - start);
+        }
+
+        ThermalAnalyzer cold = analyzer();
+        int resume = (int) ((KILL_MS + RESTART_GAP_MS) / intervalMillis);
+        int coldUseful = -1;
+        int warmUseful = -1;
+        for (int i = resume; i < readings.length; i++) {
+            int expected = reference.analyze(readings[i]).score;
+            if (Math.abs(cold.analyze(readings[i]).score - expected) > TOLERANCE) {
+                coldUseful = -1;
+            } else if (coldUseful < 0) {
+                coldUseful = i;
+            }
+            if (Math.abs(warm.analyze(readings[i]).score - expected) > TOLERANCE) {
+                warmUseful = -1;
+            } else if (warmUseful < 0) {
+                warmUseful = i;
+            }
+        }
+
+        System.out.printf(
+                "WarmStart %d ms: %,d readings, %,d bytes, write %.2f ms, restore %.2f ms%n",
+                intervalMillis,
+                history.size(),
+                new File(folder.getRoot(), "warm-start.bin").length(),
+                bestWrite / 1e6,
+                bestRestore / 1e6);
+        System.out.printf(
+                "WarmStart %d ms: useful score %.1f s after the first reading cold, %.1f s warm%n",
+                intervalMillis,
+                seconds(coldUseful, resume, intervalMillis),
+                seconds(warmUseful, resume, intervalMillis));
+
+        assertEquals(resume, warmUseful);
+        assertTrue(coldUseful > warmUseful);
+    }
+
+    private static ThermalAnalyzer analyzer() {
+        ThermalAnalyzer analyzer = new ThermalAnalyzer();
+        analyzer.setEnabled(true);
+        return analyzer;
+    }
+
+    private static double[] baseline(HampelFilter filter) {
+        double[] values = new double[filter.getBaselineSize()];
+        for (int i = 0; i < values.length; i++) values[i] = filter.getBaselineValue(i);
+        return values;
+    }
+
+    private static double seconds(int useful, int resume, long intervalMillis) {
+        return useful < 0 ? Double.NaN : (useful - resume) * intervalMillis / 1000.0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.kresshy.weatherstation.recording;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.WeatherHistory;
+import com.kresshy.weatherstation.weather.WeatherSeries;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Tests for {@link WarmStartStore}. */
+public class WarmStartStoreTest {
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private WarmStartStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), WarmStartStore.FILE_NAME);
+        store = new WarmStartStore(file);
+    }
+
+    /** A window of readings 100 ms apart with noisy floats. */
+    private static WeatherHistory history(int nodeId, int count) {
+        WeatherHistory history = new WeatherHistory();
+        for (int i = 0; i < count; i++) {
+            history.add(
+                    START_MILLIS + i * 100L,
+                    3 + (i % 97) * 0.037,
+                    18 + (i % 389) * 0.011,
+                    -60 - i % 5,
+                    nodeId);
+        }
+        return history;
+    }
+
+    private static WarmStartStore.NodeSnapshot node(int nodeId, WeatherSeries history) {
+        return new WarmStartStore.NodeSnapshot(
+                nodeId,
+                history,
+                new ThermalAnalyzer.State(20.5, 20.25, 3.5, 3.75, START_MILLIS + nodeId),
+                new double[] {3.1, 3.2, 3.15},
+                new double[] {20.4, 20.5});
+    }
+
+    private static void assertSameReadings(WeatherSeries expected, WeatherSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimestampMillis(i), actual.getTimestampMillis(i));
+            assertEquals(expected.getWindSpeed(i), actual.getWindSpeed(i), 0f);
+            assertEquals(expected.getTemperature(i), actual.getTemperature(i), 0f);
+            assertEquals(expected.getRssi(i), actual.getRssi(i));
+            assertEquals(expected.getNodeId(i), actual.getNodeId(i));
+        }
+    }
+
+    /** Verifies that every node comes back in order with its readings, averages and baselines. */
+    @Test
+    public void read_ReturnsWhatWasWritten() throws IOException {
+        // Enough readings for several encoded blocks
+        WeatherHistory primary = history(2, 30_000);
+        WeatherHistory other = history(7, 10);
+        store.write(Arrays.asList(node(2, primary.snapshot()), node(7, other.snapshot())));
+
+        List<WarmStartStore.NodeSnapshot> nodes = store.read();
+
+        assertEquals(2, nodes.size());
+        assertEquals(2, nodes.get(0).nodeId);
+        assertSameReadings(primary, nodes.get(0).history);
+        assertEquals(7, nodes.get(1).nodeId);
+        assertSameReadings(other, nodes.get(1).history);
+        ThermalAnalyzer.State state = nodes.get(1).analyzer;
+        assertEquals(20.5, state.fastEmaTemp, 0);
+        assertEquals(20.25, state.slowEmaTemp, 0);
+        assertEquals(3.5, state.fastEmaWind, 0);
+        assertEquals(3.75, state.slowEmaWind, 0);
+        assertEquals(START_MILLIS + 7, state.lastTimestampMillis);
+        assertArrayEquals(new double[] {3.1, 3.2, 3.15}, nodes.get(1).windBaseline, 0);
+        assertArrayEquals(new double[] {20.4, 20.5}, nodes.get(1).temperatureBaseline, 0);
+        assertTrue(file.length() < 30_000 * 8);
+    }
+
+    /** Verifies that a node without an analyzer or readings is kept as such. */
+    @Test
+    public void read_NodeWithoutAnalyzer() throws IOException {
+        store.write(
+                Collections.singletonList(
+                        new WarmStartStore.NodeSnapshot(
+                                3, new WeatherHistory(), null, new double[0], new double[0])));
+
+        WarmStartStore.NodeSnapshot node = store.read().get(0);
+
+        assertNull(node.analyzer);
+        assertEquals(0, node.history.size());
+        assertEquals(0, node.windBaseline.length);
+    }
+
+    /** Verifies that nothing is restored before anything was saved. */
+    @Test
+    public void read_NothingSaved_ReturnsNull() {
+        assertNull(store.read());
+        assertNull(new WarmStartStore((File) null).read());
+    }
+
+    /** Verifies that a damaged or cut short snapshot is ignored rather than half restored. */
+    @Test
+    public void read_DamagedSnapshot_ReturnsNull() throws IOException {
+        store.write(Collections.singletonList(node(0, history(0, 500))));
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(length / 2);
+            int value = raf.read();
+            raf.seek(length / 2);
+            raf.write(value ^ 0x10);
+        }
+        assertNull(store.read());
+
+        store.write(Collections.singletonList(node(0, history(0, 500))));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 3);
+        }
+        assertNull(store.read());
+    }
+
+    /** Verifies that a new snapshot replaces the old one and leaves no temporary file behind. */
+    @Test
+    public void write_ReplacesPreviousSnapshot() throws IOException {
+        store.write(Collections.singletonList(node(0, history(0, 500))));
+        store.write(Collections.singletonList(node(1, history(1, 20))));
+
+        List<WarmStartStore.NodeSnapshot> nodes = store.read();
+
+        assertEquals(1, nodes.size());
+        assertEquals(1, nodes.get(0).nodeId);
+        assertEquals(20, nodes.get(0).history.size());
+        assertEquals(1, folder.getRoot().list().length);
+
+        store.clear();
+        assertFalse(file.exists());
+    }
+}
@@ -1,9 +1,16 @@
 package com.kresshy.weatherstation.repository;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -13,16 +20,32 @@ import android.content.SharedPreferences;
 
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 
+import com.kresshy.weatherstation.connection.IngestQueue;
+import com.kresshy.weatherstation.recording.RecordedSeries;
+import com.kresshy.weatherstation.recording.SessionRecorder;
+import com.kresshy.weatherstation.recording.SessionStore;
+import com.kresshy.weatherstation.recording.WarmStartStore;
+import com.kresshy.weatherstation.weather.HistorySnapshot;
+import com.kresshy.weatherstation.weather.RollupSeries;
 import com.kresshy.weatherstation.weather.ThermalAnalyzer;
+import com.kresshy.weatherstation.weather.ThermalCycle;
 import com.kresshy.weatherstation.weather.WeatherData;
+import com.kresshy.weatherstation.weather.WeatherDataBatch;
+import com.kresshy.weatherstation.weather.WeatherHistory;
 import com.kresshy.weatherstation.weather.WeatherMessageParser;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 /**
  * Unit tests for {@link WeatherRepositoryImpl}. Verifies data flow, outlier rejection, and
  * connection lifecycle management.
@@ -39,6 +62,10 @@ public class WeatherRepositoryImplTest {
     @Mock
     private com.kresshy.weatherstation.bluetooth.WeatherConnectionController connectionController;
 
+    @Mock private SessionRecorder sessionRecorder;
+    @Mock private SessionStore sessionStore;
+    @Mock private WarmStartStore warmStartStore;
+
     private WeatherRepositoryImpl repository;
 
     @Before
@@ -55,7 +82,11 @@ public class WeatherRepositoryImplTest {
                         thermalAnalyzer,
                         messageParser,
                         sharedPreferences,
-                        connectionController);
+                        connectionController,
+                        sessionRecorder,
+                        sessionStore,
+                        warmStartStore,
+                        IngestQueue.DEFAULT_CONFIG);
     }
 
     /** Verifies that receiving raw data triggers parsing and analysis, and updates observers. */
@@ -67,13 +98,13 @@ public class WeatherRepositoryImplTest {
                 new ThermalAnalyzer.AnalysisResult(
                         WeatherRepository.LaunchDecision.LAUNCH, 0.5, -0.2, 80);
 
-        when(messageParser.parse(rawData)).thenReturn(parsedData);
+        stubFrames(rawData, parsedData);
         when(thermalAnalyzer.analyze(parsedData)).thenReturn(analysisResult);
 
         repository.onRawDataReceived(rawData);
 
         // Verify parsing and analysis were called
-        verify(messageParser).parse(rawData);
+        verify(messageParser).parseAll(eq(rawData), anyLong(), any(WeatherDataBatch.class));
         verify(thermalAnalyzer).analyze(parsedData);
 
         // Verify Heartbeat update
@@ -87,7 +118,131 @@ public class WeatherRepositoryImplTest {
         assertEquals(80, heartbeat.getThermalScore());
     }
 
-    /** Verifies that physically impossible temperature jumps (Layer 2 filter) are discarded. */
+    /** Verifies that frames delivered as bytes are parsed without going through a String. */
+    @Test
+    public void onFrameReceived_ParsesFrameBytes() {
+        byte[] frame = "WS_some_data_end".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        WeatherData parsedData = new WeatherData(5.0, 25.0);
+        when(messageParser.parseAll(eq(frame), eq(0), eq(frame.length), anyLong(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            WeatherDataBatch batch = invocation.getArgument(4);
+                            batch.clear();
+                            batch.add(parsedData);
+                            return batch;
+                        });
+        when(thermalAnalyzer.analyze(parsedData))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.onFrameReceived(frame, 0, frame.length);
+
+        verify(messageParser).parseAll(eq(frame), eq(0), eq(frame.length), anyLong(), any());
+        assertEquals(parsedData, repository.getLatestWeatherData().getValue());
+    }
+
+    /** Verifies that readings are stamped with the time the queue received them, not parse time. */
+    @Test
+    public void onRawDataReceived_PassesReceiveTimeToParser() {
+        String rawData = "WS_some_data_end";
+        stubFrames(rawData);
+
+        repository.onRawDataReceived(rawData, 1_700_000_000_000L);
+
+        verify(messageParser)
+                .parseAll(eq(rawData), eq(1_700_000_000_000L), any(WeatherDataBatch.class));
+    }
+
+    /**
+     * Verifies that every accepted frame of a burst is analyzed and recorded, and only the newest
+     * one is published.
+     */
+    @Test
+    public void onRawDataReceived_ProcessesEveryFrameOfABatch() {
+        String rawData = "WS_a_endWS_b_endWS_c_end";
+        WeatherData first = new WeatherData(1.0, 20.0);
+        WeatherData spike = new WeatherData(40.0, 40.0);
+        WeatherData last = new WeatherData(3.0, 21.0);
+        stubFrames(rawData, first, spike, last);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.onRawDataReceived(rawData);
+
+        verify(thermalAnalyzer).analyze(first);
+        verify(thermalAnalyzer, never()).analyze(spike);
+        verify(thermalAnalyzer).analyze(last);
+        verify(sessionRecorder).record(first);
+        verify(sessionRecorder, never()).record(spike);
+        verify(sessionRecorder).record(last);
+        assertEquals(2, repository.getHistoricalWeatherData().size());
+        assertEquals(last, repository.getLatestWeatherData().getValue());
+        assertEquals(last, repository.getProcessedWeatherData().getValue().getWeatherData());
+    }
+
+    /** Verifies that every node keeps its own history, outlier state and analyzer. */
+    @Test
+    public void onRawDataReceived_FansOutEveryNode() {
+        String rawData = "WS_multi_node_end";
+        WeatherData node0 = new WeatherData(2.0, 20.0, 0);
+        WeatherData node1 = new WeatherData(4.0, 35.0, 1); // 15 degrees above node 0
+        stubFrames(rawData, node0, node1);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.LAUNCH, 0.5, -0.2, 80));
+
+        repository.onRawDataReceived(rawData);
+
+        // The injected analyzer serves the primary node only
+        verify(thermalAnalyzer).analyze(node0);
+        verify(thermalAnalyzer, never()).analyze(node1);
+
+        assertEquals(1, repository.getHistoricalWeatherData(0).size());
+        assertEquals(1, repository.getHistoricalWeatherData(1).size());
+        assertEquals(node0, repository.getLatestWeatherData().getValue());
+        assertEquals(node1, repository.getProcessedWeatherData(1).getValue().getWeatherData());
+        assertEquals(node0, repository.getProcessedWeatherData().getValue().getWeatherData());
+        assertArrayEquals(new int[] {0, 1}, repository.getNodeIds());
+    }
+
+    /**
+     * Verifies that wind glitches are replaced by the recent median and counted, do not shift the
+     * baseline, and leave the temperature of their readings alone.
+     */
+    @Test
+    public void onRawDataReceived_ReplacesWindGlitchesAndCountsThem() {
+        String rawData = "WS_glitch_end";
+        WeatherData calm1 = new WeatherData(4.0, 20.0);
+        WeatherData glitch = new WeatherData(60.0, 20.0);
+        WeatherData calm2 = new WeatherData(4.5, 20.1);
+        WeatherData glitch2 = new WeatherData(55.0, 20.1);
+        WeatherData calm3 = new WeatherData(4.2, 20.0);
+        stubFrames(rawData, calm1, glitch, calm2, glitch2, calm3);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.onRawDataReceived(rawData);
+
+        verify(thermalAnalyzer).analyze(glitch);
+        verify(thermalAnalyzer).analyze(glitch2);
+        verify(thermalAnalyzer).analyze(calm3);
+        assertEquals(4.0, glitch.getWindSpeed(), 0);
+        assertEquals(20.0, glitch.getTemperature(), 0);
+        assertEquals(4.5, glitch2.getWindSpeed(), 0);
+        assertEquals(20.1, glitch2.getTemperature(), 0);
+        assertEquals(5, repository.getHistoricalWeatherData().size());
+        assertEquals(2, repository.getRejectedWindReadings(0));
+        assertEquals(0, repository.getRejectedTemperatureReadings(0));
+        assertEquals(0, repository.getRejectedWindReadings(7));
+    }
+
+    /** Verifies that physically impossible temperature jumps (Layer 2 filter) are replaced. */
     @Test
     public void onRawDataReceived_RejectsOutlierSpikes() {
         String rawData1 = "WS_data1_end";
@@ -96,8 +251,8 @@ public class WeatherRepositoryImplTest {
         String rawData2 = "WS_data2_end";
         WeatherData spikeData = new WeatherData(5.0, 45.0); // 20 degree jump!
 
-        when(messageParser.parse(rawData1)).thenReturn(saneData);
-        when(messageParser.parse(rawData2)).thenReturn(spikeData);
+        stubFrames(rawData1, saneData);
+        stubFrames(rawData2, spikeData);
         when(thermalAnalyzer.analyze(any()))
                 .thenReturn(
                         new ThermalAnalyzer.AnalysisResult(
@@ -118,6 +273,10 @@ public class WeatherRepositoryImplTest {
                 25.0,
                 repository.getProcessedWeatherData().getValue().getWeatherData().getTemperature(),
                 0.001);
+        // The wind speed of the reading is kept
+        assertEquals(2, repository.getHistoricalWeatherData().size());
+        assertEquals(1, repository.getRejectedTemperatureReadings(0));
+        assertEquals(0, repository.getRejectedWindReadings(0));
     }
 
     /** Verifies that historical data is tracked correctly. */
@@ -125,7 +284,7 @@ public class WeatherRepositoryImplTest {
     public void onRawDataReceived_TracksHistoricalData() {
         String rawData = "WS_data_end";
         WeatherData parsedData = new WeatherData(5.0, 25.0);
-        when(messageParser.parse(rawData)).thenReturn(parsedData);
+        stubFrames(rawData, parsedData);
         when(thermalAnalyzer.analyze(any()))
                 .thenReturn(
                         new ThermalAnalyzer.AnalysisResult(
@@ -139,6 +298,243 @@ public class WeatherRepositoryImplTest {
         assertEquals(10, repository.getHistoricalWeatherData().size());
     }
 
+    /** Verifies that snapshots share the history and report what changed since a version. */
+    @Test
+    public void getHistorySnapshot_ReportsReadingsSinceAVersion() {
+        String rawData = "WS_data_end";
+        WeatherData parsedData = new WeatherData(5.0, 25.0);
+        stubFrames(rawData, parsedData);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        assertEquals(0, repository.getHistorySnapshot().size());
+        repository.onRawDataReceived(rawData);
+        HistorySnapshot first = repository.getHistorySnapshot();
+        repository.onRawDataReceived(rawData);
+        repository.onRawDataReceived(rawData);
+        HistorySnapshot second = repository.getHistorySnapshot();
+
+        assertEquals(1, first.size());
+        assertEquals(3, second.size());
+        assertEquals(2, second.since(first.getVersion()).size());
+        assertEquals(25.0, second.getTemperature(2), 0.001);
+        assertEquals(0, repository.getHistorySnapshot(7).size());
+    }
+
+    /** Verifies that the saved state holds every node, the primary node first. */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writeWarmStart_SavesEveryNodePrimaryFirst() throws IOException {
+        String rawData = "WS_multi_node_end";
+        stubFrames(
+                rawData,
+                new WeatherData(2.0, 20.0, 3),
+                new WeatherData(4.0, 21.0, 1),
+                new WeatherData(2.5, 20.5, 3));
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+        ThermalAnalyzer.State state = new ThermalAnalyzer.State(20.4, 20.2, 2.4, 2.2, 1000);
+        when(thermalAnalyzer.getState()).thenReturn(state);
+
+        repository.onRawDataReceived(rawData);
+        repository.writeWarmStart();
+        // Nothing new to save
+        repository.writeWarmStart();
+
+        ArgumentCaptor<List<WarmStartStore.NodeSnapshot>> saved =
+                ArgumentCaptor.forClass(List.class);
+        verify(warmStartStore, times(1)).write(saved.capture());
+        List<WarmStartStore.NodeSnapshot> nodes = saved.getValue();
+        assertEquals(2, nodes.size());
+        assertEquals(3, nodes.get(0).nodeId);
+        assertEquals(2, nodes.get(0).history.size());
+        assertSame(state, nodes.get(0).analyzer);
+        assertArrayEquals(new double[] {2.0, 2.5}, nodes.get(0).windBaseline, 0);
+        assertArrayEquals(new double[] {20.0, 20.5}, nodes.get(0).temperatureBaseline, 0);
+        assertEquals(1, nodes.get(1).nodeId);
+        assertEquals(21.0, nodes.get(1).history.getTemperature(0), 0.001);
+    }
+
+    /** Verifies that the teardown save has been written by the time it returns. */
+    @Test
+    public void saveWarmStart_WaitsForTheWrite() throws IOException {
+        String rawData = "WS_data_end";
+        stubFrames(rawData, new WeatherData(2.0, 20.0));
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.onRawDataReceived(rawData);
+        repository.saveWarmStart();
+
+        verify(warmStartStore).write(any());
+    }
+
+    /** Verifies that a saved node comes back with its history, baselines and averages. */
+    @Test
+    public void restoreWarmStart_RestoresSavedNodes() {
+        long now = System.currentTimeMillis();
+        WeatherHistory history = new WeatherHistory();
+        history.add(now - 2000, 4.0, 20.0, -60, 5);
+        history.add(now - 1000, 4.2, 20.1, -60, 5);
+        ThermalAnalyzer.State state = new ThermalAnalyzer.State(20.1, 20.0, 4.2, 4.1, now - 1000);
+        WarmStartStore.NodeSnapshot saved =
+                new WarmStartStore.NodeSnapshot(
+                        5, history, state, new double[] {4.0, 4.2}, new double[] {20.0, 20.1});
+        when(warmStartStore.read()).thenReturn(Collections.singletonList(saved));
+
+        repository.restoreWarmStart();
+
+        verify(thermalAnalyzer).restore(eq(state), any());
+        assertEquals(2, repository.getHistorySnapshot().size());
+        assertEquals(20.1, repository.getHistorySnapshot(5).getTemperature(1), 0.001);
+        assertArrayEquals(new int[] {5}, repository.getNodeIds());
+
+        // A node that is live already keeps its state
+        repository.restoreWarmStart();
+        verify(thermalAnalyzer, times(1)).restore(any(), any());
+        assertEquals(2, repository.getHistorySnapshot().size());
+    }
+
+    /** Verifies that a snapshot older than the observation window is ignored. */
+    @Test
+    public void restoreWarmStart_StaleSnapshot_IsIgnored() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(System.currentTimeMillis() - 600_000, 4.0, 20.0, -60, 0);
+        when(warmStartStore.read())
+                .thenReturn(
+                        Collections.singletonList(
+                                new WarmStartStore.NodeSnapshot(
+                                        0, history, null, new double[0], new double[0])));
+
+        repository.restoreWarmStart();
+
+        verify(thermalAnalyzer, never()).restore(any(), any());
+        assertEquals(0, repository.getHistorySnapshot().size());
+    }
+
+    /** Verifies that a replay is kept out of the recordings and the live state returns after. */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void replay_IsNotRecordedAndLiveStateIsRestoredAfterwards() throws IOException {
+        long now = System.currentTimeMillis();
+        WeatherData live = new WeatherData(3.0, 20.0, 0, now - 1000);
+        WeatherData replayed = new WeatherData(5.0, 15.0, 0, now - 86_400_000L);
+        stubFrames("WS_live_end", live);
+        stubFrames("WS_replay_end", replayed);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+        repository.onRawDataReceived("WS_live_end");
+
+        when(connectionController.isReplaying()).thenReturn(true);
+        repository.onRawDataReceived("WS_replay_end");
+        repository.writeWarmStart();
+
+        verify(sessionRecorder).record(live);
+        verify(sessionRecorder, never()).record(replayed);
+        HistorySnapshot history = repository.getHistorySnapshot();
+        assertEquals(1, history.size());
+        assertEquals(now - 86_400_000L, history.getTimestampMillis(0));
+        // The live state was saved when the replay started
+        ArgumentCaptor<List<WarmStartStore.NodeSnapshot>> saved =
+                ArgumentCaptor.forClass(List.class);
+        verify(warmStartStore, timeout(1000)).write(saved.capture());
+        assertEquals(now - 1000, saved.getValue().get(0).history.getTimestampMillis(0));
+
+        when(warmStartStore.read()).thenReturn(saved.getValue());
+        when(connectionController.isReplaying()).thenReturn(false);
+        repository.onRawDataReceived("WS_live_end");
+
+        history = repository.getHistorySnapshot();
+        assertEquals(2, history.size());
+        assertEquals(now - 1000, history.getTimestampMillis(0));
+        verify(warmStartStore, times(1)).write(any());
+    }
+
+    /** Verifies that range reads go to the session store. */
+    @Test
+    public void getRecordedHistory_ReadsSessionStore() throws IOException {
+        when(sessionStore.read(1000, 2000)).thenReturn(RecordedSeries.EMPTY);
+
+        assertSame(RecordedSeries.EMPTY, repository.getRecordedHistory(1000, 2000));
+        verify(sessionStore).read(1000, 2000);
+    }
+
+    /** Verifies that a storage failure yields an empty range instead of an exception. */
+    @Test
+    public void getRecordedHistory_StorageFailure_ReturnsEmpty() throws IOException {
+        when(sessionStore.read(anyLong(), anyLong())).thenThrow(new IOException("Disk gone"));
+
+        assertEquals(0, repository.getRecordedHistory(1000, 2000).size());
+    }
+
+    /** Verifies that the cycle task finds a temperature cycle in the primary node's rollups. */
+    @Test
+    public void analyzeThermalCycles_PublishesCycleOfPrimaryNode() {
+        String rawData = "WS_data_end";
+        WeatherData[] next = new WeatherData[1];
+        when(messageParser.parseAll(eq(rawData), anyLong(), any(WeatherDataBatch.class)))
+                .thenAnswer(
+                        invocation -> {
+                            WeatherDataBatch batch = invocation.getArgument(2);
+                            batch.clear();
+                            batch.add(next[0]);
+                            return batch;
+                        });
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.analyzeThermalCycles();
+        assertNull(repository.getThermalCycle().getValue());
+
+        // 40 minutes of a 5 minute cycle, one reading every 2 s, the task running every 10 s
+        long start = 1_700_000_000_000L;
+        long period = 5 * 60_000;
+        for (long t = 0; t < 40 * 60_000; t += 2_000) {
+            double temperature = 20 + Math.cos(2 * Math.PI * t / period);
+            next[0] = new WeatherData(3.0, temperature);
+            next[0].setTimestamp(new Date(start + t));
+            repository.onRawDataReceived(rawData);
+            if (t % 10_000 == 0) repository.analyzeThermalCycles();
+        }
+
+        ThermalCycle cycle = repository.getThermalCycle().getValue();
+        assertNotNull(cycle);
+        assertEquals(period, cycle.getPeriodMillis(), 5_000);
+        assertEquals(1.0, cycle.getAmplitude(), 0.15);
+    }
+
+    /** Verifies that accepted readings feed the chart rollups of their node. */
+    @Test
+    public void onRawDataReceived_FeedsRollups() {
+        String rawData = "WS_data_end";
+        WeatherData parsedData = new WeatherData(5.0, 25.0);
+        stubFrames(rawData, parsedData);
+        when(thermalAnalyzer.analyze(any()))
+                .thenReturn(
+                        new ThermalAnalyzer.AnalysisResult(
+                                WeatherRepository.LaunchDecision.WAITING, 0, 0, 0));
+
+        repository.onRawDataReceived(rawData);
+        repository.onRawDataReceived(rawData);
+
+        RollupSeries series = repository.getRollupSeries(1);
+        assertEquals(1, series.size());
+        assertEquals(2, series.getCount(0));
+        assertEquals(5.0, series.getWindMean(0), 0.001);
+        assertEquals(25.0, series.getTemperatureMax(0), 0.001);
+        assertEquals(0, repository.getRollupSeries(7, 1).size());
+    }
+
     @Test
     public void parseDoubleSafe_HandlesInvalidInput() {
         assertEquals(10.0, repository.parseDoubleSafe("10.0", 0.0), 0.001);
@@ -189,13 +585,13 @@ public class WeatherRepositoryImplTest {
         WeatherData oldData = new WeatherData(5.0, 25.0);
         // Set timestamp to 3 minutes ago
         long threeMinutesAgo = System.currentTimeMillis() - (3 * 60 * 1000);
-        oldData.setTimestamp(new java.util.Date(threeMinutesAgo));
+        oldData.setTimestamp(new Date(threeMinutesAgo));
 
         String rawData2 = "WS_new_data_end";
         WeatherData newData = new WeatherData(6.0, 26.0);
 
-        when(messageParser.parse(rawData1)).thenReturn(oldData);
-        when(messageParser.parse(rawData2)).thenReturn(newData);
+        stubFrames(rawData1, oldData);
+        stubFrames(rawData2, newData);
         when(thermalAnalyzer.analyze(any()))
                 .thenReturn(
                         new ThermalAnalyzer.AnalysisResult(
@@ -228,4 +624,16 @@ public class WeatherRepositoryImplTest {
         repository.onConnected();
         // Verify it doesn't crash
     }
+
+    /** Makes the mocked parser return the given readings for a raw buffer. */
+    private void stubFrames(String rawData, WeatherData... readings) {
+        when(messageParser.parseAll(eq(rawData), anyLong(), any(WeatherDataBatch.class)))
+                .thenAnswer(
+                        invocation -> {
+                            WeatherDataBatch batch = invocation.getArgument(2);
+                            batch.clear();
+                            for (WeatherData reading : readings) batch.add(reading);
+                            return batch;
+                        });
+    }
 }
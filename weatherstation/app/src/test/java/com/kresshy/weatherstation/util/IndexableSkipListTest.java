@@ -0,0 +1,100 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** Unit tests for {@link IndexableSkipList}. */
+public class IndexableSkipListTest {
+
+    @Test
+    public void insert_KeepsElementsSorted() {
+        IndexableSkipList list = new IndexableSkipList(8);
+        double[] values = {5, 1, 4, 1, 3, 9, 2, 6};
+        for (double v : values) list.insert(v);
+
+        double[] expected = {1, 1, 2, 3, 4, 5, 6, 9};
+        assertEquals(expected.length, list.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], list.get(i), 0);
+        }
+    }
+
+    @Test
+    public void remove_TakesOneOccurrence() {
+        IndexableSkipList list = new IndexableSkipList(4);
+        list.insert(2);
+        list.insert(2);
+        list.insert(3);
+
+        assertTrue(list.remove(2));
+        assertFalse(list.remove(7));
+        assertEquals(2, list.size());
+        assertEquals(2, list.get(0), 0);
+        assertEquals(3, list.get(1), 0);
+    }
+
+    @Test
+    public void countLessThan_GivesTheInsertionRank() {
+        IndexableSkipList list = new IndexableSkipList(8);
+        for (double v : new double[] {1, 2, 2, 4}) list.insert(v);
+
+        assertEquals(0, list.countLessThan(1));
+        assertEquals(1, list.countLessThan(2));
+        assertEquals(3, list.countLessThan(3));
+        assertEquals(4, list.countLessThan(10));
+    }
+
+    @Test
+    public void randomOperations_MatchASortedList() {
+        Random random = new Random(42);
+        IndexableSkipList list = new IndexableSkipList(300);
+        List<Double> reference = new ArrayList<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            if (reference.size() < 300 && (reference.isEmpty() || random.nextBoolean())) {
+                double v = random.nextInt(100) / 4.0; // Plenty of duplicates
+                list.insert(v);
+                reference.add(v);
+                Collections.sort(reference);
+            } else {
+                double v = reference.get(random.nextInt(reference.size()));
+                assertTrue(list.remove(v));
+                reference.remove(v);
+            }
+            assertEquals(reference.size(), list.size());
+            if (!reference.isEmpty()) {
+                int index = random.nextInt(reference.size());
+                assertEquals(reference.get(index), list.get(index), 0);
+            }
+        }
+    }
+
+    @Test
+    public void clear_AllowsReuse() {
+        IndexableSkipList list = new IndexableSkipList(2);
+        list.insert(1);
+        list.insert(2);
+
+        list.clear();
+        list.insert(7);
+        list.insert(3);
+
+        assertEquals(3, list.get(0), 0);
+        assertEquals(7, list.get(1), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void insert_RejectsOverflow() {
+        IndexableSkipList list = new IndexableSkipList(1);
+        list.insert(1);
+        list.insert(2);
+    }
+}
@@ -0,0 +1,95 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Unit tests for {@link IntObjectMap}. */
+public class IntObjectMapTest {
+
+    @Test
+    public void put_ThenGet_ReturnsValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        assertNull(map.put(3, "three"));
+        assertNull(map.put(-7, "minus seven"));
+
+        assertEquals("three", map.get(3));
+        assertEquals("minus seven", map.get(-7));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(3));
+        assertFalse(map.containsKey(0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void put_ExistingKey_ReplacesValueInPlace() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+
+        assertEquals("a", map.put(1, "c"));
+
+        assertEquals(2, map.size());
+        assertEquals(1, map.keyAt(0));
+        assertEquals("c", map.valueAt(0));
+    }
+
+    @Test
+    public void keyAt_IteratesInInsertionOrderAcrossGrowth() {
+        IntObjectMap<Integer> map = new IntObjectMap<>(2);
+        for (int i = 0; i < 100; i++) {
+            map.put(1000 - i * 16, i);
+        }
+
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1000 - i * 16, map.keyAt(i));
+            assertEquals(Integer.valueOf(i), map.valueAt(i));
+        }
+    }
+
+    @Test
+    public void randomOperations_MatchHashMap() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            int key = random.nextInt(512) - 256;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    public void clear_RemovesAllEntries() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        map.put(2, "c");
+        assertEquals("c", map.get(2));
+        assertEquals(1, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void put_NullValue_Throws() {
+        new IntObjectMap<String>().put(1, null);
+    }
+}
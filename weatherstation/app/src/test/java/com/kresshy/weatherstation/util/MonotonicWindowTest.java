@@ -0,0 +1,105 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** Unit tests for {@link MonotonicWindow}. */
+public class MonotonicWindowTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void empty_ReportsNaN() {
+        MonotonicWindow window = new MonotonicWindow(1000);
+
+        assertTrue(Double.isNaN(window.getMax()));
+        assertTrue(Double.isNaN(window.getMin()));
+    }
+
+    @Test
+    public void add_TracksExtremesWithinSpan() {
+        MonotonicWindow window = new MonotonicWindow(3000);
+
+        window.add(T0, 4);
+        window.add(T0 + 1000, 9);
+        window.add(T0 + 2000, 2);
+
+        assertEquals(9, window.getMax(), 0);
+        assertEquals(2, window.getMin(), 0);
+
+        // The 9 m/s gust leaves the span after three seconds
+        window.add(T0 + 4000, 5);
+        assertEquals(5, window.getMax(), 0);
+        assertEquals(2, window.getMin(), 0);
+
+        window.add(T0 + 5000, 3);
+        assertEquals(5, window.getMax(), 0);
+        assertEquals(3, window.getMin(), 0);
+    }
+
+    @Test
+    public void add_AfterLongGap_KeepsOnlyNewestValue() {
+        MonotonicWindow window = new MonotonicWindow(3000);
+        window.add(T0, 20);
+        window.add(T0 + 1000, 1);
+
+        window.add(T0 + 60_000, 7);
+
+        assertEquals(7, window.getMax(), 0);
+        assertEquals(7, window.getMin(), 0);
+    }
+
+    @Test
+    public void add_OutOfOrderTimestamp_CountsAsNewest() {
+        MonotonicWindow window = new MonotonicWindow(3000);
+        window.add(T0 + 10_000, 4);
+
+        window.add(T0, 8);
+
+        assertEquals(8, window.getMax(), 0);
+        window.add(T0 + 12_999, 5);
+        assertEquals(8, window.getMax(), 0);
+    }
+
+    @Test
+    public void add_MatchesBruteForceAtHighRate() {
+        long span = 10_000;
+        int count = 20_000;
+        MonotonicWindow window = new MonotonicWindow(span);
+        long[] times = new long[count];
+        double[] values = new double[count];
+        Random random = new Random(7);
+
+        for (int i = 0; i < count; i++) {
+            // Bursts of readings with equal timestamps grow the deques past their initial size
+            times[i] = T0 + (i / 4) * 5L;
+            values[i] = 5 + 3 * random.nextGaussian();
+            window.add(times[i], values[i]);
+
+            double max = Double.NEGATIVE_INFINITY;
+            double min = Double.POSITIVE_INFINITY;
+            for (int j = i; j >= 0 && times[j] > times[i] - span; j--) {
+                max = Math.max(max, values[j]);
+                min = Math.min(min, values[j]);
+            }
+            assertEquals(max, window.getMax(), 0);
+            assertEquals(min, window.getMin(), 0);
+        }
+    }
+
+    @Test
+    public void clear_RemovesAllValues() {
+        MonotonicWindow window = new MonotonicWindow(3000);
+        window.add(T0, 12);
+
+        window.clear();
+        window.add(T0 - 60_000, 3);
+
+        assertEquals(3, window.getMax(), 0);
+        assertEquals(3, window.getMin(), 0);
+    }
+}
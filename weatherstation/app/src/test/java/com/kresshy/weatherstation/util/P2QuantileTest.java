@@ -0,0 +1,88 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Unit tests for {@link P2Quantile}. */
+public class P2QuantileTest {
+
+    @Test
+    public void empty_ReportsNaN() {
+        assertTrue(Double.isNaN(new P2Quantile(0.9).getEstimate()));
+    }
+
+    @Test
+    public void fewValues_AreExact() {
+        P2Quantile p90 = new P2Quantile(0.9);
+        p90.add(3);
+        assertEquals(3, p90.getEstimate(), 0);
+
+        p90.add(1);
+        p90.add(2);
+        p90.add(9);
+        assertEquals(9, p90.getEstimate(), 0);
+
+        P2Quantile median = new P2Quantile(0.5);
+        median.add(3);
+        median.add(1);
+        median.add(2);
+        assertEquals(2, median.getEstimate(), 0);
+    }
+
+    @Test
+    public void uniformStream_ConvergesToQuantile() {
+        P2Quantile p90 = new P2Quantile(0.9);
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) p90.add(random.nextDouble() * 10);
+
+        assertEquals(100_000, p90.getCount());
+        assertEquals(9.0, p90.getEstimate(), 0.05);
+    }
+
+    @Test
+    public void gustyWind_IsCloseToSortedQuantile() {
+        P2Quantile p90 = new P2Quantile(0.9);
+        Random random = new Random(5);
+        double[] values = new double[20_000];
+        for (int i = 0; i < values.length; i++) {
+            // Skewed like wind: mostly moderate with occasional strong gusts
+            double gustFactor = random.nextInt(10) == 0 ? 2 : 1;
+            values[i] = Math.abs(4 + 1.5 * random.nextGaussian()) * gustFactor;
+            p90.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        double exact = values[(int) Math.ceil(0.9 * values.length) - 1];
+        assertEquals(exact, p90.getEstimate(), 0.02 * exact);
+    }
+
+    @Test
+    public void sortedInput_StaysWithinRange() {
+        P2Quantile p90 = new P2Quantile(0.9);
+        for (int i = 1; i <= 1000; i++) p90.add(i);
+
+        assertEquals(900, p90.getEstimate(), 10);
+    }
+
+    @Test
+    public void clear_ForgetsValues() {
+        P2Quantile p90 = new P2Quantile(0.9);
+        for (int i = 0; i < 100; i++) p90.add(50);
+
+        p90.clear();
+        p90.add(2);
+
+        assertEquals(1, p90.getCount());
+        assertEquals(2, p90.getEstimate(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_RejectsQuantileOutsideRange() {
+        new P2Quantile(1.0);
+    }
+}
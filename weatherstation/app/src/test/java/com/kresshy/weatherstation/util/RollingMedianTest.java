@@ -0,0 +1,88 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Unit tests for {@link RollingMedian}. */
+public class RollingMedianTest {
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1
+                ? sorted[middle]
+                : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double mad(double[] values) {
+        double m = median(values);
+        double[] deviations = new double[values.length];
+        for (int i = 0; i < values.length; i++) deviations[i] = Math.abs(values[i] - m);
+        return median(deviations);
+    }
+
+    @Test
+    public void empty_ReportsNaN() {
+        RollingMedian median = new RollingMedian(5);
+
+        assertTrue(Double.isNaN(median.getMedian()));
+        assertTrue(Double.isNaN(median.getMedianAbsoluteDeviation()));
+    }
+
+    @Test
+    public void knownValues() {
+        RollingMedian median = new RollingMedian(10);
+        for (double v : new double[] {1, 1, 2, 2, 4, 6, 9}) median.add(v);
+
+        assertEquals(2.0, median.getMedian(), 0);
+        assertEquals(1.0, median.getMedianAbsoluteDeviation(), 0);
+    }
+
+    @Test
+    public void slidingWindow_MatchesBruteForce() {
+        Random random = new Random(7);
+        for (int capacity : new int[] {1, 2, 5, 31, 64}) {
+            RollingMedian median = new RollingMedian(capacity);
+            double[] stream = new double[2_000];
+            for (int i = 0; i < stream.length; i++) {
+                // Mix of ties and spread-out values
+                stream[i] = random.nextInt(4) == 0 ? 5.0 : random.nextGaussian() * 3;
+                median.add(stream[i]);
+
+                int from = Math.max(0, i + 1 - capacity);
+                double[] window = Arrays.copyOfRange(stream, from, i + 1);
+                assertEquals(median(window), median.getMedian(), 1e-12);
+                assertEquals(mad(window), median.getMedianAbsoluteDeviation(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void get_ReturnsWindowOldestFirst() {
+        RollingMedian median = new RollingMedian(3);
+        for (int i = 1; i <= 5; i++) median.add(i * 10);
+
+        assertEquals(30.0, median.get(0), 0);
+        assertEquals(50.0, median.get(2), 0);
+    }
+
+    @Test
+    public void clear_StartsOver() {
+        RollingMedian median = new RollingMedian(3);
+        median.add(100);
+        median.add(200);
+
+        median.clear();
+        median.add(1);
+
+        assertEquals(1, median.size());
+        assertEquals(1.0, median.getMedian(), 0);
+        assertEquals(0.0, median.getMedianAbsoluteDeviation(), 0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** Unit tests for {@link RollingStats}. */
+public class RollingStatsTest {
+
+    @Test
+    public void empty_ReportsZero() {
+        RollingStats stats = new RollingStats(4);
+
+        assertEquals(0, stats.size());
+        assertEquals(0.0, stats.getMean(), 0);
+        assertEquals(0.0, stats.getStdDev(), 0);
+    }
+
+    @Test
+    public void partialWindow_MatchesTwoPass() {
+        RollingStats stats = new RollingStats(10);
+        double[] values = {2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0};
+        for (double v : values) stats.add(v);
+
+        assertEquals(8, stats.size());
+        assertEquals(5.0, stats.getMean(), 1e-12);
+        assertEquals(2.0, stats.getStdDev(), 1e-12);
+    }
+
+    @Test
+    public void fullWindow_EvictsOldestValues() {
+        RollingStats stats = new RollingStats(3);
+        for (int i = 1; i <= 5; i++) stats.add(i);
+
+        assertEquals(3, stats.size());
+        assertEquals(3.0, stats.get(0), 0);
+        assertEquals(5.0, stats.get(2), 0);
+        assertEquals(4.0, stats.getMean(), 1e-12);
+        assertEquals(Math.sqrt(2.0 / 3), stats.getStdDev(), 1e-12);
+    }
+
+    @Test
+    public void longStream_StaysCloseToTwoPass() {
+        RollingStats stats = new RollingStats(60);
+        Random random = new Random(7);
+        double[] window = new double[60];
+        for (int i = 0; i < 1_000_000; i++) {
+            // A small spread on a large offset is the hard case for running sums
+            double value = 1000 + random.nextGaussian() * 0.01;
+            stats.add(value);
+            window[i % window.length] = value;
+        }
+
+        double mean = 0;
+        for (double v : window) mean += v;
+        mean /= window.length;
+        double sumSq = 0;
+        for (double v : window) sumSq += (v - mean) * (v - mean);
+
+        assertEquals(mean, stats.getMean(), 1e-9);
+        assertEquals(Math.sqrt(sumSq / window.length), stats.getStdDev(), 1e-7);
+    }
+
+    @Test
+    public void constantValues_HaveZeroDeviation() {
+        RollingStats stats = new RollingStats(5);
+        for (int i = 0; i < 100; i++) stats.add(4.1);
+
+        assertEquals(4.1, stats.getMean(), 1e-12);
+        assertEquals(0.0, stats.getStdDev(), 1e-6);
+    }
+
+    @Test
+    public void clear_StartsOver() {
+        RollingStats stats = new RollingStats(3);
+        stats.add(10);
+        stats.add(20);
+        stats.clear();
+        stats.add(1);
+
+        assertEquals(1, stats.size());
+        assertEquals(1.0, stats.get(0), 0);
+        assertEquals(1.0, stats.getMean(), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_OutsideWindow_Throws() {
+        RollingStats stats = new RollingStats(3);
+        stats.add(1);
+        stats.get(1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.kresshy.weatherstation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Unit tests for {@link WindowedQuantile}. */
+public class WindowedQuantileTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void empty_ReportsNaN() {
+        assertTrue(Double.isNaN(new WindowedQuantile(0.9, 1000).getEstimate()));
+    }
+
+    @Test
+    public void add_WithinSpan_MatchesP2Quantile() {
+        WindowedQuantile windowed = new WindowedQuantile(0.9, 600_000);
+        P2Quantile plain = new P2Quantile(0.9);
+
+        // Under half a span, so nothing has been restarted yet
+        for (int i = 0; i < 200; i++) {
+            windowed.add(T0 + i * 1000L, i % 10);
+            plain.add(i % 10);
+        }
+
+        assertEquals(plain.getEstimate(), windowed.getEstimate(), 0);
+    }
+
+    @Test
+    public void add_ForgetsValuesOlderThanTheSpan() {
+        WindowedQuantile windowed = new WindowedQuantile(0.9, 600_000);
+
+        // Ten minutes of strong wind, then ten minutes of calm
+        long t = T0;
+        for (int i = 0; i < 600; i++, t += 1000) windowed.add(t, 12 + i % 3);
+        assertEquals(14, windowed.getEstimate(), 0.5);
+        for (int i = 0; i < 600; i++, t += 1000) windowed.add(t, 2 + i % 3 * 0.5);
+
+        assertEquals(3, windowed.getEstimate(), 0.1);
+    }
+
+    @Test
+    public void add_AlwaysCoversAtLeastHalfASpan() {
+        WindowedQuantile windowed = new WindowedQuantile(0.9, 600_000);
+
+        long t = T0;
+        for (int i = 0; i < 1200; i++, t += 1000) windowed.add(t, 2);
+        // Right after a restart, the last five minutes of 9 m/s still dominate the estimate
+        for (int i = 0; i < 300; i++, t += 1000) windowed.add(t, 9);
+        windowed.add(t, 2);
+
+        assertEquals(9, windowed.getEstimate(), 0);
+    }
+
+    @Test
+    public void add_AfterLongPause_StartsOver() {
+        WindowedQuantile windowed = new WindowedQuantile(0.9, 600_000);
+        for (int i = 0; i < 100; i++) windowed.add(T0 + i * 1000L, 15);
+
+        windowed.add(T0 + 3_600_000, 4);
+
+        assertEquals(4, windowed.getEstimate(), 0);
+    }
+
+    @Test
+    public void clear_RemovesAllValues() {
+        WindowedQuantile windowed = new WindowedQuantile(0.9, 600_000);
+        windowed.add(T0, 5);
+
+        windowed.clear();
+
+        assertTrue(Double.isNaN(windowed.getEstimate()));
+        windowed.add(T0 - 1000, 3);
+        assertEquals(3, windowed.getEstimate(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_NaN_Throws() {
+        new WindowedQuantile(0.9, 1000).add(T0, Double.NaN);
+    }
+}
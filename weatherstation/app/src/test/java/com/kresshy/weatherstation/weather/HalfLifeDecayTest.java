@@ -0,0 +1,41 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/** Unit tests for {@link HalfLifeDecay}. */
+public class HalfLifeDecayTest {
+
+    @Test
+    public void retained_MatchesExactDecay() {
+        HalfLifeDecay decay = new HalfLifeDecay(6.5788);
+        long[] samples = {1, 50, 100, 999, 1000, 1023, 1024, 1025, 60_000, 500_000};
+        for (long millis : samples) {
+            double exact = Math.pow(0.5, millis / 6578.8);
+            assertEquals(exact, decay.retained(millis), exact * 1e-12);
+        }
+    }
+
+    @Test
+    public void retained_IsHalfAfterOneHalfLife() {
+        HalfLifeDecay decay = new HalfLifeDecay(1.0);
+
+        assertEquals(0.5, decay.retained(1000), 1e-15);
+        assertEquals(0.25, decay.retained(2000), 1e-15);
+    }
+
+    @Test
+    public void retained_HandlesEdges() {
+        HalfLifeDecay decay = new HalfLifeDecay(1.0);
+
+        assertEquals(1.0, decay.retained(0), 0);
+        assertEquals(1.0, decay.retained(-500), 0);
+        assertEquals(0.0, decay.retained(HalfLifeDecay.MAX_TABLE_MILLIS + 1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_RejectsNonPositiveHalfLife() {
+        new HalfLifeDecay(0);
+    }
+}
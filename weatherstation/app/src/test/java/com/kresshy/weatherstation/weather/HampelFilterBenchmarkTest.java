@@ -0,0 +1,110 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the cost of one {@link HampelFilter#accept(double)} call for windows from 3 s to 60 s of
+ * 50 Hz samples, next to a filter that sorts a copy of the window for every sample.
+ */
+public class HampelFilterBenchmarkTest {
+
+    private static final int[] WINDOW_SIZES = {151, 501, 3_001};
+    private static final int SAMPLES = 500_000;
+    private static final int REFERENCE_SAMPLES = 5_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 3;
+
+    /** Sample rate the filter must keep up with, for two channels of eight nodes. */
+    private static final int RATE_HZ = 50;
+
+    private static final int CHANNELS = 2 * 8;
+
+    private double[] stream;
+    private long checksum;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        Random random = new Random(1);
+        stream = new double[4096];
+        for (int i = 0; i < stream.length; i++) {
+            // Gusty wind with an occasional glitch
+            stream[i] = 4 + 1.5 * random.nextGaussian() + (random.nextInt(200) == 0 ? 60 : 0);
+        }
+    }
+
+    @Test
+    public void acceptCost_KeepsUpWithFiftyHertz() {
+        double[] nanosPerSample = new double[WINDOW_SIZES.length];
+        double[] referenceNanosPerSample = new double[WINDOW_SIZES.length];
+
+        for (int w = 0; w < WINDOW_SIZES.length; w++) {
+            int window = WINDOW_SIZES[w];
+            long best = Long.MAX_VALUE;
+            long bestReference = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                HampelFilter filter = new HampelFilter(window, 3, 0.5);
+                long start = System.nanoTime();
+                for (int i = 0; i < SAMPLES; i++) {
+                    if (filter.accept(stream[i & 4095])) checksum++;
+                }
+                long elapsed = System.nanoTime() - start;
+
+                double[] history = new double[window];
+                for (int i = 0; i < window; i++) history[i] = stream[i & 4095];
+                start = System.nanoTime();
+                for (int i = 0; i < REFERENCE_SAMPLES; i++) {
+                    if (sortingAccept(history, i % window, stream[i & 4095])) checksum++;
+                }
+                long reference = System.nanoTime() - start;
+
+                if (round >= WARMUP_ROUNDS) {
+                    best = Math.min(best, elapsed);
+                    bestReference = Math.min(bestReference, reference);
+                }
+            }
+            nanosPerSample[w] = (double) best / SAMPLES;
+            referenceNanosPerSample[w] = (double) bestReference / REFERENCE_SAMPLES;
+        }
+
+        System.out.println("HampelFilter.accept cost per sample (checksum " + checksum + ")");
+        for (int w = 0; w < WINDOW_SIZES.length; w++) {
+            System.out.printf(
+                    "  window %,6d   skip list %,8.1f ns   sorting %,12.1f ns   "
+                            + "%d channels at %d Hz use %.4f%% of a core%n",
+                    WINDOW_SIZES[w],
+                    nanosPerSample[w],
+                    referenceNanosPerSample[w],
+                    CHANNELS,
+                    RATE_HZ,
+                    nanosPerSample[w] * CHANNELS * RATE_HZ / 1e7);
+        }
+
+        // Even the 60 s window must leave the ingest thread almost idle
+        double budgetNanos = 1e9 / (RATE_HZ * CHANNELS) / 100;
+        assertTrue(nanosPerSample[WINDOW_SIZES.length - 1] < budgetNanos);
+    }
+
+    /** The straightforward filter: sort the window twice for every sample. */
+    private static boolean sortingAccept(double[] history, int oldest, double value) {
+        double[] sorted = history.clone();
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = Math.abs(history[i] - median);
+        Arrays.sort(sorted);
+        double mad = sorted[sorted.length / 2];
+        history[oldest] = value;
+        return Math.abs(value - median)
+                <= Math.max(3 * HampelFilter.MAD_SCALE * mad, 0.5);
+    }
+}
@@ -0,0 +1,116 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Unit tests for {@link HampelFilter}. */
+public class HampelFilterTest {
+
+    @Test
+    public void firstValue_IsAccepted() {
+        HampelFilter filter = new HampelFilter(15, 3, 1.0);
+
+        assertTrue(filter.accept(250.0));
+        assertEquals(0, filter.getRejectedCount());
+    }
+
+    @Test
+    public void spike_IsRejectedWithoutPoisoningTheBaseline() {
+        HampelFilter filter = new HampelFilter(15, 3, 1.0);
+        for (int i = 0; i < 10; i++) assertTrue(filter.accept(20.0 + (i % 3) * 0.1));
+
+        assertFalse(filter.accept(45.0));
+        // Comparing with the last value would have made 45 the new baseline
+        assertTrue(filter.accept(20.1));
+        assertFalse(filter.accept(44.0));
+        assertEquals(2, filter.getRejectedCount());
+    }
+
+    @Test
+    public void lastMedian_IsTheReplacementForARejectedValue() {
+        HampelFilter filter = new HampelFilter(15, 3, 1.0);
+        assertTrue(Double.isNaN(filter.getLastMedian()));
+        filter.accept(20.0);
+        filter.accept(20.4);
+        filter.accept(20.2);
+
+        assertFalse(filter.accept(45.0));
+        assertEquals(20.2, filter.getLastMedian(), 1e-9);
+        assertFalse(filter.accept(Double.NaN));
+        assertEquals(20.3, filter.getLastMedian(), 1e-9);
+    }
+
+    @Test
+    public void noisySignal_WidensTheThreshold() {
+        HampelFilter filter = new HampelFilter(15, 3, 0.5);
+        double[] gusty = {3, 6, 2, 7, 4, 8, 3, 6, 5, 2, 7, 4};
+        for (double v : gusty) filter.accept(v);
+
+        // Median 4.5, MAD 1.5: anything within 4.5 +/- 6.7 is plausible, far beyond the minimum
+        assertFalse(filter.accept(12.0));
+        assertTrue(filter.accept(10.5));
+    }
+
+    @Test
+    public void steadySignal_UsesTheMinimumDeviation() {
+        HampelFilter filter = new HampelFilter(15, 3, 1.0);
+        for (int i = 0; i < 15; i++) filter.accept(4.0);
+
+        assertTrue(filter.accept(4.9));
+        assertFalse(filter.accept(5.5));
+    }
+
+    @Test
+    public void stepChange_BecomesTheNewBaseline() {
+        HampelFilter filter = new HampelFilter(9, 3, 1.0);
+        for (int i = 0; i < 9; i++) filter.accept(10.0);
+
+        int rejected = 0;
+        while (!filter.accept(30.0)) rejected++;
+
+        // Accepted as soon as the new level holds the majority of the window
+        assertEquals(5, rejected);
+    }
+
+    @Test
+    public void nonFiniteValues_AreRejectedAndIgnored() {
+        HampelFilter filter = new HampelFilter(5, 3, 1.0);
+        filter.accept(10.0);
+
+        assertFalse(filter.accept(Double.NaN));
+        assertFalse(filter.accept(Double.POSITIVE_INFINITY));
+        assertTrue(filter.accept(10.5));
+        assertEquals(2, filter.getRejectedCount());
+    }
+
+    @Test
+    public void restoreBaseline_JudgesLikeTheSavedFilter() {
+        HampelFilter saved = new HampelFilter(9, 3, 1.0);
+        for (int i = 0; i < 20; i++) saved.accept(10 + (i % 3) * 0.1);
+        double[] baseline = new double[saved.getBaselineSize()];
+        for (int i = 0; i < baseline.length; i++) baseline[i] = saved.getBaselineValue(i);
+
+        HampelFilter restored = new HampelFilter(9, 3, 1.0);
+        restored.restoreBaseline(baseline, baseline.length);
+
+        assertEquals(9, restored.getBaselineSize());
+        assertFalse(restored.accept(25.0));
+        assertTrue(restored.accept(10.2));
+        assertEquals(saved.accept(25.0), restored.accept(25.0));
+    }
+
+    @Test
+    public void reset_ClearsWindowAndCount() {
+        HampelFilter filter = new HampelFilter(5, 3, 1.0);
+        filter.accept(10.0);
+        filter.accept(50.0);
+
+        filter.reset();
+
+        assertEquals(0, filter.getRejectedCount());
+        assertTrue(filter.accept(50.0));
+    }
+}
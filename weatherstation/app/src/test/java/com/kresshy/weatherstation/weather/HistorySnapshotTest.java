@@ -0,0 +1,144 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Unit tests for {@link HistorySnapshot}. */
+public class HistorySnapshotTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static void addReadings(WeatherHistory history, int from, int to) {
+        for (int i = from; i < to; i++) {
+            history.add(T0 + i * 100L, i % 1000, 15.0, 0, 0);
+        }
+    }
+
+    @Test
+    public void snapshot_IsUnaffectedByLaterAppends() {
+        WeatherHistory history = new WeatherHistory();
+        addReadings(history, 0, 10);
+
+        HistorySnapshot snapshot = history.snapshot();
+        addReadings(history, 10, WeatherHistory.PAGE_SIZE * 3);
+
+        assertEquals(10, snapshot.size());
+        assertEquals(10, snapshot.getVersion());
+        assertEquals(T0 + 900, snapshot.getTimestampMillis(9));
+        assertEquals(10, snapshot.indexAtOrAfter(T0 + 1000));
+    }
+
+    @Test
+    public void snapshot_SurvivesEvictionOfItsPages() {
+        WeatherHistory history = new WeatherHistory();
+        addReadings(history, 0, WeatherHistory.PAGE_SIZE + 5);
+        HistorySnapshot snapshot = history.snapshot();
+
+        // Evict everything and write enough to need fresh pages several times over
+        for (int i = WeatherHistory.PAGE_SIZE + 5; i < WeatherHistory.PAGE_SIZE * 6; i++) {
+            history.add(T0 + i * 100L, -1, -1, 0, 0);
+            history.evictBefore(T0 + i * 100L);
+        }
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(T0 + i * 100L, snapshot.getTimestampMillis(i));
+            assertEquals(i % 1000, snapshot.getWindSpeed(i), 0);
+        }
+    }
+
+    @Test
+    public void since_ReturnsOnlyNewerReadings() {
+        WeatherHistory history = new WeatherHistory();
+        addReadings(history, 0, 100);
+        HistorySnapshot before = history.snapshot();
+        addReadings(history, 100, 130);
+
+        HistorySnapshot changes = history.snapshot().since(before.getVersion());
+
+        assertEquals(30, changes.size());
+        assertEquals(100, changes.getStartVersion());
+        assertEquals(130, changes.getVersion());
+        assertEquals(T0 + 10_000, changes.getTimestampMillis(0));
+        assertTrue(history.snapshot().isContinuousFrom(before.getVersion()));
+    }
+
+    @Test
+    public void since_StartsAtTheOldestReadingLeftAfterEviction() {
+        WeatherHistory history = new WeatherHistory();
+        addReadings(history, 0, 100);
+        HistorySnapshot before = history.snapshot();
+        addReadings(history, 100, 200);
+        history.evictBefore(T0 + 15_000);
+
+        HistorySnapshot now = history.snapshot();
+        HistorySnapshot changes = now.since(before.getVersion());
+
+        assertFalse(now.isContinuousFrom(before.getVersion()));
+        assertEquals(50, changes.size());
+        assertEquals(T0 + 15_000, changes.getTimestampMillis(0));
+    }
+
+    @Test
+    public void since_CurrentVersionIsEmpty() {
+        WeatherHistory history = new WeatherHistory();
+        addReadings(history, 0, 10);
+        HistorySnapshot snapshot = history.snapshot();
+
+        assertEquals(0, snapshot.since(snapshot.getVersion()).size());
+        assertSame(snapshot, snapshot.since(0));
+    }
+
+    @Test
+    public void empty_HasNoReadings() {
+        assertEquals(0, HistorySnapshot.EMPTY.size());
+        assertEquals(0, HistorySnapshot.EMPTY.indexAtOrAfter(T0));
+        assertEquals(0, new WeatherHistory().snapshot().size());
+    }
+
+    /** A reader keeps iterating snapshots while the writer appends and evicts on another thread. */
+    @Test
+    public void snapshots_StayConsistentUnderConcurrentWrites() throws Exception {
+        final WeatherHistory history = new WeatherHistory();
+        final Object lock = new Object();
+        final int total = 200_000;
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread writer =
+                new Thread(
+                        () -> {
+                            for (int i = 0; i < total; i++) {
+                                synchronized (lock) {
+                                    history.add(T0 + i * 100L, i % 1000, 15.0, 0, 0);
+                                    history.evictBefore(T0 + i * 100L - 60_000);
+                                }
+                            }
+                        });
+        writer.start();
+
+        long lastVersion = 0;
+        while (writer.isAlive() || lastVersion < total) {
+            HistorySnapshot snapshot;
+            synchronized (lock) {
+                snapshot = history.snapshot();
+            }
+            for (int i = 0; i < snapshot.size(); i++) {
+                long seq = snapshot.getStartVersion() + i;
+                if (snapshot.getTimestampMillis(i) != T0 + seq * 100L
+                        || snapshot.getWindSpeed(i) != seq % 1000) {
+                    failure.compareAndSet(null, "Reading " + seq + " changed under the reader");
+                }
+            }
+            lastVersion = snapshot.getVersion();
+        }
+        writer.join();
+
+        assertNull(failure.get());
+    }
+}
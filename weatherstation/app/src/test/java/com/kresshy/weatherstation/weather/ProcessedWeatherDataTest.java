@@ -1,6 +1,7 @@
 package com.kresshy.weatherstation.weather;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.kresshy.weatherstation.repository.WeatherRepository;
 
@@ -25,4 +26,33 @@ public class ProcessedWeatherDataTest {
         assertEquals(windTrend, processed.getWindTrend(), 0.001);
         assertEquals(thermalScore, processed.getThermalScore());
     }
+
+    @Test
+    public void windExtremes_AreNaNUnlessGiven() {
+        WeatherData weatherData = new WeatherData(5.5, 22.2);
+
+        ProcessedWeatherData without =
+                new ProcessedWeatherData(
+                        weatherData, WeatherRepository.LaunchDecision.WAITING, 0, 0, 0);
+        ProcessedWeatherData with =
+                new ProcessedWeatherData(
+                        weatherData,
+                        WeatherRepository.LaunchDecision.WAITING,
+                        0,
+                        0,
+                        0,
+                        7.5,
+                        3.0,
+                        11.0,
+                        1.0,
+                        6.5);
+
+        assertTrue(Double.isNaN(without.getGust()));
+        assertTrue(Double.isNaN(without.getWindP90()));
+        assertEquals(7.5, with.getGust(), 0);
+        assertEquals(3.0, with.getLull(), 0);
+        assertEquals(11.0, with.getPeakGust(), 0);
+        assertEquals(1.0, with.getLowestLull(), 0);
+        assertEquals(6.5, with.getWindP90(), 0);
+    }
 }
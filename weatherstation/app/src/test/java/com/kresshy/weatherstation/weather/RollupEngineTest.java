@@ -0,0 +1,187 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/** Unit tests for {@link RollupEngine}. */
+public class RollupEngineTest {
+
+    private static final long T0 = 1_699_999_980_000L; // Aligned to a minute
+
+    @Test
+    public void empty_ReadsNothing() {
+        RollupEngine engine = new RollupEngine(300_000);
+
+        RollupSeries series = engine.read(100, new RollupSeries());
+
+        assertEquals(0, series.size());
+        assertEquals(1000, series.getResolutionMillis());
+    }
+
+    @Test
+    public void add_AggregatesReadingsOfOneBucket() {
+        RollupEngine engine = new RollupEngine(300_000);
+        engine.add(T0 + 100, 2.0, 20.0);
+        engine.add(T0 + 500, 6.0, 18.0);
+        engine.add(T0 + 900, 4.0, 22.0);
+        engine.add(T0 + 1000, 1.0, 10.0);
+
+        RollupSeries series = engine.readResolution(1000, new RollupSeries());
+
+        assertEquals(2, series.size());
+        assertEquals(T0, series.getStartMillis(0));
+        assertEquals(3, series.getCount(0));
+        assertEquals(2.0, series.getWindMin(0), 0);
+        assertEquals(6.0, series.getWindMax(0), 0);
+        assertEquals(4.0, series.getWindMean(0), 1e-12);
+        assertEquals(18.0, series.getTemperatureMin(0), 0);
+        assertEquals(22.0, series.getTemperatureMax(0), 0);
+        assertEquals(20.0, series.getTemperatureMean(0), 1e-12);
+        assertEquals(T0 + 1000, series.getStartMillis(1));
+        assertEquals(1, series.getCount(1));
+    }
+
+    @Test
+    public void add_CoarseBucketsMatchTheFineOnes() {
+        RollupEngine engine = new RollupEngine(600_000);
+        // 10 Hz for two minutes, wind ramping up by 0.01 m/s per reading
+        for (int i = 0; i < 1200; i++) {
+            engine.add(T0 + i * 100L, i * 0.01, 15.0);
+        }
+
+        RollupSeries minutes = engine.readResolution(60_000, new RollupSeries());
+
+        assertEquals(2, minutes.size());
+        assertEquals(600, minutes.getCount(0));
+        assertEquals(0.0, minutes.getWindMin(0), 1e-9);
+        assertEquals(5.99, minutes.getWindMax(0), 1e-9);
+        assertEquals(2.995, minutes.getWindMean(0), 1e-9);
+        assertEquals(T0 + 60_000, minutes.getStartMillis(1));
+    }
+
+    @Test
+    public void read_PicksTheCoarsestResolutionMeetingTheTarget() {
+        RollupEngine engine = new RollupEngine(3_600_000);
+        // One reading per second for 30 minutes
+        for (int i = 0; i < 1800; i++) {
+            engine.add(T0 + i * 1000L, 3.0, 15.0);
+        }
+
+        assertEquals(60_000, engine.selectResolution(30));
+        assertEquals(10_000, engine.selectResolution(100));
+        assertEquals(1000, engine.selectResolution(1000));
+        // Nothing has enough buckets: the finest resolution is the best effort
+        assertEquals(1000, engine.selectResolution(5000));
+
+        RollupSeries series = engine.read(100, new RollupSeries());
+        assertEquals(10_000, series.getResolutionMillis());
+        assertEquals(180, series.size());
+    }
+
+    @Test
+    public void add_DropsBucketsOutsideTheWindow() {
+        RollupEngine engine = new RollupEngine(10_000);
+        for (int i = 0; i < 30; i++) {
+            engine.add(T0 + i * 1000L, i, 15.0);
+        }
+
+        RollupSeries series = engine.readResolution(1000, new RollupSeries());
+
+        // The newest reading at T0 + 29 s keeps buckets that end after T0 + 19 s
+        assertEquals(T0 + 19_000, series.getStartMillis(0));
+        assertEquals(T0 + 29_000, series.getStartMillis(series.size() - 1));
+        assertEquals(11, series.size());
+    }
+
+    @Test
+    public void add_StaysBoundedForLongWindows() {
+        RollupEngine engine = new RollupEngine(24 * 3_600_000L);
+        // Two hours at 10 Hz
+        for (int i = 0; i < 72_000; i++) {
+            engine.add(T0 + i * 100L, 3.0, 15.0);
+        }
+
+        RollupSeries seconds = engine.readResolution(1000, new RollupSeries());
+        assertEquals(RollupEngine.MAX_BUCKETS, seconds.size());
+        // The finest resolution covers only the most recent half hour
+        assertEquals(T0 + 7_199_000, seconds.getStartMillis(seconds.size() - 1));
+
+        assertEquals(720, engine.readResolution(10_000, new RollupSeries()).size());
+        assertEquals(120, engine.readResolution(60_000, new RollupSeries()).size());
+    }
+
+    @Test
+    public void add_CountsLateReadingsInTheNewestBucket() {
+        RollupEngine engine = new RollupEngine(300_000);
+        engine.add(T0 + 5000, 2.0, 15.0);
+        engine.add(T0 + 1000, 4.0, 15.0);
+
+        RollupSeries series = engine.readResolution(1000, new RollupSeries());
+
+        assertEquals(1, series.size());
+        assertEquals(T0 + 5000, series.getStartMillis(0));
+        assertEquals(2, series.getCount(0));
+        assertEquals(3.0, series.getWindMean(0), 1e-12);
+    }
+
+    @Test
+    public void setWindow_KeepsTheNewestBuckets() {
+        RollupEngine engine = new RollupEngine(600_000);
+        for (int i = 0; i < 600; i++) {
+            engine.add(T0 + i * 1000L, i, 15.0);
+        }
+
+        engine.setWindow(120_000);
+        RollupSeries series = engine.readResolution(1000, new RollupSeries());
+
+        assertEquals(122, series.size());
+        assertEquals(T0 + 599_000, series.getStartMillis(series.size() - 1));
+        assertEquals(599.0, series.getWindMean(series.size() - 1), 0);
+
+        // Growing again keeps what is left and resumes normally
+        engine.setWindow(600_000);
+        engine.add(T0 + 600_000, 600, 15.0);
+        series = engine.readResolution(1000, series);
+        assertEquals(123, series.size());
+        assertEquals(T0 + 600_000, series.getStartMillis(series.size() - 1));
+    }
+
+    @Test
+    public void clear_RemovesAllBuckets() {
+        RollupEngine engine = new RollupEngine(300_000);
+        engine.add(T0, 2.0, 15.0);
+
+        engine.clear();
+
+        for (long resolution : new long[] {1000, 10_000, 60_000}) {
+            assertEquals(0, engine.readResolution(resolution, new RollupSeries()).size());
+        }
+    }
+
+    @Test
+    public void read_ReusesTheSeries() {
+        RollupEngine engine = new RollupEngine(300_000);
+        engine.add(T0, 2.0, 15.0);
+        RollupSeries series = new RollupSeries();
+
+        assertSame(series, engine.read(10, series));
+        engine.add(T0 + 1000, 2.0, 15.0);
+        assertSame(series, engine.read(10, series));
+        assertEquals(2, series.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readResolution_RejectsUnsupportedResolutions() {
+        new RollupEngine(300_000).readResolution(5000, new RollupSeries());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void series_RejectsIndexPastSize() {
+        RollupEngine engine = new RollupEngine(300_000);
+        engine.add(T0, 2.0, 15.0);
+
+        engine.read(10, new RollupSeries()).getWindMean(1);
+    }
+}
@@ -0,0 +1,100 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of one {@link ThermalAnalyzer#analyze(WeatherData)} call as the history window
+ * grows from one minute at 1 Hz to well beyond ten minutes at 10 Hz, and compares the rolling wind
+ * statistics with the list-based two-pass calculation they replaced.
+ */
+public class ThermalAnalyzerBenchmarkTest {
+
+    private static final int[] WINDOW_SIZES = {60, 600, 6_000, 60_000};
+    private static final int SAMPLES = 200_000;
+    private static final int REFERENCE_SAMPLES = 5_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 3;
+
+    private WeatherData[] readings;
+    private double checksum;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        readings = new WeatherData[1024];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = new WeatherData(3 + Math.sin(i * 0.1), 20 + Math.cos(i * 0.05), 0);
+        }
+    }
+
+    @Test
+    public void analyzeCost_IsFlatAcrossWindowSizes() {
+        double[] nanosPerSample = new double[WINDOW_SIZES.length];
+        double[] referenceNanosPerSample = new double[WINDOW_SIZES.length];
+
+        for (int w = 0; w < WINDOW_SIZES.length; w++) {
+            int window = WINDOW_SIZES[w];
+            long best = Long.MAX_VALUE;
+            long bestReference = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                ThermalAnalyzer analyzer = new ThermalAnalyzer(window);
+                analyzer.setEnabled(true);
+                long start = System.nanoTime();
+                for (int i = 0; i < SAMPLES; i++) {
+                    checksum += analyzer.analyze(readings[i & 1023]).score;
+                }
+                long elapsed = System.nanoTime() - start;
+
+                // Start the reference with a full window, as the analyzer is after its warm-up
+                List<WeatherData> history = new ArrayList<>();
+                for (int i = 0; i < window; i++) history.add(readings[i & 1023]);
+                start = System.nanoTime();
+                for (int i = 0; i < REFERENCE_SAMPLES; i++) {
+                    checksum += listStdDev(history, readings[i & 1023], window);
+                }
+                long reference = System.nanoTime() - start;
+
+                if (round >= WARMUP_ROUNDS) {
+                    best = Math.min(best, elapsed);
+                    bestReference = Math.min(bestReference, reference);
+                }
+            }
+            nanosPerSample[w] = (double) best / SAMPLES;
+            referenceNanosPerSample[w] = (double) bestReference / REFERENCE_SAMPLES;
+        }
+
+        System.out.println("ThermalAnalyzer.analyze cost per sample (checksum " + checksum + ")");
+        for (int w = 0; w < WINDOW_SIZES.length; w++) {
+            System.out.printf(
+                    "  window %,7d   rolling %,8.1f ns   list two-pass %,12.1f ns%n",
+                    WINDOW_SIZES[w], nanosPerSample[w], referenceNanosPerSample[w]);
+        }
+
+        // A thousandfold larger window may not cost more than a small constant factor
+        assertTrue(nanosPerSample[WINDOW_SIZES.length - 1] < nanosPerSample[0] * 3);
+    }
+
+    /** The replaced calculation: bounded ArrayList history with two passes per sample. */
+    private static double listStdDev(List<WeatherData> history, WeatherData current, int size) {
+        history.add(current);
+        if (history.size() > size) history.remove(0);
+
+        double sumWind = 0;
+        for (WeatherData d : history) sumWind += d.getWindSpeed();
+        double avgWind = sumWind / history.size();
+
+        double sumSqDiff = 0;
+        for (WeatherData d : history) sumSqDiff += Math.pow(d.getWindSpeed() - avgWind, 2);
+        return Math.sqrt(sumSqDiff / history.size());
+    }
+}
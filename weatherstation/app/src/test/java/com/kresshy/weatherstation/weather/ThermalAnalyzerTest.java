@@ -1,6 +1,7 @@
 package com.kresshy.weatherstation.weather;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.kresshy.weatherstation.repository.WeatherRepository;
@@ -8,24 +9,43 @@ import com.kresshy.weatherstation.repository.WeatherRepository;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Date;
+
 /**
  * Unit tests for the {@link ThermalAnalyzer}. Verifies EMA accuracy, trend detection (rising temp,
  * falling wind), scoring logic, and launch decision thresholds.
  */
 public class ThermalAnalyzerTest {
 
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
     private ThermalAnalyzer analyzer;
+    private long nextTimestamp;
 
     @Before
     public void setUp() {
         analyzer = new ThermalAnalyzer();
         analyzer.setEnabled(true);
+        nextTimestamp = START_MILLIS;
+    }
+
+    /** Creates a reading one second after the previous one. */
+    private WeatherData reading(double windSpeed, double temperature) {
+        WeatherData data = at(nextTimestamp, windSpeed, temperature);
+        nextTimestamp += 1000;
+        return data;
+    }
+
+    private static WeatherData at(long millis, double windSpeed, double temperature) {
+        WeatherData data = new WeatherData(windSpeed, temperature);
+        data.setTimestamp(new Date(millis));
+        return data;
     }
 
     /** Verifies that the first data point correctly initializes EMAs. */
     @Test
     public void analyze_InitializesOnFirstData() {
-        WeatherData data = new WeatherData(2.0, 25.0);
+        WeatherData data = reading(2.0, 25.0);
         ThermalAnalyzer.AnalysisResult result = analyzer.analyze(data);
 
         assertEquals(WeatherRepository.LaunchDecision.WAITING, result.decision);
@@ -38,12 +58,12 @@ public class ThermalAnalyzerTest {
     @Test
     public void analyze_DetectsRisingTemperature() {
         // Initialize
-        analyzer.analyze(new WeatherData(2.0, 25.0));
+        analyzer.analyze(reading(2.0, 25.0));
 
         // Simulate rising temperature over multiple readings
         ThermalAnalyzer.AnalysisResult result = null;
         for (int i = 1; i <= 10; i++) {
-            result = analyzer.analyze(new WeatherData(2.0, 25.0 + (i * 0.1)));
+            result = analyzer.analyze(reading(2.0, 25.0 + (i * 0.1)));
         }
 
         assertTrue("Temperature trend should be positive", result.tempTrend > 0);
@@ -54,12 +74,12 @@ public class ThermalAnalyzerTest {
     @Test
     public void analyze_DetectsFallingWind() {
         // Initialize
-        analyzer.analyze(new WeatherData(5.0, 25.0));
+        analyzer.analyze(reading(5.0, 25.0));
 
         // Simulate falling wind
         ThermalAnalyzer.AnalysisResult result = null;
         for (int i = 1; i <= 10; i++) {
-            result = analyzer.analyze(new WeatherData(5.0 - (i * 0.2), 25.0));
+            result = analyzer.analyze(reading(5.0 - (i * 0.2), 25.0));
         }
 
         assertTrue("Wind trend should be negative (falling)", result.windTrend < 0);
@@ -70,26 +90,48 @@ public class ThermalAnalyzerTest {
     @Test
     public void analyze_TriggersLaunchDecision() {
         // Initialize
-        analyzer.analyze(new WeatherData(5.0, 25.0));
+        analyzer.analyze(reading(5.0, 25.0));
 
         // Simulate ideal conditions: Rising temp AND falling wind
         ThermalAnalyzer.AnalysisResult result = null;
         for (int i = 1; i <= 20; i++) {
-            result = analyzer.analyze(new WeatherData(5.0 - (i * 0.2), 25.0 + (i * 0.2)));
+            result = analyzer.analyze(reading(5.0 - (i * 0.2), 25.0 + (i * 0.2)));
         }
 
         assertEquals(WeatherRepository.LaunchDecision.LAUNCH, result.decision);
         assertTrue("Score should be high for ideal conditions", result.score >= 70);
     }
 
+    /** Verifies that the decision thresholds and half-lives come from the parameters. */
+    @Test
+    public void analyze_UsesGivenParameters() {
+        ThermalAnalyzer.Parameters eager =
+                new ThermalAnalyzer.Parameters(1.0, 20.0, 30, 10, 5, 8.0);
+        ThermalAnalyzer custom = new ThermalAnalyzer(eager);
+        custom.setEnabled(true);
+
+        analyzer.analyze(reading(6.0, 25.0));
+        nextTimestamp = START_MILLIS;
+        custom.analyze(reading(6.0, 25.0));
+        ThermalAnalyzer.AnalysisResult byDefault =
+                analyzer.analyze(at(START_MILLIS + 1000, 6.0, 25.5));
+        ThermalAnalyzer.AnalysisResult result = custom.analyze(at(START_MILLIS + 1000, 6.0, 25.5));
+
+        // 6 m/s is above the default wind limit but below the custom one
+        assertEquals(WeatherRepository.LaunchDecision.POOR, byDefault.decision);
+        assertEquals(WeatherRepository.LaunchDecision.LAUNCH, result.decision);
+        // A longer slow half-life leaves the slow EMA further behind
+        assertTrue(result.tempTrend > byDefault.tempTrend);
+    }
+
     /** Verifies that high wind speed correctly triggers a POOR decision. */
     @Test
     public void analyze_TriggersPoorDecisionOnHighWind() {
         // Initialize
-        analyzer.analyze(new WeatherData(2.0, 25.0));
+        analyzer.analyze(reading(2.0, 25.0));
 
         // High wind (over 5.0)
-        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(new WeatherData(6.0, 25.0));
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(6.0, 25.0));
 
         assertEquals(WeatherRepository.LaunchDecision.POOR, result.decision);
     }
@@ -98,13 +140,13 @@ public class ThermalAnalyzerTest {
     @Test
     public void reset_ClearsHistoryAndEma() {
         // Fill history
-        analyzer.analyze(new WeatherData(2.0, 25.0));
-        analyzer.analyze(new WeatherData(3.0, 26.0));
+        analyzer.analyze(reading(2.0, 25.0));
+        analyzer.analyze(reading(3.0, 26.0));
 
         analyzer.reset();
 
         // After reset, it should behave like the first initialization again
-        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(new WeatherData(2.0, 25.0));
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(2.0, 25.0));
         assertEquals(WeatherRepository.LaunchDecision.WAITING, result.decision);
         assertEquals(0.0, result.tempTrend, 0.001);
     }
@@ -114,10 +156,10 @@ public class ThermalAnalyzerTest {
     public void analyze_RespectsDisabledStateButReturnsTrends() {
         analyzer.setEnabled(false);
         // Initialize
-        analyzer.analyze(new WeatherData(5.0, 25.0));
+        analyzer.analyze(reading(5.0, 25.0));
 
         // Simulate changing conditions
-        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(new WeatherData(1.0, 30.0));
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(1.0, 30.0));
 
         // Decision and Score should be suppressed
         assertEquals(WeatherRepository.LaunchDecision.WAITING, result.decision);
@@ -134,16 +176,16 @@ public class ThermalAnalyzerTest {
         analyzer.setEnabled(true);
 
         // 1. Get baseline score with Normal sensitivity (1.0)
-        analyzer.analyze(new WeatherData(5.0, 25.0));
-        ThermalAnalyzer.AnalysisResult normalResult = analyzer.analyze(new WeatherData(2.0, 27.0));
+        analyzer.analyze(reading(5.0, 25.0));
+        ThermalAnalyzer.AnalysisResult normalResult = analyzer.analyze(reading(2.0, 27.0));
         int normalScore = normalResult.score;
 
         // 2. Test Low sensitivity (0.7)
         analyzer.reset();
         analyzer.setEnabled(true);
         analyzer.setSensitivity(0.7);
-        analyzer.analyze(new WeatherData(5.0, 25.0));
-        ThermalAnalyzer.AnalysisResult lowResult = analyzer.analyze(new WeatherData(2.0, 27.0));
+        analyzer.analyze(reading(5.0, 25.0));
+        ThermalAnalyzer.AnalysisResult lowResult = analyzer.analyze(reading(2.0, 27.0));
 
         assertEquals(
                 "Low sensitivity score should be 70% of normal",
@@ -153,11 +195,185 @@ public class ThermalAnalyzerTest {
         analyzer.reset();
         analyzer.setEnabled(true);
         analyzer.setSensitivity(1.3);
-        analyzer.analyze(new WeatherData(5.0, 25.0));
-        ThermalAnalyzer.AnalysisResult highResult = analyzer.analyze(new WeatherData(2.0, 27.0));
+        analyzer.analyze(reading(5.0, 25.0));
+        ThermalAnalyzer.AnalysisResult highResult = analyzer.analyze(reading(2.0, 27.0));
 
         assertEquals(
                 "High sensitivity score should be 130% of normal",
                 Math.min(100, (int) (normalScore * 1.3)), highResult.score);
     }
+
+    /** Verifies that the EMAs decay per second, matching the former factors at 1 Hz. */
+    @Test
+    public void analyze_AtOneHertz_MatchesPerSampleFactors() {
+        analyzer.analyze(reading(2.0, 20.0));
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(2.0, 21.0));
+
+        // fast = 0.5 * 21 + 0.5 * 20, slow = 0.1 * 21 + 0.9 * 20
+        assertEquals(20.5 - 20.1, result.tempTrend, 1e-6);
+    }
+
+    /** Verifies that the same temperature ramp gives the same trend at 1 Hz and 10 Hz. */
+    @Test
+    public void analyze_TrendIsIndependentOfSampleRate() {
+        ThermalAnalyzer slow = new ThermalAnalyzer();
+        ThermalAnalyzer fast = new ThermalAnalyzer();
+        ThermalAnalyzer.AnalysisResult slowResult = null;
+        ThermalAnalyzer.AnalysisResult fastResult = null;
+
+        // 0.05 degC per second for 30 seconds
+        for (int tenths = 0; tenths <= 300; tenths++) {
+            long millis = START_MILLIS + tenths * 100L;
+            double temperature = 20.0 + 0.005 * tenths;
+            fastResult = fast.analyze(at(millis, 2.0, temperature));
+            if (tenths % 10 == 0) slowResult = slow.analyze(at(millis, 2.0, temperature));
+        }
+
+        // The slope times the difference of the EMA lags, 0.05 * (9.0 - 1.0) at 1 Hz
+        assertEquals(slowResult.tempTrend, fastResult.tempTrend, 0.05);
+        assertTrue(fastResult.tempTrend > 0.3);
+    }
+
+    /** Verifies that a long gap leaves no weight on the old averages. */
+    @Test
+    public void analyze_AfterLongGap_RestartsTrends() {
+        analyzer.analyze(at(START_MILLIS, 2.0, 20.0));
+        analyzer.analyze(at(START_MILLIS + 1000, 2.0, 21.0));
+
+        ThermalAnalyzer.AnalysisResult result =
+                analyzer.analyze(at(START_MILLIS + 3_600_000, 2.0, 15.0));
+
+        assertEquals(0.0, result.tempTrend, 1e-9);
+    }
+
+    /** Verifies that readings with the same timestamp count as one step with their mean. */
+    @Test
+    public void analyze_BurstWithEqualTimestamps_IsAveragedIntoOneStep() {
+        ThermalAnalyzer single = new ThermalAnalyzer();
+        single.analyze(at(START_MILLIS, 2.0, 20.0));
+        ThermalAnalyzer.AnalysisResult expected =
+                single.analyze(at(START_MILLIS + 1000, 3.0, 22.0));
+
+        analyzer.analyze(at(START_MILLIS, 2.0, 20.0));
+        analyzer.analyze(at(START_MILLIS + 1000, 1.0, 21.0));
+        analyzer.analyze(at(START_MILLIS + 1000, 5.0, 23.0));
+        // Out of order, so it joins the same step
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(at(START_MILLIS + 500, 3.0, 22.0));
+
+        assertEquals(expected.tempTrend, result.tempTrend, 1e-9);
+        assertEquals(expected.windTrend, result.windTrend, 1e-9);
+    }
+
+    /** Verifies that readings closer together than any fixed minimum decay by the real time. */
+    @Test
+    public void analyze_ShortInterval_DecaysByElapsedTime() {
+        analyzer.analyze(at(START_MILLIS, 2.0, 20.0));
+
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(at(START_MILLIS + 10, 2.0, 21.0));
+
+        double fastKeep = Math.pow(0.5, 10 / (ThermalAnalyzer.FAST_HALF_LIFE_SECONDS * 1000));
+        double slowKeep = Math.pow(0.5, 10 / (ThermalAnalyzer.SLOW_HALF_LIFE_SECONDS * 1000));
+        assertEquals(slowKeep - fastKeep, result.tempTrend, 1e-9);
+    }
+
+    /** Verifies the gust and lull over the short span and the extremes over the long one. */
+    @Test
+    public void analyze_ReportsGustsAndLulls() {
+        analyzer.analyze(reading(4.0, 25.0));
+        analyzer.analyze(reading(9.0, 25.0));
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(1.5, 25.0));
+
+        assertEquals(9.0, result.gust, 0);
+        assertEquals(1.5, result.lull, 0);
+
+        // Three seconds later the 9 m/s gust has left the gust span but not the peak span
+        analyzer.analyze(reading(3.0, 25.0));
+        result = analyzer.analyze(reading(3.5, 25.0));
+
+        assertEquals(3.5, result.gust, 0);
+        assertEquals(1.5, result.lull, 0);
+        assertEquals(9.0, result.peakGust, 0);
+        assertEquals(1.5, result.lowestLull, 0);
+
+        nextTimestamp += ThermalAnalyzer.PEAK_SPAN_MS;
+        result = analyzer.analyze(reading(3.0, 25.0));
+
+        assertEquals(3.0, result.peakGust, 0);
+        assertEquals(3.0, result.lowestLull, 0);
+    }
+
+    /** Verifies the 90th percentile estimate of the wind speed, also while disabled. */
+    @Test
+    public void analyze_EstimatesNinetiethPercentileWind() {
+        analyzer.setEnabled(false);
+        ThermalAnalyzer.AnalysisResult result = null;
+        for (int i = 0; i < 1000; i++) result = analyzer.analyze(reading(i % 100 / 10.0, 25.0));
+
+        assertEquals(9.0, result.windP90, 0.15);
+        assertEquals(9.9, result.gust, 0);
+    }
+
+    /** Verifies that the 90th percentile follows the recent wind rather than the whole session. */
+    @Test
+    public void analyze_NinetiethPercentile_ForgetsWindOlderThanThePeakSpan() {
+        ThermalAnalyzer.AnalysisResult result = null;
+        for (int i = 0; i < 1200; i++) result = analyzer.analyze(reading(12.0, 25.0));
+        assertEquals(12.0, result.windP90, 0);
+
+        for (int i = 0; i < 1200; i++) result = analyzer.analyze(reading(3.0, 25.0));
+
+        assertEquals(3.0, result.windP90, 0);
+    }
+
+    /** Verifies that reset() also forgets the wind extremes. */
+    @Test
+    public void reset_ClearsWindExtremes() {
+        analyzer.analyze(reading(12.0, 25.0));
+        analyzer.reset();
+
+        ThermalAnalyzer.AnalysisResult result = analyzer.analyze(reading(2.0, 25.0));
+
+        assertEquals(2.0, result.gust, 0);
+        assertEquals(2.0, result.peakGust, 0);
+        assertEquals(2.0, result.windP90, 0);
+    }
+
+    /** Verifies that a restored analyzer scores exactly like one that was never interrupted. */
+    @Test
+    public void restore_ContinuesLikeTheSavedAnalyzer() {
+        WeatherHistory recent = new WeatherHistory();
+        for (int i = 0; i < 120; i++) {
+            // Winds a float holds exactly, as the history stores floats
+            WeatherData data = reading(4.0 + (i % 4) * 0.25 - (i / 10) * 0.125, 20 + i * 0.01);
+            analyzer.analyze(data);
+            recent.add(data);
+        }
+        ThermalAnalyzer restored = new ThermalAnalyzer();
+        restored.setEnabled(true);
+
+        restored.restore(analyzer.getState(), recent);
+
+        for (int i = 0; i < 30; i++) {
+            WeatherData data = reading(2.75 + (i % 3) * 0.25, 21.2 + i * 0.02);
+            ThermalAnalyzer.AnalysisResult expected = analyzer.analyze(data);
+            ThermalAnalyzer.AnalysisResult actual = restored.analyze(data);
+            assertEquals(expected.decision, actual.decision);
+            assertEquals(expected.score, actual.score);
+            assertEquals(expected.tempTrend, actual.tempTrend, 0);
+            assertEquals(expected.windTrend, actual.windTrend, 0);
+            assertEquals(expected.peakGust, actual.peakGust, 0);
+            assertEquals(expected.windP90, actual.windP90, 0);
+        }
+    }
+
+    /** Verifies that there is nothing to save before the first reading. */
+    @Test
+    public void getState_BeforeFirstReading_IsNull() {
+        assertNull(analyzer.getState());
+
+        analyzer.analyze(reading(2.0, 25.0));
+
+        assertEquals(25.0, analyzer.getState().slowEmaTemp, 0);
+        assertEquals(START_MILLIS, analyzer.getState().lastTimestampMillis);
+    }
 }
@@ -0,0 +1,161 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** Unit tests for {@link ThermalCycleDetector}. */
+public class ThermalCycleDetectorTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long DT = ThermalCycleDetector.SAMPLE_INTERVAL_MS;
+
+    /** Warming morning air with a thermal cycle on top. */
+    private static double temperature(long millis, long periodMillis, double amplitude) {
+        double minutes = (millis - T0) / 60_000.0;
+        double phase = 2 * Math.PI * (millis - T0) / periodMillis;
+        return 18 + 0.05 * minutes + amplitude * Math.cos(phase);
+    }
+
+    /** Feeds the mean of each sample interval, sampled at its middle. */
+    private static ThermalCycleDetector feed(int samples, long periodMillis, double amplitude) {
+        ThermalCycleDetector detector = new ThermalCycleDetector();
+        for (int i = 0; i < samples; i++) {
+            long start = T0 + i * DT;
+            detector.add(start, temperature(start + DT / 2, periodMillis, amplitude));
+        }
+        return detector;
+    }
+
+    @Test
+    public void estimate_BeforeWindowIsFull_ReturnsNull() {
+        ThermalCycleDetector detector =
+                feed(ThermalCycleDetector.WINDOW_SAMPLES, 5 * 60_000, 0.8);
+
+        assertNull(detector.estimate());
+    }
+
+    @Test
+    public void estimate_FindsPeriodDespiteWarmingTrend() {
+        ThermalCycleDetector detector = feed(400, 5 * 60_000, 0.8);
+
+        ThermalCycle cycle = detector.estimate();
+
+        assertNotNull(cycle);
+        assertEquals(5 * 60_000, cycle.getPeriodMillis(), 3_000);
+        assertEquals(0.8, cycle.getAmplitude(), 0.1);
+        assertTrue(cycle.getConfidence() > 0.9);
+    }
+
+    @Test
+    public void estimate_FindsPeriodBetweenBins() {
+        long period = 7 * 60_000;
+        ThermalCycleDetector detector = feed(400, period, 0.5);
+
+        ThermalCycle cycle = detector.estimate();
+
+        assertNotNull(cycle);
+        assertEquals(period, cycle.getPeriodMillis(), 0.05 * period);
+    }
+
+    @Test
+    public void estimate_PredictsWarmHalfOfNextCycle() {
+        int inWindow = 0;
+        int ahead = 0;
+        for (long period : new long[] {6 * 60_000, 7 * 60_000}) {
+            for (int samples = 300; samples < 345; samples += 3) {
+                ThermalCycle cycle = feed(samples, period, 1.0).estimate();
+                assertNotNull(cycle);
+                long start = cycle.getWindowStartMillis();
+                long end = cycle.getWindowEndMillis();
+                assertTrue(end > cycle.getEstimatedAtMillis());
+
+                // The reported phase matches the true phase at the estimate time
+                double truePhase = phaseAt(cycle.getEstimatedAtMillis(), period);
+                double error = Math.abs(wrap(truePhase - cycle.getPhase()));
+                assertTrue("phase error " + error, error < 0.3);
+
+                if (cycle.isInWindow()) {
+                    inWindow++;
+                    assertTrue(Math.cos(truePhase) > -0.3);
+                } else {
+                    // The true cycle peaks in the middle of the predicted window
+                    ahead++;
+                    double offset = Math.abs(wrap(phaseAt((start + end) / 2, period)));
+                    assertTrue("offset " + offset, offset < 0.3);
+                    assertEquals(period / 2.0, end - start, 0.05 * period);
+                }
+            }
+        }
+        assertTrue(inWindow > 0);
+        assertTrue(ahead > 0);
+    }
+
+    @Test
+    public void estimate_NoiseOnly_ReturnsNull() {
+        ThermalCycleDetector detector = new ThermalCycleDetector();
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            detector.add(T0 + i * DT, 20 + 0.3 * random.nextGaussian());
+        }
+
+        assertNull(detector.estimate());
+    }
+
+    @Test
+    public void estimate_SteadyTrend_ReturnsNull() {
+        ThermalCycleDetector detector = feed(400, 5 * 60_000, 0);
+
+        assertNull(detector.estimate());
+    }
+
+    @Test
+    public void add_ShortGap_IsInterpolated() {
+        long period = 5 * 60_000;
+        ThermalCycleDetector detector = new ThermalCycleDetector();
+        for (int i = 0; i < 400; i++) {
+            if (i % 50 == 7) continue; // a bucket without readings
+            long start = T0 + i * DT;
+            detector.add(start, temperature(start + DT / 2, period, 0.8));
+        }
+
+        ThermalCycle cycle = detector.estimate();
+
+        assertNotNull(cycle);
+        assertEquals(period, cycle.getPeriodMillis(), 3_000);
+    }
+
+    @Test
+    public void add_LongGap_StartsOver() {
+        ThermalCycleDetector detector = feed(400, 5 * 60_000, 0.8);
+        long resume = T0 + 2 * 3_600_000L;
+
+        detector.add(resume, 20);
+
+        assertEquals(resume, detector.getLastSampleMillis());
+        assertNull(detector.estimate());
+    }
+
+    @Test
+    public void add_OldSample_IsIgnored() {
+        ThermalCycleDetector detector = feed(10, 5 * 60_000, 0.8);
+        long last = detector.getLastSampleMillis();
+
+        detector.add(T0, 30);
+
+        assertEquals(last, detector.getLastSampleMillis());
+    }
+
+    private static double phaseAt(long millis, long periodMillis) {
+        return 2 * Math.PI * ((millis - T0) % periodMillis) / periodMillis;
+    }
+
+    private static double wrap(double angle) {
+        return Math.atan2(Math.sin(angle), Math.cos(angle));
+    }
+}
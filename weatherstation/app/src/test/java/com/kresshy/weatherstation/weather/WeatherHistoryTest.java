@@ -0,0 +1,141 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+/** Unit tests for {@link WeatherHistory}. */
+public class WeatherHistoryTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void add_StoresEveryColumn() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(T0, 3.5, 21.25, -67, 2);
+
+        assertEquals(1, history.size());
+        assertEquals(T0, history.getTimestampMillis(0));
+        assertEquals(3.5f, history.getWindSpeed(0), 0);
+        assertEquals(21.25f, history.getTemperature(0), 0);
+        assertEquals(-67, history.getRssi(0));
+        assertEquals(2, history.getNodeId(0));
+    }
+
+    @Test
+    public void toWeatherData_RoundTrips() {
+        WeatherData data = new WeatherData(4.0, 18.5, 1);
+        data.setRssi(-80);
+        data.setTimestamp(new Date(T0));
+        WeatherHistory history = new WeatherHistory();
+        history.add(data);
+
+        WeatherData copy = history.snapshot().toWeatherData(0);
+
+        assertEquals(4.0, copy.getWindSpeed(), 0);
+        assertEquals(18.5, copy.getTemperature(), 0);
+        assertEquals(1, copy.getNodeId());
+        assertEquals(-80, copy.getRssi());
+        assertEquals(T0, copy.getTimestamp().getTime());
+    }
+
+    @Test
+    public void add_SpansManyPagesInOrder() {
+        WeatherHistory history = new WeatherHistory();
+        int count = WeatherHistory.PAGE_SIZE * 10 + 7;
+        for (int i = 0; i < count; i++) {
+            history.add(T0 + i * 100L, i % 50, 15.0, 0, 0);
+        }
+
+        assertEquals(count, history.size());
+        assertEquals(11, history.getPageCount());
+        for (int i = 0; i < count; i += 997) {
+            assertEquals(T0 + i * 100L, history.getTimestampMillis(i));
+            assertEquals(i % 50, history.getWindSpeed(i), 0);
+        }
+    }
+
+    @Test
+    public void indexAtOrAfter_FindsTheFirstReadingNotOlder() {
+        WeatherHistory history = new WeatherHistory();
+        for (int i = 0; i < 10_000; i++) {
+            history.add(T0 + i * 100L, 1.0, 15.0, 0, 0);
+        }
+
+        assertEquals(0, history.indexAtOrAfter(T0 - 5000));
+        assertEquals(0, history.indexAtOrAfter(T0));
+        assertEquals(1, history.indexAtOrAfter(T0 + 1));
+        assertEquals(5000, history.indexAtOrAfter(T0 + 500_000));
+        assertEquals(10_000, history.indexAtOrAfter(T0 + 1_000_000));
+    }
+
+    @Test
+    public void add_ClampsReadingsOlderThanTheirPredecessor() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(T0 + 1000, 1.0, 15.0, 0, 0);
+        history.add(T0, 2.0, 15.0, 0, 0);
+
+        assertEquals(T0 + 1000, history.getTimestampMillis(1));
+        assertEquals(2, history.indexAtOrAfter(T0 + 1001));
+    }
+
+    @Test
+    public void evictBefore_DropsOldReadingsAndReusesPages() {
+        WeatherHistory history = new WeatherHistory();
+        long windowMillis = 60_000;
+        // Ten minutes at 10 Hz, keeping a one-minute window
+        for (int i = 0; i < 6000; i++) {
+            long t = T0 + i * 100L;
+            history.add(t, 1.0, 15.0, 0, 0);
+            history.evictBefore(t - windowMillis);
+        }
+
+        assertEquals(601, history.size());
+        assertEquals(T0 + 539_900, history.getTimestampMillis(0));
+        assertEquals(T0 + 599_900, history.getTimestampMillis(600));
+        assertTrue(history.getPageCount() <= 2);
+    }
+
+    @Test
+    public void clear_EmptiesAndAcceptsNewReadings() {
+        WeatherHistory history = new WeatherHistory();
+        for (int i = 0; i < WeatherHistory.PAGE_SIZE + 10; i++) {
+            history.add(T0 + i, 1.0, 15.0, 0, 0);
+        }
+
+        history.clear();
+        assertEquals(0, history.size());
+
+        history.add(T0, 2.0, 16.0, 0, 0);
+        assertEquals(1, history.size());
+        assertEquals(T0, history.getTimestampMillis(0));
+        assertEquals(2.0f, history.getWindSpeed(0), 0);
+    }
+
+    @Test
+    public void eightHourSession_FitsInTenMegabytes() {
+        WeatherHistory history = new WeatherHistory();
+        int readings = 8 * 3600 * 10;
+        for (int i = 0; i < readings; i++) {
+            history.add(T0 + i * 100L, 1.0, 15.0, -70, 0);
+        }
+
+        long bytes =
+                (long) history.getPageCount()
+                        * WeatherHistory.PAGE_SIZE
+                        * WeatherHistory.BYTES_PER_READING;
+        assertEquals(readings, history.size());
+        assertTrue("Uses " + bytes + " bytes", bytes < 10L * 1024 * 1024);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_RejectsIndexPastSize() {
+        WeatherHistory history = new WeatherHistory();
+        history.add(T0, 1.0, 15.0, 0, 0);
+
+        history.getWindSpeed(1);
+    }
+}
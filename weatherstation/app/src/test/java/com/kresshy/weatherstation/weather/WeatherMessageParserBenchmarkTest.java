@@ -0,0 +1,127 @@
+package com.kresshy.weatherstation.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kresshy.weatherstation.BenchmarkRule;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures single-threaded JSON and legacy frame throughput of {@link WeatherMessageParser} against
+ * the reflective Gson binding it replaced.
+ */
+public class WeatherMessageParserBenchmarkTest {
+
+    private static final int FRAMES = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final String JSON =
+            "{\"version\":2,\"numberOfNodes\":2,\"measurements\":["
+                    + "{\"windSpeed\":3.21,\"temperature\":21.50,\"nodeId\":0,\"rssi\":-64},"
+                    + "{\"windSpeed\":2.87,\"temperature\":21.44,\"nodeId\":1,\"rssi\":-71}]}";
+    private static final String FRAME = "WS_" + JSON + "_end";
+    private static final byte[] FRAME_BYTES = FRAME.getBytes(StandardCharsets.UTF_8);
+    private static final String LEGACY_FRAME = "start_3.21 21.50 1_end";
+
+    private Gson gson;
+    private WeatherMessageParser parser;
+    private long checksum;
+
+    @Rule public BenchmarkRule benchmark = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        gson = new Gson();
+        parser = new WeatherMessageParser(gson);
+    }
+
+    @Test
+    public void jsonFastPath_BeatsReflectiveBinding() {
+        long gsonNanos = Long.MAX_VALUE;
+        long stringNanos = Long.MAX_VALUE;
+        long bytesNanos = Long.MAX_VALUE;
+
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                String pdu = FRAME.substring(3, FRAME.length() - 4);
+                checksum +=
+                        gson.fromJson(pdu, Measurement.class).getWeatherDataForNode(0).getRssi();
+            }
+            long g = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                checksum += parser.parse(FRAME).getRssi();
+            }
+            long s = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                checksum += parser.parse(FRAME_BYTES, 0, FRAME_BYTES.length).getRssi();
+            }
+            long b = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                gsonNanos = Math.min(gsonNanos, g);
+                stringNanos = Math.min(stringNanos, s);
+                bytesNanos = Math.min(bytesNanos, b);
+            }
+        }
+
+        assertEquals(-64L * FRAMES * 3 * (WARMUP_ROUNDS + ROUNDS), checksum);
+
+        System.out.println("JSON parser benchmark (" + FRAMES + " frames, one core)");
+        System.out.printf("  Gson binding      %,.0f frames/s%n", FRAMES / (gsonNanos / 1e9));
+        System.out.printf("  parse(String)     %,.0f frames/s%n", FRAMES / (stringNanos / 1e9));
+        System.out.printf("  parse(byte[])     %,.0f frames/s%n", FRAMES / (bytesNanos / 1e9));
+
+        assertTrue(stringNanos < gsonNanos);
+        assertTrue(bytesNanos < gsonNanos);
+    }
+
+    @Test
+    public void legacyScanner_BeatsRegexSplit() {
+        long splitNanos = Long.MAX_VALUE;
+        long scanNanos = Long.MAX_VALUE;
+
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                String pdu = LEGACY_FRAME.substring(6, LEGACY_FRAME.length() - 4).trim();
+                String[] parts = pdu.split("[\\s,;]+");
+                checksum +=
+                        (long) Double.parseDouble(parts[0].replace(',', '.'))
+                                + Integer.parseInt(parts[2].trim());
+            }
+            long split = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < FRAMES; i++) {
+                WeatherData data = parser.parse(LEGACY_FRAME);
+                checksum += (long) data.getWindSpeed() + data.getNodeId();
+            }
+            long scan = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                splitNanos = Math.min(splitNanos, split);
+                scanNanos = Math.min(scanNanos, scan);
+            }
+        }
+
+        assertEquals(4L * FRAMES * 2 * (WARMUP_ROUNDS + ROUNDS), checksum);
+
+        System.out.println("Legacy parser benchmark (" + FRAMES + " frames, one core)");
+        System.out.printf("  split + replace   %,.0f frames/s%n", FRAMES / (splitNanos / 1e9));
+        System.out.printf("  single-pass scan  %,.0f frames/s%n", FRAMES / (scanNanos / 1e9));
+
+        assertTrue(scanNanos < splitNanos);
+    }
+}
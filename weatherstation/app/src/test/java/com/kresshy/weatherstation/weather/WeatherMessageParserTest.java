@@ -1,19 +1,29 @@
 package com.kresshy.weatherstation.weather;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import com.google.gson.Gson;
+import com.kresshy.weatherstation.connection.GoldenFrames;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
 /**
  * Unit tests for {@link WeatherMessageParser}. Verifies parsing logic for JSON and legacy PDU
  * formats.
  */
 public class WeatherMessageParserTest {
 
+    private static final long RECEIVED_AT = 1_700_000_000_000L;
+
     private WeatherMessageParser parser;
 
     @Before
@@ -133,4 +143,389 @@ public class WeatherMessageParserTest {
         assertEquals(5.5, result.getWindSpeed(), 0.001);
         assertEquals(22.2, result.getTemperature(), 0.001);
     }
+
+    /** Verifies that the schema reader picks up RSSI and keeps the last entry for node 0. */
+    @Test
+    public void parse_JsonFastPath_ReadsRssiAndLastNodeZero() {
+        String rawData =
+                "WS_{ \"version\" : 2, \"numberOfNodes\" : 3, \"measurements\" : ["
+                        + "{\"windSpeed\":1.0,\"temperature\":10.0,\"nodeId\":0},"
+                        + "{\"windSpeed\":2.0,\"temperature\":20.0,\"nodeId\":1},"
+                        + "{\"windSpeed\":-0.25,\"temperature\":-3.5e1,\"nodeId\":0,"
+                        + "\"rssi\":-71}]}\r\n_end";
+
+        WeatherData result = parser.parse(rawData);
+
+        assertEquals(-0.25, result.getWindSpeed(), 0.0);
+        assertEquals(-35.0, result.getTemperature(), 0.0);
+        assertEquals(0, result.getNodeId());
+        assertEquals(-71, result.getRssi());
+    }
+
+    /** Verifies that the fast path produces exactly the doubles Gson produces. */
+    @Test
+    public void parse_JsonFastPath_MatchesGsonValues() {
+        Gson gson = new Gson();
+        String[] values = {
+            "0", "-0", "0.1", "21.50", "3.21", "1e-3", "123456789.12345", "0.30000000000000004",
+            "1.7976931348623157e308", "4.9e-324", "-273.15", "99.999999999999999"
+        };
+
+        for (String value : values) {
+            String json =
+                    "{\"version\":2,\"numberOfNodes\":1,\"measurements\":[{\"windSpeed\":"
+                            + value
+                            + ",\"temperature\":"
+                            + value
+                            + ",\"nodeId\":0}]}";
+            WeatherData expected =
+                    gson.fromJson(json, Measurement.class).getWeatherDataForNode(0);
+
+            WeatherData result = parser.parse("WS_" + json + "_end");
+
+            assertEquals(value, expected.getWindSpeed(), result.getWindSpeed(), 0.0);
+            assertEquals(value, expected.getTemperature(), result.getTemperature(), 0.0);
+        }
+    }
+
+    /** Verifies that documents outside the firmware schema are still handled by Gson. */
+    @Test
+    public void parse_JsonWithUnknownKeys_FallsBackToGson() {
+        String rawData =
+                "WS_{\"version\":2,\"firmware\":\"1.4\",\"measurements\":"
+                        + "[{\"windSpeed\":5.5,\"temperature\":\"22.2\",\"nodeId\":0}]}_end";
+
+        WeatherData result = parser.parse(rawData);
+
+        assertEquals(5.5, result.getWindSpeed(), 0.001);
+        assertEquals(22.2, result.getTemperature(), 0.001);
+    }
+
+    /** Verifies that frames parsed from transport bytes match the String path. */
+    @Test
+    public void parse_FrameBytes_MatchesStringPath() {
+        String[] frames = {
+            "WS_{\"version\":2,\"numberOfNodes\":1,\"measurements\":"
+                    + "[{\"windSpeed\":5.5,\"temperature\":22.2,\"nodeId\":0,\"rssi\":-60}]}_end",
+            "WS_ {\"measurements\":[{\"windSpeed\":1.5,\"temperature\":2.5}]} _end",
+            "WS_{\"measurements\":[{\"windSpeed\":1.5,\"temperature\":2.5,\"nodeId\":1.0}]}_end",
+            "start_5.5 22.2 1_end",
+            "WS_5,5;22,2_end"
+        };
+
+        for (String frame : frames) {
+            byte[] padded = ("xx" + frame + "yy").getBytes(StandardCharsets.UTF_8);
+            WeatherData expected = parser.parse(frame);
+
+            WeatherData result = parser.parse(padded, 2, frame.length());
+
+            assertNotNull(frame, result);
+            assertEquals(frame, expected.getWindSpeed(), result.getWindSpeed(), 0.0);
+            assertEquals(frame, expected.getTemperature(), result.getTemperature(), 0.0);
+            assertEquals(frame, expected.getNodeId(), result.getNodeId());
+            assertEquals(frame, expected.getRssi(), result.getRssi());
+        }
+    }
+
+    /** Verifies that every frame of a burst is returned in order, not just the last one. */
+    @Test
+    public void parseAll_ReturnsEveryFrameInOrder() {
+        String rawData =
+                "junk start_1.0 10.0_end WS_{\"measurements\":[{\"windSpeed\":2.0,"
+                        + "\"temperature\":20.0,\"nodeId\":0}]}_end WS_garbage"
+                        + " start_3.0 30.0 2_end WS_4.0"; // Incomplete trailing frame
+        WeatherDataBatch batch = new WeatherDataBatch();
+
+        parser.parseAll(rawData, RECEIVED_AT, batch);
+
+        assertEquals(3, batch.size());
+        assertEquals(1.0, batch.get(0).getWindSpeed(), 0.0);
+        assertEquals(2.0, batch.get(1).getWindSpeed(), 0.0);
+        assertEquals(3.0, batch.get(2).getWindSpeed(), 0.0);
+        assertEquals(2, batch.get(2).getNodeId());
+    }
+
+    /** Verifies that every format stamps its readings with the time they were received. */
+    @Test
+    public void parseAll_StampsReadingsWithReceiveTime() throws IOException {
+        String[] inputs = {
+            "WS_1.0 10.0_end",
+            "WS_{\"measurements\":[{\"windSpeed\":2.0,\"temperature\":20.0,\"nodeId\":0}]}_end",
+            "WS_{\"firmware\":\"1.4\",\"measurements\":[{\"windSpeed\":3.0}]}_end"
+        };
+        WeatherDataBatch batch = new WeatherDataBatch();
+        for (String input : inputs) {
+            parser.parseAll(input, RECEIVED_AT, batch);
+            assertEquals(input, 1, batch.size());
+            assertEquals(input, RECEIVED_AT, batch.get(0).getTimestamp().getTime());
+        }
+
+        byte[] frame = GoldenFrames.load().get(1);
+        parser.parseAll(frame, 0, frame.length, RECEIVED_AT + 100, batch);
+        assertEquals(2, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(RECEIVED_AT + 100, batch.get(i).getTimestamp().getTime());
+        }
+    }
+
+    /** Verifies that the binary frames of the firmware encoder decode to the encoded readings. */
+    @Test
+    public void parseBinary_GoldenFrames_DecodeEveryNode() throws IOException {
+        List<byte[]> golden = GoldenFrames.load();
+        WeatherDataBatch batch = new WeatherDataBatch();
+
+        byte[] single = golden.get(0);
+        WeatherData data = parser.parse(single, 0, single.length);
+        assertNotNull(data);
+        assertEquals(3.21, data.getWindSpeed(), 0.0);
+        assertEquals(21.5, data.getTemperature(), 0.0);
+        assertEquals(0, data.getRssi());
+
+        byte[] pair = golden.get(1);
+        parser.parseAll(pair, 0, pair.length, RECEIVED_AT, batch);
+        assertEquals(2, batch.size());
+        assertBinaryNode(batch.get(0), 0, 2.87, -4.25, -64);
+        assertBinaryNode(batch.get(1), 1, 12.5, 35.06, -71);
+
+        byte[] triple = golden.get(2);
+        parser.parseAll(triple, 0, triple.length, RECEIVED_AT, batch);
+        assertEquals(3, batch.size());
+        assertBinaryNode(batch.get(0), 0, 0.0, -0.01, -128);
+        assertBinaryNode(batch.get(1), 2, 49.99, 64.99, -1);
+        assertBinaryNode(batch.get(2), 5, 0.05, -34.5, -90);
+
+        // The single-reading API returns node 0 only
+        assertBinaryNode(parser.parse(triple, 0, triple.length), 0, 0.0, -0.01, -128);
+    }
+
+    /** Verifies that binary frames with a bad checksum produce no reading. */
+    @Test
+    public void parseBinary_BadChecksum_ReturnsNothing() throws IOException {
+        byte[] frame = GoldenFrames.load().get(1).clone();
+        frame[frame.length - 1] ^= 0x01;
+
+        assertNull(parser.parse(frame, 0, frame.length));
+        WeatherDataBatch batch = new WeatherDataBatch();
+        assertTrue(parser.parseAll(frame, 0, frame.length, RECEIVED_AT, batch).isEmpty());
+    }
+
+    private static void assertBinaryNode(
+            WeatherData data, int nodeId, double windSpeed, double temperature, int rssi) {
+        assertEquals(nodeId, data.getNodeId());
+        assertEquals(windSpeed, data.getWindSpeed(), 0.0);
+        assertEquals(temperature, data.getTemperature(), 0.0);
+        assertEquals(rssi, data.getRssi());
+    }
+
+    /** Verifies that every node of a multi-node frame is returned, in frame order. */
+    @Test
+    public void parseAll_MultiNodeFrame_ReturnsEveryNode() {
+        String rawData =
+                "WS_{\"version\":2,\"numberOfNodes\":3,\"measurements\":["
+                        + "{\"windSpeed\":1.0,\"temperature\":10.0,\"nodeId\":0,\"rssi\":-50},"
+                        + "{\"windSpeed\":2.0,\"temperature\":20.0,\"nodeId\":1,\"rssi\":-60},"
+                        + "{\"windSpeed\":3.0,\"temperature\":30.0,\"nodeId\":7,\"rssi\":-70},"
+                        + "{\"windSpeed\":4.0,\"temperature\":40.0,\"nodeId\":8,\"rssi\":-80},"
+                        + "{\"windSpeed\":5.0,\"temperature\":50.0,\"nodeId\":9,\"rssi\":-90}"
+                        + "]}_end";
+        byte[] bytes = rawData.getBytes(StandardCharsets.UTF_8);
+        WeatherDataBatch batch = new WeatherDataBatch();
+
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 0) {
+                parser.parseAll(rawData, RECEIVED_AT, batch);
+            } else {
+                parser.parseAll(bytes, 0, bytes.length, RECEIVED_AT, batch);
+            }
+
+            assertEquals(5, batch.size());
+            int[] nodeIds = {0, 1, 7, 8, 9};
+            for (int i = 0; i < 5; i++) {
+                assertEquals(nodeIds[i], batch.get(i).getNodeId());
+                assertEquals(i + 1.0, batch.get(i).getWindSpeed(), 0.0);
+                assertEquals(-50 - 10 * i, batch.get(i).getRssi());
+            }
+        }
+
+        // The single-reading API keeps returning node 0
+        assertEquals(1.0, parser.parse(rawData).getWindSpeed(), 0.0);
+    }
+
+    /** Verifies that multi-node documents outside the schema still fan out through Gson. */
+    @Test
+    public void parseAll_MultiNodeGsonFallback_ReturnsEveryNode() {
+        String rawData =
+                "WS_{\"firmware\":\"1.4\",\"measurements\":["
+                        + "{\"windSpeed\":1.0,\"temperature\":10.0,\"nodeId\":3},"
+                        + "{\"windSpeed\":2.0,\"temperature\":20.0,\"nodeId\":4}]}_end";
+        WeatherDataBatch batch = new WeatherDataBatch();
+
+        parser.parseAll(rawData, RECEIVED_AT, batch);
+
+        assertEquals(2, batch.size());
+        assertEquals(3, batch.get(0).getNodeId());
+        assertEquals(4, batch.get(1).getNodeId());
+    }
+
+    /** Verifies that frames that fail to parse are skipped and the batch is reused. */
+    @Test
+    public void parseAll_SkipsEmptyFramesAndClearsBatch() {
+        WeatherDataBatch batch = new WeatherDataBatch();
+        parser.parseAll("WS_1.0 2.0_endWS_1.0 2.0_end", RECEIVED_AT, batch);
+        assertEquals(2, batch.size());
+
+        parser.parseAll("WS__endWS_{}_endWS_5.0 6.0_end", RECEIVED_AT, batch);
+
+        assertEquals(1, batch.size());
+        assertEquals(5.0, batch.get(0).getWindSpeed(), 0.0);
+    }
+
+    /** Verifies that buffers without complete frames behave like a single {@code parse} call. */
+    @Test
+    public void parseAll_UnframedMessage_MatchesParse() {
+        WeatherDataBatch batch = new WeatherDataBatch();
+        String[] inputs = {"5.5;22.2", "start_5.5, 22.2", "5.5 22.2_end", "", "   "};
+
+        for (String input : inputs) {
+            parser.parseAll(input, RECEIVED_AT, batch);
+            WeatherData expected = parser.parse(input);
+            if (expected == null) {
+                assertTrue(input, batch.isEmpty());
+            } else {
+                assertEquals(input, 1, batch.size());
+                assertEquals(input, expected.getWindSpeed(), batch.get(0).getWindSpeed(), 0.0);
+                assertEquals(input, expected.getTemperature(), batch.get(0).getTemperature(), 0.0);
+            }
+        }
+        assertTrue(parser.parseAll(null, RECEIVED_AT, batch).isEmpty());
+    }
+
+    /** Verifies that the legacy scanner reproduces the former split-based parser exactly. */
+    @Test
+    public void parse_Legacy_MatchesFormerSplitParser() {
+        String[] inputs = {
+            "5.5 22.2",
+            "start_5.5 22.2 1_end",
+            "WS_-3.25;+18.0;7_end",
+            "start_5.5,22.2_end",
+            "start_5,5 22,2_end",
+            "WS_;5.5 22.2_end",
+            "WS_5.5_end",
+            "WS_5. .5_end",
+            "WS_1e1 NaN_end",
+            "WS_0x1p3 5.5d_end",
+            "WS_abc 1.2.3 x_end",
+            "WS_5.5 22.2 +3_end",
+            "WS_5.5 22.2 99999999999_end",
+            "WS_5.5 22.2 -2147483648_end",
+            "WS_0.30000000000000004 123456789012345678_end",
+            "5.5 22.2_end",
+            "start_5.5, 22.2",
+            "start_WS_5.5 22.2",
+            "xWS_5.5 22.2_end_end",
+            "5.5 xWS_end",
+            "5.5 22start_end",
+            "_end5.5 22.2",
+            "WS__end",
+            "\t 5.5\u000B22.2\f3 \r\n"
+        };
+
+        for (String input : inputs) {
+            assertSameResult(input);
+        }
+    }
+
+    /** Compares the scanner with the former parser on random noisy legacy messages. */
+    @Test
+    public void parse_Legacy_RandomInputsMatchFormerSplitParser() {
+        String[] pieces = {
+            "0", "1", "5", "9", ".", ",", ";", " ", "\t", "-", "+", "e", "x", "WS_", "start_",
+            "_end", "_", "W", "s", "end", "\n"
+        };
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int count = 1 + random.nextInt(12);
+            for (int j = 0; j < count; j++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameResult(sb.toString());
+        }
+    }
+
+    private void assertSameResult(String input) {
+        WeatherData expected;
+        try {
+            expected = FormerParser.parse(input);
+        } catch (StringIndexOutOfBoundsException e) {
+            // The former parser crashed on overlapping markers such as "WS_end"
+            return;
+        }
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+
+        for (WeatherData result :
+                new WeatherData[] {parser.parse(input), parser.parse(bytes, 0, bytes.length)}) {
+            String msg = "Input: [" + input + "]";
+            if (expected == null) {
+                assertNull(msg, result);
+                continue;
+            }
+            assertNotNull(msg, result);
+            assertEquals(msg, expected.getWindSpeed(), result.getWindSpeed(), 0.0);
+            assertEquals(msg, expected.getTemperature(), result.getTemperature(), 0.0);
+            assertEquals(msg, expected.getNodeId(), result.getNodeId());
+        }
+    }
+
+    /** The legacy path of the parser before it was rewritten as a single-pass scanner. */
+    private static final class FormerParser {
+        static WeatherData parse(String rawData) {
+            if (rawData == null || rawData.trim().isEmpty()) return null;
+            String pdu = "";
+            int endIdx = rawData.lastIndexOf("_end");
+            if (endIdx != -1) {
+                int startIdx = rawData.lastIndexOf("WS_", endIdx);
+                if (startIdx != -1) {
+                    pdu = rawData.substring(startIdx + 3, endIdx);
+                } else {
+                    startIdx = rawData.lastIndexOf("start_", endIdx);
+                    if (startIdx != -1) {
+                        pdu = rawData.substring(startIdx + 6, endIdx);
+                    }
+                }
+            }
+            pdu = pdu.trim();
+            if (pdu.isEmpty()) {
+                pdu =
+                        rawData.trim()
+                                .replace("WS_", "")
+                                .replace("start_", "")
+                                .replace("_end", "")
+                                .trim();
+            }
+            if (pdu.isEmpty()) return null;
+
+            String[] parts = pdu.split("[\\s,;]+");
+            if (parts.length < 2) return null;
+            double windSpeed = parseDoubleSafe(parts[0]);
+            double temperature = parseDoubleSafe(parts[1]);
+            int nodeId = 0;
+            if (parts.length >= 3) {
+                try {
+                    nodeId = Integer.parseInt(parts[2].trim());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return new WeatherData(windSpeed, temperature, nodeId);
+        }
+
+        private static double parseDoubleSafe(String value) {
+            try {
+                return Double.parseDouble(value.replace(',', '.'));
+            } catch (NumberFormatException e) {
+                return 0.0;
+            }
+        }
+    }
 }
@@ -155,6 +155,18 @@ public class WeatherViewModelTest {
         verify(weatherRepository).getHistoricalWeatherData();
     }
 
+    @Test
+    public void getThermalCycle_delegatesToRepository() {
+        weatherViewModel.getThermalCycle();
+        verify(weatherRepository).getThermalCycle();
+    }
+
+    @Test
+    public void getHistorySnapshot_delegatesToRepository() {
+        weatherViewModel.getHistorySnapshot();
+        verify(weatherRepository).getHistorySnapshot();
+    }
+
     @Test
     public void getToastMessage_delegatesToRepository() {
         weatherViewModel.getToastMessage();